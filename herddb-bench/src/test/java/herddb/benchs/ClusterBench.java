@@ -0,0 +1,380 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.benchs;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.cluster.EmbeddedBookie;
+import herddb.core.TableSpaceManager;
+import herddb.core.stats.TableSpaceManagerStats;
+import herddb.log.LogSequenceNumber;
+import herddb.jdbc.BasicHerdDBDataSource;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.TableSpace;
+import herddb.model.TransactionContext;
+import herddb.model.commands.AlterTableSpaceStatement;
+import herddb.server.Server;
+import herddb.server.ServerConfiguration;
+import herddb.server.StaticClientSideMetadataProvider;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+
+/**
+ * Benchmarks in cluster mode. Starts an in-process ZooKeeper, some bookies and
+ * a leader with its followers, all of them on the local filesystem. Reports
+ * the latency of the operations on the leader and how much the followers are
+ * behind the leader
+ *
+ * @author enrico.olivelli
+ */
+public class ClusterBench extends BaseBench {
+
+    protected final int numBookies;
+    protected final int numFollowers;
+    protected TestingServer zooKeeperServer;
+    protected final List<EmbeddedBookie> bookies = new ArrayList<>();
+    protected final List<Server> followers = new ArrayList<>();
+
+    private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong firstOperationTimestamp = new AtomicLong();
+    private final List<FollowerLag> followerLags = new ArrayList<>();
+    /**
+     * Positions reached by the leader, sampled together with the followers,
+     * oldest first
+     */
+    private final Deque<LeaderPosition> leaderPositions = new ArrayDeque<>();
+    private ScheduledExecutorService lagSampler;
+
+    public ClusterBench(int numThreads, int dataSetSize, int operations, int maxBatchSize, int numBookies, int numFollowers) {
+        super(numThreads, dataSetSize, operations, maxBatchSize);
+        this.numBookies = numBookies;
+        this.numFollowers = numFollowers;
+    }
+
+    /**
+     * Adds an operation to the mix, operations with a greater weight are
+     * executed more often
+     *
+     * @param op
+     * @param weight
+     */
+    public final void addOperation(Operation op, int weight) {
+        for (int i = 0; i < weight; i++) {
+            addOperation(op);
+        }
+    }
+
+    @Before
+    @Override
+    public void startServer() throws Exception {
+        zooKeeperServer = new TestingServer(true);
+        for (int i = 0; i < numBookies; i++) {
+            ServerConfiguration bookieConfiguration = new ServerConfiguration(folder.newFolder().toPath());
+            bookieConfiguration.set(ServerConfiguration.PROPERTY_ZOOKEEPER_ADDRESS, zooKeeperServer.getConnectString());
+            // choose a free port
+            bookieConfiguration.set(ServerConfiguration.PROPERTY_BOOKKEEPER_BOOKIE_PORT, 0);
+            bookieConfiguration.set("bookie.allowLoopback", true);
+            EmbeddedBookie bookie = new EmbeddedBookie(folder.newFolder().toPath(), bookieConfiguration);
+            bookie.start();
+            bookies.add(bookie);
+        }
+
+        threadpool = Executors.newFixedThreadPool(numThreads);
+        serverConfiguration = makeServerConfiguration(0);
+        server = new Server(serverConfiguration);
+        server.start();
+        server.waitForStandaloneBoot();
+
+        Set<String> replicas = new HashSet<>(Arrays.asList(server.getNodeId()));
+        for (int i = 1; i <= numFollowers; i++) {
+            Server follower = new Server(makeServerConfiguration(i));
+            follower.start();
+            followers.add(follower);
+            replicas.add(follower.getNodeId());
+        }
+        server.getManager().executeStatement(new AlterTableSpaceStatement(TableSpace.DEFAULT, replicas, server.getNodeId(), replicas.size(), 0),
+            StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+        for (Server follower : followers) {
+            assertTrue(follower.getManager().waitForTablespace(TableSpace.DEFAULT, 60000, false));
+            followerLags.add(new FollowerLag(follower));
+        }
+
+        client = new HDBClient(new ClientConfiguration(folder.newFolder().toPath()));
+        client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+        dataSource = new BasicHerdDBDataSource(client);
+    }
+
+    /**
+     * Configuration of a server of the cluster, the leader has index 0
+     *
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    protected ServerConfiguration makeServerConfiguration(int index) throws IOException {
+        ServerConfiguration configuration = new ServerConfiguration(folder.newFolder().toPath());
+        configuration.set(ServerConfiguration.PROPERTY_NODEID, "server" + index);
+        configuration.set(ServerConfiguration.PROPERTY_PORT, 7002 + index);
+        configuration.set(ServerConfiguration.PROPERTY_MODE, ServerConfiguration.PROPERTY_MODE_CLUSTER);
+        configuration.set(ServerConfiguration.PROPERTY_ZOOKEEPER_ADDRESS, zooKeeperServer.getConnectString());
+        configuration.set(ServerConfiguration.PROPERTY_BOOKKEEPER_ENSEMBLE, numBookies);
+        configuration.set(ServerConfiguration.PROPERTY_BOOKKEEPER_WRITEQUORUMSIZE, numBookies);
+        configuration.set(ServerConfiguration.PROPERTY_BOOKKEEPER_ACKQUORUMSIZE, numBookies / 2 + 1);
+        return configuration;
+    }
+
+    @Override
+    public Future<?> submit(Callable runnable) {
+        firstOperationTimestamp.compareAndSet(0, System.currentTimeMillis());
+        return super.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return runnable.call();
+            } finally {
+                latencies.add(System.nanoTime() - start);
+            }
+        });
+    }
+
+    @Override
+    public void performOperations() throws Exception {
+        if (lagSampler == null) {
+            lagSampler = Executors.newSingleThreadScheduledExecutor();
+            lagSampler.scheduleWithFixedDelay(this::sampleFollowerLags, 0, 10, TimeUnit.MILLISECONDS);
+        }
+        super.performOperations();
+    }
+
+    @Override
+    public void waitForResults() throws Exception {
+        super.waitForResults();
+        long stop = System.currentTimeMillis();
+        reportLatencies(stop - firstOperationTimestamp.getAndSet(0));
+        if (lagSampler != null) {
+            lagSampler.shutdown();
+            lagSampler.awaitTermination(1, TimeUnit.MINUTES);
+            lagSampler = null;
+        }
+        leaderPositions.clear();
+        LogSequenceNumber leaderPosition = leaderPosition();
+        for (FollowerLag lag : followerLags) {
+            lag.waitForCatchUp(leaderPosition, stop);
+            lag.report();
+            lag.reset();
+        }
+    }
+
+    private LogSequenceNumber leaderPosition() {
+        return server.getManager().getTableSpaceManager(TableSpace.DEFAULT).getLog().getLastSequenceNumber();
+    }
+
+    private void sampleFollowerLags() {
+        long now = System.currentTimeMillis();
+        LogSequenceNumber leaderPosition = leaderPosition();
+        LeaderPosition last = leaderPositions.peekLast();
+        if (last == null || leaderPosition.after(last.position)) {
+            leaderPositions.add(new LeaderPosition(leaderPosition, now));
+        }
+        List<LogSequenceNumber> applied = new ArrayList<>(followerLags.size());
+        for (FollowerLag lag : followerLags) {
+            applied.add(lag.sample(now, leaderPosition, leaderPositions));
+        }
+        // forget the positions already reached by every follower
+        while (leaderPositions.size() > 1 && reachedByAll(leaderPositions.peekFirst().position, applied)) {
+            leaderPositions.pollFirst();
+        }
+    }
+
+    private static boolean reachedByAll(LogSequenceNumber position, List<LogSequenceNumber> applied) {
+        for (LogSequenceNumber followerPosition : applied) {
+            if (followerPosition == null || position.after(followerPosition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reportLatencies(long time) {
+        long[] values = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        latencies.clear();
+        if (values.length == 0) {
+            return;
+        }
+        System.out.println("[BENCH] " + values.length + " operations, " + (values.length * 1000L / Math.max(1, time)) + " ops/s");
+        System.out.println("[BENCH] latency p50: " + percentile(values, 0.50)
+            + " ms, p90: " + percentile(values, 0.90)
+            + " ms, p99: " + percentile(values, 0.99)
+            + " ms, p99.9: " + percentile(values, 0.999)
+            + " ms, max: " + percentile(values, 1)
+            + " ms");
+    }
+
+    private static String percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return String.format("%.3f", sortedNanos[Math.max(0, index)] / 1000000.0);
+    }
+
+    @After
+    @Override
+    public void stopServer() throws Exception {
+        if (lagSampler != null) {
+            lagSampler.shutdownNow();
+        }
+        super.stopServer();
+        for (Server follower : followers) {
+            follower.close();
+        }
+        for (EmbeddedBookie bookie : bookies) {
+            bookie.close();
+        }
+        if (zooKeeperServer != null) {
+            zooKeeperServer.close();
+        }
+    }
+
+    private static final class LeaderPosition {
+
+        private final LogSequenceNumber position;
+        private final long timestamp;
+
+        private LeaderPosition(LogSequenceNumber position, long timestamp) {
+            this.position = position;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Samples how much a follower is behind the leader, comparing the last
+     * entry it has applied with the last entry written by the leader
+     */
+    private static final class FollowerLag {
+
+        private final Server follower;
+        private int samples;
+        private long totalLagMillis;
+        private long maxLagMillis;
+        private long maxLagEntries;
+        /**
+         * Lag reported by the follower itself, through JMX
+         */
+        private long maxReportedLagMillis;
+        private long maxReportedLagEntries;
+
+        private FollowerLag(Server follower) {
+            this.follower = follower;
+        }
+
+        /**
+         * Last entry of the log applied by the follower
+         */
+        private LogSequenceNumber applied() {
+            TableSpaceManager manager = follower.getManager().getTableSpaceManager(TableSpace.DEFAULT);
+            return manager != null ? manager.getLog().getLastSequenceNumber() : null;
+        }
+
+        /**
+         * The follower is behind since the leader wrote the first entry it
+         * has not applied yet
+         *
+         * @return the last entry applied by the follower
+         */
+        private LogSequenceNumber sample(long now, LogSequenceNumber leaderPosition, Deque<LeaderPosition> leaderPositions) {
+            LogSequenceNumber applied = applied();
+            if (applied == null) {
+                return null;
+            }
+            long lagMillis = 0;
+            for (LeaderPosition position : leaderPositions) {
+                if (position.position.after(applied)) {
+                    lagMillis = now - position.timestamp;
+                    break;
+                }
+            }
+            samples++;
+            totalLagMillis += lagMillis;
+            maxLagMillis = Math.max(maxLagMillis, lagMillis);
+            maxLagEntries = Math.max(maxLagEntries, entriesBehind(leaderPosition, applied));
+            TableSpaceManagerStats stats = follower.getManager().getTableSpaceManager(TableSpace.DEFAULT).getStats();
+            maxReportedLagMillis = Math.max(maxReportedLagMillis, stats.getFollowerLagMillis());
+            maxReportedLagEntries = Math.max(maxReportedLagEntries, stats.getFollowerLagEntries());
+            return applied;
+        }
+
+        private static long entriesBehind(LogSequenceNumber leaderPosition, LogSequenceNumber applied) {
+            if (!leaderPosition.after(applied)) {
+                return 0;
+            }
+            if (leaderPosition.ledgerId == applied.ledgerId) {
+                return leaderPosition.offset - applied.offset;
+            }
+            // at least the entries of the current ledger of the leader
+            return leaderPosition.offset + 1;
+        }
+
+        private void waitForCatchUp(LogSequenceNumber leaderPosition, long writesFinishedTimestamp) throws InterruptedException {
+            for (int i = 0; i < 6000; i++) {
+                LogSequenceNumber applied = applied();
+                if (applied != null && !leaderPosition.after(applied)) {
+                    System.out.println("[BENCH] follower " + follower.getNodeId() + " caught up "
+                        + (System.currentTimeMillis() - writesFinishedTimestamp) + " ms after the end of the operations");
+                    return;
+                }
+                Thread.sleep(10);
+            }
+            System.out.println("[BENCH] follower " + follower.getNodeId() + " did not catch up within 60 s");
+        }
+
+        private void report() {
+            System.out.println("[BENCH] follower " + follower.getNodeId()
+                + " lag avg: " + (samples > 0 ? totalLagMillis / samples : -1)
+                + " ms, max: " + maxLagMillis
+                + " ms, max entries behind: " + maxLagEntries
+                + ", reported by the follower max: " + maxReportedLagMillis
+                + " ms, max entries behind: " + maxReportedLagEntries);
+        }
+
+        private void reset() {
+            samples = 0;
+            totalLagMillis = 0;
+            maxLagMillis = 0;
+            maxLagEntries = 0;
+            maxReportedLagMillis = 0;
+            maxReportedLagEntries = 0;
+        }
+    }
+}
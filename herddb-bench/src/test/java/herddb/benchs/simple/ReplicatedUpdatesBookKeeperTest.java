@@ -0,0 +1,52 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.benchs.simple;
+
+import herddb.benchs.ClusterBench;
+import herddb.benchs.InsertOperation;
+import herddb.benchs.UpdateByPKOperation;
+import org.junit.Test;
+
+/**
+ * Concurrent writes on a leader with 2 followers, on 3 bookies
+ *
+ * @author enrico.olivelli
+ */
+public class ReplicatedUpdatesBookKeeperTest extends ClusterBench {
+
+    public ReplicatedUpdatesBookKeeperTest() {
+        super(20,
+            100000,
+            100000,
+            2,
+            3,
+            2);
+        addOperation(new UpdateByPKOperation(), 3);
+        addOperation(new InsertOperation(), 1);
+    }
+
+    @Test
+    public void run() throws Exception {
+        generateData();
+        performOperations();
+        waitForResults();
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads records from a CSV file (RFC 4180), the first line contains the
+ * names of the columns. Values are returned as strings, empty values which
+ * are not quoted are returned as null.
+ *
+ * @author enrico.olivelli
+ */
+public class CSVParser implements Iterator<Object[]> {
+
+    private static final int EOF = -1;
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final String[] columnNames;
+    private int pushedBack = NONE;
+    private Object[] next;
+    private int lineNumber;
+
+    public CSVParser(Reader reader) throws IOException {
+        this.reader = reader;
+        Object[] header = readRecord();
+        if (header == null) {
+            throw new IOException("missing header line");
+        }
+        this.columnNames = new String[header.length];
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] == null) {
+                throw new IOException("empty column name at position " + (i + 1) + " in header line");
+            }
+            columnNames[i] = ((String) header[i]).trim();
+        }
+    }
+
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRecord();
+            } catch (IOException err) {
+                throw new UncheckedIOException(err);
+            }
+            if (next != null && next.length != columnNames.length) {
+                throw new UncheckedIOException(new IOException("bad number of values at line " + lineNumber
+                        + ", found " + next.length + ", expected " + columnNames.length));
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] result = next;
+        next = null;
+        return result;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private Object[] readRecord() throws IOException {
+        List<Object> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean empty = true;
+        lineNumber++;
+        while (true) {
+            int c = read();
+            if (inQuotes) {
+                if (c == EOF) {
+                    throw new IOException("unterminated quoted value at line " + lineNumber);
+                } else if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        current.append('"');
+                    } else {
+                        inQuotes = false;
+                        pushedBack = n;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    current.append((char) c);
+                }
+                continue;
+            }
+            switch (c) {
+                case EOF:
+                    if (empty) {
+                        return null;
+                    }
+                    values.add(value(current, quoted));
+                    return values.toArray();
+                case '\n':
+                    if (empty) {
+                        // skip blank lines
+                        lineNumber++;
+                        break;
+                    }
+                    values.add(value(current, quoted));
+                    return values.toArray();
+                case '\r':
+                    break;
+                case '"':
+                    empty = false;
+                    if (current.length() == 0 && !quoted) {
+                        quoted = true;
+                        inQuotes = true;
+                    } else {
+                        current.append('"');
+                    }
+                    break;
+                case ',':
+                    empty = false;
+                    values.add(value(current, quoted));
+                    current.setLength(0);
+                    quoted = false;
+                    break;
+                default:
+                    empty = false;
+                    current.append((char) c);
+                    break;
+            }
+        }
+    }
+
+    private static Object value(StringBuilder current, boolean quoted) {
+        if (!quoted && current.length() == 0) {
+            return null;
+        }
+        return current.toString();
+    }
+
+}
@@ -49,6 +49,7 @@ import herddb.utils.IntHolder;
 import herddb.utils.SimpleBufferedOutputStream;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -148,6 +149,7 @@ public class HerdDBCLI {
             options.addOption("dfs", "dumpfetchsize", true, "Fetch size for dump operations. Defaults to chunks of 100000 records");
             options.addOption("n", "nodeid", true, "Node id");
             options.addOption("t", "table", true, "Table name");
+            options.addOption("ld", "load", true, "CSV file to load into a table with the bulk load API (needs -t option, the first line contains the names of the columns)");
             options.addOption("p", "param", true, "Parameter name");
             options.addOption("val", "values", true, "Parameter values");
             options.addOption("lts", "list-tablespaces", false, "List available tablespaces");
@@ -245,6 +247,15 @@ public class HerdDBCLI {
                 }
             }
 
+            String load = commandLine.getOptionValue("load", "");
+            if (!load.isEmpty()) {
+                if (table.equals("")) {
+                    println("Specify the table (-t <table>)");
+                    exitCode = 1;
+                    System.exit(exitCode);
+                }
+            }
+
             boolean createTablespace = commandLine.hasOption("create-tablespace");
             if (createTablespace) {
                 if (newschema.equals("")) {
@@ -319,6 +330,8 @@ public class HerdDBCLI {
                         performBackup(statement, schema, file, options, connection, dumpfetchsize);
                     } else if (restore) {
                         performRestore(file, leader, newschema, options, statement, connection);
+                    } else if (!load.isEmpty()) {
+                        loadCsvFile(connection, load, table);
                     } else if (!query.isEmpty()) {
                         executeStatement(verbose, ignoreerrors, false, false, query, statement, tableSpaceMapper, false, PRETTY_PRINT);
                     } else if (!file.isEmpty()) {
@@ -670,6 +683,22 @@ public class HerdDBCLI {
         shell.evaluate(new File(script));
     }
 
+    private static void loadCsvFile(final Connection connection, String file, String table) throws Exception {
+        HerdDBConnection hcon = connection.unwrap(HerdDBConnection.class);
+        long _start = System.currentTimeMillis();
+        File f = new File(file);
+        try (FileInputStream rawStream = new FileInputStream(f);
+                BufferedInputStream buffer = new BufferedInputStream(rawStream);
+                InputStream fIn = wrapStream(f.getName(), buffer);
+                BufferedReader ii = new BufferedReader(new InputStreamReader(fIn, StandardCharsets.UTF_8));) {
+            CSVParser parser = new CSVParser(ii);
+            println("Loading " + f.getAbsolutePath() + " into table " + table + ", columns " + Arrays.toString(parser.getColumnNames()));
+            long count = hcon.bulkLoad(table, parser.getColumnNames(), parser);
+            long delta = Math.max(1, System.currentTimeMillis() - _start);
+            println("loaded " + count + " records in " + delta + " ms (" + (long) (count * 1000.0 / delta) + " records/s)");
+        }
+    }
+
     private static void executeSqlFile(int autotransactionbatchsize, final Connection connection, String file, final boolean verbose, final boolean ignoreerrors, final boolean frommysqldump, final boolean rewritestatements, final Statement statement, TableSpaceMapper tableSpaceMapper, boolean pretty) throws Exception, SQLException {
         if (autotransactionbatchsize > 0) {
             connection.setAutoCommit(false);
@@ -0,0 +1,66 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import org.junit.Test;
+
+/**
+ *
+ * @author enrico.olivelli
+ */
+public class CSVParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        String csv = "id, name,value\r\n"
+            + "1,foo,10\r\n"
+            + "2,\"bar, \"\"quoted\"\"\",\n"
+            + "\n"
+            + "3,\"multi\nline\",\"\"\n"
+            + "4,,30";
+        CSVParser parser = new CSVParser(new StringReader(csv));
+        assertArrayEquals(new String[]{"id", "name", "value"}, parser.getColumnNames());
+        assertArrayEquals(new Object[]{"1", "foo", "10"}, parser.next());
+        assertArrayEquals(new Object[]{"2", "bar, \"quoted\"", null}, parser.next());
+        assertArrayEquals(new Object[]{"3", "multi\nline", ""}, parser.next());
+        assertArrayEquals(new Object[]{"4", null, "30"}, parser.next());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test
+    public void testBadNumberOfValues() throws Exception {
+        CSVParser parser = new CSVParser(new StringReader("a,b\n1,2\n3\n"));
+        assertTrue(parser.hasNext());
+        parser.next();
+        try {
+            parser.hasNext();
+            fail();
+        } catch (UncheckedIOException ok) {
+        }
+    }
+
+}
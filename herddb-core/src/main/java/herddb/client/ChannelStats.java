@@ -0,0 +1,104 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.client;
+
+/**
+ * Statistics about a channel opened by a connection
+ *
+ * @author enrico.olivelli
+ */
+public class ChannelStats {
+
+    private final String nodeId;
+    private final String name;
+    private final boolean connected;
+    private final int inFlightRequests;
+    private final long uncompressedBytesSent;
+    private final long compressedBytesSent;
+    private final long uncompressedBytesReceived;
+    private final long compressedBytesReceived;
+
+    public ChannelStats(String nodeId, String name, boolean connected, int inFlightRequests) {
+        this(nodeId, name, connected, inFlightRequests, 0, 0, 0, 0);
+    }
+
+    public ChannelStats(String nodeId, String name, boolean connected, int inFlightRequests,
+            long uncompressedBytesSent, long compressedBytesSent,
+            long uncompressedBytesReceived, long compressedBytesReceived) {
+        this.nodeId = nodeId;
+        this.name = name;
+        this.connected = connected;
+        this.inFlightRequests = inFlightRequests;
+        this.uncompressedBytesSent = uncompressedBytesSent;
+        this.compressedBytesSent = compressedBytesSent;
+        this.uncompressedBytesReceived = uncompressedBytesReceived;
+        this.compressedBytesReceived = compressedBytesReceived;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Number of requests waiting for a reply
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    /**
+     * Size of the messages sent as compressed frames, before compression
+     */
+    public long getUncompressedBytesSent() {
+        return uncompressedBytesSent;
+    }
+
+    public long getCompressedBytesSent() {
+        return compressedBytesSent;
+    }
+
+    /**
+     * Size of the messages received as compressed frames, after
+     * decompression
+     */
+    public long getUncompressedBytesReceived() {
+        return uncompressedBytesReceived;
+    }
+
+    public long getCompressedBytesReceived() {
+        return compressedBytesReceived;
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelStats{" + "nodeId=" + nodeId + ", name=" + name + ", connected=" + connected + ", inFlightRequests=" + inFlightRequests
+                + ", uncompressedBytesSent=" + uncompressedBytesSent + ", compressedBytesSent=" + compressedBytesSent
+                + ", uncompressedBytesReceived=" + uncompressedBytesReceived + ", compressedBytesReceived=" + compressedBytesReceived + '}';
+    }
+
+}
@@ -23,6 +23,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Properties;
 
+import herddb.network.Message;
+
 /**
  * Client configuration
  *
@@ -74,6 +76,103 @@ public class ClientConfiguration {
     public static final boolean PROPERTY_SERVER_SSL_DEFAULT = false;
     public static final int PROPERTY_ZOOKEEPER_SESSIONTIMEOUT_DEFAULT = 40000;
 
+    /**
+     * Maximum version of the network protocol the client will propose to the
+     * server, the server may choose a lower one
+     */
+    public static final String PROPERTY_NETWORK_PROTOCOL_VERSION = "client.network.protocol.version";
+    public static final int PROPERTY_NETWORK_PROTOCOL_VERSION_DEFAULT = Message.PROTOCOL_VERSION_MAX;
+
+    /**
+     * Messages larger than this size (in bytes) are compressed, if the server
+     * accepts it. Zero disables compression
+     */
+    public static final String PROPERTY_NETWORK_COMPRESSION_THRESHOLD = "client.network.compression.threshold";
+    public static final int PROPERTY_NETWORK_COMPRESSION_THRESHOLD_DEFAULT = 0;
+
+    /**
+     * Number of chunks of data the server may push to a scanner before the
+     * client asks for them. Zero means that the client fetches each chunk
+     * with a request
+     */
+    public static final String PROPERTY_SCAN_STREAMING_CREDITS = "client.scan.streaming.credits";
+    public static final int PROPERTY_SCAN_STREAMING_CREDITS_DEFAULT = 0;
+
+    /**
+     * Percentage of the current chunk of a scanner that the application must
+     * consume before the client asks for the next chunk in background. Zero
+     * disables prefetching
+     */
+    public static final String PROPERTY_SCAN_PREFETCH_WATERMARK = "client.scan.prefetch.watermark";
+    public static final int PROPERTY_SCAN_PREFETCH_WATERMARK_DEFAULT = 50;
+
+    /**
+     * Chunks are not prefetched if the current one is estimated to be larger
+     * than this size (in bytes)
+     */
+    public static final String PROPERTY_SCAN_PREFETCH_MAX_BYTES = "client.scan.prefetch.maxbytes";
+    public static final long PROPERTY_SCAN_PREFETCH_MAX_BYTES_DEFAULT = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of queries for which each connection remembers the
+     * tablespace they refer to, the least recently used ones are forgotten.
+     * Zero disables the cache
+     */
+    public static final String PROPERTY_STATEMENT_CACHE_SIZE = "client.statement.cache.size";
+    public static final int PROPERTY_STATEMENT_CACHE_SIZE_DEFAULT = 500;
+
+    /**
+     * Maximum number of statements prepared on each channel to the server,
+     * the least recently used ones are released on the server
+     */
+    public static final String PROPERTY_PREPARED_STATEMENTS_CACHE_SIZE = "client.prepared.statements.cache.size";
+    public static final int PROPERTY_PREPARED_STATEMENTS_CACHE_SIZE_DEFAULT = 1000;
+
+    /**
+     * Maximum staleness (in milliseconds) accepted for queries executed
+     * outside of a transaction. When it is not negative such queries are
+     * spread among all the replicas of the tablespace, followers answer only
+     * if they have caught up with the leader within this interval.
+     * A negative value sends every query to the leader
+     */
+    public static final String PROPERTY_FOLLOWER_READS_MAX_LAG = "client.follower.reads.max.lag";
+    public static final long PROPERTY_FOLLOWER_READS_MAX_LAG_DEFAULT = -1;
+
+    /**
+     * JDBC batches are sent to the server in chunks of this number of
+     * statements
+     */
+    public static final String PROPERTY_BATCH_CHUNK_SIZE = "client.batch.chunk.size";
+    public static final int PROPERTY_BATCH_CHUNK_SIZE_DEFAULT = 1000;
+
+    /**
+     * Maximum number of chunks of a JDBC batch sent to the server and still
+     * waiting for the result
+     */
+    public static final String PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS = "client.batch.max.inflight.chunks";
+    public static final int PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS_DEFAULT = 4;
+
+    /**
+     * Number of records sent to the server in each chunk of a bulk load
+     */
+    public static final String PROPERTY_BULKLOAD_CHUNK_SIZE = "client.bulkload.chunk.size";
+    public static final int PROPERTY_BULKLOAD_CHUNK_SIZE_DEFAULT = 1000;
+
+    /**
+     * Number of channels each connection opens to every server, point
+     * requests are spread among them. Requests bound to a transaction always
+     * use the same channel
+     */
+    public static final String PROPERTY_NETWORK_CHANNELS_PER_SERVER = "client.network.channels.per.server";
+    public static final int PROPERTY_NETWORK_CHANNELS_PER_SERVER_DEFAULT = 1;
+
+    /**
+     * Use a dedicated channel for scans, dumps, restores and bulk loads, so that large
+     * messages do not delay point requests
+     */
+    public static final String PROPERTY_NETWORK_BULK_CHANNEL = "client.network.bulk.channel";
+    public static final boolean PROPERTY_NETWORK_BULK_CHANNEL_DEFAULT = false;
+
     public ClientConfiguration(Properties properties) {
         this.properties = new Properties();
         this.properties.putAll(properties);
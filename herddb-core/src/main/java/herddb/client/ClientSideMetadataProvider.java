@@ -20,6 +20,8 @@
 package herddb.client;
 
 import herddb.network.ServerHostData;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Provide Metadata to the client
@@ -37,6 +39,22 @@ public interface ClientSideMetadataProvider extends AutoCloseable {
      */
     public String getTableSpaceLeader(String tableSpace) throws ClientSideMetadataProviderException;
 
+    /**
+     * Returns the nodes which hold a copy of the given tableSpace, including
+     * the leader
+     *
+     * @param tableSpace
+     * @return
+     * @throws ClientSideMetadataProviderException
+     */
+    public default List<String> getTableSpaceReplicas(String tableSpace) throws ClientSideMetadataProviderException {
+        String leader = getTableSpaceLeader(tableSpace);
+        if (leader == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(leader);
+    }
+
     /**
      * Returns the actual address of a node
      *
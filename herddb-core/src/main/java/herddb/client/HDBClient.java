@@ -107,6 +107,10 @@ public class HDBClient implements AutoCloseable {
         return configuration;
     }
 
+    ExecutorService getThreadpool() {
+        return thredpool;
+    }
+
     @Override
     public void close() {
         LOG.log(Level.SEVERE, "close {0}", this);
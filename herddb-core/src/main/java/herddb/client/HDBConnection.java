@@ -19,15 +19,24 @@
  */
 package herddb.client;
 
+import herddb.client.impl.MissingPreparedStatementException;
 import herddb.client.impl.RetryRequestException;
 import herddb.model.TransactionContext;
-import static herddb.utils.QueryUtils.discoverTablespace;
+import herddb.model.Tuple;
+import herddb.utils.DataAccessor;
+import herddb.utils.QueryUtils;
+import herddb.utils.TuplesList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,12 +55,65 @@ public class HDBConnection implements AutoCloseable {
     private final ReentrantLock routesLock = new ReentrantLock(true);
     private volatile boolean closed;
     private boolean discoverTablespaceFromSql = true;
+    private final int statementCacheSize;
+    private volatile long maxFollowerLag;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    /**
+     * Tablespace named by the most recently used queries, access ordered
+     */
+    private final Map<String, String> queryTableSpaces;
+    private static final String NO_TABLESPACE = "";
+    private final LongAdder prefetchedScanChunks = new LongAdder();
 
     public HDBConnection(HDBClient client) {
         if (client == null) {
             throw new NullPointerException();
         }
         this.client = client;
+        this.statementCacheSize = client.getConfiguration().getInt(ClientConfiguration.PROPERTY_STATEMENT_CACHE_SIZE,
+                ClientConfiguration.PROPERTY_STATEMENT_CACHE_SIZE_DEFAULT);
+        this.maxFollowerLag = client.getConfiguration().getLong(ClientConfiguration.PROPERTY_FOLLOWER_READS_MAX_LAG,
+                ClientConfiguration.PROPERTY_FOLLOWER_READS_MAX_LAG_DEFAULT);
+        this.queryTableSpaces = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > statementCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the tablespace named in the query, or the given default one.
+     * The result is cached, as applications usually execute the same few
+     * queries many times
+     *
+     * @param defaultTableSpace tablespace to use if the query does not name
+     * one
+     * @param query the query
+     * @return the tablespace
+     * @see QueryUtils#discoverTablespace(java.lang.String, java.lang.String)
+     */
+    public String discoverTablespace(String defaultTableSpace, String query) {
+        if (query == null || statementCacheSize <= 0) {
+            return QueryUtils.discoverTablespace(defaultTableSpace, query);
+        }
+        String tableSpace;
+        synchronized (queryTableSpaces) {
+            tableSpace = queryTableSpaces.get(query);
+        }
+        if (tableSpace == null) {
+            tableSpace = QueryUtils.discoverTablespace(NO_TABLESPACE, query);
+            synchronized (queryTableSpaces) {
+                queryTableSpaces.put(query, tableSpace);
+            }
+        }
+        return tableSpace.isEmpty() ? defaultTableSpace : tableSpace;
+    }
+
+    int getCachedQueriesCount() {
+        synchronized (queryTableSpaces) {
+            return queryTableSpaces.size();
+        }
     }
 
     public boolean isDiscoverTablespaceFromSql() {
@@ -62,6 +124,23 @@ public class HDBConnection implements AutoCloseable {
         this.discoverTablespaceFromSql = discoverTablespaceFromSql;
     }
 
+    public long getMaxFollowerLag() {
+        return maxFollowerLag;
+    }
+
+    /**
+     * Allows queries executed outside of a transaction to be served by
+     * follower replicas, provided that they are not more than the given
+     * number of milliseconds behind the leader. A negative value (the
+     * default) sends all of the queries to the leader
+     *
+     * @param maxFollowerLag maximum staleness, in milliseconds
+     * @see ClientConfiguration#PROPERTY_FOLLOWER_READS_MAX_LAG
+     */
+    public void setMaxFollowerLag(long maxFollowerLag) {
+        this.maxFollowerLag = maxFollowerLag;
+    }
+
     public long getId() {
         return id;
     }
@@ -88,6 +167,36 @@ public class HDBConnection implements AutoCloseable {
     }
     private static final Logger LOGGER = Logger.getLogger(HDBConnection.class.getName());
 
+    /**
+     * Statistics about the channels opened by this connection
+     */
+    public List<ChannelStats> getChannelStats() {
+        List<RoutedClientSideConnection> actualRoutes;
+        routesLock.lock();
+        try {
+            actualRoutes = new ArrayList<>(routes.values());
+        } finally {
+            routesLock.unlock();
+        }
+        List<ChannelStats> stats = new ArrayList<>();
+        for (RoutedClientSideConnection route : actualRoutes) {
+            route.collectChannelStats(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Number of chunks of scanners requested before the application needed
+     * them
+     */
+    public long getPrefetchedScanChunks() {
+        return prefetchedScanChunks.sum();
+    }
+
+    void scanChunkPrefetched() {
+        prefetchedScanChunks.increment();
+    }
+
     void releaseRoute(String nodeId) {
         routesLock.lock();
         try {
@@ -106,6 +215,7 @@ public class HDBConnection implements AutoCloseable {
                     "select * "
                     + "from systablespaces "
                     + "where tablespace_name=?",
+                    false,
                     Arrays.asList(tableSpace), TransactionContext.NOTRANSACTION_ID,
                     1,
                     1);) {
@@ -177,13 +287,49 @@ public class HDBConnection implements AutoCloseable {
     }
 
     public DMLResult executeUpdate(String tableSpace, String query, long tx, boolean returnValues, List<Object> params) throws ClientSideMetadataProviderException, HDBException {
+        return executeUpdate(tableSpace, query, tx, returnValues, false, params);
+    }
+
+    /**
+     * Executes an update. When usePreparedStatement is true the statement is
+     * prepared on the server once and then referred to by a numeric handle.
+     */
+    public DMLResult executeUpdate(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<Object> params) throws ClientSideMetadataProviderException, HDBException {
         if (discoverTablespaceFromSql) {
             tableSpace = discoverTablespace(tableSpace, query);
         }
         while (!closed) {
             try {
                 RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
-                return route.executeUpdate(tableSpace, query, tx, returnValues, params);
+                return route.executeUpdate(tableSpace, query, tx, returnValues, usePreparedStatement, params);
+            } catch (RetryRequestException retry) {
+                LOGGER.log(Level.SEVERE, "error " + retry, retry);
+                sleepOnRetry();
+            }
+        }
+        throw new HDBException("client is closed");
+    }
+
+    /**
+     * Inserts a chunk of records into a table, without any SQL parsing or
+     * planning. Each row contains the values for the given columns, in the
+     * same order, and the server serializes the records directly.
+     *
+     * @return the result, the update count is the number of inserted records
+     */
+    public DMLResult bulkLoad(String tableSpace, String table, long tx, String[] columns, List<Object[]> rows) throws ClientSideMetadataProviderException, HDBException {
+        List<DataAccessor> tuples = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row.length != columns.length) {
+                throw new HDBException("bad row, found " + row.length + " values, expected " + columns.length + " (" + Arrays.toString(columns) + ")");
+            }
+            tuples.add(new Tuple(columns, row));
+        }
+        TuplesList data = new TuplesList(columns, tuples);
+        while (!closed) {
+            try {
+                RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
+                return route.bulkLoad(tableSpace, table, tx, data);
             } catch (RetryRequestException retry) {
                 LOGGER.log(Level.SEVERE, "error " + retry, retry);
                 sleepOnRetry();
@@ -193,13 +339,17 @@ public class HDBConnection implements AutoCloseable {
     }
 
     public List<DMLResult> executeUpdates(String tableSpace, String query, long tx, boolean returnValues, List<List<Object>> batch) throws ClientSideMetadataProviderException, HDBException {
+        return executeUpdates(tableSpace, query, tx, returnValues, false, batch);
+    }
+
+    public List<DMLResult> executeUpdates(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<List<Object>> batch) throws ClientSideMetadataProviderException, HDBException {
         if (discoverTablespaceFromSql) {
             tableSpace = discoverTablespace(tableSpace, query);
         }
         while (!closed) {
             try {
                 RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
-                return route.executeUpdates(tableSpace, query, tx, returnValues, batch);
+                return route.executeUpdates(tableSpace, query, tx, returnValues, usePreparedStatement, batch);
             } catch (RetryRequestException retry) {
                 LOGGER.log(Level.SEVERE, "error " + retry, retry);
                 sleepOnRetry();
@@ -209,13 +359,43 @@ public class HDBConnection implements AutoCloseable {
     }
 
     public GetResult executeGet(String tableSpace, String query, long tx, List<Object> params) throws ClientSideMetadataProviderException, HDBException {
+        return executeGet(tableSpace, query, tx, false, params);
+    }
+
+    public GetResult executeGet(String tableSpace, String query, long tx, boolean usePreparedStatement, List<Object> params) throws ClientSideMetadataProviderException, HDBException {
         if (discoverTablespaceFromSql) {
             tableSpace = discoverTablespace(tableSpace, query);
         }
         while (!closed) {
             try {
                 RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
-                return route.executeGet(tableSpace, query, tx, params);
+                return route.executeGet(tableSpace, query, tx, usePreparedStatement, params);
+            } catch (RetryRequestException retry) {
+                LOGGER.log(Level.SEVERE, "error " + retry, retry);
+                sleepOnRetry();
+            }
+        }
+        throw new HDBException("client is closed");
+    }
+
+    /**
+     * Executes the same GET query with many sets of parameters, using a single
+     * round trip to the server.
+     *
+     * @return one result for each set of parameters, in the same order
+     */
+    public List<GetResult> executeGets(String tableSpace, String query, long tx, List<List<Object>> batch) throws ClientSideMetadataProviderException, HDBException {
+        return executeGets(tableSpace, query, tx, false, batch);
+    }
+
+    public List<GetResult> executeGets(String tableSpace, String query, long tx, boolean usePreparedStatement, List<List<Object>> batch) throws ClientSideMetadataProviderException, HDBException {
+        if (discoverTablespaceFromSql) {
+            tableSpace = discoverTablespace(tableSpace, query);
+        }
+        while (!closed) {
+            try {
+                RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
+                return route.executeGets(tableSpace, query, tx, usePreparedStatement, batch);
             } catch (RetryRequestException retry) {
                 LOGGER.log(Level.SEVERE, "error " + retry, retry);
                 sleepOnRetry();
@@ -225,13 +405,41 @@ public class HDBConnection implements AutoCloseable {
     }
 
     public ScanResultSet executeScan(String tableSpace, String query, List<Object> params, long tx, int maxRows, int fetchSize) throws ClientSideMetadataProviderException, HDBException, InterruptedException {
+        return executeScan(tableSpace, query, false, params, tx, maxRows, fetchSize);
+    }
+
+    public ScanResultSet executeScan(String tableSpace, String query, boolean usePreparedStatement, List<Object> params, long tx, int maxRows, int fetchSize) throws ClientSideMetadataProviderException, HDBException, InterruptedException {
+        return executeScan(tableSpace, query, usePreparedStatement, params, tx, maxRows, fetchSize, maxFollowerLag);
+    }
+
+    /**
+     * Executes a query, overriding the follower reads setting of this
+     * connection
+     *
+     * @param maxFollowerLag maximum staleness accepted, in milliseconds, a
+     * negative value means that the query must be executed on the leader
+     * @see #setMaxFollowerLag(long)
+     */
+    public ScanResultSet executeScan(String tableSpace, String query, boolean usePreparedStatement, List<Object> params, long tx, int maxRows, int fetchSize, long maxFollowerLag) throws ClientSideMetadataProviderException, HDBException, InterruptedException {
         if (discoverTablespaceFromSql) {
             tableSpace = discoverTablespace(tableSpace, query);
         }
+        if (maxFollowerLag >= 0 && tx == TransactionContext.NOTRANSACTION_ID) {
+            try {
+                RoutedClientSideConnection route = getRouteToReplica(tableSpace);
+                return route.executeScan(tableSpace, query, usePreparedStatement, params, tx, maxRows, fetchSize, maxFollowerLag);
+            } catch (RetryRequestException stale) {
+                // the replica is too far behind (or it is not a replica any more), ask the leader
+                LOGGER.log(Level.FINE, "follower read failed, fallback to leader: {0}", stale.getMessage());
+            } catch (HDBException | ClientSideMetadataProviderException error) {
+                // the replica is not reachable or it does not host the tablespace any more, ask the leader
+                LOGGER.log(Level.INFO, "follower read failed, fallback to leader: " + error, error);
+            }
+        }
         while (!closed) {
             try {
                 RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
-                return route.executeScan(tableSpace, query, params, tx, maxRows, fetchSize);
+                return route.executeScan(tableSpace, query, usePreparedStatement, params, tx, maxRows, fetchSize);
             } catch (RetryRequestException retry) {
                 LOGGER.log(Level.SEVERE, "error " + retry, retry);
                 sleepOnRetry();
@@ -241,6 +449,87 @@ public class HDBConnection implements AutoCloseable {
         throw new HDBException("client is closed");
     }
 
+    /**
+     * Executes an update without waiting for the reply. Many requests may be
+     * pipelined over the same connection to the server.
+     */
+    public CompletableFuture<DMLResult> executeUpdateAsync(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<Object> params) {
+        return executeAsync(tableSpace, query, (route, routedTableSpace) -> route.executeUpdateAsync(routedTableSpace, query, tx, returnValues, usePreparedStatement, params));
+    }
+
+    public CompletableFuture<List<DMLResult>> executeUpdatesAsync(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<List<Object>> batch) {
+        return executeAsync(tableSpace, query, (route, routedTableSpace) -> route.executeUpdatesAsync(routedTableSpace, query, tx, returnValues, usePreparedStatement, true, batch));
+    }
+
+    /**
+     * Executes a chunk of a batch while other chunks of the same batch may be
+     * in flight. If the server does not know the prepared statement anymore
+     * the chunk fails with {@link MissingPreparedStatementException}, instead
+     * of being sent again after the chunks which follow it.
+     */
+    public CompletableFuture<List<DMLResult>> executeUpdatesChunkAsync(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<List<Object>> batch) {
+        return executeAsync(tableSpace, query, (route, routedTableSpace) -> route.executeUpdatesAsync(routedTableSpace, query, tx, returnValues, usePreparedStatement, false, batch));
+    }
+
+    public CompletableFuture<GetResult> executeGetAsync(String tableSpace, String query, long tx, boolean usePreparedStatement, List<Object> params) {
+        return executeAsync(tableSpace, query, (route, routedTableSpace) -> route.executeGetAsync(routedTableSpace, query, tx, usePreparedStatement, params));
+    }
+
+    public CompletableFuture<List<GetResult>> executeGetsAsync(String tableSpace, String query, long tx, boolean usePreparedStatement, List<List<Object>> batch) {
+        return executeAsync(tableSpace, query, (route, routedTableSpace) -> route.executeGetsAsync(routedTableSpace, query, tx, usePreparedStatement, batch));
+    }
+
+    @FunctionalInterface
+    private interface AsyncOperation<T> {
+
+        CompletableFuture<T> execute(RoutedClientSideConnection route, String tableSpace) throws HDBException;
+    }
+
+    private <T> CompletableFuture<T> executeAsync(String tableSpace, String query, AsyncOperation<T> operation) {
+        if (discoverTablespaceFromSql) {
+            tableSpace = discoverTablespace(tableSpace, query);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executeAsync(tableSpace, operation, result);
+        return result;
+    }
+
+    private <T> void executeAsync(String tableSpace, AsyncOperation<T> operation, CompletableFuture<T> result) {
+        if (closed) {
+            result.completeExceptionally(new HDBException("client is closed"));
+            return;
+        }
+        CompletableFuture<T> attempt;
+        try {
+            RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
+            attempt = operation.execute(route, tableSpace);
+        } catch (ClientSideMetadataProviderException | HDBException err) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(err);
+        }
+        attempt.whenComplete((T res, Throwable error) -> {
+            if (error == null) {
+                result.complete(res);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RetryRequestException) {
+                LOGGER.log(Level.SEVERE, "error " + cause, cause);
+                // do not sleep on the network threads
+                client.getThreadpool().submit(() -> {
+                    try {
+                        sleepOnRetry();
+                        executeAsync(tableSpace, operation, result);
+                    } catch (HDBException err) {
+                        result.completeExceptionally(err);
+                    }
+                });
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
     private void sleepOnRetry() throws HDBException {
         try {
             Thread.sleep(1000);
@@ -251,8 +540,21 @@ public class HDBConnection implements AutoCloseable {
 
     public void dumpTableSpace(String tableSpace, TableSpaceDumpReceiver receiver, int fetchSize,
         boolean includeTransactionLog) throws ClientSideMetadataProviderException, HDBException, InterruptedException {
+        dumpTableSpace(tableSpace, receiver, fetchSize, includeTransactionLog, 1);
+    }
+
+    /**
+     * Requests a dump of the tablespace
+     *
+     * @param parallelism maximum number of tables the server sends at the
+     * same time, the receiver must be able to handle data of different tables
+     * concurrently
+     * @see TableSpaceDumpReceiver#receiveTableDataChunk(java.lang.String, java.util.List)
+     */
+    public void dumpTableSpace(String tableSpace, TableSpaceDumpReceiver receiver, int fetchSize,
+        boolean includeTransactionLog, int parallelism) throws ClientSideMetadataProviderException, HDBException, InterruptedException {
         RoutedClientSideConnection route = getRouteToTableSpace(tableSpace);
-        route.dumpTableSpace(tableSpace, fetchSize, includeTransactionLog, receiver);
+        route.dumpTableSpace(tableSpace, fetchSize, includeTransactionLog, parallelism, receiver);
     }
 
     private RoutedClientSideConnection getRouteToServer(String nodeId) throws ClientSideMetadataProviderException, HDBException {
@@ -283,6 +585,25 @@ public class HDBConnection implements AutoCloseable {
         return getRouteToServer(leaderId);
     }
 
+    /**
+     * Picks one of the replicas of the tablespace, the leader included, in
+     * round-robin order
+     */
+    private RoutedClientSideConnection getRouteToReplica(String tableSpace) throws ClientSideMetadataProviderException, HDBException {
+        if (closed) {
+            throw new HDBException("connection is closed");
+        }
+        if (tableSpace == null) {
+            throw new HDBException("null tablespace");
+        }
+        List<String> replicas = client.getClientSideMetadataProvider().getTableSpaceReplicas(tableSpace);
+        if (replicas.isEmpty()) {
+            throw new HDBException("no such tablespace " + tableSpace + " (no replica found)");
+        }
+        int index = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicas.size();
+        return getRouteToServer(replicas.get(index));
+    }
+
     public boolean isClosed() {
         return closed;
     }
@@ -20,13 +20,23 @@
 package herddb.client;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -35,12 +45,14 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import herddb.backup.BackupFileConstants;
 import herddb.backup.DumpedLogEntry;
 import herddb.backup.DumpedTableMetadata;
+import herddb.client.impl.MissingPreparedStatementException;
 import herddb.client.impl.RetryRequestException;
 import herddb.log.LogSequenceNumber;
 import herddb.model.Index;
 import herddb.model.Record;
 import herddb.model.Table;
 import herddb.model.Transaction;
+import herddb.model.TransactionContext;
 import herddb.network.Channel;
 import herddb.network.ChannelEventListener;
 import herddb.network.KeyValue;
@@ -66,10 +78,24 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     private final long timeout;
     private final ServerHostData server;
     private final String clientId;
-    private final ReentrantReadWriteLock connectionLock = new ReentrantReadWriteLock(true);
-    private volatile Channel channel;
+    /**
+     * Channels for point requests, the first one carries every request bound
+     * to a transaction
+     */
+    private final ChannelSlot[] channels;
+    /**
+     * Channel dedicated to scans, dumps and restores, null if bulk traffic
+     * shares the other channels
+     */
+    private final ChannelSlot bulkChannel;
+    private final AtomicInteger nextChannel = new AtomicInteger();
 
     private final Map<String, TableSpaceDumpReceiver> dumpReceivers = new ConcurrentHashMap<>();
+    private final int streamingCredits;
+    private final Map<String, PushedChunks> streamingScanners = new ConcurrentHashMap<>();
+    private final int prefetchWatermark;
+    private final long prefetchMaxBytes;
+    private final int preparedStatementsCacheSize;
 
     public RoutedClientSideConnection(HDBConnection connection, String nodeId) throws ClientSideMetadataProviderException {
         this.connection = connection;
@@ -79,6 +105,68 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
 
         this.timeout = connection.getClient().getConfiguration().getLong(ClientConfiguration.PROPERTY_TIMEOUT, ClientConfiguration.PROPERTY_TIMEOUT_DEFAULT);
         this.clientId = connection.getClient().getConfiguration().getString(ClientConfiguration.PROPERTY_CLIENTID, ClientConfiguration.PROPERTY_CLIENTID_DEFAULT);
+        this.streamingCredits = connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_SCAN_STREAMING_CREDITS, ClientConfiguration.PROPERTY_SCAN_STREAMING_CREDITS_DEFAULT);
+        this.prefetchWatermark = connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_SCAN_PREFETCH_WATERMARK, ClientConfiguration.PROPERTY_SCAN_PREFETCH_WATERMARK_DEFAULT);
+        this.prefetchMaxBytes = connection.getClient().getConfiguration().getLong(ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES, ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES_DEFAULT);
+        this.preparedStatementsCacheSize = connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_PREPARED_STATEMENTS_CACHE_SIZE, ClientConfiguration.PROPERTY_PREPARED_STATEMENTS_CACHE_SIZE_DEFAULT);
+        int channelsCount = Math.max(1, connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_NETWORK_CHANNELS_PER_SERVER, ClientConfiguration.PROPERTY_NETWORK_CHANNELS_PER_SERVER_DEFAULT));
+        this.channels = new ChannelSlot[channelsCount];
+        for (int i = 0; i < channelsCount; i++) {
+            channels[i] = new ChannelSlot("point-" + i);
+        }
+        boolean useBulkChannel = connection.getClient().getConfiguration().getBoolean(ClientConfiguration.PROPERTY_NETWORK_BULK_CHANNEL, ClientConfiguration.PROPERTY_NETWORK_BULK_CHANNEL_DEFAULT);
+        this.bulkChannel = useBulkChannel ? new ChannelSlot("bulk") : null;
+    }
+
+    /**
+     * Chooses the channel for a point request: requests bound to a transaction
+     * always use the same channel, the others go to the channel with less
+     * requests waiting for a reply
+     */
+    private ChannelSlot pointChannel(long tx) {
+        if (tx != TransactionContext.NOTRANSACTION_ID || channels.length == 1) {
+            return channels[0];
+        }
+        int start = (nextChannel.getAndIncrement() & Integer.MAX_VALUE) % channels.length;
+        ChannelSlot best = null;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (int i = 0; i < channels.length; i++) {
+            ChannelSlot slot = channels[(start + i) % channels.length];
+            int inFlight = slot.getInFlightRequests();
+            if (inFlight < bestInFlight) {
+                best = slot;
+                bestInFlight = inFlight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Chooses the channel for batches of statements. The server executes the
+     * batches received on a channel in order, so that an application may
+     * pipeline the chunks of a large batch
+     */
+    private ChannelSlot batchChannel() {
+        return channels[0];
+    }
+
+    /**
+     * Chooses the channel for requests which move large amounts of data
+     */
+    private ChannelSlot bulkChannel(long tx) {
+        if (tx != TransactionContext.NOTRANSACTION_ID || bulkChannel == null) {
+            return pointChannel(tx);
+        }
+        return bulkChannel;
+    }
+
+    void collectChannelStats(List<ChannelStats> stats) {
+        for (ChannelSlot slot : channels) {
+            stats.add(slot.getStats());
+        }
+        if (bulkChannel != null) {
+            stats.add(bulkChannel.getStats());
+        }
     }
 
     private void performAuthentication(Channel _channel, String serverHostname) throws Exception {
@@ -93,7 +181,19 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
         if (saslNettyClient.hasInitialResponse()) {
             firstToken = saslNettyClient.evaluateChallenge(new byte[0]);
         }
-        Message saslResponse = _channel.sendMessageWithReply(Message.SASL_TOKEN_MESSAGE_REQUEST(SaslUtils.AUTH_DIGEST_MD5, firstToken), timeout);
+        int maxProtocolVersion = connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_NETWORK_PROTOCOL_VERSION, ClientConfiguration.PROPERTY_NETWORK_PROTOCOL_VERSION_DEFAULT);
+        int compressionThreshold = connection.getClient().getConfiguration().getInt(ClientConfiguration.PROPERTY_NETWORK_COMPRESSION_THRESHOLD, ClientConfiguration.PROPERTY_NETWORK_COMPRESSION_THRESHOLD_DEFAULT);
+        Message saslResponse = _channel.sendMessageWithReply(Message.SASL_TOKEN_MESSAGE_REQUEST(SaslUtils.AUTH_DIGEST_MD5, firstToken, maxProtocolVersion, compressionThreshold), timeout);
+        // servers which do not know about protocol versions do not answer, so we stay on the first version
+        Integer protocolVersion = (Integer) saslResponse.parameters.get("protocolVersion");
+        if (protocolVersion != null) {
+            _channel.setProtocolVersion(protocolVersion);
+        }
+        // the server echoes the threshold only if it accepts compressed frames
+        Integer acceptedCompressionThreshold = (Integer) saslResponse.parameters.get("compressionThreshold");
+        if (acceptedCompressionThreshold != null) {
+            _channel.setCompressionThreshold(acceptedCompressionThreshold);
+        }
 
         for (int i = 0; i < 100; i++) {
             byte[] responseToSendToServer;
@@ -120,6 +220,26 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     @SuppressFBWarnings(value = "SF_SWITCH_NO_DEFAULT")
     public void messageReceived(Message message, Channel _channel) {
         switch (message.type) {
+            case Message.TYPE_RESULTSET_CHUNK: {
+                String scannerId = (String) message.parameters.get("scannerId");
+                PushedChunks chunks = streamingScanners.get(scannerId);
+                if (chunks != null) {
+                    chunks.chunkReceived((Long) message.parameters.get("sequence"), message);
+                } else {
+                    LOGGER.log(Level.FINE, "discarding chunk for closed scanner {0}", scannerId);
+                }
+            }
+            break;
+            case Message.TYPE_ERROR: {
+                String scannerId = (String) message.parameters.get("scannerId");
+                PushedChunks chunks = scannerId != null ? streamingScanners.get(scannerId) : null;
+                if (chunks != null) {
+                    chunks.errorReceived(message + "");
+                } else {
+                    LOGGER.log(Level.SEVERE, "unexpected error from server {0}", message);
+                }
+            }
+            break;
             case Message.TYPE_TABLESPACE_DUMP_DATA: {
                 String dumpId = (String) message.parameters.get("dumpId");
                 TableSpaceDumpReceiver receiver = dumpReceivers.get(dumpId);
@@ -162,7 +282,12 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                             break;
                         }
                         case "endTable": {
-                            receiver.endTable();
+                            String tableName = (String) values.get("tableName");
+                            if (tableName != null) {
+                                receiver.endTable(tableName);
+                            } else {
+                                receiver.endTable();
+                            }
                             break;
                         }
                         case "finish": {
@@ -178,7 +303,16 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                             for (KeyValue kv : data) {
                                 records.add(new Record(new Bytes(kv.key), new Bytes(kv.value)));
                             }
-                            receiver.receiveTableDataChunk(records);
+                            String tableName = (String) values.get("tableName");
+                            if (tableName != null) {
+                                receiver.receiveTableDataChunk(tableName, records);
+                            } else {
+                                receiver.receiveTableDataChunk(records);
+                            }
+                            break;
+                        }
+                        case "error": {
+                            receiver.onError(new HDBException("dump " + dumpId + " failed on the server"));
                             break;
                         }
                         case "txlog": {
@@ -219,9 +353,17 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
 
     @Override
     public void channelClosed(Channel channel) {
-        if (channel == this.channel) {
-            this.channel = null;
+        for (ChannelSlot slot : channels) {
+            slot.channelClosed(channel);
         }
+        if (bulkChannel != null) {
+            bulkChannel.channelClosed(channel);
+        }
+        streamingScanners.values().forEach(chunks -> {
+            if (chunks.channel == channel) {
+                chunks.errorReceived("channel closed");
+            }
+        });
     }
 
     @Override
@@ -229,143 +371,470 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
         LOGGER.log(Level.SEVERE, "{0} - close", this);
 
         this.connection.releaseRoute(nodeId);
-        connectionLock.writeLock().lock();
-        try {
-            if (channel != null) {
-                channel.close();
-            }
-        } finally {
-            channel = null;
-            connectionLock.writeLock().unlock();;
+        for (ChannelSlot slot : channels) {
+            slot.close();
+        }
+        if (bulkChannel != null) {
+            bulkChannel.close();
         }
     }
 
-    private Channel ensureOpen() throws HDBException {
-        connectionLock.readLock().lock();
-        try {
-            if (channel != null) {
-                return channel;
+    /**
+     * One of the channels to the server. Prepared statements and scanners live
+     * on the server side connection, so they are bound to the channel
+     */
+    private final class ChannelSlot {
+
+        private final String name;
+        private final ReentrantReadWriteLock connectionLock = new ReentrantReadWriteLock(true);
+        private volatile Channel channel;
+        /**
+         * Statements prepared on the current channel, tableSpace#query ->
+         * statementId, access ordered. Guarded by itself
+         */
+        private final LinkedHashMap<String, Long> preparedStatements = new LinkedHashMap<>(16, 0.75f, true);
+        /**
+         * Statements being prepared, concurrent requests for the same query
+         * share the same PREPARE_STATEMENT
+         */
+        private final Map<String, CompletableFuture<Long>> pendingPrepares = new ConcurrentHashMap<>();
+
+        private ChannelSlot(String name) {
+            this.name = name;
+        }
+
+        private int getInFlightRequests() {
+            Channel _channel = channel;
+            return _channel != null ? _channel.getPendingReplyMessages() : 0;
+        }
+
+        private ChannelStats getStats() {
+            Channel _channel = channel;
+            if (_channel == null) {
+                return new ChannelStats(nodeId, name, false, 0);
             }
-            connectionLock.readLock().unlock();
+            return new ChannelStats(nodeId, name, true, _channel.getPendingReplyMessages(),
+                    _channel.getUncompressedBytesSent(), _channel.getCompressedBytesSent(),
+                    _channel.getUncompressedBytesReceived(), _channel.getCompressedBytesReceived());
+        }
 
+        private void channelClosed(Channel _channel) {
+            if (_channel == this.channel) {
+                this.channel = null;
+                clearPreparedStatements();
+            }
+        }
+
+        private Long getPreparedStatement(String key) {
+            synchronized (preparedStatements) {
+                return preparedStatements.get(key);
+            }
+        }
+
+        /**
+         * Remembers a statement prepared on the given channel, the least
+         * recently used statements are released on the server
+         */
+        private void preparedStatementCreated(Channel _channel, String key, long statementId) {
+            List<Long> evicted = null;
+            synchronized (preparedStatements) {
+                if (_channel != channel) {
+                    // the statement has gone together with its channel
+                    return;
+                }
+                preparedStatements.put(key, statementId);
+                Iterator<Long> it = preparedStatements.values().iterator();
+                while (preparedStatements.size() > preparedStatementsCacheSize) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<>();
+                    }
+                    evicted.add(it.next());
+                    it.remove();
+                }
+            }
+            if (evicted != null) {
+                for (Long evictedStatementId : evicted) {
+                    _channel.sendOneWayMessage(Message.UNPREPARE_STATEMENT(clientId, evictedStatementId), (Message originalMessage, Throwable error) -> {
+                        if (error != null) {
+                            LOGGER.log(Level.FINE, "cannot release prepared statement " + evictedStatementId + ": " + error, error);
+                        }
+                    });
+                }
+            }
+        }
+
+        private void preparedStatementMissing(String key, long statementId) {
+            synchronized (preparedStatements) {
+                preparedStatements.remove(key, statementId);
+            }
+        }
+
+        private void clearPreparedStatements() {
+            synchronized (preparedStatements) {
+                preparedStatements.clear();
+            }
+            pendingPrepares.clear();
+        }
+
+        private void close() {
             connectionLock.writeLock().lock();
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                channel = null;
+                connectionLock.writeLock().unlock();
+            }
+        }
+
+        private Channel ensureOpen() throws HDBException {
+            connectionLock.readLock().lock();
             try {
                 if (channel != null) {
                     return channel;
                 }
-                LOGGER.log(Level.FINE, "{0} - connect to {1}:{2} ssh:{3}", new Object[]{this, server.getHost(), server.getPort(), server.isSsl()});
-                Channel _channel = this.connection.getClient().createChannelTo(server, this);
+                connectionLock.readLock().unlock();
+
+                connectionLock.writeLock().lock();
                 try {
-                    performAuthentication(_channel, server.getHost());
-                    channel = _channel;
-                    return channel;
-                } catch (Exception err) {
-                    if (_channel != null) {
-                        _channel.close();
+                    if (channel != null) {
+                        return channel;
+                    }
+                    LOGGER.log(Level.FINE, "{0} - connect {1} to {2}:{3} ssh:{4}", new Object[]{RoutedClientSideConnection.this, name, server.getHost(), server.getPort(), server.isSsl()});
+                    Channel _channel = connection.getClient().createChannelTo(server, RoutedClientSideConnection.this);
+                    try {
+                        performAuthentication(_channel, server.getHost());
+                        clearPreparedStatements();
+                        channel = _channel;
+                        return channel;
+                    } catch (Exception err) {
+                        if (_channel != null) {
+                            _channel.close();
+                        }
+                        throw err;
                     }
-                    throw err;
+                } finally {
+                    connectionLock.writeLock().unlock();
+                    connectionLock.readLock().lock();
                 }
+            } catch (Exception err) {
+                throw new HDBException(err);
             } finally {
-                connectionLock.writeLock().unlock();
-                connectionLock.readLock().lock();
+                connectionLock.readLock().unlock();
             }
-        } catch (Exception err) {
-            throw new HDBException(err);
-        } finally {
-            connectionLock.readLock().unlock();
         }
     }
 
-    DMLResult executeUpdate(String tableSpace, String query, long tx, boolean returnValues, List<Object> params) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+    private long prepareQuery(ChannelSlot slot, Channel _channel, String tableSpace, String query) throws HDBException, ClientSideMetadataProviderException, InterruptedException, TimeoutException {
+        Long statementId = slot.getPreparedStatement(tableSpace + "#" + query);
+        if (statementId != null) {
+            return statementId;
+        }
         try {
-            Message message = Message.EXECUTE_STATEMENT(clientId, tableSpace, query, tx, returnValues, params);
-            Message reply = _channel.sendMessageWithReply(message, timeout);
-            if (reply.type == Message.TYPE_ERROR) {
-                boolean notLeader = reply.parameters.get("notLeader") != null;
-                if (notLeader) {
-                    this.connection.requestMetadataRefresh();
-                    throw new RetryRequestException(reply + "");
-                }
-                throw new HDBException(reply);
+            return prepareQueryAsync(slot, _channel, tableSpace, query).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            if (cause instanceof HDBException) {
+                throw (HDBException) cause;
             }
-            long updateCount = (Long) reply.parameters.get("updateCount");
-            long transactionId = (Long) reply.parameters.get("tx");
+            if (cause instanceof ClientSideMetadataProviderException) {
+                throw (ClientSideMetadataProviderException) cause;
+            }
+            throw new HDBException(cause);
+        }
+    }
 
-            Object key = null;
-            Map<String, Object> newvalue = null;
-            Map<String, Object> data = (Map<String, Object>) reply.parameters.get("data");
+    /**
+     * Sends a statement, referring to it by handle if requested. If the server
+     * does not know the handle anymore the query is sent again as text.
+     */
+    private Message sendStatement(ChannelSlot slot, Channel _channel, String tableSpace, String query, boolean usePreparedStatement,
+            LongFunction<Message> messageFactory) throws HDBException, ClientSideMetadataProviderException, InterruptedException, TimeoutException {
+        long statementId = usePreparedStatement && preparedStatementsCacheSize > 0 ? prepareQuery(slot, _channel, tableSpace, query) : 0;
+        Message reply = _channel.sendMessageWithReply(messageFactory.apply(statementId), timeout);
+        if (statementId != 0
+                && reply.type == Message.TYPE_ERROR
+                && reply.parameters.get("missingPreparedStatement") != null) {
+            slot.preparedStatementMissing(tableSpace + "#" + query, statementId);
+            reply = _channel.sendMessageWithReply(messageFactory.apply(0), timeout);
+        }
+        return reply;
+    }
+
+    /**
+     * Async version of {@link #sendStatement}, many requests may be in flight
+     * on the same channel, replies are matched by message id
+     */
+    private CompletableFuture<Message> sendStatementAsync(ChannelSlot slot, Channel _channel, String tableSpace, String query, boolean usePreparedStatement,
+            LongFunction<Message> messageFactory) {
+        return sendStatementAsync(slot, _channel, tableSpace, query, usePreparedStatement, true, messageFactory);
+    }
+
+    /**
+     * @param retryMissingPreparedStatement if false, when the server does not
+     * know the handle anymore the request fails with
+     * {@link MissingPreparedStatementException}
+     */
+    private CompletableFuture<Message> sendStatementAsync(ChannelSlot slot, Channel _channel, String tableSpace, String query, boolean usePreparedStatement,
+            boolean retryMissingPreparedStatement, LongFunction<Message> messageFactory) {
+        CompletableFuture<Long> statementId = usePreparedStatement && preparedStatementsCacheSize > 0
+                ? prepareQueryAsync(slot, _channel, tableSpace, query)
+                : CompletableFuture.completedFuture(0L);
+        return statementId.thenCompose(id -> sendMessageAsync(_channel, messageFactory.apply(id))
+                .thenCompose(reply -> {
+                    if (id != 0
+                            && reply.type == Message.TYPE_ERROR
+                            && reply.parameters.get("missingPreparedStatement") != null) {
+                        if (!retryMissingPreparedStatement) {
+                            // the handle is forgotten when the caller sends the statement again
+                            CompletableFuture<Message> missing = new CompletableFuture<>();
+                            missing.completeExceptionally(new MissingPreparedStatementException(reply));
+                            return missing;
+                        }
+                        slot.preparedStatementMissing(tableSpace + "#" + query, id);
+                        return sendMessageAsync(_channel, messageFactory.apply(0));
+                    }
+                    return CompletableFuture.completedFuture(reply);
+                }));
+    }
+
+    private CompletableFuture<Long> prepareQueryAsync(ChannelSlot slot, Channel _channel, String tableSpace, String query) {
+        String key = tableSpace + "#" + query;
+        Long statementId = slot.getPreparedStatement(key);
+        if (statementId != null) {
+            return CompletableFuture.completedFuture(statementId);
+        }
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        CompletableFuture<Long> pending = slot.pendingPrepares.putIfAbsent(key, result);
+        if (pending != null) {
+            return pending;
+        }
+        // another request may have just completed the same preparation
+        statementId = slot.getPreparedStatement(key);
+        if (statementId != null) {
+            slot.pendingPrepares.remove(key, result);
+            result.complete(statementId);
+            return result;
+        }
+        sendMessageAsync(_channel, Message.PREPARE_STATEMENT(clientId, tableSpace, query))
+                .thenApply(parseReply(reply -> {
+                    checkReply(reply);
+                    return (Long) reply.parameters.get("statementId");
+                }))
+                .whenComplete((newStatementId, error) -> {
+                    if (error == null) {
+                        slot.preparedStatementCreated(_channel, key, newStatementId);
+                    }
+                    slot.pendingPrepares.remove(key, result);
+                    if (error == null) {
+                        result.complete(newStatementId);
+                    } else if (error instanceof CompletionException && error.getCause() != null) {
+                        result.completeExceptionally(error.getCause());
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                });
+        return result;
+    }
+
+    private CompletableFuture<Message> sendMessageAsync(Channel _channel, Message message) {
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        _channel.sendMessageWithAsyncReply(message, timeout, (Message originalMessage, Message reply, Throwable error) -> {
+            if (error != null) {
+                result.completeExceptionally(new HDBException(error));
+            } else {
+                result.complete(reply);
+            }
+        });
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface ReplyParser<T> {
+
+        T parse(Message reply) throws HDBException, ClientSideMetadataProviderException;
+    }
+
+    private static <T> Function<Message, T> parseReply(ReplyParser<T> parser) {
+        return (Message reply) -> {
+            try {
+                return parser.parse(reply);
+            } catch (HDBException | ClientSideMetadataProviderException err) {
+                throw new CompletionException(err);
+            }
+        };
+    }
+
+    private void checkReply(Message reply) throws HDBException, ClientSideMetadataProviderException {
+        if (reply.type == Message.TYPE_ERROR) {
+            boolean notLeader = reply.parameters.get("notLeader") != null;
+            if (notLeader) {
+                this.connection.requestMetadataRefresh();
+                throw new RetryRequestException(reply + "");
+            }
+            throw new HDBException(reply);
+        }
+    }
+
+    private DMLResult toDMLResult(Message reply) throws HDBException, ClientSideMetadataProviderException {
+        checkReply(reply);
+        long updateCount = (Long) reply.parameters.get("updateCount");
+        long transactionId = (Long) reply.parameters.get("tx");
+
+        Object key = null;
+        Map<String, Object> newvalue = null;
+        Map<String, Object> data = (Map<String, Object>) reply.parameters.get("data");
+
+        if (data != null) {
+            key = data.get("key");
+            newvalue = (Map<String, Object>) data.get("newvalue");
+        }
+        return new DMLResult(updateCount, key, newvalue, transactionId);
+    }
+
+    private List<DMLResult> toDMLResults(Message reply) throws HDBException, ClientSideMetadataProviderException {
+        checkReply(reply);
+
+        long transactionId = (Long) reply.parameters.get("tx");
+
+        List<Map<String, Object>> data = (List<Map<String, Object>>) reply.parameters.get("data");
+        List<Long> updateCounts = (List<Long>) reply.parameters.get("updateCount");
+        List<DMLResult> results = new ArrayList<>();
+
+        for (int i = 0; i < updateCounts.size(); i++) {
+            Object key = data.get(0).get("key");
+            Map<String, Object> newvalue = (Map<String, Object>) data.get(i).get("newvalue");
+            DMLResult res = new DMLResult(updateCounts.get(i), key, newvalue, transactionId);
+            results.add(res);
+        }
+
+        return results;
+    }
 
-            if (data != null) {
-                key = data.get("key");
-                newvalue = (Map<String, Object>) data.get("newvalue");
+    private GetResult toGetResult(Message reply) throws HDBException, ClientSideMetadataProviderException {
+        checkReply(reply);
+        long found = (Long) reply.parameters.get("updateCount");
+        long transactionId = (Long) reply.parameters.get("tx");
+        if (found <= 0) {
+            return new GetResult(null, transactionId);
+        } else {
+            return new GetResult((Map<String, Object>) reply.parameters.get("data"), transactionId);
+        }
+    }
+
+    private List<GetResult> toGetResults(Message reply) throws HDBException, ClientSideMetadataProviderException {
+        checkReply(reply);
+
+        long transactionId = (Long) reply.parameters.get("tx");
+
+        List<Map<String, Object>> data = (List<Map<String, Object>>) reply.parameters.get("data");
+        List<Long> founds = (List<Long>) reply.parameters.get("updateCount");
+        List<GetResult> results = new ArrayList<>(founds.size());
+        for (int i = 0; i < founds.size(); i++) {
+            if (founds.get(i) <= 0) {
+                results.add(new GetResult(null, transactionId));
+            } else {
+                results.add(new GetResult(data.get(i), transactionId));
             }
-            return new DMLResult(updateCount, key, newvalue, transactionId);
+        }
+        return results;
+    }
+
+    DMLResult executeUpdate(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<Object> params) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        try {
+            Message reply = sendStatement(slot, _channel, tableSpace, query, usePreparedStatement,
+                    statementId -> Message.EXECUTE_STATEMENT(clientId, tableSpace, query, statementId, tx, returnValues, params));
+            return toDMLResult(reply);
         } catch (InterruptedException | TimeoutException err) {
             throw new HDBException(err);
         }
     }
 
-    List<DMLResult> executeUpdates(String tableSpace, String query, long tx, boolean returnValues, List<List<Object>> batch) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
-        try {
-            Message message = Message.EXECUTE_STATEMENTS(clientId, tableSpace, query, tx, returnValues, batch);
-            Message reply = _channel.sendMessageWithReply(message, timeout);
-            if (reply.type == Message.TYPE_ERROR) {
-                boolean notLeader = reply.parameters.get("notLeader") != null;
-                if (notLeader) {
-                    this.connection.requestMetadataRefresh();
-                    throw new RetryRequestException(reply + "");
-                }
-                throw new HDBException(reply);
-            }
+    CompletableFuture<DMLResult> executeUpdateAsync(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<Object> params) throws HDBException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        return sendStatementAsync(slot, _channel, tableSpace, query, usePreparedStatement,
+                statementId -> Message.EXECUTE_STATEMENT(clientId, tableSpace, query, statementId, tx, returnValues, params))
+                .thenApply(parseReply(this::toDMLResult));
+    }
 
-            long transactionId = (Long) reply.parameters.get("tx");
+    List<DMLResult> executeUpdates(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement, List<List<Object>> batch) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = batchChannel();
+        Channel _channel = slot.ensureOpen();
+        try {
+            Message reply = sendStatement(slot, _channel, tableSpace, query, usePreparedStatement,
+                    statementId -> Message.EXECUTE_STATEMENTS(clientId, tableSpace, query, statementId, tx, returnValues, batch));
+            return toDMLResults(reply);
+        } catch (InterruptedException | TimeoutException err) {
+            throw new HDBException(err);
+        }
+    }
 
-            List<Map<String, Object>> data = (List<Map<String, Object>>) reply.parameters.get("data");
-            List<Long> updateCounts = (List<Long>) reply.parameters.get("updateCount");
-            List<DMLResult> results = new ArrayList<>();
+    CompletableFuture<List<DMLResult>> executeUpdatesAsync(String tableSpace, String query, long tx, boolean returnValues, boolean usePreparedStatement,
+            boolean retryMissingPreparedStatement, List<List<Object>> batch) throws HDBException {
+        ChannelSlot slot = batchChannel();
+        Channel _channel = slot.ensureOpen();
+        return sendStatementAsync(slot, _channel, tableSpace, query, usePreparedStatement, retryMissingPreparedStatement,
+                statementId -> Message.EXECUTE_STATEMENTS(clientId, tableSpace, query, statementId, tx, returnValues, batch))
+                .thenApply(parseReply(this::toDMLResults));
+    }
 
-            for (int i = 0; i < updateCounts.size(); i++) {
-                Object key = data.get(0).get("key");
-                Map<String, Object> newvalue = (Map<String, Object>) data.get(i).get("newvalue");
-                DMLResult res = new DMLResult(updateCounts.get(i), key, newvalue, transactionId);
-                results.add(res);
-            }
+    DMLResult bulkLoad(String tableSpace, String table, long tx, TuplesList data) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = bulkChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        try {
+            Message reply = _channel.sendMessageWithReply(Message.BULK_LOAD(clientId, tableSpace, table, tx, data), timeout);
+            return toDMLResult(reply);
+        } catch (InterruptedException | TimeoutException err) {
+            throw new HDBException(err);
+        }
+    }
 
-            return results;
+    GetResult executeGet(String tableSpace, String query, long tx, boolean usePreparedStatement, List<Object> params) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        try {
+            Message reply = sendStatement(slot, _channel, tableSpace, query, usePreparedStatement,
+                    statementId -> Message.EXECUTE_STATEMENT(clientId, tableSpace, query, statementId, tx, false, params));
+            return toGetResult(reply);
         } catch (InterruptedException | TimeoutException err) {
             throw new HDBException(err);
         }
     }
 
-    GetResult executeGet(String tableSpace, String query, long tx, List<Object> params) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+    CompletableFuture<GetResult> executeGetAsync(String tableSpace, String query, long tx, boolean usePreparedStatement, List<Object> params) throws HDBException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        return sendStatementAsync(slot, _channel, tableSpace, query, usePreparedStatement,
+                statementId -> Message.EXECUTE_STATEMENT(clientId, tableSpace, query, statementId, tx, false, params))
+                .thenApply(parseReply(this::toGetResult));
+    }
+
+    List<GetResult> executeGets(String tableSpace, String query, long tx, boolean usePreparedStatement, List<List<Object>> batch) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
         try {
-            Message message = Message.EXECUTE_STATEMENT(clientId, tableSpace, query, tx, false, params);
-            Message reply = _channel.sendMessageWithReply(message, timeout);
-            if (reply.type == Message.TYPE_ERROR) {
-                boolean notLeader = reply.parameters.get("notLeader") != null;
-                if (notLeader) {
-                    this.connection.requestMetadataRefresh();
-                    throw new RetryRequestException(reply + "");
-                }
-                throw new HDBException(reply);
-            }
-            long found = (Long) reply.parameters.get("updateCount");
-            long transactionId = (Long) reply.parameters.get("tx");
-            if (found <= 0) {
-                return new GetResult(null, transactionId);
-            } else {
-                return new GetResult((Map<String, Object>) reply.parameters.get("data"), transactionId);
-            }
+            Message reply = sendStatement(slot, _channel, tableSpace, query, usePreparedStatement,
+                    statementId -> Message.EXECUTE_STATEMENTS(clientId, tableSpace, query, statementId, tx, false, batch));
+            return toGetResults(reply);
         } catch (InterruptedException | TimeoutException err) {
             throw new HDBException(err);
         }
     }
 
+    CompletableFuture<List<GetResult>> executeGetsAsync(String tableSpace, String query, long tx, boolean usePreparedStatement, List<List<Object>> batch) throws HDBException {
+        ChannelSlot slot = pointChannel(tx);
+        Channel _channel = slot.ensureOpen();
+        return sendStatementAsync(slot, _channel, tableSpace, query, usePreparedStatement,
+                statementId -> Message.EXECUTE_STATEMENTS(clientId, tableSpace, query, statementId, tx, false, batch))
+                .thenApply(parseReply(this::toGetResults));
+    }
+
     long beginTransaction(String tableSpace) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+        Channel _channel = channels[0].ensureOpen();
         try {
             Message message = Message.EXECUTE_STATEMENT(clientId, tableSpace, "BEGIN TRANSACTION '" + tableSpace + "'",
                     0, false, null);
@@ -386,7 +855,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     }
 
     void commitTransaction(String tableSpace, long tx) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+        Channel _channel = channels[0].ensureOpen();
         try {
             Message message = Message.EXECUTE_STATEMENT(clientId, tableSpace, "COMMIT TRANSACTION '" + tableSpace + "'," + tx,
                     0, false, null);
@@ -405,7 +874,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     }
 
     void rollbackTransaction(String tableSpace, long tx) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+        Channel _channel = channels[0].ensureOpen();
         try {
             Message message = Message.EXECUTE_STATEMENT(clientId, tableSpace, "ROLLBACK TRANSACTION '" + tableSpace + "'," + tx,
                     0, false, null);
@@ -425,17 +894,61 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
 
     private static final AtomicLong SCANNERID_GENERATOR = new AtomicLong();
 
-    ScanResultSet executeScan(String tableSpace, String query, List<Object> params, long tx, int maxRows, int fetchSize) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+    ScanResultSet executeScan(String tableSpace, String query, boolean usePreparedStatement, List<Object> params, long tx, int maxRows, int fetchSize) throws HDBException, ClientSideMetadataProviderException {
+        return executeScan(tableSpace, query, usePreparedStatement, params, tx, maxRows, fetchSize, -1);
+    }
+
+    /**
+     * Opens a scanner
+     *
+     * @param maxFollowerLag if not negative the server may answer even if it
+     * is only a follower for the tablespace, provided that its copy of data
+     * is not older than this number of milliseconds
+     */
+    ScanResultSet executeScan(String tableSpace, String query, boolean usePreparedStatement, List<Object> params, long tx, int maxRows, int fetchSize, long maxFollowerLag) throws HDBException, ClientSideMetadataProviderException {
+        ChannelSlot slot = bulkChannel(tx);
+        Channel _channel = slot.ensureOpen();
         try {
             String scannerId = this.clientId + ":" + SCANNERID_GENERATOR.incrementAndGet();
-            Message message = Message.OPEN_SCANNER(clientId, tableSpace, query, scannerId, tx, params, fetchSize, maxRows);
             LOGGER.log(Level.FINEST, "open scanner {0} for query {1}, params {2}", new Object[]{scannerId, query, params});
-            Message reply = _channel.sendMessageWithReply(message, timeout);
+            PushedChunks pushedChunks = null;
+            if (streamingCredits > 0) {
+                // chunks may be pushed before we process the reply
+                pushedChunks = new PushedChunks(_channel);
+                streamingScanners.put(scannerId, pushedChunks);
+            }
+            Message reply;
+            boolean streaming = false;
+            try {
+                reply = sendStatement(slot, _channel, tableSpace, query, usePreparedStatement,
+                        statementId -> {
+                            Message message = Message.OPEN_SCANNER(clientId, tableSpace, query, statementId, scannerId, tx, params, fetchSize, maxRows, streamingCredits);
+                            if (maxFollowerLag >= 0) {
+                                message.setParameter("maxFollowerLag", maxFollowerLag);
+                            }
+                            return message;
+                        });
+                streaming = pushedChunks != null
+                        && reply.type != Message.TYPE_ERROR
+                        && reply.parameters.get("credits") != null;
+            } finally {
+                // while the server pushes data the scanner stays registered, chunks may arrive
+                // before the reply is seen. Otherwise the server does not push data, maybe it is
+                // an old one or the result fits one chunk
+                if (pushedChunks != null && !streaming) {
+                    streamingScanners.remove(scannerId);
+                }
+            }
+            if (!streaming) {
+                pushedChunks = null;
+            }
             if (reply.type == Message.TYPE_ERROR) {
                 boolean notLeader = reply.parameters.get("notLeader") != null;
                 if (notLeader) {
-                    this.connection.requestMetadataRefresh();
+                    if (maxFollowerLag < 0) {
+                        // a stale follower does not mean that metadata changed
+                        this.connection.requestMetadataRefresh();
+                    }
                     throw new RetryRequestException(reply + "");
                 }
                 throw new HDBException(reply);
@@ -446,7 +959,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
             boolean last = (Boolean) reply.parameters.get("last");
             long transactionId = (Long) reply.parameters.get("tx");
             //LOGGER.log(Level.SEVERE, "received first " + initialFetchBuffer.size() + " records for query " + query);
-            ScanResultSetImpl impl = new ScanResultSetImpl(scannerId, columnNames, initialFetchBuffer, fetchSize, last, transactionId);
+            ScanResultSetImpl impl = new ScanResultSetImpl(slot, scannerId, columnNames, initialFetchBuffer, fetchSize, last, transactionId, pushedChunks);
 
             return impl;
         } catch (InterruptedException | TimeoutException err) {
@@ -455,10 +968,17 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     }
 
     void dumpTableSpace(String tableSpace, int fetchSize, boolean includeTransactionLog, TableSpaceDumpReceiver receiver) throws HDBException, ClientSideMetadataProviderException {
-        Channel _channel = ensureOpen();
+        dumpTableSpace(tableSpace, fetchSize, includeTransactionLog, 1, receiver);
+    }
+
+    void dumpTableSpace(String tableSpace, int fetchSize, boolean includeTransactionLog, int parallelism, TableSpaceDumpReceiver receiver) throws HDBException, ClientSideMetadataProviderException {
+        Channel _channel = bulkChannel(TransactionContext.NOTRANSACTION_ID).ensureOpen();
         try {
             String dumpId = this.clientId + ":" + SCANNERID_GENERATOR.incrementAndGet();
             Message message = Message.REQUEST_TABLESPACE_DUMP(clientId, tableSpace, dumpId, fetchSize, includeTransactionLog);
+            if (parallelism > 1) {
+                message.setParameter("parallelism", parallelism);
+            }
             LOGGER.log(Level.SEVERE, "dumpTableSpace id " + dumpId + " for tablespace " + tableSpace);
             dumpReceivers.put(dumpId, receiver);
             Message reply = _channel.sendMessageWithReply(message, timeout);
@@ -480,6 +1000,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
     void restoreTableSpace(String tableSpace, TableSpaceRestoreSource source) throws HDBException, ClientSideMetadataProviderException {
         List<DumpedTableMetadata> tables = new ArrayList<>();
         try {
+            ChannelSlot slot = bulkChannel(TransactionContext.NOTRANSACTION_ID);
             while (true) {
                 String entryType = source.nextEntryType();
                 LOGGER.log(Level.SEVERE, "restore, entryType:{0}", entryType);
@@ -491,7 +1012,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
 
                     case BackupFileConstants.ENTRY_TYPE_TABLE: {
                         DumpedTableMetadata table = source.nextTable();
-                        Channel _channel = ensureOpen();
+                        Channel _channel = slot.ensureOpen();
                         Message message_create_table = Message.REQUEST_TABLE_RESTORE(clientId, tableSpace,
                                 table.table.serialize(), table.logSequenceNumber.ledgerId, table.logSequenceNumber.offset);
                         Message reply_create_table = _channel.sendMessageWithReply(message_create_table, timeout);
@@ -512,7 +1033,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                         break;
                     }
                     case BackupFileConstants.ENTRY_TYPE_TXLOGCHUNK: {
-                        Channel _channel = ensureOpen();
+                        Channel _channel = slot.ensureOpen();
                         List<KeyValue> chunk = source.nextTransactionLogChunk();
                         Message message = Message.PUSH_TXLOGCHUNK(clientId, tableSpace, chunk);
                         Message reply = _channel.sendMessageWithReply(message, timeout);
@@ -522,7 +1043,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                         break;
                     }
                     case BackupFileConstants.ENTRY_TYPE_TRANSACTIONS: {
-                        Channel _channel = ensureOpen();
+                        Channel _channel = slot.ensureOpen();
                         List<byte[]> chunk = source.nextTransactionsBlock();
                         Message message = Message.PUSH_TRANSACTIONSBLOCK(clientId, tableSpace, chunk);
                         Message reply = _channel.sendMessageWithReply(message, timeout);
@@ -535,7 +1056,7 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                         // send a 'table finished' event only at the end of the procedure
                         // the stream of transaction log entries is finished, so the data contained in the table is "final"
                         // we are going to create now all the indexes too
-                        Channel _channel = ensureOpen();
+                        Channel _channel = slot.ensureOpen();
                         for (DumpedTableMetadata table : tables) {
                             List<byte[]> indexes = table.indexes.stream().map(Index::serialize).collect(Collectors.toList());
 
@@ -565,26 +1086,95 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
         }
     }
 
+    /**
+     * Rough estimate of the memory retained by a chunk, based on its first
+     * record
+     */
+    private static long estimateSize(List<DataAccessor> records) {
+        DataAccessor first = records.get(0);
+        long recordSize = 16;
+        for (int i = 0; i < first.getNumFields(); i++) {
+            Object value = first.get(i);
+            if (value instanceof byte[]) {
+                recordSize += ((byte[]) value).length + 16;
+            } else if (value != null) {
+                recordSize += value.toString().length() * 2 + 16;
+            }
+        }
+        return recordSize * records.size();
+    }
+
+    /**
+     * Chunks pushed by the server to a streaming scanner. Messages are
+     * dispatched by a pool of threads, so chunks are reordered using their
+     * sequence number
+     */
+    private static final class PushedChunks {
+
+        private final Channel channel;
+        private final Map<Long, Message> chunks = new HashMap<>();
+        private long nextSequence = 1;
+        private String error;
+
+        PushedChunks(Channel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void chunkReceived(long sequence, Message message) {
+            chunks.put(sequence, message);
+            notifyAll();
+        }
+
+        synchronized void errorReceived(String error) {
+            this.error = error;
+            notifyAll();
+        }
+
+        synchronized Message take(long timeout) throws InterruptedException, TimeoutException, HDBException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (true) {
+                Message message = chunks.remove(nextSequence);
+                if (message != null) {
+                    nextSequence++;
+                    return message;
+                }
+                if (error != null) {
+                    throw new HDBException("error while waiting for data: " + error);
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new TimeoutException("no data received after " + timeout + " ms");
+                }
+                wait(wait);
+            }
+        }
+    }
+
     private class ScanResultSetImpl extends ScanResultSet {
 
         private final String scannerId;
         private final ScanResultSetMetadata metadata;
 
-        private ScanResultSetImpl(String scannerId, String[] columns, List<DataAccessor> fetchBuffer, int fetchSize, boolean onlyOneChunk, long tx) {
+        private final PushedChunks pushedChunks;
+        private final ChannelSlot slot;
+
+        private ScanResultSetImpl(ChannelSlot slot, String scannerId, String[] columns, List<DataAccessor> fetchBuffer, int fetchSize, boolean onlyOneChunk, long tx, PushedChunks pushedChunks) {
             super(tx);
             this.scannerId = scannerId;
+            this.pushedChunks = pushedChunks;
+            this.slot = slot;
             this.metadata = new ScanResultSetMetadata(columns);
 
-            this.fetchBuffer.addAll(fetchBuffer);
             this.fetchSize = fetchSize;
+            if (onlyOneChunk) {
+                lastChunk = true;
+            }
+            setFetchBuffer(fetchBuffer);
             if (fetchBuffer.isEmpty()) {
                 // empty result set
                 finished = true;
                 noMoreData = true;
             }
-            if (onlyOneChunk) {
-                lastChunk = true;
-            }
         }
 
         @Override
@@ -592,17 +1182,41 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
             return metadata;
         }
 
-        final List<DataAccessor> fetchBuffer = new ArrayList<>();
-        Map<String, Object> next;
+        List<DataAccessor> fetchBuffer;
+        DataAccessor next;
         boolean finished;
         boolean noMoreData;
         int bufferPosition;
         int fetchSize;
         boolean lastChunk;
+        /**
+         * Position in the buffer which triggers the request for the next
+         * chunk, -1 if it must not be prefetched
+         */
+        int prefetchPosition = -1;
+        CompletableFuture<Message> prefetch;
 
         @Override
         public void close() {
             finished = true;
+            prefetch = null;
+            if (pushedChunks != null) {
+                streamingScanners.remove(scannerId);
+                if (!lastChunk) {
+                    // stop the server from pushing data
+                    Channel _channel = slot.channel;
+                    if (_channel != null) {
+                        _channel.sendMessageWithAsyncReply(Message.CLOSE_SCANNER(clientId, scannerId), timeout, (Message originalMessage, Message reply, Throwable error) -> {
+                            if (error != null) {
+                                LOGGER.log(Level.SEVERE, "cannot close scanner " + scannerId + ": " + error, error);
+                            } else if (reply.type == Message.TYPE_ERROR) {
+                                // the server may have already sent the last chunk
+                                LOGGER.log(Level.FINE, "cannot close scanner {0}: {1}", new Object[]{scannerId, reply});
+                            }
+                        });
+                    }
+                }
+            }
         }
 
         @Override
@@ -615,15 +1229,26 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
 
         private void fillBuffer() throws HDBException {
             if (lastChunk) {
-                fetchBuffer.clear();
+                fetchBuffer = Collections.emptyList();
                 noMoreData = true;
                 bufferPosition = 0;
                 return;
             }
-            fetchBuffer.clear();
-            Channel _channel = ensureOpen();
+            fetchBuffer = Collections.emptyList();
+            if (pushedChunks != null) {
+                fillBufferFromPushedChunks();
+                return;
+            }
             try {
-                Message result = _channel.sendMessageWithReply(Message.FETCH_SCANNER_DATA(clientId, scannerId, fetchSize), 10000);
+                Message result;
+                CompletableFuture<Message> _prefetch = prefetch;
+                if (_prefetch != null) {
+                    prefetch = null;
+                    result = _prefetch.get(10000, TimeUnit.MILLISECONDS);
+                } else {
+                    Channel _channel = slot.ensureOpen();
+                    result = _channel.sendMessageWithReply(Message.FETCH_SCANNER_DATA(clientId, scannerId, fetchSize), 10000);
+                }
                 //LOGGER.log(Level.SEVERE, "fillBuffer result " + result);
                 if (result.type == Message.TYPE_ERROR) {
                     throw new HDBException(result);
@@ -638,11 +1263,77 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                 if (records.isEmpty()) {
                     noMoreData = true;
                 }
-                fetchBuffer.addAll(records);
-                bufferPosition = 0;
+                setFetchBuffer(records);
+            } catch (ExecutionException err) {
+                throw new HDBException(err.getCause());
+            } catch (InterruptedException | TimeoutException err) {
+                throw new HDBException(err);
+            }
+        }
+
+        private void setFetchBuffer(List<DataAccessor> records) {
+            // chunks are used as they come from the network, columnar chunks are decoded row by row
+            fetchBuffer = records;
+            bufferPosition = 0;
+            prefetchPosition = -1;
+            if (prefetchWatermark > 0 && pushedChunks == null && !lastChunk && !records.isEmpty()
+                    && estimateSize(records) <= prefetchMaxBytes) {
+                prefetchPosition = Math.max(1, (int) ((long) records.size() * Math.min(prefetchWatermark, 100) / 100));
+            }
+        }
+
+        /**
+         * Asks for the next chunk while the application consumes the current
+         * one, so that at most one chunk is kept in memory besides the
+         * current one
+         */
+        private void startPrefetch() {
+            Channel _channel = slot.channel;
+            if (_channel == null) {
+                // fillBuffer will try to reconnect
+                return;
+            }
+            CompletableFuture<Message> result = new CompletableFuture<>();
+            prefetch = result;
+            connection.scanChunkPrefetched();
+            _channel.sendMessageWithAsyncReply(Message.FETCH_SCANNER_DATA(clientId, scannerId, fetchSize), 10000,
+                    (Message originalMessage, Message reply, Throwable error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(reply);
+                        }
+                    });
+        }
+
+        private void fillBufferFromPushedChunks() throws HDBException {
+            Message result;
+            try {
+                result = pushedChunks.take(timeout);
             } catch (InterruptedException | TimeoutException err) {
+                finished = true;
                 throw new HDBException(err);
             }
+            TuplesList data = (TuplesList) result.parameters.get("data");
+            List<DataAccessor> records = data.tuples;
+            lastChunk = (Boolean) result.parameters.get("last");
+            if (lastChunk) {
+                streamingScanners.remove(scannerId);
+            } else {
+                // let the server push one more chunk, the one we have just taken
+                Channel _channel = slot.channel;
+                if (_channel != null) {
+                    _channel.sendOneWayMessage(Message.SCANNER_CREDITS(clientId, scannerId, 1), (Message originalMessage, Throwable error) -> {
+                        if (error != null) {
+                            LOGGER.log(Level.SEVERE, "cannot send credits to scanner " + scannerId + ": " + error, error);
+                        }
+                    });
+                }
+            }
+            if (records.isEmpty()) {
+                noMoreData = true;
+            }
+            setFetchBuffer(records);
         }
 
         private boolean ensureNext() throws HDBException {
@@ -656,16 +1347,25 @@ public class RoutedClientSideConnection implements AutoCloseable, ChannelEventLi
                     return false;
                 }
             }
-            next = fetchBuffer.get(bufferPosition++).toMap();
+            next = fetchBuffer.get(bufferPosition++);
+            if (bufferPosition == prefetchPosition) {
+                startPrefetch();
+            }
             return true;
         }
 
         @Override
         public Map<String, Object> next() throws HDBException {
+            DataAccessor record = nextRecord();
+            return record != null ? record.toMap() : null;
+        }
+
+        @Override
+        public DataAccessor nextRecord() throws HDBException {
             if (finished) {
                 throw new HDBException("Scanner is exhausted");
             }
-            Map<String, Object> _next = next;
+            DataAccessor _next = next;
             next = null;
             return _next;
         }
@@ -19,6 +19,8 @@
  */
 package herddb.client;
 
+import herddb.utils.DataAccessor;
+import herddb.utils.MapDataAccessor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +38,19 @@ public abstract class ScanResultSet implements AutoCloseable {
 
     public abstract Map<String, Object> next() throws HDBException;
 
+    /**
+     * Returns the next record, values can be accessed by position, following
+     * the order of the columns in {@link #getMetadata()}. Implementations
+     * should override this method in order to not create a Map for each
+     * record
+     *
+     * @return the next record
+     * @throws HDBException
+     */
+    public DataAccessor nextRecord() throws HDBException {
+        return new MapDataAccessor(next(), getMetadata().getColumnNames());
+    }
+
     public final long transactionId;
 
     public ScanResultSet(long transactionId) {
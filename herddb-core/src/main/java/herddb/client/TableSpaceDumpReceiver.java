@@ -44,9 +44,26 @@ public class TableSpaceDumpReceiver {
     public void receiveTableDataChunk(List<Record> record) throws DataStorageManagerException {
     }
 
+    /**
+     * Receives data of the given table. When the dump is requested with a
+     * parallelism greater than one chunks of different tables may arrive
+     * concurrently
+     *
+     * @param table name of the table
+     * @param record records
+     * @throws DataStorageManagerException
+     */
+    public void receiveTableDataChunk(String table, List<Record> record) throws DataStorageManagerException {
+        receiveTableDataChunk(record);
+    }
+
     public void endTable() throws DataStorageManagerException {
     }
 
+    public void endTable(String table) throws DataStorageManagerException {
+        endTable();
+    }
+
     public void finish(LogSequenceNumber logSequenceNumber) throws DataStorageManagerException {
     }
 
@@ -24,7 +24,10 @@ import herddb.model.NodeMetadata;
 import herddb.model.TableSpace;
 import herddb.network.ServerHostData;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -86,11 +89,13 @@ public class ZookeeperClientSideMetadataProvider implements ClientSideMetadataPr
     }
 
     private final Map<String, String> tableSpaceLeaders = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> tableSpaceReplicas = new ConcurrentHashMap<>();
     private final Map<String, ServerHostData> servers = new ConcurrentHashMap<>();
 
     @Override
     public void requestMetadataRefresh() {
         tableSpaceLeaders.clear();
+        tableSpaceReplicas.clear();
         servers.clear();
     }
 
@@ -139,10 +144,35 @@ public class ZookeeperClientSideMetadataProvider implements ClientSideMetadataPr
             "Could not find a leader for tablespace " + tableSpace + " in time");
     }
 
+    @Override
+    public List<String> getTableSpaceReplicas(String tableSpace) throws ClientSideMetadataProviderException {
+        List<String> cached = tableSpaceReplicas.get(tableSpace);
+        if (cached != null) {
+            return cached;
+        }
+        String leader = getTableSpaceLeader(tableSpace);
+        if (leader == null) {
+            return Collections.emptyList();
+        }
+        cached = tableSpaceReplicas.get(tableSpace);
+        if (cached != null) {
+            return cached;
+        }
+        // not a real tablespace, only its leader is known
+        return Collections.singletonList(leader);
+    }
+
     private String readAsTableSpace(ZooKeeper zooKeeper, String tableSpace) throws IOException, InterruptedException, KeeperException {
         Stat stat = new Stat();
         byte[] result = zooKeeper.getData(basePath + "/tableSpaces/" + tableSpace, false, stat);
-        String leader = TableSpace.deserialize(result, stat.getVersion()).leaderId;
+        TableSpace tableSpaceMetadata = TableSpace.deserialize(result, stat.getVersion());
+        String leader = tableSpaceMetadata.leaderId;
+        List<String> replicas = new ArrayList<>(tableSpaceMetadata.replicas);
+        if (!replicas.contains(leader)) {
+            replicas.add(leader);
+        }
+        Collections.sort(replicas);
+        tableSpaceReplicas.put(tableSpace, Collections.unmodifiableList(replicas));
         tableSpaceLeaders.put(tableSpace, leader);
         return leader;
     }
@@ -19,12 +19,26 @@
  */
 package herddb.cluster;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
@@ -44,6 +58,10 @@ import herddb.log.LogEntry;
 import herddb.log.LogNotAvailableException;
 import herddb.log.LogSequenceNumber;
 import herddb.utils.EnsureLongIncrementAccumulator;
+import herddb.utils.ExtendedDataInputStream;
+import herddb.utils.ExtendedDataOutputStream;
+import herddb.utils.SimpleByteArrayInputStream;
+import herddb.utils.SystemProperties;
 
 /**
  * Commit log replicated on Apache Bookkeeper
@@ -70,6 +88,35 @@ public class BookkeeperCommitLog extends CommitLog {
     private long ledgersRetentionPeriod = 1000 * 60 * 60 * 24;
     private volatile boolean closed = false;
     private volatile boolean failed = false;
+    /**
+     * Maximum time to wait between two checks for new entries on the last
+     * ledger, checks are more frequent just after new entries have been read
+     */
+    private static final long MAX_LAST_ADD_CONFIRMED_POLL_INTERVAL = 20;
+    private static final int WRITE_QUEUE_SIZE = SystemProperties.getIntSystemProperty(
+        BookkeeperCommitLog.class.getName() + ".writequeuesize", 100000);
+    /**
+     * While the write queue is full, how often to check that the writer is
+     * still accepting entries
+     */
+    private static final long WRITE_QUEUE_OFFER_TIMEOUT = 100;
+    private int writeBatchMaxSize = 1024 * 1024;
+    private long writeBatchLingerTime = 1;
+    private int followerReadBatchSize = 100;
+    private int followerMaxPendingReads = 4;
+    private long followerMaxIdleWait = 1000;
+    /**
+     * Interval at which the writer publishes the last confirmed entry, 0 if
+     * it is published only with the next entry
+     */
+    private int explicitLacInterval;
+    /**
+     * Last ledger of the leader, kept open between calls to followTheLeader
+     */
+    private volatile LedgerHandle followerLedger;
+    private ExecutorService followerDecoder;
+    private volatile long followerLagEntries;
+    private volatile long followerUpToDateTimestamp;
 
     public LedgersInfo getActualLedgersList() {
         return actualLedgersList;
@@ -79,11 +126,42 @@ public class BookkeeperCommitLog extends CommitLog {
         failed = true;
     }
 
+    /**
+     * An entry waiting to be written to BookKeeper
+     */
+    private static final class PendingWrite {
+
+        private final LogEntry entry;
+        private final byte[] data;
+        private final CompletableFuture<LogSequenceNumber> result = new CompletableFuture<>();
+
+        private PendingWrite(LogEntry entry) {
+            this.entry = entry;
+            this.data = entry != null ? entry.serialize() : null;
+        }
+    }
+
+    /**
+     * Asks the spool thread to exit after writing every previous entry
+     */
+    private static final PendingWrite CLOSE_WRITER = new PendingWrite(null);
+
     private class CommitFileWriter implements AutoCloseable {
 
         private volatile LedgerHandle out;
         private final long ledgerId;
         private volatile boolean errorOccurredDuringWrite;
+        private final BlockingQueue<PendingWrite> writeQueue = new LinkedBlockingQueue<>(WRITE_QUEUE_SIZE);
+        private final AtomicInteger pendingAdds = new AtomicInteger();
+        private final Thread spool;
+        /**
+         * No more entries are accepted
+         */
+        private final AtomicBoolean closing = new AtomicBoolean();
+        /**
+         * The spool thread does not take entries from the queue anymore
+         */
+        private volatile boolean stopped;
 
         private CommitFileWriter() throws LogNotAvailableException {
             try {
@@ -93,6 +171,9 @@ public class BookkeeperCommitLog extends CommitLog {
             } catch (InterruptedException | BKException err) {
                 throw new LogNotAvailableException(err);
             }
+            this.spool = new Thread(this::spool, "bookkeeper-writer-" + tableSpaceUUID + "-" + ledgerId);
+            this.spool.setDaemon(true);
+            this.spool.start();
         }
 
         public long getLedgerId() {
@@ -100,18 +181,115 @@ public class BookkeeperCommitLog extends CommitLog {
         }
 
         public CompletableFuture<LogSequenceNumber> writeEntry(LogEntry edit) {
-            byte[] serialize = edit.serialize();
-            CompletableFuture<LogSequenceNumber> res = new CompletableFuture<>();
-            this.out.asyncAddEntry(serialize, (int rc, LedgerHandle lh, long offset, Object o) -> {
+            PendingWrite write = new PendingWrite(edit);
+            if (closing.get()) {
+                write.result.completeExceptionally(new LogNotAvailableException(new Exception("ledger " + ledgerId + " has been closed")));
+                return write.result;
+            }
+            try {
+                // wait while the queue is full, unless the writer is closed meanwhile
+                while (!writeQueue.offer(write, WRITE_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    if (closing.get()) {
+                        write.result.completeExceptionally(new LogNotAvailableException(new Exception("ledger " + ledgerId + " has been closed")));
+                        return write.result;
+                    }
+                }
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                write.result.completeExceptionally(new LogNotAvailableException(err));
+                return write.result;
+            }
+            if (stopped) {
+                // the spool thread may have drained the queue before the entry was added
+                failPendingWrites();
+            }
+            lastLedgerId = ledgerId;
+            return write.result;
+        }
+
+        /**
+         * Groups the entries which are waiting in the queue, a group is
+         * written as a single BookKeeper entry. When other writes are in
+         * flight the group waits for more entries up to writeBatchLingerTime
+         */
+        private void spool() {
+            PendingWrite carry = null;
+            List<PendingWrite> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    PendingWrite first = carry != null ? carry : writeQueue.take();
+                    carry = null;
+                    if (first == CLOSE_WRITER) {
+                        return;
+                    }
+                    batch.add(first);
+                    int size = first.data.length;
+                    boolean linger = writeBatchLingerTime > 0 && pendingAdds.get() > 0;
+                    long lingerDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeBatchLingerTime);
+                    while (size < writeBatchMaxSize) {
+                        PendingWrite next = writeQueue.poll();
+                        if (next == null && linger) {
+                            long wait = lingerDeadline - System.nanoTime();
+                            if (wait > 0) {
+                                next = writeQueue.poll(wait, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == CLOSE_WRITER || size + next.data.length > writeBatchMaxSize) {
+                            carry = next;
+                            break;
+                        }
+                        batch.add(next);
+                        size += next.data.length;
+                    }
+                    writeBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            } catch (InterruptedException | RuntimeException err) {
+                LOGGER.log(Level.SEVERE, "bookkeeper writer failed", err);
+                LogNotAvailableException error = new LogNotAvailableException(err);
+                for (PendingWrite write : batch) {
+                    write.result.completeExceptionally(error);
+                }
+                if (carry != null && carry != CLOSE_WRITER) {
+                    carry.result.completeExceptionally(error);
+                }
+            } finally {
+                closing.set(true);
+                stopped = true;
+                failPendingWrites();
+            }
+        }
+
+        private void writeBatch(List<PendingWrite> batch) {
+            byte[] data = batch.size() == 1 ? batch.get(0).data : serializeEntries(batch);
+            pendingAdds.incrementAndGet();
+            this.out.asyncAddEntry(data, (int rc, LedgerHandle lh, long offset, Object o) -> {
+                pendingAdds.decrementAndGet();
                 if (rc == BKException.Code.OK) {
-                    res.complete(new LogSequenceNumber(lh.getId(), offset));
+                    LogSequenceNumber number = new LogSequenceNumber(lh.getId(), offset);
+                    for (PendingWrite write : batch) {
+                        write.result.complete(number);
+                    }
                 } else {
                     errorOccurredDuringWrite = true;
-                    res.completeExceptionally(BKException.create(rc));
+                    BKException error = BKException.create(rc);
+                    for (PendingWrite write : batch) {
+                        write.result.completeExceptionally(error);
+                    }
                 }
             }, null);
-            lastLedgerId = ledgerId;
-            return res;
+        }
+
+        private void failPendingWrites() {
+            PendingWrite write;
+            while ((write = writeQueue.poll()) != null) {
+                if (write != CLOSE_WRITER) {
+                    write.result.completeExceptionally(new LogNotAvailableException(new Exception("ledger " + ledgerId + " has been closed")));
+                }
+            }
         }
 
         @Override
@@ -121,6 +299,14 @@ public class BookkeeperCommitLog extends CommitLog {
                 return;
             }
             try {
+                // let the spool thread write every entry already accepted
+                if (closing.compareAndSet(false, true)) {
+                    while (!stopped && !writeQueue.offer(CLOSE_WRITER, WRITE_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        // the queue is full, wait for the spool thread
+                    }
+                }
+                spool.join();
+
                 LOGGER.log(Level.SEVERE, "Closing ledger " + _out.getId()
                     + ", with LastAddConfirmed=" + _out.getLastAddConfirmed()
                     + ", LastAddPushed=" + _out.getLastAddPushed()
@@ -137,6 +323,57 @@ public class BookkeeperCommitLog extends CommitLog {
 
     }
 
+    /**
+     * Marks a BookKeeper entry which contains many LogEntry, a serialized
+     * LogEntry starts with its timestamp which is never negative
+     */
+    private static final long MULTI_ENTRY_MARKER = -1;
+
+    private static byte[] serializeEntries(List<PendingWrite> batch) {
+        int size = 8 + 5;
+        for (PendingWrite write : batch) {
+            size += write.data.length;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(size);
+        try (ExtendedDataOutputStream out = new ExtendedDataOutputStream(buffer)) {
+            out.writeLong(MULTI_ENTRY_MARKER);
+            out.writeVInt(batch.size());
+            for (PendingWrite write : batch) {
+                out.write(write.data);
+            }
+        } catch (IOException err) {
+            throw new RuntimeException(err);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes the contents of a BookKeeper entry, which can be a single
+     * LogEntry or a group of LogEntry written together
+     *
+     * @param data
+     * @return the entries, in the order they were written
+     * @throws EOFException
+     */
+    static List<LogEntry> deserializeEntries(byte[] data) throws EOFException {
+        ExtendedDataInputStream in = new ExtendedDataInputStream(new SimpleByteArrayInputStream(data));
+        try {
+            if (data.length < 8 || in.readLong() != MULTI_ENTRY_MARKER) {
+                return Collections.singletonList(LogEntry.deserialize(data));
+            }
+            int count = in.readVInt();
+            List<LogEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(LogEntry.deserialize(in));
+            }
+            return entries;
+        } catch (EOFException err) {
+            throw err;
+        } catch (IOException err) {
+            throw new RuntimeException(err);
+        }
+    }
+
     public BookkeeperCommitLog(String tableSpace, ZookeeperMetadataStorageManager metadataStorageManager, BookKeeper bookkeeper) throws LogNotAvailableException {
         this.metadataManager = metadataStorageManager;
         this.tableSpaceUUID = tableSpace;
@@ -171,6 +408,54 @@ public class BookkeeperCommitLog extends CommitLog {
         return ledgersRetentionPeriod;
     }
 
+    public int getWriteBatchMaxSize() {
+        return writeBatchMaxSize;
+    }
+
+    public void setWriteBatchMaxSize(int writeBatchMaxSize) {
+        this.writeBatchMaxSize = writeBatchMaxSize;
+    }
+
+    public long getWriteBatchLingerTime() {
+        return writeBatchLingerTime;
+    }
+
+    public void setWriteBatchLingerTime(long writeBatchLingerTime) {
+        this.writeBatchLingerTime = writeBatchLingerTime;
+    }
+
+    public int getFollowerReadBatchSize() {
+        return followerReadBatchSize;
+    }
+
+    public void setFollowerReadBatchSize(int followerReadBatchSize) {
+        this.followerReadBatchSize = followerReadBatchSize;
+    }
+
+    public int getFollowerMaxPendingReads() {
+        return followerMaxPendingReads;
+    }
+
+    public void setFollowerMaxPendingReads(int followerMaxPendingReads) {
+        this.followerMaxPendingReads = followerMaxPendingReads;
+    }
+
+    public long getFollowerMaxIdleWait() {
+        return followerMaxIdleWait;
+    }
+
+    public void setFollowerMaxIdleWait(long followerMaxIdleWait) {
+        this.followerMaxIdleWait = followerMaxIdleWait;
+    }
+
+    public int getExplicitLacInterval() {
+        return explicitLacInterval;
+    }
+
+    public void setExplicitLacInterval(int explicitLacInterval) {
+        this.explicitLacInterval = explicitLacInterval;
+    }
+
     public void setLedgersRetentionPeriod(long ledgersRetentionPeriod) {
         this.ledgersRetentionPeriod = ledgersRetentionPeriod;
     }
@@ -180,6 +465,38 @@ public class BookkeeperCommitLog extends CommitLog {
         if (isHasListeners()) {
             synch = true;
         }
+        CompletableFuture<LogSequenceNumber> res = writeEntry(edit);
+        if (synch) {
+            waitForWrite(res, edit);
+        }
+        return new CommitLogResult(res, !synch);
+    }
+
+    /**
+     * Entries are queued all together, so that they can be written to as few
+     * BookKeeper entries as possible, then the method waits for all of them
+     */
+    @Override
+    public List<CommitLogResult> log(List<LogEntry> edits, boolean synch) throws LogNotAvailableException {
+        if (isHasListeners()) {
+            synch = true;
+        }
+        List<CompletableFuture<LogSequenceNumber>> writes = new ArrayList<>(edits.size());
+        for (LogEntry edit : edits) {
+            writes.add(writeEntry(edit));
+        }
+        List<CommitLogResult> results = new ArrayList<>(edits.size());
+        for (int i = 0; i < edits.size(); i++) {
+            CompletableFuture<LogSequenceNumber> res = writes.get(i);
+            if (synch) {
+                waitForWrite(res, edits.get(i));
+            }
+            results.add(new CommitLogResult(res, !synch));
+        }
+        return results;
+    }
+
+    private CompletableFuture<LogSequenceNumber> writeEntry(LogEntry edit) {
         CommitFileWriter _writer = writer;
         CompletableFuture<LogSequenceNumber> res;
         if (closed || _writer == null) {
@@ -202,28 +519,28 @@ public class BookkeeperCommitLog extends CommitLog {
             }
             );
         }
+        return res;
+    }
 
-        if (synch) {
-            try {
-                LogSequenceNumber logPos = res.get();
-                if (lastLedgerId == logPos.ledgerId) {
-                    lastSequenceNumber.accumulateAndGet(logPos.offset,
-                        EnsureLongIncrementAccumulator.INSTANCE);
-                }
-                notifyListeners(logPos, edit);
-            } catch (ExecutionException errorOnSynch) {
-                Throwable cause = errorOnSynch.getCause();
-                if (cause instanceof LogNotAvailableException) {
-                    throw (LogNotAvailableException) cause;
-                } else {
-                    throw new LogNotAvailableException(cause);
-                }
-            } catch (InterruptedException cause) {
-                LOGGER.log(Level.SEVERE, "bookkeeper client interrupted", cause);
+    private void waitForWrite(CompletableFuture<LogSequenceNumber> res, LogEntry edit) throws LogNotAvailableException {
+        try {
+            LogSequenceNumber logPos = res.get();
+            if (lastLedgerId == logPos.ledgerId) {
+                lastSequenceNumber.accumulateAndGet(logPos.offset,
+                    EnsureLongIncrementAccumulator.INSTANCE);
+            }
+            notifyListeners(logPos, edit);
+        } catch (ExecutionException errorOnSynch) {
+            Throwable cause = errorOnSynch.getCause();
+            if (cause instanceof LogNotAvailableException) {
+                throw (LogNotAvailableException) cause;
+            } else {
                 throw new LogNotAvailableException(cause);
             }
+        } catch (InterruptedException cause) {
+            LOGGER.log(Level.SEVERE, "bookkeeper client interrupted", cause);
+            throw new LogNotAvailableException(cause);
         }
-        return new CommitLogResult(res, !synch);
     }
 
     private void handleBookKeeperAsyncFailure(Throwable cause, LogEntry edit) {
@@ -321,15 +638,17 @@ public class BookkeeperCommitLog extends CommitLog {
                                 LedgerEntry entry = entries.nextElement();
                                 long entryId = entry.getEntryId();
                                 LogSequenceNumber number = new LogSequenceNumber(ledgerId, entryId);
-                                LogEntry statusEdit = LogEntry.deserialize(entry.getEntry());
+                                List<LogEntry> statusEdits = deserializeEntries(entry.getEntry());
                                 lastLedgerId = ledgerId;
                                 currentLedgerId = ledgerId;
                                 lastSequenceNumber.set(entryId);
-                                if (number.after(snapshotSequenceNumber)) {
-                                    LOGGER.log(Level.FINEST, "RECOVER ENTRY #" + localEntryCount + " {0}, {1}", new Object[]{number, statusEdit});
-                                    consumer.accept(number, statusEdit);
-                                } else {
-                                    LOGGER.log(Level.FINEST, "SKIP ENTRY #" + localEntryCount + " {0}<{1}, {2}", new Object[]{number, snapshotSequenceNumber, statusEdit});
+                                for (LogEntry statusEdit : statusEdits) {
+                                    if (number.after(snapshotSequenceNumber)) {
+                                        LOGGER.log(Level.FINEST, "RECOVER ENTRY #" + localEntryCount + " {0}, {1}", new Object[]{number, statusEdit});
+                                        consumer.accept(number, statusEdit);
+                                    } else {
+                                        LOGGER.log(Level.FINEST, "SKIP ENTRY #" + localEntryCount + " {0}<{1}, {2}", new Object[]{number, snapshotSequenceNumber, statusEdit});
+                                    }
                                 }
                                 localEntryCount++;
                             }
@@ -359,6 +678,7 @@ public class BookkeeperCommitLog extends CommitLog {
 
     @Override
     public void startWriting() throws LogNotAvailableException {
+        closeFollowerLedger();
         actualLedgersList = metadataManager.getActualLedgersList(tableSpaceUUID);
         openNewLedger();
     }
@@ -411,6 +731,7 @@ public class BookkeeperCommitLog extends CommitLog {
                 return;
             }
             closeCurrentWriter();
+            closeFollowerLedger();
             closed = true;
             LOGGER.severe("closed");
         } finally {
@@ -443,6 +764,14 @@ public class BookkeeperCommitLog extends CommitLog {
         return failed;
     }
 
+    /**
+     * Reads the entries written by the leader. Ledgers are read ahead with
+     * many concurrent batched reads while entries are decoded on another
+     * thread and passed to the consumer. The last ledger is kept open and its
+     * last add confirmed entry is checked again until no new entry is written
+     * for {@link #getFollowerMaxIdleWait() } milliseconds, then the method
+     * returns.
+     */
     @Override
     public void followTheLeader(LogSequenceNumber skipPast, BiConsumer<LogSequenceNumber, LogEntry> consumer) throws LogNotAvailableException {
 
@@ -455,56 +784,229 @@ public class BookkeeperCommitLog extends CommitLog {
         try {
             long nextEntry = skipPast.offset + 1;
 //            LOGGER.log(Level.SEVERE, "followTheLeader "+tableSpace+" skipPast:{0} toRead: {1} actualList:{2}, nextEntry:{3}", new Object[]{skipPast, toRead, actualList, nextEntry});
-            for (Long previous : toRead) {
-                //LOGGER.log(Level.SEVERE, "followTheLeader openLedger " + previous + " nextEntry:" + nextEntry);
+            for (int i = 0; i < toRead.size(); i++) {
+                long ledgerId = toRead.get(i);
+                // the leader writes only to the last ledger, the others are closed
+                boolean lastLedger = i == toRead.size() - 1;
+                // time at which lastAddConfirmed was known to be the last entry,
+                // taken before reading it
+                long lastAddConfirmedTimestamp = System.currentTimeMillis();
                 LedgerHandle lh;
                 try {
-                    lh = bookKeeper.openLedgerNoRecovery(previous,
-                        BookKeeper.DigestType.CRC32, sharedSecret.getBytes(StandardCharsets.UTF_8));
+                    lh = openLedgerForFollower(ledgerId, lastLedger);
                 } catch (BKException.BKLedgerRecoveryException e) {
                     LOGGER.log(Level.SEVERE, "error", e);
                     return;
                 }
                 try {
                     long lastAddConfirmed = lh.getLastAddConfirmed();
-                    LOGGER.log(Level.FINE, "followTheLeader " + tableSpaceUUID + " openLedger {0} -> lastAddConfirmed:{1}, nextEntry:{2}", new Object[]{previous, lastAddConfirmed, nextEntry});
-                    if (nextEntry > lastAddConfirmed) {
-                        nextEntry = 0;
-                        continue;
-                    }
-                    Enumeration<LedgerEntry> entries
-                        = lh.readEntries(nextEntry, lh.getLastAddConfirmed());
-
-                    while (entries.hasMoreElements()) {
-                        LedgerEntry e = entries.nextElement();
-                        long entryId = e.getEntryId();
-
-                        byte[] entryData = e.getEntry();
-                        LogEntry statusEdit = LogEntry.deserialize(entryData);
-//                        LOGGER.log(Level.SEVERE, "" + tableSpaceUUID + " followentry {0},{1} -> {2}", new Object[]{previous, entryId, statusEdit});
-                        LogSequenceNumber number = new LogSequenceNumber(previous, entryId);
-                        lastSequenceNumber.accumulateAndGet(number.offset, EnsureLongIncrementAccumulator.INSTANCE);
-                        lastLedgerId = number.ledgerId;
-                        currentLedgerId = number.ledgerId;
-                        consumer.accept(number, statusEdit);
+                    LOGGER.log(Level.FINE, "followTheLeader " + tableSpaceUUID + " openLedger {0} -> lastAddConfirmed:{1}, nextEntry:{2}", new Object[]{ledgerId, lastAddConfirmed, nextEntry});
+                    long idleDeadline = lastAddConfirmedTimestamp + followerMaxIdleWait;
+                    long pollInterval = 0;
+                    while (!closed && writer == null) {
+                        followerLagEntries = Math.max(0, lastAddConfirmed - nextEntry + 1);
+                        if (nextEntry <= lastAddConfirmed) {
+                            readEntriesAhead(lh, nextEntry, lastAddConfirmed, consumer);
+                            nextEntry = lastAddConfirmed + 1;
+                            idleDeadline = System.currentTimeMillis() + followerMaxIdleWait;
+                            pollInterval = 0;
+                        }
+                        if (!lastLedger) {
+                            break;
+                        }
+                        if (explicitLacInterval > 0) {
+                            // the writer publishes the last confirmed entry every explicitLacInterval ms,
+                            // so every entry written before that has been applied
+                            followerUpToDateTimestamp = lastAddConfirmedTimestamp - explicitLacInterval;
+                        }
+                        if (lastAddConfirmedTimestamp >= idleDeadline) {
+                            // let the caller look for new ledgers
+                            break;
+                        }
+                        if (pollInterval > 0) {
+                            Thread.sleep(pollInterval);
+                        }
+                        pollInterval = Math.min(Math.max(1, pollInterval * 2), MAX_LAST_ADD_CONFIRMED_POLL_INTERVAL);
+                        lastAddConfirmedTimestamp = System.currentTimeMillis();
+                        lastAddConfirmed = Math.max(lastAddConfirmed, readLastAddConfirmed(lh));
                     }
+                    nextEntry = 0;
                 } finally {
-                    try {
-                        lh.close();
-                    } catch (BKException err) {
-                        LOGGER.log(Level.SEVERE, "error while closing ledger", err);
-                    } catch (InterruptedException err) {
-                        LOGGER.log(Level.SEVERE, "error while closing ledger", err);
-                        Thread.currentThread().interrupt();
+                    if (!lastLedger) {
+                        closeLedger(lh);
                     }
                 }
             }
-        } catch (InterruptedException | EOFException | BKException err) {
+        } catch (InterruptedException | BKException | ExecutionException err) {
+            if (closed || writer != null) {
+                LOGGER.log(Level.INFO, "followTheLeader interrupted by close or by startWriting: {0}", err + "");
+                return;
+            }
+            if (err instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            closeFollowerLedger();
             LOGGER.log(Level.SEVERE, "internal error", err);
             throw new LogNotAvailableException(err);
         }
     }
 
+    private LedgerHandle openLedgerForFollower(long ledgerId, boolean lastLedger) throws InterruptedException, BKException {
+        LedgerHandle current = followerLedger;
+        if (current != null) {
+            if (current.getId() == ledgerId && lastLedger) {
+                readLastAddConfirmed(current);
+                return current;
+            }
+            // if the leader closed the ledger its metadata must be read
+            // again in order to know the last entry
+            followerLedger = null;
+            closeLedger(current);
+        }
+        LedgerHandle lh = bookKeeper.openLedgerNoRecovery(ledgerId,
+            BookKeeper.DigestType.CRC32, sharedSecret.getBytes(StandardCharsets.UTF_8));
+        if (lastLedger) {
+            followerLedger = lh;
+            // the last entry is not known from the ledger metadata
+            readLastAddConfirmed(lh);
+        }
+        return lh;
+    }
+
+    /**
+     * Reads the last entry confirmed to the writer, considering both the
+     * value published explicitly by the writer and the one stored with the
+     * last entry
+     */
+    private long readLastAddConfirmed(LedgerHandle lh) throws InterruptedException, BKException {
+        if (explicitLacInterval > 0) {
+            return lh.readExplicitLastConfirmed();
+        }
+        return lh.readLastConfirmed();
+    }
+
+    private void closeFollowerLedger() {
+        LedgerHandle current = followerLedger;
+        followerLedger = null;
+        if (current != null) {
+            closeLedger(current);
+        }
+        synchronized (this) {
+            if (followerDecoder != null) {
+                followerDecoder.shutdown();
+                followerDecoder = null;
+            }
+        }
+    }
+
+    private static void closeLedger(LedgerHandle lh) {
+        try {
+            lh.close();
+        } catch (BKException err) {
+            LOGGER.log(Level.SEVERE, "error while closing ledger", err);
+        } catch (InterruptedException err) {
+            LOGGER.log(Level.SEVERE, "error while closing ledger", err);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized ExecutorService getFollowerDecoder() {
+        if (followerDecoder == null) {
+            followerDecoder = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "follower-decoder-" + tableSpaceUUID);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return followerDecoder;
+    }
+
+    /**
+     * Reads the given range of entries keeping many batched reads in flight,
+     * entries are passed to the consumer in order
+     */
+    private void readEntriesAhead(LedgerHandle lh, long first, long last, BiConsumer<LogSequenceNumber, LogEntry> consumer) throws InterruptedException, ExecutionException {
+        ExecutorService decoder = getFollowerDecoder();
+        Deque<CompletableFuture<List<List<LogEntry>>>> pendingReads = new ArrayDeque<>();
+        Deque<Long> pendingReadsStart = new ArrayDeque<>();
+        long nextToRead = first;
+        long nextToApply = first;
+        while (nextToApply <= last && !closed) {
+            while (nextToRead <= last && pendingReads.size() < followerMaxPendingReads) {
+                long end = Math.min(last, nextToRead + followerReadBatchSize - 1);
+                pendingReads.add(readEntries(lh, nextToRead, end, decoder));
+                pendingReadsStart.add(nextToRead);
+                nextToRead = end + 1;
+            }
+            List<List<LogEntry>> entries = pendingReads.poll().get();
+            long entryId = pendingReadsStart.poll();
+            for (List<LogEntry> entry : entries) {
+                acceptEntry(lh.getId(), entryId++, entry, consumer);
+            }
+            nextToApply = entryId;
+            followerLagEntries = last - nextToApply + 1;
+        }
+        for (CompletableFuture<List<List<LogEntry>>> pending : pendingReads) {
+            // entries are not needed any more, but the read must complete before the ledger is closed
+            try {
+                pending.get();
+            } catch (ExecutionException ignore) {
+            }
+        }
+    }
+
+    private static CompletableFuture<List<List<LogEntry>>> readEntries(LedgerHandle lh, long first, long last, ExecutorService decoder) {
+        CompletableFuture<List<List<LogEntry>>> result = new CompletableFuture<>();
+        lh.asyncReadEntries(first, last, (int rc, LedgerHandle handle, Enumeration<LedgerEntry> entries, Object ctx) -> {
+            if (rc != BKException.Code.OK) {
+                result.completeExceptionally(BKException.create(rc));
+                return;
+            }
+            List<byte[]> data = new ArrayList<>((int) (last - first + 1));
+            while (entries.hasMoreElements()) {
+                data.add(entries.nextElement().getEntry());
+            }
+            try {
+                decoder.submit(() -> {
+                    try {
+                        List<List<LogEntry>> decoded = new ArrayList<>(data.size());
+                        for (byte[] entryData : data) {
+                            decoded.add(deserializeEntries(entryData));
+                        }
+                        result.complete(decoded);
+                    } catch (Throwable err) {
+                        result.completeExceptionally(err);
+                    }
+                });
+            } catch (RejectedExecutionException stopped) {
+                result.completeExceptionally(stopped);
+            }
+        }, null);
+        return result;
+    }
+
+    private void acceptEntry(long ledgerId, long entryId, List<LogEntry> entries, BiConsumer<LogSequenceNumber, LogEntry> consumer) {
+        LogSequenceNumber number = new LogSequenceNumber(ledgerId, entryId);
+        lastLedgerId = number.ledgerId;
+        currentLedgerId = number.ledgerId;
+        for (LogEntry entry : entries) {
+            consumer.accept(number, entry);
+        }
+        // entries written together share the same position, a checkpoint
+        // must not see it until all of them have been applied
+        lastSequenceNumber.accumulateAndGet(number.offset, EnsureLongIncrementAccumulator.INSTANCE);
+    }
+
+    @Override
+    public long getFollowerLagEntries() {
+        return followerLagEntries;
+    }
+
+    @Override
+    public long getFollowerUpToDateTimestamp() {
+        return followerUpToDateTimestamp;
+    }
+
     @Override
     public LogSequenceNumber getLastSequenceNumber() {
         return new LogSequenceNumber(lastLedgerId, lastSequenceNumber.get());
@@ -45,6 +45,12 @@ public class BookkeeperCommitLogManager extends CommitLogManager {
     private BookKeeper bookKeeper;
     private final ClientConfiguration config;
     private long ledgersRetentionPeriod = 1000 * 60 * 60 * 24;
+    private int writeBatchMaxSize = ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_MAX_SIZE_DEFAULT;
+    private long writeBatchLingerTime = ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_LINGER_TIME_DEFAULT;
+    private int followerReadBatchSize = ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_BATCH_SIZE_DEFAULT;
+    private int followerMaxPendingReads = ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_AHEAD_DEFAULT;
+    private long followerMaxIdleWait = ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_MAX_IDLE_WAIT_DEFAULT;
+    private final int explicitLacInterval;
 
     public BookkeeperCommitLogManager(ZookeeperMetadataStorageManager metadataStorageManager, ServerConfiguration serverConfiguration) {
         config = new ClientConfiguration();
@@ -53,6 +59,8 @@ public class BookkeeperCommitLogManager extends CommitLogManager {
         config.setZkTimeout(metadataStorageManager.getZkSessionTimeout());
         config.setEnableParallelRecoveryRead(true);
         config.setEnableDigestTypeAutodetection(true);
+        config.setExplictLacInterval(serverConfiguration.getInt(ServerConfiguration.PROPERTY_BOOKKEEPER_EXPLICIT_LAC_INTERVAL,
+                ServerConfiguration.PROPERTY_BOOKKEEPER_EXPLICIT_LAC_INTERVAL_DEFAULT));
         LOG.log(Level.CONFIG, "Processing server config {0}", serverConfiguration);
         if (serverConfiguration.getBoolean("bookie.preferlocalbookie", false)) {
             config.setEnsemblePlacementPolicy(PreferLocalBookiePlacementPolicy.class);
@@ -71,6 +79,7 @@ public class BookkeeperCommitLogManager extends CommitLogManager {
             Object key = e.next();
             LOG.log(Level.CONFIG, "{0}={1}", new Object[]{key, config.getProperty(key + "")});
         }
+        this.explicitLacInterval = config.getExplictLacInterval();
         this.metadataStorageManager = metadataStorageManager;
     }
 
@@ -131,6 +140,50 @@ public class BookkeeperCommitLogManager extends CommitLogManager {
         this.ledgersRetentionPeriod = ledgersRetentionPeriod;
     }
 
+    public int getWriteBatchMaxSize() {
+        return writeBatchMaxSize;
+    }
+
+    public void setWriteBatchMaxSize(int writeBatchMaxSize) {
+        this.writeBatchMaxSize = writeBatchMaxSize;
+    }
+
+    public long getWriteBatchLingerTime() {
+        return writeBatchLingerTime;
+    }
+
+    public void setWriteBatchLingerTime(long writeBatchLingerTime) {
+        this.writeBatchLingerTime = writeBatchLingerTime;
+    }
+
+    public int getFollowerReadBatchSize() {
+        return followerReadBatchSize;
+    }
+
+    public void setFollowerReadBatchSize(int followerReadBatchSize) {
+        this.followerReadBatchSize = followerReadBatchSize;
+    }
+
+    public int getFollowerMaxPendingReads() {
+        return followerMaxPendingReads;
+    }
+
+    public void setFollowerMaxPendingReads(int followerMaxPendingReads) {
+        this.followerMaxPendingReads = followerMaxPendingReads;
+    }
+
+    public long getFollowerMaxIdleWait() {
+        return followerMaxIdleWait;
+    }
+
+    public void setFollowerMaxIdleWait(long followerMaxIdleWait) {
+        this.followerMaxIdleWait = followerMaxIdleWait;
+    }
+
+    public int getExplicitLacInterval() {
+        return explicitLacInterval;
+    }
+
     @Override
     public CommitLog createCommitLog(String tableSpace) throws LogNotAvailableException {
         BookkeeperCommitLog res = new BookkeeperCommitLog(tableSpace, metadataStorageManager, bookKeeper);
@@ -138,6 +191,12 @@ public class BookkeeperCommitLogManager extends CommitLogManager {
         res.setEnsemble(ensemble);
         res.setLedgersRetentionPeriod(ledgersRetentionPeriod);
         res.setWriteQuorumSize(writeQuorumSize);
+        res.setWriteBatchMaxSize(writeBatchMaxSize);
+        res.setWriteBatchLingerTime(writeBatchLingerTime);
+        res.setFollowerReadBatchSize(followerReadBatchSize);
+        res.setFollowerMaxPendingReads(followerMaxPendingReads);
+        res.setFollowerMaxIdleWait(followerMaxIdleWait);
+        res.setExplicitLacInterval(explicitLacInterval);
         return res;
     }
 
@@ -25,6 +25,7 @@ import herddb.model.Column;
 import herddb.model.ColumnTypes;
 import herddb.model.Record;
 import herddb.model.Table;
+import herddb.model.Tuple;
 import herddb.utils.Bytes;
 import herddb.utils.ExtendedDataInputStream;
 import herddb.utils.ExtendedDataOutputStream;
@@ -389,6 +390,177 @@ public final class RecordSerializer {
         }
     }
 
+    /**
+     * Deserializes only some of the columns of a record. The result has the
+     * same layout of the table, columns which are not requested are always
+     * null.
+     *
+     * @param record the record
+     * @param table the table
+     * @param columns the indexes of the requested columns
+     * @return a tuple
+     */
+    public static DataAccessor buildPartialDataAccessor(Record record, Table table, int[] columns) {
+        Object[] values = new Object[table.columns.length];
+        int remaining = columns.length;
+        try {
+            for (int index : columns) {
+                if (table.isPrimaryKeyColumn(index)) {
+                    values[index] = accessRawDataFromPrimaryKey(index, record.key, table);
+                    remaining--;
+                }
+            }
+            SimpleByteArrayInputStream s = new SimpleByteArrayInputStream(record.value.data);
+            ExtendedDataInputStream din = new ExtendedDataInputStream(s);
+            while (remaining > 0 && !din.isEof()) {
+                int serialPosition = din.readVIntNoEOFException();
+                if (din.isEof()) {
+                    break;
+                }
+                int found = -1;
+                for (int index : columns) {
+                    if (table.columns[index].serialPosition == serialPosition) {
+                        found = index;
+                        break;
+                    }
+                }
+                if (found >= 0) {
+                    values[found] = deserializeTypeAndValue(din);
+                    remaining--;
+                } else {
+                    skipTypeAndValue(din);
+                }
+            }
+        } catch (IOException err) {
+            throw new IllegalStateException("bad data:" + err, err);
+        }
+        return new Tuple(table.columnNames, values);
+    }
+
+    /**
+     * Locates the serialized value of a column inside the value of a record,
+     * without deserializing it.
+     *
+     * @param index the index of the column, it must not be part of the
+     * primary key
+     * @param value the value of the record
+     * @param table the table
+     * @return the offset of the value in the high 32 bits and the length in
+     * the low 32 bits, -1 if the value is null or if it has not been
+     * serialized using the current type of the column
+     * @see #rawValueOffset(long)
+     * @see #rawValueLength(long)
+     */
+    public static long locateRawValue(int index, byte[] value, Table table) {
+        Column column = table.getColumn(index);
+        int pos = 0;
+        final int end = value.length;
+        while (pos < end) {
+            int serialPosition = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = value[pos++];
+                serialPosition |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            int type = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = value[pos++];
+                type |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            int offset = pos;
+            int length;
+            switch (type) {
+                case ColumnTypes.BYTEARRAY:
+                case ColumnTypes.STRING:
+                    length = 0;
+                    for (int shift = 0;; shift += 7) {
+                        byte b = value[offset++];
+                        length |= (b & 0x7F) << shift;
+                        if ((b & 0x80) == 0) {
+                            break;
+                        }
+                    }
+                    pos = offset + length;
+                    break;
+                case ColumnTypes.INTEGER:
+                    length = 4;
+                    pos += length;
+                    break;
+                case ColumnTypes.LONG:
+                case ColumnTypes.TIMESTAMP:
+                case ColumnTypes.DOUBLE:
+                    length = 8;
+                    pos += length;
+                    break;
+                case ColumnTypes.BOOLEAN:
+                    length = 1;
+                    pos += length;
+                    break;
+                case ColumnTypes.NULL:
+                    length = 0;
+                    break;
+                default:
+                    throw new IllegalArgumentException("bad column type " + type);
+            }
+            if (serialPosition == column.serialPosition) {
+                if (type != column.type) {
+                    return -1;
+                }
+                return ((long) offset << 32) | length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Locates the serialized value of a column inside the key of a record,
+     * without deserializing it.
+     *
+     * @param index the index of the column, it must be part of the primary
+     * key
+     * @param key the key of the record
+     * @param table the table
+     * @return the offset of the value in the high 32 bits and the length in
+     * the low 32 bits, -1 if the column is not part of the key
+     * @see #rawValueOffset(long)
+     * @see #rawValueLength(long)
+     */
+    public static long locateRawValueInPrimaryKey(int index, byte[] key, Table table) {
+        if (table.primaryKey.length == 1) {
+            return key.length;
+        }
+        final String cname = table.getColumn(index).name;
+        int pos = 0;
+        for (String primaryKeyColumn : table.primaryKey) {
+            int length = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = key[pos++];
+                length |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (primaryKeyColumn.equals(cname)) {
+                return ((long) pos << 32) | length;
+            }
+            pos += length;
+        }
+        return -1;
+    }
+
+    public static int rawValueOffset(long location) {
+        return (int) (location >>> 32);
+    }
+
+    public static int rawValueLength(long location) {
+        return (int) location;
+    }
+
     private RecordSerializer() {
     }
 
@@ -529,6 +701,66 @@ public final class RecordSerializer {
         return new Bytes(value.toByteArray());
     }
 
+    /**
+     * Serializes the primary key from values given in the same order of the
+     * columns of the table
+     */
+    public static Bytes serializePrimaryKey(Object[] values, Table table) {
+        int[] projection = table.primaryKeyProjection;
+        if (table.primaryKey.length == 1) {
+            for (int i = 0; i < projection.length; i++) {
+                if (projection[i] >= 0) {
+                    Column c = table.columns[i];
+                    if (values[i] == null) {
+                        throw new IllegalArgumentException("key field " + c.name + " cannot be null. Record data: " + Arrays.toString(values));
+                    }
+                    return new Bytes(serialize(values[i], c.type));
+                }
+            }
+            throw new IllegalStateException("no primary key column in table " + table.name);
+        }
+        byte[][] fieldValues = new byte[table.primaryKey.length][];
+        for (int i = 0; i < projection.length; i++) {
+            if (projection[i] >= 0) {
+                Column c = table.columns[i];
+                if (values[i] == null) {
+                    throw new IllegalArgumentException("key field " + c.name + " cannot be null. Record data: " + Arrays.toString(values));
+                }
+                fieldValues[projection[i]] = serialize(values[i], c.type);
+            }
+        }
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        try (ExtendedDataOutputStream doo_key = new ExtendedDataOutputStream(key);) {
+            for (byte[] fieldValue : fieldValues) {
+                doo_key.writeArray(fieldValue);
+            }
+        } catch (IOException err) {
+            throw new RuntimeException(err);
+        }
+        return new Bytes(key.toByteArray());
+    }
+
+    /**
+     * Serializes the value of a record from values given in the same order
+     * of the columns of the table
+     */
+    public static Bytes serializeValue(Object[] values, Table table) {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        try (ExtendedDataOutputStream doo = new ExtendedDataOutputStream(value);) {
+            for (int i = 0; i < values.length; i++) {
+                Object v = values[i];
+                if (v != null && !table.isPrimaryKeyColumn(i)) {
+                    Column c = table.columns[i];
+                    doo.writeVInt(c.serialPosition);
+                    serializeTypeAndValue(v, c.type, doo);
+                }
+            }
+        } catch (IOException err) {
+            throw new RuntimeException(err);
+        }
+        return new Bytes(value.toByteArray());
+    }
+
     public static Record toRecord(Map<String, Object> record, Table table) {
         return new Record(serializePrimaryKey(record, table, table.primaryKey),
             serializeValue(record, table), record);
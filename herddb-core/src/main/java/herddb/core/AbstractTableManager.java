@@ -20,7 +20,10 @@
 package herddb.core;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import herddb.core.stats.TableManagerStats;
 import herddb.index.KeyToPageIndex;
@@ -29,6 +32,7 @@ import herddb.log.LogEntry;
 import herddb.log.LogSequenceNumber;
 import herddb.model.DDLException;
 import herddb.model.DataScanner;
+import herddb.model.DataScannerException;
 import herddb.model.Index;
 import herddb.model.Record;
 import herddb.model.Statement;
@@ -40,6 +44,7 @@ import herddb.model.Transaction;
 import herddb.model.commands.ScanStatement;
 import herddb.storage.DataStorageManagerException;
 import herddb.storage.FullTableScanConsumer;
+import herddb.utils.DataAccessor;
 
 /**
  * Abstract of Table
@@ -112,6 +117,36 @@ public interface AbstractTableManager extends AutoCloseable {
     public DataScanner scan(ScanStatement statement, StatementEvaluationContext context,
             Transaction transaction, boolean lockRequired, boolean forWrite) throws StatementExecutionException;
 
+    /**
+     * Scans the table outside of any transaction and without acquiring locks, accumulating records into partial
+     * results. Implementations may split the scan among the threads of the given pool, every thread accumulates into
+     * its own partial result and partial results are then merged using the combiner. Statements with sort or limits
+     * are not supported.
+     *
+     * @param <A> type of the partial result
+     * @param statement the scan, projection is applied before accumulating records
+     * @param context
+     * @param pool the pool which will execute the scan, if null the scan will be executed on the current thread
+     * @param supplier creates an empty partial result
+     * @param accumulator accumulates a record into a partial result
+     * @param combiner merges the second partial result into the first one
+     * @return the merged result
+     * @throws StatementExecutionException
+     */
+    public default <A> A parallelScan(ScanStatement statement, StatementEvaluationContext context,
+            ForkJoinPool pool, Supplier<A> supplier, BiConsumer<A, DataAccessor> accumulator,
+            BiConsumer<A, A> combiner) throws StatementExecutionException {
+        A result = supplier.get();
+        try (DataScanner scanner = scan(statement, context, null, false, false)) {
+            while (scanner.hasNext()) {
+                accumulator.accept(result, scanner.next());
+            }
+        } catch (DataScannerException err) {
+            throw new StatementExecutionException(err);
+        }
+        return result;
+    }
+
     public void scanForIndexRebuild(Consumer<Record> records) throws DataStorageManagerException;
 
 
@@ -33,13 +33,17 @@ import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -85,11 +89,19 @@ import herddb.model.TableSpaceDoesNotExistException;
 import herddb.model.TableSpaceReplicaState;
 import herddb.model.TransactionContext;
 import herddb.model.TuplePredicate;
+import herddb.model.planner.DeleteOp;
+import herddb.model.planner.InsertOp;
+import herddb.model.planner.PlannerOp;
+import herddb.model.planner.SimpleDeleteOp;
+import herddb.model.planner.SimpleInsertOp;
+import herddb.model.planner.SimpleUpdateOp;
+import herddb.model.planner.UpdateOp;
 import herddb.model.commands.AlterTableSpaceStatement;
 import herddb.model.commands.CreateTableSpaceStatement;
 import herddb.model.commands.DropTableSpaceStatement;
 import herddb.model.commands.GetStatement;
 import herddb.model.commands.InsertStatement;
+import herddb.model.commands.SQLPlannedOperationStatement;
 import herddb.model.commands.ScanStatement;
 import herddb.network.Channel;
 import herddb.network.Message;
@@ -155,6 +167,22 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
         }
     });
 
+    /**
+     * Pool used for parallel table scans, null if parallel scans are disabled
+     */
+    private final ForkJoinPool parallelScanPool;
+
+    /**
+     * Counts how many table scans have been executed on the parallel scan pool
+     */
+    private final LongAdder parallelScansCount = new LongAdder();
+
+    /**
+     * Pool used to boot tablespaces concurrently, null if tablespaces are
+     * booted one at a time
+     */
+    private final ExecutorService tableSpaceBootPool;
+
     public DBManager(String nodeId, MetadataStorageManager metadataStorageManager, DataStorageManager dataStorageManager,
             CommitLogManager commitLogManager, Path tmpDirectory, herddb.network.ServerHostData hostData) {
         this(nodeId, metadataStorageManager, dataStorageManager, commitLogManager, tmpDirectory, hostData, new ServerConfiguration());
@@ -205,6 +233,26 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
                 ServerConfiguration.PROPERTY_MAX_PK_MEMORY,
                 ServerConfiguration.PROPERTY_MAX_PK_MEMORY_DEFAULT);
 
+        int parallelScanThreads = configuration.getInt(
+                ServerConfiguration.PROPERTY_PARALLEL_SCAN_THREADS,
+                ServerConfiguration.PROPERTY_PARALLEL_SCAN_THREADS_DEFAULT);
+        this.parallelScanPool = parallelScanThreads > 1 ? new ForkJoinPool(parallelScanThreads) : null;
+
+        int tableSpacesBootParallelism = configuration.getInt(
+                ServerConfiguration.PROPERTY_TABLESPACES_BOOT_PARALLELISM,
+                ServerConfiguration.PROPERTY_TABLESPACES_BOOT_PARALLELISM_DEFAULT);
+        this.tableSpaceBootPool = tableSpacesBootParallelism > 1
+                ? Executors.newFixedThreadPool(tableSpacesBootParallelism, new ThreadFactory() {
+                    private final AtomicLong count = new AtomicLong();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "hdb-" + nodeId + "-tablespace-boot-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                })
+                : null;
     }
 
     public boolean isHaltOnTableSpaceBootError() {
@@ -474,7 +522,91 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
         return false;
     }
 
-    private void handleTableSpace(TableSpace tableSpace) throws DataStorageManagerException, LogNotAvailableException, MetadataStorageManagerException, DDLException {
+    private void bootTableSpace(TableSpace tableSpace) throws DataStorageManagerException, LogNotAvailableException, MetadataStorageManagerException, DDLException {
+        String tableSpaceName = tableSpace.name;
+        LOGGER.log(Level.SEVERE, "Booting tablespace {0} on {1}, uuid {2}", new Object[]{tableSpaceName, nodeId, tableSpace.uuid});
+        long _start = System.currentTimeMillis();
+        CommitLog commitLog = commitLogManager.createCommitLog(tableSpace.uuid);
+        TableSpaceManager manager = new TableSpaceManager(nodeId, tableSpaceName, tableSpace.uuid, metadataStorageManager, dataStorageManager, commitLog, this, false);
+        try {
+            manager.start();
+            LOGGER.log(Level.SEVERE, "Boot success tablespace {0} on {1}, uuid {2}, time {3} ms", new Object[]{tableSpaceName, nodeId, tableSpace.uuid, (System.currentTimeMillis() - _start) + ""});
+            tablesSpaces.put(tableSpaceName, manager);
+            if (serverConfiguration.getBoolean(ServerConfiguration.PROPERTY_JMX_ENABLE, ServerConfiguration.PROPERTY_JMX_ENABLE_DEFAULT)) {
+                JMXUtils.registerTableSpaceManagerStatsMXBean(tableSpaceName, manager.getStats());
+            }
+        } catch (DataStorageManagerException | LogNotAvailableException | MetadataStorageManagerException | DDLException t) {
+            LOGGER.log(Level.SEVERE, "Error Booting tablespace {0} on {1}", new Object[]{tableSpaceName, nodeId});
+            LOGGER.log(Level.SEVERE, "Error", t);
+            try {
+                manager.close();
+            } catch (Throwable t2) {
+                LOGGER.log(Level.SEVERE, "Other Error", t2);
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * Boots the given tablespaces, concurrently if a boot pool is configured.
+     * Every tablespace is available for traffic as soon as its own boot
+     * completes, this method returns when all of them are done.
+     */
+    private void bootTableSpaces(List<TableSpace> tableSpacesToBoot) {
+        if (tableSpacesToBoot.isEmpty()) {
+            return;
+        }
+        if (tableSpaceBootPool == null || tableSpacesToBoot.size() == 1) {
+            for (TableSpace tableSpace : tableSpacesToBoot) {
+                try {
+                    bootTableSpace(tableSpace);
+                } catch (Exception err) {
+                    handleTableSpaceBootError(tableSpace.name, err);
+                }
+            }
+            return;
+        }
+        long _start = System.currentTimeMillis();
+        List<Future<?>> boots = new ArrayList<>(tableSpacesToBoot.size());
+        for (TableSpace tableSpace : tableSpacesToBoot) {
+            boots.add(tableSpaceBootPool.submit(() -> {
+                try {
+                    bootTableSpace(tableSpace);
+                } catch (Exception err) {
+                    handleTableSpaceBootError(tableSpace.name, err);
+                }
+            }));
+        }
+        // never leave a boot running outside of the lock held by the caller
+        boolean interrupted = false;
+        for (Future<?> boot : boots) {
+            while (true) {
+                try {
+                    boot.get();
+                    break;
+                } catch (InterruptedException err) {
+                    interrupted = true;
+                } catch (ExecutionException err) {
+                    LOGGER.log(Level.SEVERE, "unexpected error during tablespace boot", err.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.log(Level.SEVERE, "Booted {0} tablespaces on {1}, time {2} ms", new Object[]{tableSpacesToBoot.size(), nodeId, (System.currentTimeMillis() - _start) + ""});
+    }
+
+    private void handleTableSpaceBootError(String tableSpace, Exception err) {
+        LOGGER.log(Level.SEVERE, "cannot handle tablespace " + tableSpace, err);
+        if (haltOnTableSpaceBootError && haltProcedure != null) {
+            err.printStackTrace();
+            haltProcedure.run();
+        }
+    }
+
+    private void handleTableSpace(TableSpace tableSpace, List<TableSpace> tableSpacesToBoot) throws DataStorageManagerException, LogNotAvailableException, MetadataStorageManagerException, DDLException {
         String tableSpaceName = tableSpace.name;
 
         TableSpaceManager actual_manager = tablesSpaces.get(tableSpaceName);
@@ -495,27 +627,7 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
         }
 
         if (tableSpace.replicas.contains(nodeId) && !tablesSpaces.containsKey(tableSpaceName)) {
-            LOGGER.log(Level.SEVERE, "Booting tablespace {0} on {1}, uuid {2}", new Object[]{tableSpaceName, nodeId, tableSpace.uuid});
-            long _start = System.currentTimeMillis();
-            CommitLog commitLog = commitLogManager.createCommitLog(tableSpace.uuid);
-            TableSpaceManager manager = new TableSpaceManager(nodeId, tableSpaceName, tableSpace.uuid, metadataStorageManager, dataStorageManager, commitLog, this, false);
-            try {
-                manager.start();
-                LOGGER.log(Level.SEVERE, "Boot success tablespace {0} on {1}, uuid {2}, time {3} ms", new Object[]{tableSpaceName, nodeId, tableSpace.uuid, (System.currentTimeMillis() - _start) + ""});
-                tablesSpaces.put(tableSpaceName, manager);
-                if (serverConfiguration.getBoolean(ServerConfiguration.PROPERTY_JMX_ENABLE, ServerConfiguration.PROPERTY_JMX_ENABLE_DEFAULT)) {
-                    JMXUtils.registerTableSpaceManagerStatsMXBean(tableSpaceName, manager.getStats());
-                }
-            } catch (DataStorageManagerException | LogNotAvailableException | MetadataStorageManagerException | DDLException t) {
-                LOGGER.log(Level.SEVERE, "Error Booting tablespace {0} on {1}", new Object[]{tableSpaceName, nodeId});
-                LOGGER.log(Level.SEVERE, "Error", t);
-                try {
-                    manager.close();
-                } catch (Throwable t2) {
-                    LOGGER.log(Level.SEVERE, "Other Error", t2);
-                }
-                throw t;
-            }
+            tableSpacesToBoot.add(tableSpace);
             return;
         }
 
@@ -590,9 +702,7 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
                 throw new StatementExecutionException("No such tableSpace " + tableSpace + " here. "
                         + "Maybe the server is starting ");
             }
-            if (errorIfNotLeader && !manager.isLeader()) {
-                throw new NotLeaderException("node " + nodeId + " is not leader for tableSpace " + tableSpace);
-            }
+            checkLeader(manager, tableSpace, statement, context, transactionContext);
             return manager.executeStatement(statement, context, transactionContext);
         } finally {
             if (statement instanceof DDLStatement) {
@@ -773,12 +883,48 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
             throw new StatementExecutionException("No such tableSpace " + tableSpace + " here. "
                     + "Maybe the server is starting ");
         }
-        if (errorIfNotLeader && !manager.isLeader()) {
-            throw new NotLeaderException("node " + nodeId + " is not leader for tableSpace " + tableSpace);
-        }
+        checkLeader(manager, tableSpace, statement, context, transactionContext);
         return manager.scan(statement, context, transactionContext, false, false);
     }
 
+    /**
+     * Only the leader can execute statements, but a follower can serve reads
+     * outside of transactions if the client accepts its lag
+     *
+     * @see StatementEvaluationContext#getMaxFollowerLag()
+     */
+    private void checkLeader(TableSpaceManager manager, String tableSpace, Statement statement, StatementEvaluationContext context, TransactionContext transactionContext) throws NotLeaderException {
+        if (!errorIfNotLeader || manager.isLeader()) {
+            return;
+        }
+        long maxFollowerLag = context.getMaxFollowerLag();
+        if (maxFollowerLag >= 0
+                && transactionContext.transactionId == TransactionContext.NOTRANSACTION_ID
+                && isReadOnly(statement)) {
+            long lag = manager.getFollowerLag();
+            if (lag <= maxFollowerLag) {
+                return;
+            }
+            throw new NotLeaderException("node " + nodeId + " is not leader for tableSpace " + tableSpace
+                    + " and it is not up to date (lag " + (lag == Long.MAX_VALUE ? "unknown" : lag + " ms") + ", max accepted lag " + maxFollowerLag + " ms)");
+        }
+        throw new NotLeaderException("node " + nodeId + " is not leader for tableSpace " + tableSpace);
+    }
+
+    private static boolean isReadOnly(Statement statement) {
+        if (statement instanceof ScanStatement || statement instanceof GetStatement) {
+            return true;
+        }
+        if (statement instanceof SQLPlannedOperationStatement) {
+            // DML operations are always at the root of the plan
+            PlannerOp root = ((SQLPlannedOperationStatement) statement).getRootOp();
+            return !(root instanceof InsertOp || root instanceof SimpleInsertOp
+                    || root instanceof UpdateOp || root instanceof SimpleUpdateOp
+                    || root instanceof DeleteOp || root instanceof SimpleDeleteOp);
+        }
+        return false;
+    }
+
     /**
      * Utility method for DML/DDL statements
      *
@@ -858,6 +1004,12 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
             ignore.printStackTrace();
         }
         threadPool.shutdown();
+        if (tableSpaceBootPool != null) {
+            tableSpaceBootPool.shutdown();
+        }
+        if (parallelScanPool != null) {
+            parallelScanPool.shutdown();
+        }
 
         if (serverConfiguration.getBoolean(ServerConfiguration.PROPERTY_JMX_ENABLE, ServerConfiguration.PROPERTY_JMX_ENABLE_DEFAULT)) {
             JMXUtils.unregisterDBManagerStatsMXBean();
@@ -933,6 +1085,10 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
     }
 
     public void dumpTableSpace(String tableSpace, String dumpId, Message message, Channel _channel, int fetchSize, boolean includeLog) {
+        dumpTableSpace(tableSpace, dumpId, message, _channel, fetchSize, includeLog, 1);
+    }
+
+    public void dumpTableSpace(String tableSpace, String dumpId, Message message, Channel _channel, int fetchSize, boolean includeLog, int parallelism) {
         TableSpaceManager manager = tablesSpaces.get(tableSpace);
         if (manager == null) {
             _channel.sendReplyMessage(message, Message.ERROR(null, new Exception("tableSpace " + tableSpace + " not booted here")));
@@ -941,7 +1097,7 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
             _channel.sendReplyMessage(message, Message.ACK(null));
         }
         try {
-            manager.dumpTableSpace(dumpId, _channel, fetchSize, includeLog);
+            manager.dumpTableSpace(dumpId, _channel, fetchSize, includeLog, parallelism);
         } catch (Exception error) {
             LOGGER.log(Level.SEVERE, "error on dump", error);
         }
@@ -1133,21 +1289,19 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
             return true;
         }
         Map<String, TableSpace> actualTableSpaceMetadata = new HashMap<>();
+        List<TableSpace> tableSpacesToBoot = new ArrayList<>();
         generalLock.writeLock().lock();
         try {
             for (String tableSpace : actualTablesSpaces) {
                 TableSpace tableSpaceMetadata = metadataStorageManager.describeTableSpace(tableSpace);
                 actualTableSpaceMetadata.put(tableSpaceMetadata.uuid, tableSpaceMetadata);
                 try {
-                    handleTableSpace(tableSpaceMetadata);
+                    handleTableSpace(tableSpaceMetadata, tableSpacesToBoot);
                 } catch (Exception err) {
-                    LOGGER.log(Level.SEVERE, "cannot handle tablespace " + tableSpace, err);
-                    if (haltOnTableSpaceBootError && haltProcedure != null) {
-                        err.printStackTrace();
-                        haltProcedure.run();
-                    }
+                    handleTableSpaceBootError(tableSpace, err);
                 }
             }
+            bootTableSpaces(tableSpacesToBoot);
         } catch (MetadataStorageManagerException error) {
             LOGGER.log(Level.SEVERE, "cannot access tablespaces metadata", error);
             return true;
@@ -1279,6 +1433,26 @@ public class DBManager implements AutoCloseable, MetadataChangeListener {
         return tmpDirectory;
     }
 
+    /**
+     * Access to the pool which runs parallel table scans
+     *
+     * @return the pool, or null if parallel scans are disabled
+     */
+    public ForkJoinPool getParallelScanPool() {
+        return parallelScanPool;
+    }
+
+    void parallelScanStarted() {
+        parallelScansCount.increment();
+    }
+
+    /**
+     * Number of table scans which have been executed on the parallel scan pool
+     */
+    public long getParallelScansCount() {
+        return parallelScansCount.sum();
+    }
+
     public RecordSetFactory getRecordSetFactory() {
         return recordSetFactory;
     }
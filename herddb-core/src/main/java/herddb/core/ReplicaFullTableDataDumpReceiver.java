@@ -25,15 +25,19 @@ import herddb.log.LogSequenceNumber;
 import herddb.model.Record;
 import herddb.model.Table;
 import herddb.storage.DataStorageManagerException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Receives data for a table on the full download from a 'replica' node
+ * Receives data for a table on the full download from a 'replica' node.
+ * Records are grouped into pages which are written directly to the data
+ * storage, many tables may be received at the same time
  *
  * @author enrico.olivelli
  */
@@ -41,9 +45,14 @@ class ReplicaFullTableDataDumpReceiver extends TableSpaceDumpReceiver {
 
     private static final Logger LOGGER = Logger.getLogger(ReplicaFullTableDataDumpReceiver.class.getName());
 
-    private TableManager currentTable;
+    private final Map<String, ReceivingTable> receivingTables = new ConcurrentHashMap<>();
+    /**
+     * Last table which has been started, for servers which do not name the
+     * table on each chunk of data
+     */
+    private volatile ReceivingTable currentTable;
     private final CountDownLatch latch;
-    private Throwable error;
+    private volatile Throwable error;
     LogSequenceNumber logSequenceNumber;
     private final TableSpaceManager tableSpaceManager;
     private final String tableSpaceName;
@@ -81,25 +90,112 @@ class ReplicaFullTableDataDumpReceiver extends TableSpaceDumpReceiver {
     @Override
     public void finish(LogSequenceNumber pos) throws DataStorageManagerException {
         LOGGER.log(Level.SEVERE, "dumpReceiver " + tableSpaceName + ", finish, at " + pos);
+        if (!receivingTables.isEmpty() && error == null) {
+            error = new DataStorageManagerException("dump finished, but tables " + receivingTables.keySet() + " are not complete");
+        }
         latch.countDown();
     }
 
     @Override
     public void endTable() throws DataStorageManagerException {
-        LOGGER.log(Level.SEVERE, "dumpReceiver " + tableSpaceName + ", endTable " + currentTable.getTable().name);
-        currentTable = null;
+        ReceivingTable table = currentTable;
+        if (table == null) {
+            throw new DataStorageManagerException("no table is being received");
+        }
+        endTable(table.tableManager.getTable().name);
+    }
+
+    @Override
+    public void endTable(String tableName) throws DataStorageManagerException {
+        ReceivingTable table = getReceivingTable(tableName);
+        try {
+            table.flush();
+        } catch (DataStorageManagerException err) {
+            onError(err);
+            throw err;
+        }
+        receivingTables.remove(tableName);
+        LOGGER.log(Level.SEVERE, "dumpReceiver " + tableSpaceName + ", endTable " + tableName + ", " + table.pages + " pages");
     }
 
     @Override
     public void receiveTableDataChunk(List<Record> record) throws DataStorageManagerException {
-        currentTable.writeFromDump(record);
+        ReceivingTable table = currentTable;
+        if (table == null) {
+            throw new DataStorageManagerException("no table is being received");
+        }
+        receiveTableDataChunk(table.tableManager.getTable().name, record);
+    }
+
+    @Override
+    public void receiveTableDataChunk(String tableName, List<Record> record) throws DataStorageManagerException {
+        ReceivingTable table = getReceivingTable(tableName);
+        try {
+            table.add(record);
+        } catch (DataStorageManagerException err) {
+            onError(err);
+            throw err;
+        }
     }
 
     @Override
     public void beginTable(DumpedTableMetadata dumpedTable, Map<String, Object> stats) throws DataStorageManagerException {
         Table table = dumpedTable.table;
         LOGGER.log(Level.SEVERE, "dumpReceiver " + tableSpaceName + ", beginTable " + table.name + ", stats:" + stats);
-        currentTable = tableSpaceManager.bootTable(table, 0, null);
+        TableManager tableManager;
+        synchronized (this) {
+            tableManager = tableSpaceManager.bootTable(table, 0, null);
+        }
+        ReceivingTable receivingTable = new ReceivingTable(tableManager);
+        receivingTables.put(table.name, receivingTable);
+        currentTable = receivingTable;
+    }
+
+    private ReceivingTable getReceivingTable(String tableName) throws DataStorageManagerException {
+        ReceivingTable table = receivingTables.get(tableName);
+        if (table == null) {
+            throw new DataStorageManagerException("table " + tableName + " is not being received");
+        }
+        return table;
+    }
+
+    /**
+     * Accumulates records of a table up to the size of a page. Chunks of the
+     * same table are received one at a time
+     */
+    private static final class ReceivingTable {
+
+        private final TableManager tableManager;
+        private final long maxPageSize;
+        private List<Record> page = new ArrayList<>();
+        private long pageSize;
+        private int pages;
+
+        ReceivingTable(TableManager tableManager) {
+            this.tableManager = tableManager;
+            this.maxPageSize = tableManager.getStats().getMaxLogicalPageSize();
+        }
+
+        synchronized void add(List<Record> records) throws DataStorageManagerException {
+            for (Record record : records) {
+                long size = DataPage.estimateEntrySize(record);
+                if (!page.isEmpty() && pageSize + size > maxPageSize) {
+                    flush();
+                }
+                page.add(record);
+                pageSize += size;
+            }
+        }
+
+        synchronized void flush() throws DataStorageManagerException {
+            if (page.isEmpty()) {
+                return;
+            }
+            tableManager.writePageFromDump(page);
+            pages++;
+            page = new ArrayList<>();
+            pageSize = 0;
+        }
     }
 
 }
@@ -37,18 +37,28 @@ import herddb.storage.FullTableScanConsumer;
 import herddb.storage.TableStatus;
 
 /**
- * Dumps data of a table
+ * Dumps data of a table. Records are sent in chunks of at most fetchSize
+ * records, the size in bytes of the chunks adapts to the speed of the
+ * receiver: it grows while chunks are acknowledged quickly and it shrinks
+ * when the receiver is slow
  *
  * @author enrico.olivelli
  */
 class SingleTableDumper implements FullTableScanConsumer {
 
+    private static final long MIN_CHUNK_BYTES = 64 * 1024;
+    private static final long MAX_CHUNK_BYTES = 16 * 1024 * 1024;
+    private static final long INITIAL_CHUNK_BYTES = 1024 * 1024;
+    private static final long TARGET_CHUNK_ACK_TIME = 500;
+
     private final AbstractTableManager tableManager;
     private final Channel _channel;
     private final String dumpId;
     private final String tableSpaceName;
     private final int timeout;
     private final int fetchSize;
+    private long chunkMaxBytes = INITIAL_CHUNK_BYTES;
+    private long chunkBytes;
 
     public SingleTableDumper(String tableSpaceName, AbstractTableManager tableManager, Channel _channel, String dumpId, int timeout, int fetchSize) {
         this.tableSpaceName = tableSpaceName;
@@ -69,6 +79,7 @@ class SingleTableDumper implements FullTableScanConsumer {
             TableManagerStats stats = tableManager.getStats();
             beginTableData.put("command", "beginTable");
             beginTableData.put("table", serialized);
+            beginTableData.put("tableName", table.name);
             beginTableData.put("estimatedSize", stats.getTablesize());
             beginTableData.put("dumpLedgerid", tableStatus.sequenceNumber.ledgerId);
             beginTableData.put("dumpOffset", tableStatus.sequenceNumber.offset);
@@ -91,18 +102,32 @@ class SingleTableDumper implements FullTableScanConsumer {
     public void acceptRecord(Record record) {
         try {
             batch.add(new KeyValue(record.key.data, record.value.data));
-            if (batch.size() == fetchSize) {
-                Map<String, Object> data = new HashMap<>();
-                data.put("command", "data");
-                data.put("records", batch);
-                _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, data), timeout);
-                batch.clear();
+            chunkBytes += record.key.data.length + record.value.data.length;
+            if (batch.size() >= fetchSize || chunkBytes >= chunkMaxBytes) {
+                sendChunk();
             }
         } catch (Exception error) {
             throw new RuntimeException(error);
         }
     }
 
+    private void sendChunk() throws InterruptedException, TimeoutException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("command", "data");
+        data.put("tableName", tableManager.getTable().name);
+        data.put("records", batch);
+        long _start = System.currentTimeMillis();
+        _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, data), timeout);
+        long ackTime = System.currentTimeMillis() - _start;
+        if (chunkBytes >= chunkMaxBytes && ackTime < TARGET_CHUNK_ACK_TIME) {
+            chunkMaxBytes = Math.min(MAX_CHUNK_BYTES, chunkMaxBytes * 2);
+        } else if (ackTime > TARGET_CHUNK_ACK_TIME * 4) {
+            chunkMaxBytes = Math.max(MIN_CHUNK_BYTES, chunkMaxBytes / 2);
+        }
+        batch.clear();
+        chunkBytes = 0;
+    }
+
     @Override
     public void endPage() {
     }
@@ -111,14 +136,11 @@ class SingleTableDumper implements FullTableScanConsumer {
     public void endTable() {
         try {
             if (!batch.isEmpty()) {
-                Map<String, Object> data = new HashMap<>();
-                data.put("command", "data");
-                data.put("records", batch);
-                _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, data), timeout);
-                batch.clear();
+                sendChunk();
             }
             Map<String, Object> endTableData = new HashMap<>();
             endTableData.put("command", "endTable");
+            endTableData.put("tableName", tableManager.getTable().name);
             _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, endTableData), timeout);
         } catch (Exception error) {
             throw new RuntimeException(error);
@@ -22,10 +22,13 @@ package herddb.core;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -43,8 +48,10 @@ import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -55,6 +62,7 @@ import herddb.core.PageSet.DataPageMetaData;
 import herddb.core.stats.TableManagerStats;
 import herddb.index.IndexOperation;
 import herddb.index.KeyToPageIndex;
+import herddb.index.PrimaryIndexMultiSeek;
 import herddb.index.PrimaryIndexSeek;
 import herddb.log.CommitLog;
 import herddb.log.CommitLogResult;
@@ -85,6 +93,7 @@ import herddb.model.Table;
 import herddb.model.TableContext;
 import herddb.model.Transaction;
 import herddb.model.TupleComparator;
+import herddb.model.commands.BulkInsertStatement;
 import herddb.model.commands.DeleteStatement;
 import herddb.model.commands.GetStatement;
 import herddb.model.commands.InsertStatement;
@@ -502,6 +511,10 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
                 InsertStatement insert = (InsertStatement) statement;
                 return executeInsert(insert, transaction, context);
             }
+            if (statement instanceof BulkInsertStatement) {
+                BulkInsertStatement insert = (BulkInsertStatement) statement;
+                return executeBulkInsert(insert, transaction);
+            }
             if (statement instanceof GetStatement) {
                 GetStatement get = (GetStatement) statement;
                 return executeGet(get, transaction, context);
@@ -880,6 +893,113 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
         }
     }
 
+    private StatementExecutionResult executeBulkInsert(BulkInsertStatement insert, Transaction transaction) throws StatementExecutionException, DataStorageManagerException {
+        /*
+         records are serialized directly from the values, all of the keys are locked (in key order, in order not to
+         deadlock with other bulk inserts) and checked before writing anything to the log, then all of the entries
+         are written to the log as a group, waiting only once for the synch
+         */
+        String[] columns = insert.getColumns();
+        int[] positions = new int[columns.length];
+        int pkPosition = -1;
+        for (int i = 0; i < columns.length; i++) {
+            positions[i] = -1;
+            for (int j = 0; j < table.columnNames.length; j++) {
+                if (table.columnNames[j].equalsIgnoreCase(columns[i])) {
+                    positions[i] = j;
+                    break;
+                }
+            }
+            if (positions[i] < 0) {
+                throw new StatementExecutionException("no column " + columns[i] + " in table " + table.name);
+            }
+        }
+        for (int j = 0; j < table.columns.length; j++) {
+            if (table.isPrimaryKeyColumn(j)) {
+                pkPosition = j;
+                break;
+            }
+        }
+
+        List<DataAccessor> records = insert.getRecords();
+        int numRecords = records.size();
+        Bytes[] keys = new Bytes[numRecords];
+        byte[][] values = new byte[numRecords][];
+        Set<Bytes> keysInChunk = new HashSet<>();
+        for (int r = 0; r < numRecords; r++) {
+            DataAccessor record = records.get(r);
+            Object[] tableValues = new Object[table.columns.length];
+            for (int i = 0; i < positions.length; i++) {
+                Object v = record.get(i);
+                if (v != null) {
+                    tableValues[positions[i]] = RecordSerializer.convert(table.columns[positions[i]].type, v);
+                }
+            }
+            Bytes key;
+            try {
+                if (table.auto_increment && tableValues[pkPosition] == null) {
+                    key = new Bytes(tableContext.computeNewPrimaryKeyValue());
+                } else {
+                    key = RecordSerializer.serializePrimaryKey(tableValues, table);
+                }
+                values[r] = RecordSerializer.serializeValue(tableValues, table).data;
+            } catch (IllegalArgumentException | ClassCastException err) {
+                throw new StatementExecutionException("bad value for record #" + r + " of table " + table.name + ": " + err, err);
+            }
+            final long size = DataPage.estimateEntrySize(key, values[r]);
+            if (size > maxLogicalPageSize) {
+                throw new RecordTooBigException("New record " + key + " is to big to be inserted: size " + size + ", max size " + maxLogicalPageSize);
+            }
+            if (!keysInChunk.add(key)) {
+                throw new DuplicatePrimaryKeyException(key, "key " + key + ", decoded as " + RecordSerializer.deserializePrimaryKey(key.data, table) + ", is duplicated in the same bulk insert on table " + table.name);
+            }
+            keys[r] = key;
+        }
+
+        Integer[] lockOrder = new Integer[numRecords];
+        for (int r = 0; r < numRecords; r++) {
+            lockOrder[r] = r;
+        }
+        Arrays.sort(lockOrder, (a, b) -> keys[a].compareTo(keys[b]));
+        LockHandle[] locks = new LockHandle[numRecords];
+        try {
+            for (int r : lockOrder) {
+                Bytes key = keys[r];
+                locks[r] = lockForWrite(key, transaction);
+                if (transaction != null) {
+                    if (transaction.recordDeleted(table.name, key)) {
+                        // OK, INSERT on a DELETED record inside this transaction
+                    } else if (transaction.recordInserted(table.name, key) != null) {
+                        throw new DuplicatePrimaryKeyException(key, "key " + key + ", decoded as " + RecordSerializer.deserializePrimaryKey(key.data, table) + ", already exists in table " + table.name + " inside transaction " + transaction.transactionId);
+                    } else if (keyToPage.containsKey(key)) {
+                        throw new DuplicatePrimaryKeyException(key, "key " + key + ", decoded as " + RecordSerializer.deserializePrimaryKey(key.data, table) + ", already exists in table " + table.name + " during transaction " + transaction.transactionId);
+                    }
+                } else if (keyToPage.containsKey(key)) {
+                    throw new DuplicatePrimaryKeyException(key, "key " + key + ", decoded as " + RecordSerializer.deserializePrimaryKey(key.data, table) + ", already exists in table " + table.name);
+                }
+            }
+            List<LogEntry> entries = new ArrayList<>(numRecords);
+            for (int r = 0; r < numRecords; r++) {
+                entries.add(LogEntryFactory.insert(table, keys[r].data, values[r], transaction));
+            }
+            List<CommitLogResult> results = log.log(entries, transaction == null);
+            for (int r = 0; r < numRecords; r++) {
+                apply(results.get(r), entries.get(r), false);
+            }
+            return new DMLStatementExecutionResult(transaction != null ? transaction.transactionId : 0, numRecords);
+        } catch (LogNotAvailableException err) {
+            throw new StatementExecutionException(err);
+        } finally {
+            if (transaction == null) {
+                for (int r = 0; r < numRecords; r++) {
+                    if (locks[r] != null) {
+                        locksManager.releaseWriteLockForKey(keys[r], locks[r]);
+                    }
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("serial")
     static class ExitLoop extends RuntimeException {
 
@@ -1431,6 +1551,60 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
         }
     }
 
+    /**
+     * Writes records received from the dump of another node as a new page,
+     * directly to the data storage, without passing through the pages which
+     * hold live changes.
+     *
+     * @param records the records, their size should be about the size of a
+     * page
+     * @throws DataStorageManagerException
+     */
+    public void writePageFromDump(List<Record> records) throws DataStorageManagerException {
+        if (records.isEmpty()) {
+            return;
+        }
+        final Map<String, AbstractIndexManager> indexes = tableSpaceManager.getIndexesOnTable(table.name);
+        Map<Bytes, Record> newPage = new HashMap<>(records.size() * 4 / 3 + 1);
+        long newPageSize = 0;
+        for (Record r : records) {
+            if (newPage.put(r.key, r) != null) {
+                throw new DataStorageManagerException("record " + r.key + " is duplicated in dump of table " + table.name);
+            }
+            newPageSize += DataPage.estimateEntrySize(r);
+        }
+        checkpointLock.asWriteLock().lock();
+        try {
+            for (Bytes key : newPage.keySet()) {
+                if (keyToPage.containsKey(key)) {
+                    throw new DataStorageManagerException("new record " + key + " already present in keyToPage?");
+                }
+            }
+            long pageId = createImmutablePage(newPage, newPageSize);
+            LOGGER.log(Level.FINE, "{0} received {1} records, written to page {2}",
+                    new Object[]{table.name, records.size(), pageId});
+        } finally {
+            checkpointLock.asWriteLock().unlock();
+        }
+        for (Record r : records) {
+            if (table.auto_increment) {
+                long pk_logical_value;
+                if (table.getColumn(table.primaryKey[0]).type == ColumnTypes.INTEGER) {
+                    pk_logical_value = r.key.to_int();
+                } else {
+                    pk_logical_value = r.key.to_long();
+                }
+                nextPrimaryKeyValue.accumulateAndGet(pk_logical_value + 1, EnsureLongIncrementAccumulator.INSTANCE);
+            }
+            if (indexes != null) {
+                DataAccessor values = r.getDataAccessor(table);
+                for (AbstractIndexManager index : indexes.values()) {
+                    index.recordInserted(r.key, values);
+                }
+            }
+        }
+    }
+
     private void rebuildNextPrimaryKeyValue() throws DataStorageManagerException {
         LOGGER.log(Level.SEVERE, "rebuildNextPrimaryKeyValue");
         try {
@@ -2173,6 +2347,47 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
         return scanWithStream(statement, context, transaction, lockRequired, forWrite);
     }
 
+    /**
+     * When the results of a scan have to be sorted the projection is applied
+     * after sorting, so we have to keep the columns needed by the projection
+     * and by the comparator.
+     * <p>
+     * Unsorted scans, like the inputs of joins, pass on records which decode
+     * a column only when it is read, so they do not need this.
+     *
+     * @return the positions of the columns, or null if every column is needed
+     */
+    private int[] getColumnsNeededBySortedScan(Projection projection, TupleComparator comparator) {
+        if (projection == null || comparator == null) {
+            return null;
+        }
+        int[] projectionColumns = projection.getAccessedColumns();
+        int[] comparatorColumns = comparator.getAccessedColumns();
+        if (projectionColumns == null || comparatorColumns == null) {
+            return null;
+        }
+        BitSet needed = new BitSet(table.columns.length);
+        for (int index : projectionColumns) {
+            needed.set(index);
+        }
+        for (int index : comparatorColumns) {
+            needed.set(index);
+        }
+        if (needed.length() > table.columns.length
+            || needed.cardinality() == table.columns.length) {
+            return null;
+        }
+        return needed.stream().toArray();
+    }
+
+    private DataAccessor mapRecordForSortedScan(Record record, int[] columnsToDeserialize) {
+        if (columnsToDeserialize == null) {
+            return record.getDataAccessor(table);
+        }
+        // do not retain the whole record, only the columns needed after the sort
+        return RecordSerializer.buildPartialDataAccessor(record, table, columnsToDeserialize);
+    }
+
     private DataScanner scanNoStream(ScanStatement statement, StatementEvaluationContext context,
         Transaction transaction, boolean lockRequired, boolean forWrite) throws StatementExecutionException {
 
@@ -2182,6 +2397,8 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
             && keyToPage.isSortedAscending();
         final Projection projection = statement.getProjection();
         boolean applyProjectionDuringScan = !sorted && projection != null;
+        final int[] columnsToDeserialize = applyProjectionDuringScan ? null
+            : getColumnsNeededBySortedScan(projection, statement.getComparator());
         MaterializedRecordSet recordSet;
         if (applyProjectionDuringScan) {
             recordSet = tableSpaceManager.getDbmanager().getRecordSetFactory()
@@ -2216,7 +2433,7 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
                             DataAccessor tuple = projection.map(record.getDataAccessor(table), context);
                             recordSet.add(tuple);
                         } else {
-                            recordSet.add(record.getDataAccessor(table));
+                            recordSet.add(mapRecordForSortedScan(record, columnsToDeserialize));
                         }
                         if (!inTransactionData) {
                             // we have scanned the table and kept top K record already sorted by the PK
@@ -2242,7 +2459,7 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
                             DataAccessor tuple = projection.map(record.getDataAccessor(table), context);
                             sorter.collect(tuple);
                         } else {
-                            sorter.collect(record.getDataAccessor(table));
+                            sorter.collect(mapRecordForSortedScan(record, columnsToDeserialize));
                         }
                     }
                 }, transaction, lockRequired, forWrite);
@@ -2262,7 +2479,7 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
                             DataAccessor tuple = projection.map(record.getDataAccessor(table), context);
                             recordSet.add(tuple);
                         } else {
-                            recordSet.add(record.getDataAccessor(table));
+                            recordSet.add(mapRecordForSortedScan(record, columnsToDeserialize));
                         }
                         if (remaining.decrementAndGet() == 0) {
                             throw new ExitLoop(false);
@@ -2278,7 +2495,7 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
                         DataAccessor tuple = projection.map(record.getDataAccessor(table), context);
                         recordSet.add(tuple);
                     } else {
-                        recordSet.add(record.getDataAccessor(table));
+                        recordSet.add(mapRecordForSortedScan(record, columnsToDeserialize));
                     }
 
                 }
@@ -2305,6 +2522,8 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
             && keyToPage.isSortedAscending();
         final Projection projection = statement.getProjection();
         final boolean applyProjectionDuringScan = projection != null && !sorted;
+        final int[] columnsToDeserialize = applyProjectionDuringScan ? null
+            : getColumnsNeededBySortedScan(projection, comparator);
         ScanLimits limits = statement.getLimits();
         int maxRows = limits == null ? 0 : limits.computeMaxRows(context);
         int offset = limits == null ? 0 : limits.computeOffset(context);
@@ -2314,7 +2533,7 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
             if (applyProjectionDuringScan) {
                 tuple = projection.map(record.getDataAccessor(table), context);
             } else {
-                tuple = record.getDataAccessor(table);
+                tuple = mapRecordForSortedScan(record, columnsToDeserialize);
             }
             return tuple;
         };
@@ -2389,6 +2608,56 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
         return new StreamDataScanner(transaction != null ? transaction.transactionId : 0, fieldNames, columns, result);
     }
 
+    @Override
+    public <A> A parallelScan(ScanStatement statement, StatementEvaluationContext context,
+        ForkJoinPool pool, Supplier<A> supplier, BiConsumer<A, DataAccessor> accumulator,
+        BiConsumer<A, A> combiner) throws StatementExecutionException {
+        if (pool == null) {
+            return AbstractTableManager.super.parallelScan(statement, context, pool, supplier, accumulator, combiner);
+        }
+        statement.validateContext(context);
+        Predicate predicate = statement.getPredicate();
+        IndexOperation indexOperation = predicate != null ? predicate.getIndexOperation() : null;
+        boolean primaryIndexSeek = indexOperation instanceof PrimaryIndexSeek;
+        AbstractIndexManager useIndex = getIndexForTbleAccess(indexOperation);
+        final Projection projection = statement.getProjection();
+        long _start = System.currentTimeMillis();
+
+        // no transaction and no locks, so every thread can access records independently
+        // LocalScanPageCache is not thread safe, we are not using it here
+        Stream<DataAccessor> tableData = keyToPage.scanner(indexOperation, context, tableContext, useIndex)
+            .parallel()
+            .map(entry -> accessRecord(entry, predicate, context, null, null, primaryIndexSeek, false, false))
+            .filter(r -> r != null)
+            .map(record -> {
+                if (projection != null) {
+                    return projection.map(record.getDataAccessor(table), context);
+                } else {
+                    return record.getDataAccessor(table);
+                }
+            });
+        try {
+            tableSpaceManager.getDbmanager().parallelScanStarted();
+            return pool.submit(() -> tableData.collect(supplier, accumulator, combiner)).get();
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new StatementExecutionException(err);
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            LOGGER.log(Level.SEVERE, "error during parallel scan {0}, started at {1}: {2}", new Object[]{statement, new java.sql.Timestamp(_start), cause + ""});
+            if (cause instanceof StatementExecutionException) {
+                throw (StatementExecutionException) cause;
+            } else if (cause instanceof DataStorageManagerException) {
+                throw (DataStorageManagerException) cause;
+            } else if (cause instanceof HerdDBInternalException
+                && cause.getCause() instanceof StatementExecutionException) {
+                throw (StatementExecutionException) cause.getCause();
+            } else {
+                throw new StatementExecutionException(cause);
+            }
+        }
+    }
+
     private void accessTableData(ScanStatement statement, StatementEvaluationContext context, ScanResultOperation consumer, Transaction transaction,
         boolean lockRequired, boolean forWrite) throws StatementExecutionException {
         statement.validateContext(context);
@@ -2522,6 +2791,13 @@ public final class TableManager implements AbstractTableManager, Page.Owner {
         boolean primaryIndexSeek = indexOperation instanceof PrimaryIndexSeek;
         AbstractIndexManager useIndex = getIndexForTbleAccess(indexOperation);
         Stream<Map.Entry<Bytes, Long>> scanner = keyToPage.scanner(indexOperation, context, tableContext, useIndex);
+        TupleComparator comparator = statement.getComparator();
+        if (indexOperation instanceof PrimaryIndexMultiSeek
+            && (comparator == null || !comparator.isOnlyPrimaryKeyAndAscending())) {
+            // a bounded set of keys, read them page by page as accessTableData does,
+            // unless the caller relies on the order of the keys
+            scanner = scanner.sorted(SORTED_PAGE_ACCESS_COMPARATOR);
+        }
 
         Stream<Record> resultFromTable = scanner.map(entry -> {
             return accessRecord(entry, predicate, context,
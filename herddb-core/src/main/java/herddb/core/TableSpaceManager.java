@@ -36,10 +36,15 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -59,6 +64,7 @@ import herddb.core.system.SyscolumnsTableManager;
 import herddb.core.system.SysconfigTableManager;
 import herddb.core.system.SysindexesTableManager;
 import herddb.core.system.SysnodesTableManager;
+import herddb.core.system.SysrequestqueuesTableManager;
 import herddb.core.system.SystablesTableManager;
 import herddb.core.system.SystablespacereplicastateTableManager;
 import herddb.core.system.SystablespacesTableManager;
@@ -117,6 +123,7 @@ import herddb.storage.DataStorageManager;
 import herddb.storage.DataStorageManagerException;
 import herddb.storage.FullTableScanConsumer;
 import herddb.utils.Bytes;
+import herddb.utils.DataAccessor;
 
 /**
  * Manages a TableSet in memory
@@ -146,6 +153,7 @@ public class TableSpaceManager {
     private volatile boolean closed;
     private volatile boolean failed;
     private LogSequenceNumber actualLogSequenceNumber;
+    private volatile long bootTime;
 
     // only for tests
     private Runnable afterTableCheckPointAction;
@@ -181,6 +189,7 @@ public class TableSpaceManager {
         if (virtual) {
             registerSystemTableManager(new SysconfigTableManager(this));
             registerSystemTableManager(new SysclientsTableManager(this));
+            registerSystemTableManager(new SysrequestqueuesTableManager(this));
         } else {
             registerSystemTableManager(new SystablesTableManager(this));
             registerSystemTableManager(new SystablestatsTableManager(this));
@@ -198,6 +207,7 @@ public class TableSpaceManager {
     }
 
     void start() throws DataStorageManagerException, LogNotAvailableException, MetadataStorageManagerException, DDLException {
+        long _start = System.currentTimeMillis();
 
         TableSpace tableSpaceInfo = metadataStorageManager.describeTableSpace(tableSpaceName);
 
@@ -216,6 +226,7 @@ public class TableSpaceManager {
                 startAsFollower();
             }
         }
+        bootTime = System.currentTimeMillis() - _start;
     }
 
     void recover(TableSpace tableSpaceInfo) throws DataStorageManagerException, LogNotAvailableException, MetadataStorageManagerException {
@@ -520,6 +531,27 @@ public class TableSpaceManager {
         }
     }
 
+    /**
+     * Scans a table outside of any transaction, splitting the work among the
+     * threads of the parallel scan pool of the DBManager.
+     *
+     * @see AbstractTableManager#parallelScan
+     */
+    public <A> A parallelScan(ScanStatement statement, StatementEvaluationContext context,
+            Supplier<A> supplier, BiConsumer<A, DataAccessor> accumulator,
+            BiConsumer<A, A> combiner) throws StatementExecutionException {
+        String table = statement.getTable();
+        AbstractTableManager tableManager = tables.get(table);
+        if (tableManager == null) {
+            throw new TableDoesNotExistException("no table " + table + " in tablespace " + tableSpaceName);
+        }
+        if (tableManager.getCreatedInTransaction() > 0) {
+            throw new TableDoesNotExistException("no table " + table + " in tablespace " + tableSpaceName + ". created temporary in transaction " + tableManager.getCreatedInTransaction());
+        }
+        return tableManager.parallelScan(statement, context, dbmanager.getParallelScanPool(),
+                supplier, accumulator, combiner);
+    }
+
     private void downloadTableSpaceData() throws MetadataStorageManagerException, DataStorageManagerException, LogNotAvailableException {
         TableSpace tableSpaceData = metadataStorageManager.describeTableSpace(tableSpaceName);
         String leaderId = tableSpaceData.leaderId;
@@ -548,8 +580,11 @@ public class TableSpaceManager {
             });
             try (HDBConnection con = client.openConnection()) {
                 ReplicaFullTableDataDumpReceiver receiver = new ReplicaFullTableDataDumpReceiver(this);
-                int fetchSize = 10000;
-                con.dumpTableSpace(tableSpaceName, receiver, fetchSize, false);
+                // chunks are bounded by size on the leader, so this limit matters only for very small records
+                int fetchSize = 100000;
+                int parallelism = dbmanager.getServerConfiguration().getInt(ServerConfiguration.PROPERTY_REPLICA_DOWNLOAD_PARALLELISM,
+                        ServerConfiguration.PROPERTY_REPLICA_DOWNLOAD_PARALLELISM_DEFAULT);
+                con.dumpTableSpace(tableSpaceName, receiver, fetchSize, false, parallelism);
                 long _start = System.currentTimeMillis();
                 boolean ok = receiver.join(1000 * 60 * 60);
                 if (!ok) {
@@ -744,8 +779,18 @@ public class TableSpaceManager {
     }
 
     void dumpTableSpace(String dumpId, Channel _channel, int fetchSize, boolean includeLog) throws DataStorageManagerException, LogNotAvailableException {
+        dumpTableSpace(dumpId, _channel, fetchSize, includeLog, 1);
+    }
 
-        LOGGER.log(Level.SEVERE, "dumpTableSpace dumpId:" + dumpId + " channel " + _channel + " fetchSize:" + fetchSize + ", includeLog:" + includeLog);
+    /**
+     * Sends a consistent copy of the tablespace to the given channel
+     *
+     * @param parallelism maximum number of tables sent at the same time, data
+     * of different tables is interleaved on the channel
+     */
+    void dumpTableSpace(String dumpId, Channel _channel, int fetchSize, boolean includeLog, int parallelism) throws DataStorageManagerException, LogNotAvailableException {
+
+        LOGGER.log(Level.SEVERE, "dumpTableSpace dumpId:" + dumpId + " channel " + _channel + " fetchSize:" + fetchSize + ", includeLog:" + includeLog + ", parallelism:" + parallelism);
 
         TableSpaceCheckpoint checkpoint;
 
@@ -804,21 +849,56 @@ public class TableSpaceManager {
                 sendTransactionsDump(batch, _channel, dumpId, timeout, response_to_start);
             }
 
-            for (Entry<String, LogSequenceNumber> entry : checkpoint.tablesCheckpoints.entrySet()) {
-                final AbstractTableManager tableManager = tables.get(entry.getKey());
-                final LogSequenceNumber sequenceNumber = entry.getValue();
-                if (tableManager.isSystemTable()) {
-                    continue;
+            List<CompletableFuture<?>> tableDumps = new ArrayList<>();
+            int tablesToDump = (int) checkpoint.tablesCheckpoints.keySet()
+                    .stream()
+                    .filter(name -> !tables.get(name).isSystemTable())
+                    .count();
+            int dumperThreads = Math.min(parallelism, tablesToDump);
+            ExecutorService dumpers = dumperThreads > 1
+                    ? Executors.newFixedThreadPool(dumperThreads, r -> new Thread(r, "dump-" + tableSpaceName + "-" + dumpId))
+                    : null;
+            try {
+                for (Entry<String, LogSequenceNumber> entry : checkpoint.tablesCheckpoints.entrySet()) {
+                    final AbstractTableManager tableManager = tables.get(entry.getKey());
+                    final LogSequenceNumber sequenceNumber = entry.getValue();
+                    if (tableManager.isSystemTable()) {
+                        continue;
+                    }
+                    CompletableFuture<?> tableDump = new CompletableFuture<>();
+                    Runnable dumpTable = () -> {
+                        try {
+                            FullTableScanConsumer sink = new SingleTableDumper(tableSpaceName, tableManager, _channel, dumpId, timeout, fetchSize);
+                            tableManager.dump(sequenceNumber, sink);
+                            tableDump.complete(null);
+                        } catch (Throwable err) {
+                            tableDump.completeExceptionally(err);
+                        }
+                    };
+                    tableDumps.add(tableDump);
+                    if (dumpers != null) {
+                        dumpers.submit(dumpTable);
+                    } else {
+                        dumpTable.run();
+                        if (tableDump.isCompletedExceptionally()) {
+                            break;
+                        }
+                    }
                 }
-                try {
-                    FullTableScanConsumer sink = new SingleTableDumper(tableSpaceName, tableManager, _channel, dumpId, timeout, fetchSize);
-                    tableManager.dump(sequenceNumber, sink);
-                } catch (DataStorageManagerException err) {
-                    Map<String, Object> errorOnData = new HashMap<>();
-                    errorOnData.put("command", "error");
-                    _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, errorOnData), timeout);
-                    LOGGER.log(Level.SEVERE, "error sending dump id " + dumpId, err);
-                    return;
+                for (CompletableFuture<?> tableDump : tableDumps) {
+                    tableDump.get();
+                }
+            } catch (ExecutionException err) {
+                Map<String, Object> errorOnData = new HashMap<>();
+                errorOnData.put("command", "error");
+                _channel.sendMessageWithReply(Message.TABLESPACE_DUMP_DATA(null, tableSpaceName, dumpId, errorOnData), timeout);
+                LOGGER.log(Level.SEVERE, "error sending dump id " + dumpId, err.getCause());
+                return;
+            } finally {
+                if (dumpers != null) {
+                    // tables must not be read any more after the release of the checkpoint
+                    dumpers.shutdownNow();
+                    dumpers.awaitTermination(timeout, TimeUnit.MILLISECONDS);
                 }
             }
 
@@ -1437,6 +1517,25 @@ public class TableSpaceManager {
         return leader;
     }
 
+    /**
+     * Estimates how much this replica is behind the leader, that is the time
+     * elapsed since the follower has been up to date with the log. Only the
+     * log knows up to which time the entries of the leader have been applied,
+     * see {@link CommitLog#getFollowerUpToDateTimestamp() }.
+     *
+     * @return the lag in milliseconds, zero on the leader
+     */
+    public long getFollowerLag() {
+        if (leader) {
+            return 0;
+        }
+        long upToDate = log.getFollowerUpToDateTimestamp();
+        if (upToDate <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, System.currentTimeMillis() - upToDate);
+    }
+
     Transaction getTransaction(long transactionId) {
         return transactions.get(transactionId);
     }
@@ -1565,6 +1664,22 @@ public class TableSpaceManager {
                     .mapToLong(TableManagerStats::getKeysUsedMemory)
                     .sum();
         }
+
+        @Override
+        public long getFollowerLagEntries() {
+            return leader ? 0 : log.getFollowerLagEntries();
+        }
+
+        @Override
+        public long getFollowerLagMillis() {
+            long lag = getFollowerLag();
+            return lag == Long.MAX_VALUE ? -1 : lag;
+        }
+
+        @Override
+        public long getBootTime() {
+            return bootTime;
+        }
     };
 
     public TableSpaceManagerStats getStats() {
@@ -19,10 +19,21 @@
  */
 package herddb.core.stats;
 
+import herddb.network.netty.RequestQueueStats;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Provides informations about actual clients
  * @author enrico.olivelli
  */
 public interface ConnectionsInfoProvider {
     public ConnectionsInfo getActualConnections();
+
+    /**
+     * Statistics about the queues of the requests received from the clients
+     */
+    public default List<RequestQueueStats> getRequestQueues() {
+        return Collections.emptyList();
+    }
 }
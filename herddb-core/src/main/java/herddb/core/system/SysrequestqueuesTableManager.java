@@ -0,0 +1,74 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.core.system;
+
+import herddb.codec.RecordSerializer;
+import herddb.core.TableSpaceManager;
+import herddb.core.stats.ConnectionsInfoProvider;
+import herddb.model.ColumnTypes;
+import herddb.model.Record;
+import herddb.model.Table;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+/**
+ * Table Manager for the SYSREQUESTQUEUES virtual table, times are in
+ * microseconds
+ *
+ * @author enrico.olivelli
+ */
+public class SysrequestqueuesTableManager extends AbstractSystemTableManager {
+
+    private final static Table TABLE = Table
+            .builder()
+            .name("sysrequestqueues")
+            .column("name", ColumnTypes.STRING)
+            .column("pending", ColumnTypes.INTEGER)
+            .column("started", ColumnTypes.LONG)
+            .column("completed", ColumnTypes.LONG)
+            .column("avgqueuetime", ColumnTypes.LONG)
+            .column("maxqueuetime", ColumnTypes.LONG)
+            .primaryKey("name", false)
+            .build();
+
+    public SysrequestqueuesTableManager(TableSpaceManager parent) {
+        super(parent, TABLE);
+    }
+
+    @Override
+    protected Iterable<Record> buildVirtualRecordList() {
+        ConnectionsInfoProvider connectionsInfoProvider = tableSpaceManager.getDbmanager().getConnectionsInfoProvider();
+        if (connectionsInfoProvider == null) {
+            return Collections.emptyList();
+        }
+        return connectionsInfoProvider
+                .getRequestQueues()
+                .stream()
+                .map(r -> RecordSerializer.makeRecord(table,
+                        "name", r.getName(),
+                        "pending", r.getPendingRequests(),
+                        "started", r.getStartedRequests(),
+                        "completed", r.getCompletedRequests(),
+                        "avgqueuetime", r.getAverageQueueTime() / 1000,
+                        "maxqueuetime", r.getMaxQueueTime() / 1000))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -370,6 +370,34 @@ public class FileCommitLog extends CommitLog {
 
     }
 
+    @Override
+    public List<CommitLogResult> log(List<LogEntry> edits, boolean synch) throws LogNotAvailableException {
+        if (isHasListeners()) {
+            synch = true;
+        }
+        List<LogEntryHolderFuture> futures = new ArrayList<>(edits.size());
+        try {
+            // enqueue all of the entries, the spool thread will synch them together
+            for (LogEntry edit : edits) {
+                LogEntryHolderFuture future = new LogEntryHolderFuture(edit, synch);
+                writeQueue.put(future);
+                futures.add(future);
+            }
+            List<CommitLogResult> results = new ArrayList<>(edits.size());
+            for (LogEntryHolderFuture future : futures) {
+                LogSequenceNumber logPos = future.ack.get();
+                notifyListeners(logPos, future.entry);
+                results.add(new CommitLogResult(logPos, !synch));
+            }
+            return results;
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new LogNotAvailableException(err);
+        } catch (ExecutionException err) {
+            throw new LogNotAvailableException(err.getCause());
+        }
+    }
+
     @Override
     public void followTheLeader(LogSequenceNumber skipPast, BiConsumer<LogSequenceNumber, LogEntry> consumer) throws LogNotAvailableException {
         // we are always the leader!
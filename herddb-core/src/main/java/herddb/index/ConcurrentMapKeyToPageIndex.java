@@ -20,9 +20,12 @@
 package herddb.index;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
@@ -30,6 +33,7 @@ import java.util.stream.Stream;
 
 import herddb.core.PostCheckpointAction;
 import herddb.log.LogSequenceNumber;
+import herddb.model.RecordFunction;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.model.TableContext;
@@ -122,6 +126,29 @@ public class ConcurrentMapKeyToPageIndex implements KeyToPageIndex {
             return Stream.of(new AbstractMap.SimpleImmutableEntry<>(key, pageId));
         }
 
+        if (operation instanceof PrimaryIndexMultiSeek) {
+            PrimaryIndexMultiSeek seek = (PrimaryIndexMultiSeek) operation;
+            Set<Bytes> keys = new HashSet<>();
+            List<Map.Entry<Bytes, Long>> result = new ArrayList<>(seek.values.length);
+            for (RecordFunction value : seek.values) {
+                byte[] seekValue = value.computeNewValue(null, context, tableContext);
+                if (seekValue == null) {
+                    continue;
+                }
+                Bytes key = Bytes.from_array(seekValue);
+                if (!keys.add(key)) {
+                    continue;
+                }
+                Long pageId = map.get(key);
+                if (pageId != null) {
+                    result.add(new AbstractMap.SimpleImmutableEntry<>(key, pageId));
+                }
+            }
+            // return keys grouped by page, in order to read every page only once
+            result.sort(Map.Entry.comparingByValue());
+            return result.stream();
+        }
+
         // Remember that the IndexOperation can return more records
         // every predicate (WHEREs...) will always be evaluated anyway on every record, in order to guarantee correctness
         if (index != null) {
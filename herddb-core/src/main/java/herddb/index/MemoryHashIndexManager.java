@@ -22,9 +22,11 @@ package herddb.index;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
@@ -151,6 +153,18 @@ public class MemoryHashIndexManager extends AbstractIndexManager {
             } else {
                 return Stream.empty();
             }
+        } else if (operation instanceof SecondaryIndexMultiSeek) {
+            SecondaryIndexMultiSeek sis = (SecondaryIndexMultiSeek) operation;
+            Set<Bytes> values = new LinkedHashSet<>();
+            for (SQLRecordKeyFunction value : sis.values) {
+                values.add(Bytes.from_array(value.computeNewValue(null, context, tableContext)));
+            }
+            // every record is indexed under a single value, so there are no duplicates
+            return values
+                .stream()
+                .map(value -> data.get(value))
+                .filter(result -> result != null)
+                .flatMap(result -> result.stream());
         } else if (operation instanceof SecondaryIndexPrefixScan) {
             SecondaryIndexPrefixScan sis = (SecondaryIndexPrefixScan) operation;
             SQLRecordKeyFunction value = sis.value;
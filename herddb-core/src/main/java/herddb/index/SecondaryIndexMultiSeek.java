@@ -0,0 +1,49 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.index;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.sql.SQLRecordKeyFunction;
+
+/**
+ * Multiple seeks on secondary index, this is used for IN-lists and
+ * disjunctions of equalities on all the columns of the index.
+ *
+ * @author enrico.olivelli
+ */
+@SuppressFBWarnings("EI_EXPOSE_REP2")
+public class SecondaryIndexMultiSeek implements IndexOperation {
+
+    public final String indexName;
+    public final String[] columnsToMatch;
+    public final SQLRecordKeyFunction[] values;
+
+    public SecondaryIndexMultiSeek(String indexName, String[] columnsToMatch, SQLRecordKeyFunction[] values) {
+        this.indexName = indexName;
+        this.columnsToMatch = columnsToMatch;
+        this.values = values;
+    }
+
+    @Override
+    public String getIndexName() {
+        return indexName;
+    }
+
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
@@ -43,6 +44,7 @@ import herddb.core.MemoryManager;
 import herddb.core.PostCheckpointAction;
 import herddb.index.IndexOperation;
 import herddb.index.KeyToPageIndex;
+import herddb.index.PrimaryIndexMultiSeek;
 import herddb.index.PrimaryIndexPrefixScan;
 import herddb.index.PrimaryIndexRangeScan;
 import herddb.index.PrimaryIndexSeek;
@@ -50,6 +52,7 @@ import herddb.index.blink.BLink.EverBiggerKey;
 import herddb.index.blink.BLink.SizeEvaluator;
 import herddb.index.blink.BLinkMetadata.BLinkNodeMetadata;
 import herddb.log.LogSequenceNumber;
+import herddb.model.RecordFunction;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.model.TableContext;
@@ -158,6 +161,27 @@ public class BLinkKeyToPageIndex implements KeyToPageIndex {
             return Stream.of(new AbstractMap.SimpleImmutableEntry<>(key, pageId));
         }
 
+        if (operation instanceof PrimaryIndexMultiSeek) {
+            PrimaryIndexMultiSeek seek = (PrimaryIndexMultiSeek) operation;
+            // visit keys in ascending order, callers rely on this index being sorted
+            Set<Bytes> keys = new TreeSet<>();
+            for (RecordFunction value : seek.values) {
+                byte[] seekValue = value.computeNewValue(null, context, tableContext);
+                if (seekValue != null) {
+                    keys.add(Bytes.from_array(seekValue));
+                }
+            }
+            List<Entry<Bytes, Long>> result = new ArrayList<>(keys.size());
+            BLink<Bytes, Long> tree = getTree();
+            for (Bytes key : keys) {
+                Long pageId = tree.search(key);
+                if (pageId != null) {
+                    result.add(new AbstractMap.SimpleImmutableEntry<>(key, pageId));
+                }
+            }
+            return result.stream();
+        }
+
         if (operation instanceof PrimaryIndexPrefixScan) {
 
             PrimaryIndexPrefixScan scan = (PrimaryIndexPrefixScan) operation;
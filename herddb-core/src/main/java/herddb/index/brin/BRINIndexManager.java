@@ -25,6 +25,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -42,6 +43,7 @@ import herddb.core.PageReplacementPolicy;
 import herddb.core.PostCheckpointAction;
 import herddb.core.TableSpaceManager;
 import herddb.index.IndexOperation;
+import herddb.index.SecondaryIndexMultiSeek;
 import herddb.index.SecondaryIndexPrefixScan;
 import herddb.index.SecondaryIndexRangeScan;
 import herddb.index.SecondaryIndexSeek;
@@ -267,6 +269,19 @@ public class BRINIndexManager extends AbstractIndexManager {
             } else {
                 return Stream.empty();
             }
+        } else if (operation instanceof SecondaryIndexMultiSeek) {
+            SecondaryIndexMultiSeek sis = (SecondaryIndexMultiSeek) operation;
+            Set<Bytes> values = new LinkedHashSet<>();
+            for (SQLRecordKeyFunction value : sis.values) {
+                values.add(Bytes.from_array(value.computeNewValue(null, context, tableContext)));
+            }
+            // different values may be found in the same block
+            return values
+                .stream()
+                .map(value -> data.search(value))
+                .filter(result -> result != null)
+                .flatMap(result -> result.stream())
+                .distinct();
         } else if (operation instanceof SecondaryIndexPrefixScan) {
             SecondaryIndexPrefixScan sis = (SecondaryIndexPrefixScan) operation;
             SQLRecordKeyFunction value = sis.value;
@@ -46,4 +46,21 @@ public interface TableSpaceManagerStatsMXBean {
 
     public long getKeysUsedMemory();
 
+    /**
+     * Entries written by the leader and not yet applied, zero on the leader
+     */
+    public long getFollowerLagEntries();
+
+    /**
+     * Milliseconds elapsed since this replica was up to date with the leader,
+     * zero on the leader and -1 if unknown
+     */
+    public long getFollowerLagMillis();
+
+    /**
+     * Milliseconds spent booting the tablespace (checkpoint load, indexes boot
+     * and log recovery)
+     */
+    public long getBootTime();
+
 }
@@ -19,6 +19,8 @@
  */
 package herddb.log;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiConsumer;
 
 /**
@@ -39,10 +41,49 @@ public abstract class CommitLog implements AutoCloseable {
      */
     public abstract CommitLogResult log(LogEntry entry, boolean synch) throws LogNotAvailableException;
 
+    /**
+     * Log a group of entries, in order. Implementations can write all of the
+     * entries before waiting for the acknowledge, this way only one synch is
+     * needed for the whole group
+     *
+     * @param entries
+     * @param synch
+     * @return the results, in the same order of the entries
+     * @throws LogNotAvailableException
+     */
+    public List<CommitLogResult> log(List<LogEntry> entries, boolean synch) throws LogNotAvailableException {
+        List<CommitLogResult> results = new ArrayList<>(entries.size());
+        for (LogEntry entry : entries) {
+            results.add(log(entry, synch));
+        }
+        return results;
+    }
+
     public abstract void recovery(LogSequenceNumber snapshotSequenceNumber, BiConsumer<LogSequenceNumber, LogEntry> consumer, boolean fencing) throws LogNotAvailableException;
 
     public abstract void followTheLeader(LogSequenceNumber skipPast, BiConsumer<LogSequenceNumber, LogEntry> consumer) throws LogNotAvailableException;
 
+    /**
+     * Number of entries already written by the leader which have not been
+     * passed to {@link #followTheLeader(herddb.log.LogSequenceNumber, java.util.function.BiConsumer) }
+     * yet, as far as this follower knows
+     *
+     * @return the number of entries, zero if unknown
+     */
+    public long getFollowerLagEntries() {
+        return 0;
+    }
+
+    /**
+     * Time up to which every entry written by the leader has been passed to
+     * {@link #followTheLeader(herddb.log.LogSequenceNumber, java.util.function.BiConsumer) }
+     *
+     * @return the timestamp, zero if unknown
+     */
+    public long getFollowerUpToDateTimestamp() {
+        return 0;
+    }
+
     public abstract LogSequenceNumber getLastSequenceNumber();
 
     public abstract void startWriting() throws LogNotAvailableException;
@@ -69,4 +69,15 @@ public interface Projection {
 
     public DataAccessor map(DataAccessor tuple, StatementEvaluationContext context) throws StatementExecutionException;
 
+    /**
+     * Positions of the fields of the input tuple which are read by this
+     * projection. This information is used in order to deserialize only the
+     * columns which are actually needed.
+     *
+     * @return the positions, or null if they are not known
+     */
+    public default int[] getAccessedColumns() {
+        return null;
+    }
+
 }
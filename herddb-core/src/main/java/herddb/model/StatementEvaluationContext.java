@@ -47,6 +47,7 @@ public class StatementEvaluationContext {
     private final Map<PlainSelect, List<DataAccessor>> subqueryCache = new IdentityHashMap<>();
     private final Map<PlainSelect, ExecutionPlan> planCache = new IdentityHashMap<>();
     private String defaultTablespace = TableSpace.DEFAULT;
+    private long maxFollowerLag = -1;
 
     public static StatementEvaluationContext DEFAULT_EVALUATION_CONTEXT() {
         return new StatementEvaluationContext();
@@ -60,6 +61,19 @@ public class StatementEvaluationContext {
         this.defaultTablespace = defaultTablespace;
     }
 
+    /**
+     * Maximum lag, in milliseconds, accepted by the client in order to read
+     * data from a follower replica. A negative value means that only the
+     * leader can serve the statement
+     */
+    public long getMaxFollowerLag() {
+        return maxFollowerLag;
+    }
+
+    public void setMaxFollowerLag(long maxFollowerLag) {
+        this.maxFollowerLag = maxFollowerLag;
+    }
+
     public TransactionContext getTransactionContext() {
         return transactionContext;
     }
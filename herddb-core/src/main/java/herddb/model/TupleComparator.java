@@ -34,4 +34,14 @@ public interface TupleComparator extends Comparator<DataAccessor>, Serializable
         return false;
     }
 
+    /**
+     * Positions of the fields of the tuples which are compared.
+     *
+     * @return the positions, or null if they are not known
+     * @see Projection#getAccessedColumns()
+     */
+    public default int[] getAccessedColumns() {
+        return null;
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.model.commands;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.model.DMLStatement;
+import herddb.utils.DataAccessor;
+import java.util.List;
+
+/**
+ * Inserts a group of records, values are given by position and they are
+ * serialized directly, without any SQL parsing or planning.
+ *
+ * @author enrico.olivelli
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public class BulkInsertStatement extends DMLStatement {
+
+    private final String[] columns;
+    private final List<DataAccessor> records;
+
+    public BulkInsertStatement(String tableSpace, String table, String[] columns, List<DataAccessor> records) {
+        super(table, tableSpace);
+        this.columns = columns;
+        this.records = records;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public List<DataAccessor> getRecords() {
+        return records;
+    }
+
+}
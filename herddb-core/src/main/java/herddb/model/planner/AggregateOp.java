@@ -33,6 +33,7 @@ import herddb.model.StatementExecutionException;
 import herddb.model.StatementExecutionResult;
 import herddb.model.TransactionContext;
 import herddb.model.Tuple;
+import herddb.model.commands.ScanStatement;
 import herddb.sql.AggregatedColumnCalculator;
 import herddb.sql.expressions.AccessCurrentRowExpression;
 import herddb.sql.expressions.CompiledSQLExpression;
@@ -89,6 +90,23 @@ public class AggregateOp implements PlannerOp {
             StatementEvaluationContext context,
             boolean lockRequired, boolean forWrite) throws StatementExecutionException {
 
+        ScanStatement parallelScan = getParallelScanStatement();
+        if (parallelScan != null
+                && transactionContext.transactionId == TransactionContext.NOTRANSACTION_ID
+                && !lockRequired && !forWrite
+                && tableSpaceManager.getDbmanager().getParallelScanPool() != null
+                && isMergeable(context)) {
+            // every thread of the scan computes a partial aggregation, partial results are merged at the end
+            PartialAggregation aggregation = tableSpaceManager.parallelScan(parallelScan, context,
+                    () -> new PartialAggregation(context),
+                    PartialAggregation::consume,
+                    PartialAggregation::merge);
+            MaterializedRecordSet results = aggregation.toRecordSet(
+                    tableSpaceManager.getDbmanager().getRecordSetFactory());
+            return new ScanResult(transactionContext.transactionId,
+                    new SimpleDataScanner(transactionContext.transactionId, results));
+        }
+
         StatementExecutionResult input =
                 this.input.execute(tableSpaceManager, transactionContext, context, lockRequired, forWrite);
         ScanResult downstreamScanResult = (ScanResult) input;
@@ -99,6 +117,68 @@ public class AggregateOp implements PlannerOp {
 
     }
 
+    /**
+     * Returns the scan which produces the input of this aggregation, if it can
+     * be executed using a parallel scan
+     *
+     * @return the statement or null
+     */
+    private ScanStatement getParallelScanStatement() {
+        ScanStatement statement;
+        if (input instanceof TableScanOp) {
+            statement = ((TableScanOp) input).statement;
+        } else if (input instanceof BindableTableScanOp) {
+            statement = ((BindableTableScanOp) input).statement;
+        } else if (input instanceof ProjectedTableScanOp) {
+            statement = ((ProjectedTableScanOp) input).statement;
+        } else if (input instanceof FilteredTableScanOp) {
+            statement = ((FilteredTableScanOp) input).statement;
+        } else {
+            return null;
+        }
+        if (statement.getComparator() != null || statement.getLimits() != null) {
+            return null;
+        }
+        return statement;
+    }
+
+    private boolean isMergeable(StatementEvaluationContext context) throws StatementExecutionException {
+        for (AggregatedColumnCalculator cc : createGroup(context).columns) {
+            if (!cc.isMergeable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Group createGroup(StatementEvaluationContext context) throws StatementExecutionException {
+        AggregatedColumnCalculator[] columns = new AggregatedColumnCalculator[aggtypes.length];
+        for (int i = 0; i < aggtypes.length; i++) {
+            String aggtype = aggtypes[i];
+
+            String fieldName = fieldnames[i];
+            List<Integer> argList = argLists.get(i);
+            CompiledSQLExpression param = argList.isEmpty() ? null : new AccessCurrentRowExpression(argList.get(0)); // TODO, multi params ?
+            AggregatedColumnCalculator calculator
+                    = BuiltinFunctions.getColumnCalculator(aggtype.toLowerCase(), fieldName, param, context);
+            if (calculator == null) {
+                throw new StatementExecutionException("not implemented aggregation type " + aggtype);
+            }
+            columns[i] = calculator;
+        }
+        return new Group(columns);
+    }
+
+    private Key key(DataAccessor tuple) {
+        Object[] values = new Object[groupedFiledsIndexes.size()];
+        int i = 0;
+        for (int posInUpstreamRow : groupedFiledsIndexes) {
+            Object value = tuple.get(posInUpstreamRow);
+            values[i++] = value;
+        }
+        return new Key(values);
+    }
+
     private static final class Group {
 
         AggregatedColumnCalculator[] columns;
@@ -107,149 +187,166 @@ public class AggregateOp implements PlannerOp {
             this.columns = columns;
         }
 
+        void merge(Group other) throws StatementExecutionException {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].merge(other.columns[i]);
+            }
+        }
+
     }
 
-    private class AggregatedDataScanner extends DataScanner {
+    private static final class Key {
 
-        private final DataScanner wrapped;
-        private DataScanner aggregatedScanner;
-        private final StatementEvaluationContext context;
-        private final RecordSetFactory recordSetFactory;
+        final Object[] values;
 
-        public AggregatedDataScanner(DataScanner wrapped,
-                StatementEvaluationContext context,
-                RecordSetFactory recordSetFactory) throws StatementExecutionException {
-            super(wrapped.transactionId, fieldnames, columns);
-            this.wrapped = wrapped;
-            this.context = context;
-            this.recordSetFactory = recordSetFactory;
+        public Key(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 71 * hash + Arrays.deepHashCode(this.values);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if (!Arrays.deepEquals(this.values, other.values)) {
+                return false;
+            }
+            return true;
         }
 
-        private class Key {
+    }
+
+    /**
+     * Aggregation of a subset of the input. Partial aggregations computed on
+     * disjoint subsets can be merged if every calculator is mergeable
+     */
+    private final class PartialAggregation {
 
-            final Object[] values;
+        private final StatementEvaluationContext context;
+        private final Map<Key, Group> groups;
+        private final Group group;
 
-            public Key(Object[] values) {
-                this.values = values;
+        PartialAggregation(StatementEvaluationContext context) throws StatementExecutionException {
+            this.context = context;
+            if (groupedFiledsIndexes.isEmpty()) {
+                this.groups = null;
+                this.group = createGroup(context);
+            } else {
+                this.groups = new HashMap<>();
+                this.group = null;
             }
+        }
 
-            @Override
-            public int hashCode() {
-                int hash = 7;
-                hash = 71 * hash + Arrays.deepHashCode(this.values);
-                return hash;
+        void consume(DataAccessor tuple) throws StatementExecutionException {
+            Group current = group;
+            if (current == null) {
+                Key key = key(tuple);
+                current = groups.get(key);
+                if (current == null) {
+                    current = createGroup(context);
+                    groups.put(key, current);
+                }
+            }
+            for (AggregatedColumnCalculator cc : current.columns) {
+                cc.consume(tuple);
             }
+        }
 
-            @Override
-            public boolean equals(Object obj) {
-                if (this == obj) {
-                    return true;
+        void merge(PartialAggregation other) throws StatementExecutionException {
+            if (group != null) {
+                group.merge(other.group);
+                return;
+            }
+            for (Map.Entry<Key, Group> cell : other.groups.entrySet()) {
+                Group current = groups.get(cell.getKey());
+                if (current == null) {
+                    groups.put(cell.getKey(), cell.getValue());
+                } else {
+                    current.merge(cell.getValue());
                 }
-                if (obj == null) {
-                    return false;
+            }
+        }
+
+        MaterializedRecordSet toRecordSet(RecordSetFactory recordSetFactory) throws StatementExecutionException {
+            if (group != null) {
+                Object[] values = new Object[fieldnames.length];
+                int k = 0;
+                for (AggregatedColumnCalculator cc : group.columns) {
+                    values[k++] = cc.getValue();
                 }
-                if (getClass() != obj.getClass()) {
-                    return false;
+                Tuple tuple = new Tuple(fieldnames, values);
+                MaterializedRecordSet results = recordSetFactory
+                        .createFixedSizeRecordSet(1, fieldnames, columns);
+                results.add(tuple);
+                results.writeFinished();
+                return results;
+            }
+            MaterializedRecordSet results = recordSetFactory
+                    .createFixedSizeRecordSet(groups.values().size(),
+                            fieldnames, columns);
+            for (Map.Entry<Key, Group> cell : groups.entrySet()) {
+                Key key = cell.getKey();
+                Group group = cell.getValue();
+                AggregatedColumnCalculator[] columns = group.columns;
+                Object[] values = new Object[fieldnames.length];
+                int k = 0;
+                for (Object field : key.values) {
+                    values[k++] = field;
                 }
-                final Key other = (Key) obj;
-                if (!Arrays.deepEquals(this.values, other.values)) {
-                    return false;
+                for (AggregatedColumnCalculator cc : columns) {
+                    values[k++] = cc.getValue();
                 }
-                return true;
+                Tuple tuple = new Tuple(fieldnames, values);
+                results.add(tuple);
             }
-
+            results.writeFinished();
+            return results;
         }
+    }
 
-        private Key key(DataAccessor tuple) throws DataScannerException {
-            Object[] values = new Object[groupedFiledsIndexes.size()];
-            int i = 0;
-            for (int posInUpstreamRow : groupedFiledsIndexes) {
-                Object value = tuple.get(posInUpstreamRow);
-                values[i++] = value;
-            }
-            return new Key(values);
+    private class AggregatedDataScanner extends DataScanner {
+
+        private final DataScanner wrapped;
+        private DataScanner aggregatedScanner;
+        private final StatementEvaluationContext context;
+        private final RecordSetFactory recordSetFactory;
+
+        public AggregatedDataScanner(DataScanner wrapped,
+                StatementEvaluationContext context,
+                RecordSetFactory recordSetFactory) throws StatementExecutionException {
+            super(wrapped.transactionId, fieldnames, columns);
+            this.wrapped = wrapped;
+            this.context = context;
+            this.recordSetFactory = recordSetFactory;
         }
 
         private void compute() throws DataScannerException {
             try {
-                if (!groupedFiledsIndexes.isEmpty()) {
-                    Map<Key, Group> groups = new HashMap<>();
-                    while (wrapped.hasNext()) {
-                        DataAccessor tuple = wrapped.next();
-                        Key key = key(tuple);
-                        Group group = groups.get(key);
-                        if (group == null) {
-                            group = createGroup();
-                            groups.put(key, group);
-                        }
-                        for (AggregatedColumnCalculator cc : group.columns) {
-                            cc.consume(tuple);
-                        }
-                    }
-                    MaterializedRecordSet results = recordSetFactory
-                            .createFixedSizeRecordSet(groups.values().size(),
-                                    getFieldNames(), getSchema());
-                    for (Map.Entry<Key, Group> cell : groups.entrySet()) {
-                        Key key = cell.getKey();
-                        Group group = cell.getValue();
-                        AggregatedColumnCalculator[] columns = group.columns;
-                        Object[] values = new Object[fieldnames.length];
-                        int k = 0;
-                        for (Object field : key.values) {
-                            values[k++] = field;
-                        }
-                        for (AggregatedColumnCalculator cc : columns) {
-                            values[k++] = cc.getValue();
-                        }
-                        Tuple tuple = new Tuple(fieldnames, values);
-                        results.add(tuple);
-                    }
-                    results.writeFinished();
-                    aggregatedScanner = new SimpleDataScanner(wrapped.transactionId, results);
-                } else {
-                    Group group = createGroup();
-                    AggregatedColumnCalculator[] columns = group.columns;
-                    while (wrapped.hasNext()) {
-                        DataAccessor tuple = wrapped.next();
-                        for (AggregatedColumnCalculator cc : columns) {
-                            cc.consume(tuple);
-                        }
-                    }
-                    Object[] values = new Object[fieldnames.length];
-                    int k = 0;
-                    for (AggregatedColumnCalculator cc : columns) {
-                        values[k++] = cc.getValue();
-                    }
-                    Tuple tuple = new Tuple(fieldnames, values);
-                    MaterializedRecordSet results = recordSetFactory
-                            .createFixedSizeRecordSet(1, getFieldNames(), getSchema());
-                    results.add(tuple);
-                    results.writeFinished();
-                    aggregatedScanner = new SimpleDataScanner(wrapped.transactionId, results);
+                PartialAggregation aggregation = new PartialAggregation(context);
+                while (wrapped.hasNext()) {
+                    aggregation.consume(wrapped.next());
                 }
+                MaterializedRecordSet results = aggregation.toRecordSet(recordSetFactory);
+                aggregatedScanner = new SimpleDataScanner(wrapped.transactionId, results);
             } catch (StatementExecutionException err) {
                 throw new DataScannerException(err);
             }
         }
 
-        private Group createGroup() throws DataScannerException, StatementExecutionException {
-            AggregatedColumnCalculator[] columns = new AggregatedColumnCalculator[aggtypes.length];
-            for (int i = 0; i < aggtypes.length; i++) {
-                String aggtype = aggtypes[i];
-
-                String fieldName = fieldnames[i];
-                List<Integer> argList = argLists.get(i);
-                CompiledSQLExpression param = argList.isEmpty() ? null : new AccessCurrentRowExpression(argList.get(0)); // TODO, multi params ?
-                AggregatedColumnCalculator calculator
-                        = BuiltinFunctions.getColumnCalculator(aggtype.toLowerCase(), fieldName, param, context);
-                if (calculator == null) {
-                    throw new StatementExecutionException("not implemented aggregation type " + aggtype);
-                }
-                columns[i] = calculator;
-            }
-            return new Group(columns);
-        }
-
         @Override
         public boolean hasNext() throws DataScannerException {
             if (aggregatedScanner == null) {
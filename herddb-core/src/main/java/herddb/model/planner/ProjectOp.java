@@ -30,6 +30,8 @@ import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.model.StatementExecutionResult;
 import herddb.model.TransactionContext;
+import herddb.sql.expressions.AccessCurrentRowExpression;
+import herddb.sql.expressions.AdaptiveSQLExpression;
 import herddb.sql.expressions.CompiledSQLExpression;
 import herddb.utils.AbstractDataAccessor;
 import herddb.utils.DataAccessor;
@@ -57,13 +59,36 @@ public class ProjectOp implements PlannerOp {
 
         private final Column[] columns;
         private final String[] fieldNames;
-        private final List<CompiledSQLExpression> fields;
+        private final CompiledSQLExpression[] fields;
+        private final int[] accessedColumns;
 
         public BasicProjection(String[] fieldNames, Column[] columns,
             List<CompiledSQLExpression> fields) {
             this.fieldNames = fieldNames;
             this.columns = columns;
-            this.fields = fields;
+            this.fields = new CompiledSQLExpression[fields.size()];
+            for (int i = 0; i < this.fields.length; i++) {
+                this.fields[i] = AdaptiveSQLExpression.wrap(fields.get(i), null);
+            }
+            BitSet accessed = new BitSet();
+            boolean known = true;
+            for (CompiledSQLExpression exp : fields) {
+                known = known && exp.collectAccessedColumns(accessed);
+            }
+            this.accessedColumns = known ? accessed.stream().toArray() : null;
+        }
+
+        @Override
+        public int[] getAccessedColumns() {
+            return accessedColumns;
+        }
+
+        int mapPosition(int field) {
+            CompiledSQLExpression exp = fields[field];
+            if (exp instanceof AccessCurrentRowExpression) {
+                return ((AccessCurrentRowExpression) exp).getIndex();
+            }
+            return -1;
         }
 
         @Override
@@ -114,7 +139,7 @@ public class ProjectOp implements PlannerOp {
             @Override
             public Object get(int i) {
                 if (!evaluated.get(i)) {
-                    CompiledSQLExpression exp = fields.get(i);
+                    CompiledSQLExpression exp = fields[i];
                     this.values[i] = exp.evaluate(wrapper, context);
                     evaluated.set(i);
                 }
@@ -247,6 +272,11 @@ public class ProjectOp implements PlannerOp {
             return zeroCopyProjections[field];
         }
 
+        @Override
+        public int[] getAccessedColumns() {
+            return zeroCopyProjections;
+        }
+
         @SuppressFBWarnings(value = "EI_EXPOSE_REP2")
         public class RuntimeProjectedDataAccessor extends AbstractDataAccessor {
 
@@ -35,6 +35,7 @@ import herddb.model.Table;
 import herddb.model.TransactionContext;
 import herddb.model.TupleComparator;
 import herddb.model.commands.ScanStatement;
+import herddb.model.planner.ProjectOp.BasicProjection;
 import herddb.model.planner.ProjectOp.IdentityProjection;
 import herddb.model.planner.ProjectOp.ZeroCopyProjection;
 import herddb.sql.SQLRecordPredicate;
@@ -61,6 +62,16 @@ public class SortOp implements PlannerOp, TupleComparator {
         this.fields = fields;
     }
 
+    /**
+     * Comparator used by table scans
+     */
+    private SortOp(boolean[] directions, int[] fields, boolean onlyPrimaryKeyAndAscending) {
+        this.input = null;
+        this.directions = directions;
+        this.fields = fields;
+        this.onlyPrimaryKeyAndAscending = onlyPrimaryKeyAndAscending;
+    }
+
     @Override
     public String getTablespace() {
         return input.getTablespace();
@@ -93,58 +104,56 @@ public class SortOp implements PlannerOp, TupleComparator {
 
     @Override
     public PlannerOp optimize() {
+        ScanStatement statement;
         if (input instanceof BindableTableScanOp) {
-            BindableTableScanOp op = (BindableTableScanOp) input;
-            // we can change the statement, this node will be lost and the tablescan too
-            ScanStatement statement = op.getStatement();
-            statement.setComparator(this);
-
-            if (fields.length == 1 && directions[0]) {
-                Table tableDef = statement.getTableDef();
-                if (tableDef.getPrimaryKey().length == 1) {
-                    if (statement.getProjection() != null && statement.getProjection() instanceof ZeroCopyProjection) {
-                        ZeroCopyProjection zeroCopyProjection = (ZeroCopyProjection) statement.getProjection();
-                        int index = zeroCopyProjection.mapPosition(fields[0]);
-                        Column col = tableDef.resolveColumName(index);
-                        if (col.name.equals(tableDef.getPrimaryKey()[0])) {
-                            this.onlyPrimaryKeyAndAscending = true;
-                        }
-                    } else if (statement.getProjection() != null && statement.getProjection() instanceof IdentityProjection) {
-                        Column col = tableDef.resolveColumName(fields[0]);
-                        if (col.name.equals(tableDef.getPrimaryKey()[0])) {
-                            this.onlyPrimaryKeyAndAscending = true;
-                        }
-                    }
-                }
-            }
-            return new SortedBindableTableScanOp(statement);
+            statement = ((BindableTableScanOp) input).getStatement();
         } else if (input instanceof TableScanOp) {
-            TableScanOp op = (TableScanOp) input;
-            // we can change the statement, this node will be lost and the tablescan too
-            ScanStatement statement = op.getStatement();
-            statement.setComparator(this);
-
-            if (fields.length == 1 && directions[0]) {
-                Table tableDef = statement.getTableDef();
-                if (tableDef.getPrimaryKey().length == 1) {
-                    if (statement.getProjection() != null && statement.getProjection() instanceof ZeroCopyProjection) {
-                        ZeroCopyProjection zeroCopyProjection = (ZeroCopyProjection) statement.getProjection();
-                        int index = zeroCopyProjection.mapPosition(fields[0]);
-                        Column col = tableDef.resolveColumName(index);
-                        if (col.name.equals(tableDef.getPrimaryKey()[0])) {
-                            this.onlyPrimaryKeyAndAscending = true;
-                        }
-                    } else if (statement.getProjection() != null && statement.getProjection() instanceof IdentityProjection) {
-                        Column col = tableDef.resolveColumName(fields[0]);
-                        if (col.name.equals(tableDef.getPrimaryKey()[0])) {
-                            this.onlyPrimaryKeyAndAscending = true;
-                        }
-                    }
-                }
+            statement = ((TableScanOp) input).getStatement();
+        } else {
+            return this;
+        }
+        // the table scan sorts the records before applying the projection
+        // so we have to sort using the positions of the columns on the table
+        int[] fieldsOnTable = mapFieldsOnTable(statement.getProjection());
+        if (fieldsOnTable == null) {
+            return this;
+        }
+        boolean onlyPrimaryKeyAndAscending = false;
+        if (fieldsOnTable.length == 1 && directions[0]) {
+            Table tableDef = statement.getTableDef();
+            if (tableDef.getPrimaryKey().length == 1) {
+                Column col = tableDef.resolveColumName(fieldsOnTable[0]);
+                onlyPrimaryKeyAndAscending = col.name.equals(tableDef.getPrimaryKey()[0]);
             }
+        }
+        // we can change the statement, this node will be lost and the tablescan too
+        statement.setComparator(new SortOp(directions, fieldsOnTable, onlyPrimaryKeyAndAscending));
+        if (input instanceof BindableTableScanOp) {
+            return new SortedBindableTableScanOp(statement);
+        } else {
             return new SortedTableScanOp(statement);
         }
-        return this;
+    }
+
+    private int[] mapFieldsOnTable(Projection projection) {
+        if (projection == null || projection instanceof IdentityProjection) {
+            return fields;
+        }
+        int[] res = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (projection instanceof ZeroCopyProjection) {
+                res[i] = ((ZeroCopyProjection) projection).mapPosition(fields[i]);
+            } else if (projection instanceof BasicProjection) {
+                res[i] = ((BasicProjection) projection).mapPosition(fields[i]);
+            } else {
+                res[i] = -1;
+            }
+            if (res[i] < 0) {
+                // sorting on a computed value
+                return null;
+            }
+        }
+        return res;
     }
 
     @Override
@@ -152,6 +161,11 @@ public class SortOp implements PlannerOp, TupleComparator {
         return onlyPrimaryKeyAndAscending;
     }
 
+    @Override
+    public int[] getAccessedColumns() {
+        return fields;
+    }
+
     @Override
     @SuppressFBWarnings("RV_NEGATING_RESULT_OF_COMPARETO")
     public int compare(DataAccessor o1, DataAccessor o2) {
@@ -173,7 +187,7 @@ public class SortOp implements PlannerOp, TupleComparator {
 
     @Override
     public <T> T unwrap(Class<T> clazz) {
-        T unwrapped = input.unwrap(clazz);
+        T unwrapped = input != null ? input.unwrap(clazz) : null;
         if (unwrapped != null) {
             return unwrapped;
         }
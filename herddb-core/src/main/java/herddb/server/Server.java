@@ -24,7 +24,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
@@ -55,6 +57,8 @@ import herddb.network.ServerSideConnection;
 import herddb.network.ServerSideConnectionAcceptor;
 import herddb.network.netty.NettyChannelAcceptor;
 import herddb.network.netty.NetworkUtils;
+import herddb.network.netty.RequestQueueStats;
+import herddb.network.netty.RequestScheduler;
 import herddb.security.SimpleSingleUserManager;
 import herddb.security.UserManager;
 import herddb.storage.DataStorageManager;
@@ -78,6 +82,7 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
     private final Map<Long, ServerSideConnectionPeer> connections = new ConcurrentHashMap<>();
     private final String mode;
     private final MetadataStorageManager metadataStorageManager;
+    private final boolean networkCompressionEnabled;
     private String jdbcUrl;
     private UserManager userManager;
     private EmbeddedBookie embeddedBookie;
@@ -102,12 +107,18 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
         return networkServer;
     }
 
+    public boolean isNetworkCompressionEnabled() {
+        return networkCompressionEnabled;
+    }
+
     public Server(ServerConfiguration configuration) {
         this.configuration = configuration;
 
         String nodeId = configuration.getString(ServerConfiguration.PROPERTY_NODEID, "");
 
         this.mode = configuration.getString(ServerConfiguration.PROPERTY_MODE, ServerConfiguration.PROPERTY_MODE_STANDALONE);
+        this.networkCompressionEnabled = configuration.getBoolean(ServerConfiguration.PROPERTY_NETWORK_COMPRESSION_ENABLED,
+                ServerConfiguration.PROPERTY_NETWORK_COMPRESSION_ENABLED_DEFAULT);
         this.baseDirectory = Paths.get(configuration.getString(ServerConfiguration.PROPERTY_BASEDIR, ServerConfiguration.PROPERTY_BASEDIR_DEFAULT)).toAbsolutePath();
         try {
             Files.createDirectories(this.baseDirectory);
@@ -265,6 +276,24 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
                 ServerConfiguration.PROPERTY_NETWORK_WORKER_THREADS_DEFAULT);
         acceptor.setCallbackThreads(callbackThreads);
         acceptor.setWorkerThreads(workerThreads);
+        acceptor.setPointRequestThreads(configuration.getInt(
+                ServerConfiguration.PROPERTY_NETWORK_POINT_REQUEST_THREADS,
+                ServerConfiguration.PROPERTY_NETWORK_POINT_REQUEST_THREADS_DEFAULT));
+        acceptor.setScanRequestThreads(configuration.getInt(
+                ServerConfiguration.PROPERTY_NETWORK_SCAN_REQUEST_THREADS,
+                ServerConfiguration.PROPERTY_NETWORK_SCAN_REQUEST_THREADS_DEFAULT));
+        acceptor.setAdminRequestThreads(configuration.getInt(
+                ServerConfiguration.PROPERTY_NETWORK_ADMIN_REQUEST_THREADS,
+                ServerConfiguration.PROPERTY_NETWORK_ADMIN_REQUEST_THREADS_DEFAULT));
+        acceptor.setMaxPendingRequestsPerConnection(configuration.getInt(
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_CONNECTION,
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_CONNECTION_DEFAULT));
+        acceptor.setMaxPendingRequestsPerTableSpace(configuration.getInt(
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_TABLESPACE,
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_TABLESPACE_DEFAULT));
+        acceptor.setJvmNetworkPassByReference(configuration.getBoolean(
+                ServerConfiguration.PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE,
+                ServerConfiguration.PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE_DEFAULT));
 
         return acceptor;
     }
@@ -313,6 +342,11 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
                 bkmanager.setWriteQuorumSize(configuration.getInt(ServerConfiguration.PROPERTY_BOOKKEEPER_WRITEQUORUMSIZE, ServerConfiguration.PROPERTY_BOOKKEEPER_WRITEQUORUMSIZE_DEFAULT));
                 long ledgersRetentionPeriod = configuration.getLong(ServerConfiguration.PROPERTY_BOOKKEEPER_LEDGERS_RETENTION_PERIOD, ServerConfiguration.PROPERTY_BOOKKEEPER_LEDGERS_RETENTION_PERIOD_DEFAULT);
                 bkmanager.setLedgersRetentionPeriod(ledgersRetentionPeriod);
+                bkmanager.setWriteBatchMaxSize(configuration.getInt(ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_MAX_SIZE, ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_MAX_SIZE_DEFAULT));
+                bkmanager.setWriteBatchLingerTime(configuration.getLong(ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_LINGER_TIME, ServerConfiguration.PROPERTY_BOOKKEEPER_WRITE_BATCH_LINGER_TIME_DEFAULT));
+                bkmanager.setFollowerReadBatchSize(configuration.getInt(ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_BATCH_SIZE, ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_BATCH_SIZE_DEFAULT));
+                bkmanager.setFollowerMaxPendingReads(configuration.getInt(ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_AHEAD, ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_READ_AHEAD_DEFAULT));
+                bkmanager.setFollowerMaxIdleWait(configuration.getLong(ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_MAX_IDLE_WAIT, ServerConfiguration.PROPERTY_BOOKKEEPER_FOLLOWER_MAX_IDLE_WAIT_DEFAULT));
                 long checkPointperiod = configuration.getLong(ServerConfiguration.PROPERTY_CHECKPOINT_PERIOD, ServerConfiguration.PROPERTY_CHECKPOINT_PERIOD_DEFAULT);
 
                 if (checkPointperiod > 0 && ledgersRetentionPeriod > 0) {
@@ -402,6 +436,17 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
         return connections.size();
     }
 
+    /**
+     * Number of statements prepared on all of the client connections
+     */
+    public int getPreparedStatementsCount() {
+        return connections
+            .values()
+            .stream()
+            .mapToInt(ServerSideConnectionPeer::getPreparedStatementsCount)
+            .sum();
+    }
+
     @Override
     public ConnectionsInfo getActualConnections() {
         return new ConnectionsInfo(connections
@@ -413,4 +458,13 @@ public class Server implements AutoCloseable, ServerSideConnectionAcceptor<Serve
             .collect(Collectors.toList()));
     }
 
+    @Override
+    public List<RequestQueueStats> getRequestQueues() {
+        RequestScheduler requestScheduler = networkServer != null ? networkServer.getRequestScheduler() : null;
+        if (requestScheduler == null) {
+            return Collections.emptyList();
+        }
+        return requestScheduler.getStats();
+    }
+
 }
@@ -70,12 +70,67 @@ public final class ServerConfiguration {
     public static final String PROPERTY_NETWORK_ENABLED = "server.network.enabled";
     public static final boolean PROPERTY_NETWORK_ENABLED_DEFAULT = true;
 
+    /**
+     * Clients running in the same JVM receive messages by reference, without
+     * encoding and decoding them
+     */
+    public static final String PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE = "server.network.jvm.passbyreference";
+    public static final boolean PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE_DEFAULT = true;
+
+    /**
+     * Accept the compression of large messages when the client asks for it
+     */
+    public static final String PROPERTY_NETWORK_COMPRESSION_ENABLED = "server.network.compression.enabled";
+    public static final boolean PROPERTY_NETWORK_COMPRESSION_ENABLED_DEFAULT = true;
+
     public static final String PROPERTY_NETWORK_CALLBACK_THREADS = "server.network.thread.callback";
     public static final int PROPERTY_NETWORK_CALLBACK_THREADS_DEFAULT = 64;
 
     public static final String PROPERTY_NETWORK_WORKER_THREADS = "server.network.thread.worker";
     public static final int PROPERTY_NETWORK_WORKER_THREADS_DEFAULT = 16;
 
+    /**
+     * Threads which execute point operations and other short requests
+     */
+    public static final String PROPERTY_NETWORK_POINT_REQUEST_THREADS = "server.network.thread.requests.point";
+    public static final int PROPERTY_NETWORK_POINT_REQUEST_THREADS_DEFAULT = 64;
+
+    /**
+     * Threads which open scanners and fetch data from them
+     */
+    public static final String PROPERTY_NETWORK_SCAN_REQUEST_THREADS = "server.network.thread.requests.scan";
+    public static final int PROPERTY_NETWORK_SCAN_REQUEST_THREADS_DEFAULT = 16;
+
+    /**
+     * Threads which execute DDL statements, dumps, restores and replication
+     * requests
+     */
+    public static final String PROPERTY_NETWORK_ADMIN_REQUEST_THREADS = "server.network.thread.requests.admin";
+    public static final int PROPERTY_NETWORK_ADMIN_REQUEST_THREADS_DEFAULT = 8;
+
+    /**
+     * Maximum number of requests of a single connection waiting for execution,
+     * when it is reached the server stops reading from the connection
+     */
+    public static final String PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_CONNECTION = "server.network.requests.maxpending.connection";
+    public static final int PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_CONNECTION_DEFAULT = 256;
+
+    /**
+     * Maximum number of requests for a single tablespace waiting for
+     * execution, when it is reached the server stops reading from the
+     * connections which send requests to the tablespace
+     */
+    public static final String PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_TABLESPACE = "server.network.requests.maxpending.tablespace";
+    public static final int PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_TABLESPACE_DEFAULT = 10000;
+
+    /**
+     * Maximum number of statements prepared on a single connection, the least
+     * recently used ones are released. Clients release statements on their
+     * own, this limit protects the server from clients which do not
+     */
+    public static final String PROPERTY_NETWORK_MAX_PREPARED_STATEMENTS_PER_CONNECTION = "server.network.preparedstatements.max.connection";
+    public static final int PROPERTY_NETWORK_MAX_PREPARED_STATEMENTS_PER_CONNECTION_DEFAULT = 2000;
+
     public static final String PROPERTY_ZOOKEEPER_ADDRESS = "server.zookeeper.address";
     public static final String PROPERTY_ZOOKEEPER_SESSIONTIMEOUT = "server.zookeeper.session.timeout";
     public static final String PROPERTY_ZOOKEEPER_PATH = "server.zookeeper.path";
@@ -95,6 +150,49 @@ public final class ServerConfiguration {
     public static final String PROPERTY_BOOKKEEPER_LEDGERS_RETENTION_PERIOD = "server.bookkeeper.ledgers.retention.period";
     public static final long PROPERTY_BOOKKEEPER_LEDGERS_RETENTION_PERIOD_DEFAULT = 1000L * 60 * 60 * 24 * 2;
 
+    /**
+     * Maximum size in bytes of a group of log entries written as a single
+     * BookKeeper entry
+     */
+    public static final String PROPERTY_BOOKKEEPER_WRITE_BATCH_MAX_SIZE = "server.bookkeeper.write.batch.max.size";
+    public static final int PROPERTY_BOOKKEEPER_WRITE_BATCH_MAX_SIZE_DEFAULT = 1024 * 1024;
+    /**
+     * Maximum time in milliseconds a group of log entries waits for more
+     * entries, this happens only while other writes are in flight. Set to 0 in
+     * order to write only the entries which are already waiting
+     */
+    public static final String PROPERTY_BOOKKEEPER_WRITE_BATCH_LINGER_TIME = "server.bookkeeper.write.batch.linger.time";
+    public static final long PROPERTY_BOOKKEEPER_WRITE_BATCH_LINGER_TIME_DEFAULT = 1;
+
+    /**
+     * Number of entries requested to the bookies with a single read by a
+     * follower
+     */
+    public static final String PROPERTY_BOOKKEEPER_FOLLOWER_READ_BATCH_SIZE = "server.bookkeeper.follower.read.batch.size";
+    public static final int PROPERTY_BOOKKEEPER_FOLLOWER_READ_BATCH_SIZE_DEFAULT = 100;
+    /**
+     * Maximum number of reads issued by a follower ahead of the entries it is
+     * applying
+     */
+    public static final String PROPERTY_BOOKKEEPER_FOLLOWER_READ_AHEAD = "server.bookkeeper.follower.read.ahead";
+    public static final int PROPERTY_BOOKKEEPER_FOLLOWER_READ_AHEAD_DEFAULT = 4;
+    /**
+     * Maximum time in milliseconds a follower keeps waiting for new entries on
+     * the current ledger before looking again for new ledgers on ZooKeeper
+     */
+    public static final String PROPERTY_BOOKKEEPER_FOLLOWER_MAX_IDLE_WAIT = "server.bookkeeper.follower.max.idle.wait";
+    public static final long PROPERTY_BOOKKEEPER_FOLLOWER_MAX_IDLE_WAIT_DEFAULT = 1000;
+
+    /**
+     * Interval in milliseconds at which the leader publishes the last confirmed
+     * entry to the bookies, even if no new entry is written. Followers cannot
+     * see the last entries written by the leader until then, 0 means that
+     * the leader publishes it only with the next write and that followers
+     * never know how fresh their data is
+     */
+    public static final String PROPERTY_BOOKKEEPER_EXPLICIT_LAC_INTERVAL = "server.bookkeeper.explicit.lac.interval";
+    public static final int PROPERTY_BOOKKEEPER_EXPLICIT_LAC_INTERVAL_DEFAULT = 100;
+
     public static final String PROPERTY_CHECKPOINT_PERIOD = "server.checkpoint.period";
     public static final long PROPERTY_CHECKPOINT_PERIOD_DEFAULT = 1000L * 60 * 15;
 
@@ -155,6 +253,13 @@ public final class ServerConfiguration {
     public static final String PROPERTY_HALT_ON_TABLESPACE_BOOT_ERROR = "server.halt.on.tablespace.boot.error";
     public static final boolean PROPERTY_HALT_ON_TABLESPACE_BOOT_ERROR_DEAULT = false;
 
+    /**
+     * Maximum number of tablespaces booted concurrently (checkpoint load, primary key boot and log recovery). Use 0 or 1
+     * in order to boot tablespaces one at a time on the activator thread.
+     */
+    public static final String PROPERTY_TABLESPACES_BOOT_PARALLELISM = "server.tablespaces.boot.parallelism";
+    public static final int PROPERTY_TABLESPACES_BOOT_PARALLELISM_DEFAULT = Runtime.getRuntime().availableProcessors();
+
     /**
      * Maximum memory usable by HerdDB. If 0 the system will try to use most of the RAM of the JVM. When you are
      * embedding the server in another process use this property in order to limit the usage of resources by the
@@ -178,6 +283,20 @@ public final class ServerConfiguration {
     public static final String PROPERTY_MAX_PK_MEMORY = "server.memory.pk.limit";
     public static final long PROPERTY_MAX_PK_MEMORY_DEFAULT = 0L;
 
+    /**
+     * Number of threads used to compute partial aggregations (COUNT/SUM/MIN/MAX) while scanning tables. Use 0 or 1 in
+     * order to compute aggregations on the thread which is executing the query.
+     */
+    public static final String PROPERTY_PARALLEL_SCAN_THREADS = "server.query.parallel.scan.threads";
+    public static final int PROPERTY_PARALLEL_SCAN_THREADS_DEFAULT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of tables downloaded at the same time from the leader while bootstrapping a new replica of a
+     * tablespace.
+     */
+    public static final String PROPERTY_REPLICA_DOWNLOAD_PARALLELISM = "server.replica.download.parallelism";
+    public static final int PROPERTY_REPLICA_DOWNLOAD_PARALLELISM_DEFAULT = 4;
+
     public static final String PROPERTY_JMX_ENABLE = "server.jmx.enable";
     public static final boolean PROPERTY_JMX_ENABLE_DEFAULT = true;
 
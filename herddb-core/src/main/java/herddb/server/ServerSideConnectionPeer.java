@@ -22,6 +22,7 @@ package herddb.server;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,6 +48,7 @@ import herddb.model.DataScannerException;
 import herddb.model.DuplicatePrimaryKeyException;
 import herddb.model.GetResult;
 import herddb.model.Index;
+import herddb.model.MissingPreparedStatementException;
 import herddb.model.NotLeaderException;
 import herddb.model.Record;
 import herddb.model.ScanResult;
@@ -59,6 +61,7 @@ import herddb.model.TableAwareStatement;
 import herddb.model.Transaction;
 import herddb.model.TransactionContext;
 import herddb.model.TransactionResult;
+import herddb.model.commands.BulkInsertStatement;
 import herddb.model.commands.RollbackTransactionStatement;
 import herddb.model.commands.SQLPlannedOperationStatement;
 import herddb.model.commands.ScanStatement;
@@ -90,6 +93,12 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
      */
     private final ConcurrentMap<String, ServerSideScannerPeer> scanners = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Set<Long>> openTransactions = new ConcurrentHashMap<>();
+    /**
+     * Prepared statements, access ordered and bounded. The ID is generated by
+     * the server
+     */
+    private final Map<Long, ServerSidePreparedStatement> preparedStatements;
+    private final AtomicLong preparedStatementsIdGenerator = new AtomicLong();
     private volatile boolean authenticated;
     private volatile SaslNettyServer saslNettyServer;
     private final String address;
@@ -101,6 +110,15 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         this.channel.setMessagesReceiver(this);
         this.server = server;
         this.address = channel.getRemoteAddress();
+        int maxPreparedStatements = server.getManager().getServerConfiguration().getInt(
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PREPARED_STATEMENTS_PER_CONNECTION,
+                ServerConfiguration.PROPERTY_NETWORK_MAX_PREPARED_STATEMENTS_PER_CONNECTION_DEFAULT);
+        this.preparedStatements = Collections.synchronizedMap(new LinkedHashMap<Long, ServerSidePreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ServerSidePreparedStatement> eldest) {
+                return size() > maxPreparedStatements;
+            }
+        });
     }
 
     @Override
@@ -137,6 +155,23 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 handleExecuteStatements(message, _channel);
             }
             break;
+            case Message.TYPE_PREPARE_STATEMENT: {
+                if (!authenticated) {
+                    sendAuthRequiredError(_channel, message);
+                    break;
+                }
+                handlePrepareStatement(message, _channel);
+            }
+            break;
+            case Message.TYPE_UNPREPARE_STATEMENT: {
+                if (!authenticated) {
+                    sendAuthRequiredError(_channel, message);
+                    break;
+                }
+                Long statementId = (Long) message.parameters.get("statementId");
+                preparedStatements.remove(statementId);
+            }
+            break;
             case Message.TYPE_REQUEST_TABLESPACE_DUMP: {
                 if (!authenticated) {
                     sendAuthRequiredError(_channel, message);
@@ -161,6 +196,14 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 handlePushTableData(message, _channel);
             }
             break;
+            case Message.TYPE_BULK_LOAD: {
+                if (!authenticated) {
+                    sendAuthRequiredError(_channel, message);
+                    break;
+                }
+                handleBulkLoad(message, _channel);
+            }
+            break;
             case Message.TYPE_TABLE_RESTORE_FINISHED: {
                 if (!authenticated) {
                     sendAuthRequiredError(_channel, message);
@@ -210,6 +253,14 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 handleFetchScannerData(message, _channel);
             }
             break;
+            case Message.TYPE_SCANNER_CREDITS: {
+                if (!authenticated) {
+                    sendAuthRequiredError(_channel, message);
+                    break;
+                }
+                handleScannerCredits(message, _channel);
+            }
+            break;
 
             case Message.TYPE_CLOSESCANNER: {
                 if (!authenticated) {
@@ -316,6 +367,29 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
     }
 
+    private void handleBulkLoad(Message message, Channel _channel) {
+        Long tx = (Long) message.parameters.get("tx");
+        long txId = tx != null ? tx : TransactionContext.NOTRANSACTION_ID;
+        String tableSpace = (String) message.parameters.get("tableSpace");
+        String table = (String) message.parameters.get("table");
+        TuplesList data = (TuplesList) message.parameters.get("data");
+        try {
+            BulkInsertStatement statement = new BulkInsertStatement(tableSpace, table.toLowerCase(), data.columnNames, data.tuples);
+            StatementExecutionResult result = server
+                    .getManager()
+                    .executeStatement(statement, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), new TransactionContext(txId));
+            DMLStatementExecutionResult dml = (DMLStatementExecutionResult) result;
+            _channel.sendReplyMessage(message, Message.EXECUTE_STATEMENT_RESULT(dml.getUpdateCount(), null, dml.transactionId));
+        } catch (NotLeaderException err) {
+            _channel.sendReplyMessage(message, errorMessage(err));
+        } catch (StatementExecutionException err) {
+            _channel.sendReplyMessage(message, Message.ERROR(null, err));
+        } catch (RuntimeException err) {
+            LOGGER.log(Level.SEVERE, "unexpected error on bulk load of table " + table + " in tableSpace " + tableSpace, err);
+            _channel.sendReplyMessage(message, Message.ERROR(null, err));
+        }
+    }
+
     private void handlePushTxLogChunk(Message message, Channel _channel) {
         try {
             String tableSpace = (String) message.parameters.get("tableSpace");
@@ -361,11 +435,52 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
     }
 
+    private void handlePrepareStatement(Message message, Channel _channel) {
+        String tableSpace = (String) message.parameters.get("tableSpace");
+        String query = (String) message.parameters.get("query");
+        long statementId = preparedStatementsIdGenerator.incrementAndGet();
+        preparedStatements.put(statementId, new ServerSidePreparedStatement(statementId, tableSpace, query));
+        _channel.sendReplyMessage(message, Message.PREPARE_STATEMENT_RESULT(statementId));
+    }
+
+    @Override
+    public String resolveQuery(Message message) {
+        Long statementId = (Long) message.parameters.get("statementId");
+        if (statementId != null) {
+            ServerSidePreparedStatement prepared = preparedStatements.get(statementId);
+            return prepared != null ? prepared.getQuery() : null;
+        }
+        return (String) message.parameters.get("query");
+    }
+
+    private TranslatedQuery translate(Message message, String tableSpace, String query, List<Object> parameters,
+            boolean scan, boolean returnValues, int maxRows) throws StatementExecutionException {
+        Long statementId = (Long) message.parameters.get("statementId");
+        if (statementId == null) {
+            return server.getManager().getPlanner().translate(tableSpace, query, parameters, scan, true, returnValues, maxRows);
+        }
+        ServerSidePreparedStatement prepared = preparedStatements.get(statementId);
+        if (prepared == null) {
+            throw new MissingPreparedStatementException("no such prepared statement " + statementId + " on connection " + id);
+        }
+        return prepared.translate(server.getManager().getPlanner(), parameters, scan, returnValues, maxRows);
+    }
+
+    private static Message errorMessage(Throwable err) {
+        Message error = Message.ERROR(null, err);
+        if (err instanceof NotLeaderException) {
+            error.setParameter("notLeader", "true");
+        } else if (err instanceof MissingPreparedStatementException) {
+            error.setParameter("missingPreparedStatement", "true");
+        }
+        return error;
+    }
+
     private void handleOpenScanner(Message message, Channel _channel) {
         String tableSpace = (String) message.parameters.get("tableSpace");
         Long tx = (Long) message.parameters.get("tx");
         long txId = tx != null ? tx : 0;
-        String query = (String) message.parameters.get("query");
+        String query = resolveQuery(message);
         String scannerId = (String) message.parameters.get("scannerId");
         int fetchSize = 10;
         if (message.parameters.containsKey("fetchSize")) {
@@ -375,14 +490,20 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         if (message.parameters.containsKey("maxRows")) {
             maxRows = (Integer) message.parameters.get("maxRows");
         }
+        int credits = 0;
+        if (message.parameters.containsKey("credits")) {
+            credits = (Integer) message.parameters.get("credits");
+        }
         List<Object> parameters = (List<Object>) message.parameters.get("params");
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "openScanner txId+" + txId + ", fetchSize " + fetchSize + ", maxRows " + maxRows + "," + query + " with " + parameters);
         }
         try {
-            TranslatedQuery translatedQuery = server
-                    .getManager()
-                    .getPlanner().translate(tableSpace, query, parameters, true, true, false, maxRows);
+            TranslatedQuery translatedQuery = translate(message, tableSpace, query, parameters, true, false, maxRows);
+            Number maxFollowerLag = (Number) message.parameters.get("maxFollowerLag");
+            if (maxFollowerLag != null) {
+                translatedQuery.context.setMaxFollowerLag(maxFollowerLag.longValue());
+            }
 
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.log(Level.FINEST, query + " -> " + translatedQuery.plan.mainStatement);
@@ -396,7 +517,7 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 ScanResult scanResult = (ScanResult) server.getManager().executePlan(translatedQuery.plan, translatedQuery.context, transactionContext);
                 DataScanner dataScanner = scanResult.dataScanner;
 
-                ServerSideScannerPeer scanner = new ServerSideScannerPeer(dataScanner);
+                ServerSideScannerPeer scanner = new ServerSideScannerPeer(dataScanner, fetchSize);
 
                 String[] columns = dataScanner.getFieldNames();
                 List<DataAccessor> records = dataScanner.consume(fetchSize);
@@ -406,7 +527,16 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 if (!last) {
                     scanners.put(scannerId, scanner);
                 }
-                _channel.sendReplyMessage(message, Message.RESULTSET_CHUNK(null, scannerId, tuplesList, last, dataScanner.transactionId));
+                Message chunk = Message.RESULTSET_CHUNK(null, scannerId, tuplesList, last, dataScanner.transactionId);
+                if (!last && credits > 0) {
+                    // tell the client that next chunks will be pushed
+                    chunk.setParameter("credits", credits);
+                }
+                _channel.sendReplyMessage(message, chunk);
+                if (!last && credits > 0) {
+                    scanner.grantCredits(credits);
+                    pushChunks(scannerId, scanner, _channel);
+                }
             } else {
                 _channel.sendReplyMessage(message, Message.ERROR(null, new Exception("unsupported query type for scan " + query + ": PLAN is " + translatedQuery.plan)));
             }
@@ -414,11 +544,7 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
             LOGGER.log(Level.SEVERE, "error on scanner " + scannerId + ": " + err, err);
             scanners.remove(scannerId);
 
-            Message error = Message.ERROR(null, err);
-            if (err instanceof NotLeaderException) {
-                error.setParameter("notLeader", "true");
-            }
-            _channel.sendReplyMessage(message, error);
+            _channel.sendReplyMessage(message, errorMessage(err));
         }
     }
 
@@ -449,6 +575,62 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
     }
 
+    private void handleScannerCredits(Message message, Channel _channel) {
+        String scannerId = (String) message.parameters.get("scannerId");
+        int credits = (Integer) message.parameters.get("credits");
+        ServerSideScannerPeer scanner = scanners.get(scannerId);
+        if (scanner != null) {
+            scanner.grantCredits(credits);
+            pushChunks(scannerId, scanner, _channel);
+        }
+    }
+
+    /**
+     * Sends chunks to a streaming scanner as long as the client granted
+     * credits, the client replenishes credits while it consumes data
+     */
+    private void pushChunks(String scannerId, ServerSideScannerPeer scanner, Channel _channel) {
+        while (scanner.startPushing()) {
+            try {
+                while (scanner.takeCredit()) {
+                    DataScanner dataScanner = scanner.getScanner();
+                    List<DataAccessor> records = dataScanner.consume(scanner.getFetchSize());
+                    TuplesList tuplesList = new TuplesList(dataScanner.getFieldNames(), records);
+                    boolean last = dataScanner.isFinished();
+                    if (last) {
+                        LOGGER.log(Level.FINEST, "unregistering scanner {0}, resultset is finished", scannerId);
+                        scanners.remove(scannerId);
+                    }
+                    _channel.sendOneWayMessage(Message.RESULTSET_CHUNK(null, scannerId, tuplesList, last,
+                            dataScanner.transactionId, scanner.nextSequence()), (Message originalMessage, Throwable error) -> {
+                        if (error != null) {
+                            LOGGER.log(Level.SEVERE, "error while pushing data to scanner " + scannerId + ": " + error, error);
+                        }
+                    });
+                    if (last) {
+                        return;
+                    }
+                }
+            } catch (DataScannerException | RuntimeException err) {
+                LOGGER.log(Level.SEVERE, "error on scanner " + scannerId + ": " + err, err);
+                scanners.remove(scannerId);
+                scanner.close();
+                _channel.sendOneWayMessage(errorMessage(err).setParameter("scannerId", scannerId), (Message originalMessage, Throwable error) -> {
+                    if (error != null) {
+                        LOGGER.log(Level.SEVERE, "error while pushing error to scanner " + scannerId + ": " + error, error);
+                    }
+                });
+                return;
+            } finally {
+                scanner.stopPushing();
+            }
+            // credits may have been granted while we were releasing the scanner
+            if (!scanner.hasCredits()) {
+                return;
+            }
+        }
+    }
+
     private void handleCloseScanner(Message message, Channel _channel) {
         String scannerId = (String) message.parameters.get("scannerId");
         LOGGER.log(Level.SEVERE, "remove scanner " + scannerId + " as requested by client");
@@ -474,14 +656,18 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
         String tableSpace = (String) message.parameters.get("tableSpace");
         boolean includeTransactionLog = (Boolean) message.parameters.get("includeTransactionLog");
-        server.getManager().dumpTableSpace(tableSpace, dumpId, message, _channel, fetchSize, includeTransactionLog);
+        int parallelism = 1;
+        if (message.parameters.containsKey("parallelism")) {
+            parallelism = (Integer) message.parameters.get("parallelism");
+        }
+        server.getManager().dumpTableSpace(tableSpace, dumpId, message, _channel, fetchSize, includeTransactionLog, parallelism);
     }
 
     private void handleExecuteStatements(Message message, Channel _channel) {
         Long tx = (Long) message.parameters.get("tx");
         long txId = tx != null ? tx : TransactionContext.NOTRANSACTION_ID;
         long transactionId = txId;
-        String query = (String) message.parameters.get("query");
+        String query = resolveQuery(message);
         String tableSpace = (String) message.parameters.get("tableSpace");
         Boolean returnValues = (Boolean) message.parameters.get("returnValues");
         if (returnValues == null) {
@@ -496,9 +682,7 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 List<Object> parameters = batch.get(i);
 
                 TransactionContext transactionContext = new TransactionContext(transactionId);
-                TranslatedQuery translatedQuery = server
-                        .getManager()
-                        .getPlanner().translate(tableSpace, query, parameters, false, true, returnValues, -1);
+                TranslatedQuery translatedQuery = translate(message, tableSpace, query, parameters, false, returnValues, -1);
                 Statement statement = translatedQuery.plan.mainStatement;
 
                 StatementExecutionResult result = server.getManager().executePlan(translatedQuery.plan, translatedQuery.context, transactionContext);
@@ -523,24 +707,29 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                     }
                     updateCounts.add(Long.valueOf(dml.getUpdateCount()));
                     otherDatas.add(otherData);
+                } else if (result instanceof GetResult) {
+                    GetResult get = (GetResult) result;
+                    if (get.found()) {
+                        updateCounts.add(1L);
+                        otherDatas.add(get.getRecord().toBean(get.getTable()));
+                    } else {
+                        updateCounts.add(0L);
+                        otherDatas.add(Collections.emptyMap());
+                    }
                 } else {
                     _channel.sendReplyMessage(message, Message.ERROR(null, new Exception("bad result type " + result.getClass() + " (" + result + ")")));
                 }
             }
             _channel.sendReplyMessage(message, Message.EXECUTE_STATEMENT_RESULTS(updateCounts, otherDatas, transactionId));
         } catch (HerdDBInternalException err) {
-            Message error = Message.ERROR(null, err);
-            if (err instanceof NotLeaderException) {
-                error.setParameter("notLeader", "true");
-            }
-            _channel.sendReplyMessage(message, error);
+            _channel.sendReplyMessage(message, errorMessage(err));
         }
     }
 
     private void handleExecuteStatement(Message message, Channel _channel) {
         Long tx = (Long) message.parameters.get("tx");
         long txId = tx != null ? tx : TransactionContext.NOTRANSACTION_ID;
-        String query = (String) message.parameters.get("query");
+        String query = resolveQuery(message);
         String tableSpace = (String) message.parameters.get("tableSpace");
         Boolean returnValues = (Boolean) message.parameters.get("returnValues");
         if (returnValues == null) {
@@ -552,8 +741,7 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
         try {
             TransactionContext transactionContext = new TransactionContext(txId);
-            TranslatedQuery translatedQuery = server.getManager().getPlanner().translate(tableSpace,
-                    query, parameters, false, true, returnValues, -1);
+            TranslatedQuery translatedQuery = translate(message, tableSpace, query, parameters, false, returnValues, -1);
             Statement statement = translatedQuery.plan.mainStatement;
 //                    LOGGER.log(Level.SEVERE, "query " + query + ", " + parameters + ", plan: " + translatedQuery.plan);
             StatementExecutionResult result = server
@@ -616,10 +804,8 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
             LOGGER.log(Level.SEVERE, "error on query " + query + ", parameters: " + parameters + ": err", err);
             Message error = Message.ERROR(null, err);
             _channel.sendReplyMessage(message, error);
-        } catch (NotLeaderException err) {
-            Message error = Message.ERROR(null, err);
-            error.setParameter("notLeader", "true");
-            _channel.sendReplyMessage(message, error);
+        } catch (NotLeaderException | MissingPreparedStatementException err) {
+            _channel.sendReplyMessage(message, errorMessage(err));
         } catch (StatementExecutionException err) {
             Message error = Message.ERROR(null, err);
             _channel.sendReplyMessage(message, error);
@@ -670,8 +856,24 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
                 saslNettyServer = new SaslNettyServer(server, mech);
             }
             byte[] responseToken = saslNettyServer.response(token);
-            Message tokenChallenge = Message.SASL_TOKEN_SERVER_RESPONSE(responseToken);
+            // old clients do not send any version, so we stay on the first version
+            Integer clientProtocolVersion = (Integer) message.parameters.get("protocolVersion");
+            int protocolVersion = Message.PROTOCOL_VERSION_1;
+            if (clientProtocolVersion != null) {
+                protocolVersion = Math.min(clientProtocolVersion, Message.PROTOCOL_VERSION_MAX);
+            }
+            Message tokenChallenge = Message.SASL_TOKEN_SERVER_RESPONSE(responseToken, protocolVersion);
+            // old clients do not send any threshold, they are not able to decode compressed frames
+            Integer compressionThreshold = (Integer) message.parameters.get("compressionThreshold");
+            if (compressionThreshold != null && compressionThreshold > 0 && server.isNetworkCompressionEnabled()) {
+                tokenChallenge.setParameter("compressionThreshold", compressionThreshold);
+            } else {
+                compressionThreshold = 0;
+            }
             _channel.sendReplyMessage(message, tokenChallenge);
+            // the client is able to decode every version up to the one it proposed
+            _channel.setProtocolVersion(protocolVersion);
+            _channel.setCompressionThreshold(compressionThreshold);
         } catch (Exception err) {
             Message error = Message.ERROR(null, err);
             _channel.sendReplyMessage(message, error);
@@ -706,6 +908,11 @@ public class ServerSideConnectionPeer implements ServerSideConnection, ChannelEv
         }
         scanners.values().forEach(s -> s.close());
         scanners.clear();
+        preparedStatements.clear();
+    }
+
+    int getPreparedStatementsCount() {
+        return preparedStatements.size();
     }
 
     ConnectionsInfo.ConnectionInfo toConnectionInfo() {
@@ -0,0 +1,114 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import herddb.model.ExecutionPlan;
+import herddb.model.StatementExecutionException;
+import herddb.model.TableAwareStatement;
+import herddb.model.commands.SQLPlannedOperationStatement;
+import herddb.model.commands.TruncateTableStatement;
+import herddb.sql.AbstractSQLPlanner;
+import herddb.sql.SQLStatementEvaluationContext;
+import herddb.sql.TranslatedQuery;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A statement prepared by a client. The first execution binds the statement to
+ * its execution plan, following executions skip the lookup in the plans cache
+ * until cached plans are invalidated (for instance by DDL).
+ *
+ * @author enrico.olivelli
+ */
+public class ServerSidePreparedStatement {
+
+    private final long id;
+    private final String tableSpace;
+    private final String query;
+    private volatile BoundPlan boundPlan;
+
+    private static final class BoundPlan {
+
+        private final ExecutionPlan plan;
+        private final long generation;
+        private final boolean scan;
+        private final boolean returnValues;
+        private final int maxRows;
+
+        private BoundPlan(ExecutionPlan plan, long generation, boolean scan, boolean returnValues, int maxRows) {
+            this.plan = plan;
+            this.generation = generation;
+            this.scan = scan;
+            this.returnValues = returnValues;
+            this.maxRows = maxRows;
+        }
+
+        private boolean matches(long generation, boolean scan, boolean returnValues, int maxRows) {
+            return this.generation == generation
+                && this.scan == scan
+                && this.returnValues == returnValues
+                && this.maxRows == maxRows;
+        }
+    }
+
+    public ServerSidePreparedStatement(long id, String tableSpace, String query) {
+        this.id = id;
+        this.tableSpace = tableSpace;
+        this.query = query;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTableSpace() {
+        return tableSpace;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public TranslatedQuery translate(AbstractSQLPlanner planner, List<Object> parameters,
+        boolean scan, boolean returnValues, int maxRows) throws StatementExecutionException {
+        if (parameters == null) {
+            parameters = Collections.emptyList();
+        }
+        // read the generation before planning, a concurrent invalidation will force a new translation
+        long generation = planner.getCacheGeneration();
+        BoundPlan current = boundPlan;
+        if (current != null && current.matches(generation, scan, returnValues, maxRows)) {
+            return new TranslatedQuery(current.plan, new SQLStatementEvaluationContext(query, parameters));
+        }
+        TranslatedQuery translated = planner.translate(tableSpace, query, parameters, scan, true, returnValues, maxRows);
+        if (isReusable(translated.plan)) {
+            boundPlan = new BoundPlan(translated.plan, generation, scan, returnValues, maxRows);
+        }
+        return translated;
+    }
+
+    private static boolean isReusable(ExecutionPlan plan) {
+        // only plans which do not depend on parameter values, the same ones which are kept in the plans cache
+        return plan.mainStatement instanceof SQLPlannedOperationStatement
+            || (plan.mainStatement instanceof TableAwareStatement
+            && !(plan.mainStatement instanceof TruncateTableStatement));
+    }
+
+}
@@ -21,6 +21,8 @@ package herddb.server;
 
 import herddb.model.DataScanner;
 import herddb.model.DataScannerException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,25 +34,93 @@ import java.util.logging.Logger;
 public class ServerSideScannerPeer implements AutoCloseable {
 
     private final DataScanner scanner;
+    private final int fetchSize;
+
+    /**
+     * Chunks the server may push to the client without waiting for a request
+     */
+    private final AtomicInteger credits = new AtomicInteger();
+    /**
+     * Owned by the thread which is pushing data, or by the one which closed
+     * the scanner
+     */
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean closeRequested;
+    private long sequence;
 
     public ServerSideScannerPeer(DataScanner scanner) {
+        this(scanner, 0);
+    }
+
+    public ServerSideScannerPeer(DataScanner scanner, int fetchSize) {
         this.scanner = scanner;
+        this.fetchSize = fetchSize;
     }
 
     public DataScanner getScanner() {
         return scanner;
     }
 
-    public void clientClose() {
-        try {
-            scanner.close();
-        } catch (DataScannerException ex) {
-            LOG.log(Level.SEVERE, "error con closing scanner " + ex, ex);
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void grantCredits(int count) {
+        credits.addAndGet(count);
+    }
+
+    boolean hasCredits() {
+        return credits.get() > 0 && !closeRequested;
+    }
+
+    boolean takeCredit() {
+        while (!closeRequested) {
+            int actual = credits.get();
+            if (actual <= 0) {
+                return false;
+            }
+            if (credits.compareAndSet(actual, actual - 1)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Only one thread at a time may push data
+     */
+    boolean startPushing() {
+        return busy.compareAndSet(false, true);
+    }
+
+    void stopPushing() {
+        busy.set(false);
+        if (closeRequested && busy.compareAndSet(false, true)) {
+            closeScanner();
+        }
+    }
+
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    public void clientClose() {
+        close();
     }
     private static final Logger LOG = Logger.getLogger(ServerSideScannerPeer.class.getName());
 
+    /**
+     * Closes the scanner, if some thread is pushing data the scanner will be
+     * closed as soon as it stops
+     */
     public void close() {
+        closeRequested = true;
+        if (busy.compareAndSet(false, true)) {
+            closeScanner();
+        }
+    }
+
+    private void closeScanner() {
         try {
             scanner.close();
         } catch (DataScannerException ex) {
@@ -38,6 +38,14 @@ public interface AbstractSQLPlanner {
 
     long getCacheSize();
 
+    /**
+     * Generation of the plans cache, it changes every time cached plans are
+     * invalidated, for instance on DDL.
+     *
+     * @return current generation
+     */
+    long getCacheGeneration();
+
     ExecutionPlan plan(String defaultTableSpace, Statement stmt, boolean scan, boolean returnValues, int maxRows);
 
     TranslatedQuery translate(String defaultTableSpace, String query, List<Object> parameters, boolean scan, boolean allowCache, boolean returnValues, int maxRows) throws StatementExecutionException;
@@ -33,5 +33,27 @@ public interface AggregatedColumnCalculator {
     public String getFieldName();
 
     public void consume(herddb.utils.DataAccessor tuple) throws StatementExecutionException;
-    
+
+    /**
+     * Tells whether partial results computed by independent instances of
+     * this calculator can be combined using {@link #merge(herddb.sql.AggregatedColumnCalculator)}
+     *
+     * @return true if the calculator supports partial aggregation
+     */
+    public default boolean isMergeable() {
+        return false;
+    }
+
+    /**
+     * Merges the partial result of another calculator of the same type into
+     * this one
+     *
+     * @param other a calculator which consumed a disjoint set of tuples
+     * @throws StatementExecutionException
+     * @see #isMergeable()
+     */
+    public default void merge(AggregatedColumnCalculator other) throws StatementExecutionException {
+        throw new StatementExecutionException("partial aggregation not supported by " + getClass().getName());
+    }
+
 }
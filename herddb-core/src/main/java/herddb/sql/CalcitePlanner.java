@@ -103,9 +103,11 @@ import herddb.core.AbstractTableManager;
 import herddb.core.DBManager;
 import herddb.core.TableSpaceManager;
 import herddb.index.IndexOperation;
+import herddb.index.PrimaryIndexMultiSeek;
 import herddb.index.PrimaryIndexPrefixScan;
 import herddb.index.PrimaryIndexRangeScan;
 import herddb.index.PrimaryIndexSeek;
+import herddb.index.SecondaryIndexMultiSeek;
 import herddb.index.SecondaryIndexPrefixScan;
 import herddb.index.SecondaryIndexRangeScan;
 import herddb.index.SecondaryIndexSeek;
@@ -150,6 +152,7 @@ import herddb.model.planner.ValuesOp;
 import herddb.sql.expressions.AccessCurrentRowExpression;
 import herddb.sql.expressions.BindableTableScanColumnNameResolver;
 import herddb.sql.expressions.CompiledMultiAndExpression;
+import herddb.sql.expressions.CompiledMultiOrExpression;
 import herddb.sql.expressions.CompiledSQLExpression;
 import herddb.sql.expressions.ConstantExpression;
 import herddb.sql.expressions.JdbcParameterExpression;
@@ -188,6 +191,11 @@ public class CalcitePlanner implements AbstractSQLPlanner {
         return cache.getCacheSize();
     }
 
+    @Override
+    public long getCacheGeneration() {
+        return cache.getGeneration();
+    }
+
     @Override
     public long getCacheHits() {
         return cache.getCacheHits();
@@ -1029,6 +1037,10 @@ public class CalcitePlanner implements AbstractSQLPlanner {
             argLists.add(call.getArgList());
         }
         PlannerOp input = convertRelNode(op.getInput(), null, returnValues);
+        if (input instanceof ProjectOp && ((ProjectOp) input).getInput() instanceof TableScanOp) {
+            // merge the projection into the scan, the aggregation can then be computed with a parallel scan
+            input = input.optimize();
+        }
         return new AggregateOp(input, fieldnames, columns, aggtypes, argLists, groupedFiledsIndexes);
     }
 
@@ -1079,9 +1091,45 @@ public class CalcitePlanner implements AbstractSQLPlanner {
         return new SQLRecordKeyFunction(columns, expressions, table);
     }
 
+    /**
+     * Looks for a disjunction of equalities on all the given columns, like the
+     * ones generated by Calcite for IN-lists, at top level or as a term of a
+     * conjunction.
+     *
+     * @return one key function for each term of the disjunction, or null
+     */
+    private static SQLRecordKeyFunction[] findMultiIndexAccess(CompiledSQLExpression where,
+            String[] columnsToMatch, ColumnsList table,
+            BindableTableScanColumnNameResolver res) throws StatementExecutionException {
+        if (where instanceof CompiledMultiAndExpression) {
+            for (CompiledSQLExpression operand : ((CompiledMultiAndExpression) where).getOperands()) {
+                SQLRecordKeyFunction[] result = findMultiIndexAccess(operand, columnsToMatch, table, res);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+        if (!(where instanceof CompiledMultiOrExpression)) {
+            return null;
+        }
+        CompiledSQLExpression[] operands = ((CompiledMultiOrExpression) where).getOperands();
+        SQLRecordKeyFunction[] result = new SQLRecordKeyFunction[operands.length];
+        for (int i = 0; i < operands.length; i++) {
+            SQLRecordKeyFunction keyFunction = findIndexAccess(operands[i], columnsToMatch, table, "=", res);
+            if (keyFunction == null || !keyFunction.isFullPrimaryKey()) {
+                return null;
+            }
+            result[i] = keyFunction;
+        }
+        return result;
+    }
+
     private IndexOperation scanForIndexAccess(CompiledSQLExpression expressionWhere, Table table, TableSpaceManager tableSpaceManager) {
         SQLRecordKeyFunction keyFunction = findIndexAccess(expressionWhere, table.primaryKey, table,
                 "=", table);
+        SQLRecordKeyFunction[] multiKeyFunction = keyFunction == null
+                ? findMultiIndexAccess(expressionWhere, table.primaryKey, table, table) : null;
         IndexOperation result = null;
         if (keyFunction != null) {
             if (keyFunction.isFullPrimaryKey()) {
@@ -1089,6 +1137,8 @@ public class CalcitePlanner implements AbstractSQLPlanner {
             } else {
                 result = new PrimaryIndexPrefixScan(keyFunction);
             }
+        } else if (multiKeyFunction != null) {
+            result = new PrimaryIndexMultiSeek(multiKeyFunction);
         } else {
             SQLRecordKeyFunction rangeMin = findIndexAccess(expressionWhere, table.primaryKey,
                     table, ">=", table
@@ -1145,12 +1195,16 @@ public class CalcitePlanner implements AbstractSQLPlanner {
         String[] columnsToMatch = index.getColumnNames();
         SQLRecordKeyFunction indexSeekFunction = findIndexAccess(where, columnsToMatch,
                 index.getIndex(), "=", table);
+        SQLRecordKeyFunction[] indexSeekFunctions = indexSeekFunction == null
+                ? findMultiIndexAccess(where, columnsToMatch, index.getIndex(), table) : null;
         if (indexSeekFunction != null) {
             if (indexSeekFunction.isFullPrimaryKey()) {
                 secondaryIndexOperation = new SecondaryIndexSeek(index.getIndexName(), columnsToMatch, indexSeekFunction);
             } else {
                 secondaryIndexOperation = new SecondaryIndexPrefixScan(index.getIndexName(), columnsToMatch, indexSeekFunction);
             }
+        } else if (indexSeekFunctions != null) {
+            secondaryIndexOperation = new SecondaryIndexMultiSeek(index.getIndexName(), columnsToMatch, indexSeekFunctions);
         } else {
             SQLRecordKeyFunction rangeMin = findIndexAccess(where, columnsToMatch,
                     index.getIndex(), ">=", table);
@@ -43,6 +43,7 @@ public class PlansCache {
     private static final Logger LOG = Logger.getLogger(PlansCache.class.getName());
 
     private final Cache<String, ExecutionPlanContainer> cache;
+    private final AtomicLong generation = new AtomicLong();
 
     private static final boolean KRYO_AVAILABLE;
 
@@ -141,7 +142,18 @@ public class PlansCache {
     }
 
     public void clear() {
+        this.generation.incrementAndGet();
         this.cache.invalidateAll();
     }
 
+    /**
+     * Counts the invalidations of this cache, a plan obtained before the
+     * current generation may refer to a stale schema.
+     *
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
 }
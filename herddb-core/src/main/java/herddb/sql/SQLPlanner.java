@@ -37,9 +37,11 @@ import herddb.core.AbstractTableManager;
 import herddb.core.DBManager;
 import herddb.core.TableSpaceManager;
 import herddb.index.IndexOperation;
+import herddb.index.PrimaryIndexMultiSeek;
 import herddb.index.PrimaryIndexPrefixScan;
 import herddb.index.PrimaryIndexRangeScan;
 import herddb.index.PrimaryIndexSeek;
+import herddb.index.SecondaryIndexMultiSeek;
 import herddb.index.SecondaryIndexPrefixScan;
 import herddb.index.SecondaryIndexRangeScan;
 import herddb.index.SecondaryIndexSeek;
@@ -91,14 +93,18 @@ import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NullValue;
+import net.sf.jsqlparser.expression.Parenthesis;
 import net.sf.jsqlparser.expression.SignedExpression;
 import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.expression.TimestampValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
 import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
 import net.sf.jsqlparser.expression.operators.relational.ItemsList;
 import net.sf.jsqlparser.expression.operators.relational.MinorThan;
 import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
@@ -142,6 +148,11 @@ public class SQLPlanner implements AbstractSQLPlanner {
         return cache.getCacheSize();
     }
 
+    @Override
+    public long getCacheGeneration() {
+        return cache.getGeneration();
+    }
+
     @Override
     public long getCacheHits() {
         return cache.getCacheHits();
@@ -800,6 +811,8 @@ public class SQLPlanner implements AbstractSQLPlanner {
 
     private void discoverIndexOperations(Expression expressionWhere, Table table, String mainTableAlias, SQLRecordPredicate where, TableSpaceManager tableSpaceManager) throws StatementExecutionException {
         SQLRecordKeyFunction keyFunction = findIndexAccess(expressionWhere, table.primaryKey, table, mainTableAlias, EqualsTo.class);
+        SQLRecordKeyFunction[] multiKeyFunction = keyFunction == null
+            ? findMultiIndexAccess(expressionWhere, table.primaryKey, table, mainTableAlias) : null;
         IndexOperation result = null;
         if (keyFunction != null) {
             if (keyFunction.isFullPrimaryKey()) {
@@ -807,6 +820,8 @@ public class SQLPlanner implements AbstractSQLPlanner {
             } else {
                 result = new PrimaryIndexPrefixScan(keyFunction);
             }
+        } else if (multiKeyFunction != null) {
+            result = new PrimaryIndexMultiSeek(multiKeyFunction);
         } else {
             SQLRecordKeyFunction rangeMin = findIndexAccess(expressionWhere, table.primaryKey,
                 table, mainTableAlias, GreaterThanEquals.class
@@ -990,6 +1005,80 @@ public class SQLPlanner implements AbstractSQLPlanner {
         return new SQLRecordKeyFunction(table, columns, expressions);
     }
 
+    /**
+     * Looks for an IN-list or a disjunction of equalities on all the given
+     * columns, at top level or as a term of a conjunction.
+     *
+     * @return one key function for each value to look up, or null
+     */
+    private static SQLRecordKeyFunction[] findMultiIndexAccess(Expression where, String[] columnsToMatch, ColumnsList table, String tableAlias) throws StatementExecutionException {
+        if (where instanceof AndExpression) {
+            AndExpression and = (AndExpression) where;
+            SQLRecordKeyFunction[] keysOnLeft = findMultiIndexAccess(and.getLeftExpression(), columnsToMatch, table, tableAlias);
+            if (keysOnLeft != null) {
+                return keysOnLeft;
+            }
+            return findMultiIndexAccess(and.getRightExpression(), columnsToMatch, table, tableAlias);
+        } else if (where instanceof Parenthesis) {
+            Parenthesis parenthesis = (Parenthesis) where;
+            if (parenthesis.isNot()) {
+                return null;
+            }
+            return findMultiIndexAccess(parenthesis.getExpression(), columnsToMatch, table, tableAlias);
+        } else if (where instanceof InExpression) {
+            InExpression in = (InExpression) where;
+            if (in.isNot()
+                || columnsToMatch.length != 1
+                || !(in.getLeftExpression() instanceof net.sf.jsqlparser.schema.Column)
+                || !(in.getRightItemsList() instanceof ExpressionList)) {
+                return null;
+            }
+            net.sf.jsqlparser.schema.Column c = (net.sf.jsqlparser.schema.Column) in.getLeftExpression();
+            if (c.getTable() != null && c.getTable().getName() != null && !c.getTable().getName().equals(tableAlias)) {
+                return null;
+            }
+            if (!columnsToMatch[0].equalsIgnoreCase(c.getColumnName())) {
+                return null;
+            }
+            List<Expression> values = ((ExpressionList) in.getRightItemsList()).getExpressions();
+            SQLRecordKeyFunction[] result = new SQLRecordKeyFunction[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                Expression value = values.get(i);
+                if (value instanceof NullValue || !SQLRecordPredicate.isConstant(value)) {
+                    return null;
+                }
+                result[i] = new SQLRecordKeyFunction(table, Collections.singletonList(columnsToMatch[0]),
+                    Collections.singletonList(value));
+            }
+            return result;
+        } else if (where instanceof OrExpression) {
+            List<Expression> terms = new ArrayList<>();
+            collectDisjunctionTerms(where, terms);
+            SQLRecordKeyFunction[] result = new SQLRecordKeyFunction[terms.size()];
+            for (int i = 0; i < result.length; i++) {
+                SQLRecordKeyFunction keyFunction = findIndexAccess(terms.get(i), columnsToMatch, table, tableAlias, EqualsTo.class);
+                if (keyFunction == null || !keyFunction.isFullPrimaryKey()) {
+                    return null;
+                }
+                result[i] = keyFunction;
+            }
+            return result;
+        }
+        return null;
+    }
+
+    private static void collectDisjunctionTerms(Expression where, List<Expression> terms) {
+        if (where instanceof OrExpression) {
+            OrExpression or = (OrExpression) where;
+            collectDisjunctionTerms(or.getLeftExpression(), terms);
+            collectDisjunctionTerms(or.getRightExpression(), terms);
+        } else if (where instanceof Parenthesis && !((Parenthesis) where).isNot()) {
+            collectDisjunctionTerms(((Parenthesis) where).getExpression(), terms);
+        } else {
+            terms.add(where);
+        }
+    }
+
     private static Object resolveValue(Expression expression, boolean allowColumn) throws StatementExecutionException {
         if (expression instanceof JdbcParameter) {
             throw new StatementExecutionException("jdbcparameter expression not usable in this query");
@@ -1530,12 +1619,16 @@ public class SQLPlanner implements AbstractSQLPlanner {
             table.name,
             EqualsTo.class
         );
+        SQLRecordKeyFunction[] indexSeekFunctions = indexSeekFunction == null
+            ? findMultiIndexAccess(where, columnsToMatch, index.getIndex(), table.name) : null;
         if (indexSeekFunction != null) {
             if (indexSeekFunction.isFullPrimaryKey()) {
                 secondaryIndexOperation = new SecondaryIndexSeek(index.getIndexName(), columnsToMatch, indexSeekFunction);
             } else {
                 secondaryIndexOperation = new SecondaryIndexPrefixScan(index.getIndexName(), columnsToMatch, indexSeekFunction);
             }
+        } else if (indexSeekFunctions != null) {
+            secondaryIndexOperation = new SecondaryIndexMultiSeek(index.getIndexName(), columnsToMatch, indexSeekFunctions);
         } else {
             SQLRecordKeyFunction rangeMin = findIndexAccess(where, columnsToMatch,
                 index.getIndex(),
@@ -39,9 +39,11 @@ import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.NullValue;
 import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.expression.TimestampValue;
+import herddb.sql.expressions.AdaptiveSQLExpression;
 import herddb.sql.expressions.SQLExpressionCompiler;
 import herddb.sql.expressions.CompiledSQLExpression;
 import herddb.sql.expressions.ConstantExpression;
+import herddb.sql.expressions.RawRecordFilter;
 import herddb.utils.DataAccessor;
 
 /**
@@ -68,18 +70,24 @@ public class SQLRecordPredicate extends Predicate implements TuplePredicate {
     private final Table table;
     private final String validatedTableAlias;
     private final CompiledSQLExpression where;
+    private final CompiledSQLExpression evaluator;
+    private final RawRecordFilter rawFilter;
     private CompiledSQLExpression primaryKeyFilter;
 
     public SQLRecordPredicate(Table table, String tableAlias, Expression where) {
         this.table = table;
         this.validatedTableAlias = tableAlias;
         this.where = SQLExpressionCompiler.compileExpression(validatedTableAlias, where);
+        this.evaluator = AdaptiveSQLExpression.wrap(this.where, table != null ? table.columns : null);
+        this.rawFilter = RawRecordFilter.build(this.where, table);
     }
 
     public SQLRecordPredicate(Table table, String tableAlias, CompiledSQLExpression where) {
         this.table = table;
         this.validatedTableAlias = tableAlias;
         this.where = where;
+        this.evaluator = AdaptiveSQLExpression.wrap(where, table != null ? table.columns : null);
+        this.rawFilter = RawRecordFilter.build(where, table);
     }
 
     @Override
@@ -102,13 +110,20 @@ public class SQLRecordPredicate extends Predicate implements TuplePredicate {
 
     @Override
     public boolean matches(Tuple a, StatementEvaluationContext context) throws StatementExecutionException {
-        return toBoolean(where.evaluate(a, context));
+        return toBoolean(evaluator.evaluate(a, context));
     }
 
     @Override
     public boolean evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException {
+        if (rawFilter != null) {
+            // try to decide without deserializing the record
+            int res = rawFilter.evaluate(record, context);
+            if (res != RawRecordFilter.UNKNOWN) {
+                return res == RawRecordFilter.TRUE;
+            }
+        }
         DataAccessor bean = record.getDataAccessor(table);
-        return toBoolean(where.evaluate(bean, context));
+        return toBoolean(evaluator.evaluate(bean, context));
     }
 
     @Override
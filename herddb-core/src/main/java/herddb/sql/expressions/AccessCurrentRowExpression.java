@@ -23,6 +23,7 @@ import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.utils.DataAccessor;
 import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * reference to downstrean inputs in the pipeline
@@ -61,4 +62,10 @@ public class AccessCurrentRowExpression implements CompiledSQLExpression {
         return new AccessCurrentRowExpression(_index);
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        columns.set(index);
+        return true;
+    }
+
 }
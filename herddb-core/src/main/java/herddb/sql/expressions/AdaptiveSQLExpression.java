@@ -0,0 +1,147 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.model.Column;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.StatementExecutionException;
+import herddb.utils.DataAccessor;
+import herddb.utils.SystemProperties;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Evaluates an expression using the interpreter and switches to generated
+ * code once the expression has been evaluated enough times. Expressions are
+ * stored inside cached execution plans, so compilation happens at most once
+ * per plan and only for plans which are actually hot.
+ *
+ * @author enrico.olivelli
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP2"})
+public final class AdaptiveSQLExpression implements CompiledSQLExpression {
+
+    private static final boolean ENABLED = SystemProperties.
+            getBooleanSystemProperty("herddb.sql.expressions.jit.enabled", true);
+
+    private static final int THRESHOLD = SystemProperties.
+            getIntSystemProperty("herddb.sql.expressions.jit.threshold", 10000);
+
+    private final CompiledSQLExpression original;
+    private final Column[] schema;
+    // generated classes must not be visited while estimating the size of cached plans
+    private transient volatile CompiledSQLExpression current;
+    private volatile boolean compilationDone;
+    // this counter is not thread safe, we only need an approximation
+    private transient int evaluations;
+
+    private AdaptiveSQLExpression(CompiledSQLExpression original, Column[] schema) {
+        this.original = original;
+        this.schema = schema;
+        this.current = original;
+    }
+
+    /**
+     * Wraps an expression in order to compile it once it gets hot.
+     *
+     * @param expression the expression
+     * @param schema the schema of the tuples which will be evaluated, it can
+     * be null
+     * @return the wrapped expression, or the expression itself if it is not
+     * worth compiling it
+     */
+    public static CompiledSQLExpression wrap(CompiledSQLExpression expression, Column[] schema) {
+        if (!ENABLED
+                || expression == null
+                || expression instanceof AdaptiveSQLExpression
+                || expression instanceof AccessCurrentRowExpression
+                || expression instanceof ConstantExpression
+                || expression instanceof JdbcParameterExpression
+                || expression instanceof TypedJdbcParameterExpression) {
+            return expression;
+        }
+        return new AdaptiveSQLExpression(expression, schema);
+    }
+
+    @Override
+    public Object evaluate(DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
+        if (!compilationDone && ++evaluations >= THRESHOLD) {
+            compile();
+        }
+        return current.evaluate(bean, context);
+    }
+
+    private synchronized void compile() {
+        if (compilationDone) {
+            return;
+        }
+        CompiledSQLExpression compiled = SQLExpressionJITCompiler.compile(original, schema);
+        if (compiled != null) {
+            current = compiled;
+        }
+        // in case of failure we are not going to try again
+        compilationDone = true;
+    }
+
+    public CompiledSQLExpression getOriginal() {
+        return original;
+    }
+
+    boolean isCompiled() {
+        return current != original;
+    }
+
+    @Override
+    public void validate(StatementEvaluationContext context) throws StatementExecutionException {
+        original.validate(context);
+    }
+
+    @Override
+    public List<CompiledSQLExpression> scanForConstraintedValueOnColumnWithOperator(String column, String operator, BindableTableScanColumnNameResolver columnNameResolver) {
+        return original.scanForConstraintedValueOnColumnWithOperator(column, operator, columnNameResolver);
+    }
+
+    @Override
+    public List<CompiledSQLExpression> scanForConstraintsOnColumn(String column, BindableTableScanColumnNameResolver columnNameResolver) {
+        return original.scanForConstraintsOnColumn(column, columnNameResolver);
+    }
+
+    @Override
+    public CompiledSQLExpression cast(int type) {
+        return original.cast(type);
+    }
+
+    @Override
+    public CompiledSQLExpression remapPositionalAccessToToPrimaryKeyAccessor(int[] projection) {
+        return original.remapPositionalAccessToToPrimaryKeyAccessor(projection);
+    }
+
+    @Override
+    public String toString() {
+        return "Adaptive{" + original + '}';
+    }
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return original.collectAccessedColumns(columns);
+    }
+
+}
@@ -23,6 +23,7 @@ import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
 import herddb.utils.DataAccessor;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -40,6 +41,14 @@ public class CastExpression implements CompiledSQLExpression {
         this.type = type;
     }
 
+    public CompiledSQLExpression getWrapped() {
+        return wrapped;
+    }
+
+    public int getType() {
+        return type;
+    }
+
     @Override
     public Object evaluate(DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         return SQLRecordPredicate.cast(wrapped.evaluate(bean, context), type);
@@ -71,4 +80,9 @@ public class CastExpression implements CompiledSQLExpression {
                 type);
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return wrapped.collectAccessedColumns(columns);
+    }
+
 }
@@ -25,6 +25,7 @@ import static herddb.sql.SQLRecordPredicate.compare;
 import static herddb.sql.SQLRecordPredicate.objectEquals;
 import static herddb.sql.expressions.SQLExpressionCompiler.compileExpression;
 import net.sf.jsqlparser.expression.operators.relational.Between;
+import java.util.BitSet;
 
 public class CompiledBetweenExpression implements CompiledSQLExpression {
 
@@ -40,6 +41,22 @@ public class CompiledBetweenExpression implements CompiledSQLExpression {
         this.not = not;
     }
 
+    public CompiledSQLExpression getLeft() {
+        return left;
+    }
+
+    public CompiledSQLExpression getStart() {
+        return start;
+    }
+
+    public CompiledSQLExpression getEnd() {
+        return end;
+    }
+
+    public boolean isNot() {
+        return not;
+    }
+
     public static CompiledSQLExpression create(String validatedTableAlias, Between b) {
         CompiledSQLExpression left = compileExpression(validatedTableAlias, b.getLeftExpression());
         if (left == null) {
@@ -89,4 +106,11 @@ public class CompiledBetweenExpression implements CompiledSQLExpression {
                 end.remapPositionalAccessToToPrimaryKeyAccessor(projection));
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return left.collectAccessedColumns(columns)
+                && start.collectAccessedColumns(columns)
+                && end.collectAccessedColumns(columns);
+    }
+
 }
@@ -23,6 +23,7 @@ import herddb.core.HerdDBInternalException;
 import herddb.model.Column;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
@@ -49,6 +50,14 @@ public abstract class CompiledBinarySQLExpression implements CompiledSQLExpressi
         return "";
     }
 
+    public CompiledSQLExpression getLeft() {
+        return left;
+    }
+
+    public CompiledSQLExpression getRight() {
+        return right;
+    }
+
     @Override
     public List<CompiledSQLExpression> scanForConstraintedValueOnColumnWithOperator(String column, String operator, BindableTableScanColumnNameResolver columnNameResolver) {
         if (!operator.equals(getOperator())) {
@@ -88,4 +97,10 @@ public abstract class CompiledBinarySQLExpression implements CompiledSQLExpressi
         throw new IllegalStateException("no implemented");
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return left.collectAccessedColumns(columns)
+                && right.collectAccessedColumns(columns);
+    }
+
 }
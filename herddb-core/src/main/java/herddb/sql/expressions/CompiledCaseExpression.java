@@ -25,6 +25,7 @@ import static herddb.sql.SQLRecordPredicate.toBoolean;
 import static herddb.sql.expressions.SQLExpressionCompiler.compileExpression;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -103,4 +104,16 @@ public class CompiledCaseExpression implements CompiledSQLExpression {
     }
 
   
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        for (Entry<CompiledSQLExpression, CompiledSQLExpression> entry : whenExpressions) {
+            if (!entry.getKey().collectAccessedColumns(columns)
+                    || !entry.getValue().collectAccessedColumns(columns)) {
+                return false;
+            }
+        }
+        return elseExpression == null || elseExpression.collectAccessedColumns(columns);
+    }
+
 }
@@ -25,6 +25,7 @@ import static herddb.sql.expressions.SQLExpressionCompiler.compileExpression;
 import herddb.sql.functions.BuiltinFunctions;
 import herddb.utils.DataAccessor;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
@@ -168,4 +169,14 @@ public class CompiledFunction implements CompiledSQLExpression {
         }
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        for (CompiledSQLExpression parameter : parameters) {
+            if (!parameter.collectAccessedColumns(columns)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
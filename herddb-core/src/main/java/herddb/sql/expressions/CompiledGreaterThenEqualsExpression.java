@@ -32,6 +32,10 @@ public class CompiledGreaterThenEqualsExpression extends CompiledBinarySQLExpres
         this.not = not;
     }
 
+    public boolean isNot() {
+        return not;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         Object leftValue = left.evaluate(bean, context);
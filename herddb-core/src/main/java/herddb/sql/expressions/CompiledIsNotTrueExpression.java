@@ -22,6 +22,7 @@ package herddb.sql.expressions;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
+import java.util.BitSet;
 
 public class CompiledIsNotTrueExpression implements CompiledSQLExpression {
 
@@ -33,6 +34,14 @@ public class CompiledIsNotTrueExpression implements CompiledSQLExpression {
         this.not = not;
     }
 
+    public CompiledSQLExpression getLeft() {
+        return left;
+    }
+
+    public boolean isNot() {
+        return not;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         Object leftValue = left.evaluate(bean, context);
@@ -56,4 +65,9 @@ public class CompiledIsNotTrueExpression implements CompiledSQLExpression {
             left.remapPositionalAccessToToPrimaryKeyAccessor(projection));
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return left.collectAccessedColumns(columns);
+    }
+
 }
@@ -21,6 +21,7 @@ package herddb.sql.expressions;
 
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import java.util.BitSet;
 
 public class CompiledIsNullExpression implements CompiledSQLExpression {
 
@@ -32,6 +33,14 @@ public class CompiledIsNullExpression implements CompiledSQLExpression {
         this.not = not;
     }
 
+    public CompiledSQLExpression getLeft() {
+        return left;
+    }
+
+    public boolean isNot() {
+        return not;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         Object leftValue = left.evaluate(bean, context);
@@ -54,4 +63,9 @@ public class CompiledIsNullExpression implements CompiledSQLExpression {
         return new CompiledIsNullExpression(not,
             left.remapPositionalAccessToToPrimaryKeyAccessor(projection));
     }
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return left.collectAccessedColumns(columns);
+    }
 }
@@ -25,9 +25,10 @@ import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
-@SuppressFBWarnings(value = "EI_EXPOSE_REP2")
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
 public class CompiledMultiAndExpression implements CompiledSQLExpression {
 
     private final CompiledSQLExpression[] operands;
@@ -36,6 +37,10 @@ public class CompiledMultiAndExpression implements CompiledSQLExpression {
         this.operands = operands;
     }
 
+    public CompiledSQLExpression[] getOperands() {
+        return operands;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         for (int i = 0; i < operands.length; i++) {
@@ -86,4 +91,14 @@ public class CompiledMultiAndExpression implements CompiledSQLExpression {
         }
         return new CompiledMultiAndExpression(ops);
     }
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        for (CompiledSQLExpression operand : operands) {
+            if (!operand.collectAccessedColumns(columns)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
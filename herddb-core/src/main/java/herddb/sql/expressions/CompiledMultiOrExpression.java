@@ -24,8 +24,9 @@ import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
 import java.util.Arrays;
+import java.util.BitSet;
 
-@SuppressFBWarnings(value = "EI_EXPOSE_REP2")
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
 public class CompiledMultiOrExpression implements CompiledSQLExpression {
 
     private final CompiledSQLExpression[] operands;
@@ -34,6 +35,10 @@ public class CompiledMultiOrExpression implements CompiledSQLExpression {
         this.operands = operands;
     }
 
+    public CompiledSQLExpression[] getOperands() {
+        return operands;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         for (int i = 0; i < operands.length; i++) {
@@ -67,4 +72,14 @@ public class CompiledMultiOrExpression implements CompiledSQLExpression {
         return new CompiledMultiOrExpression(ops);
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        for (CompiledSQLExpression operand : operands) {
+            if (!operand.collectAccessedColumns(columns)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
@@ -32,6 +32,10 @@ public class CompiledOrExpression extends CompiledBinarySQLExpression {
         this.not = not;
     }
 
+    public boolean isNot() {
+        return not;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         boolean ok = SQLRecordPredicate.toBoolean(left.evaluate(bean, context));
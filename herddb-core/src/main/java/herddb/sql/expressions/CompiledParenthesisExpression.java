@@ -22,6 +22,7 @@ package herddb.sql.expressions;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import static herddb.sql.SQLRecordPredicate.toBoolean;
+import java.util.BitSet;
 import java.util.Map;
 
 public class CompiledParenthesisExpression implements CompiledSQLExpression {
@@ -34,6 +35,14 @@ public class CompiledParenthesisExpression implements CompiledSQLExpression {
         this.not = not;
     }
 
+    public CompiledSQLExpression getInner() {
+        return inner;
+    }
+
+    public boolean isNot() {
+        return not;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         Object innerValue = inner.evaluate(bean, context);
@@ -56,4 +65,9 @@ public class CompiledParenthesisExpression implements CompiledSQLExpression {
             inner.remapPositionalAccessToToPrimaryKeyAccessor(projection));
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return inner.collectAccessedColumns(columns);
+    }
+
 }
@@ -22,6 +22,7 @@ package herddb.sql.expressions;
 import herddb.model.Predicate;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
@@ -86,4 +87,16 @@ public interface CompiledSQLExpression {
     public default CompiledSQLExpression remapPositionalAccessToToPrimaryKeyAccessor(int[] projection) {
         throw new IllegalStateException("not implemented for " + this.getClass());
     }
+
+    /**
+     * Collects the positions of the fields of the current row which are
+     * accessed by this expression.
+     *
+     * @param columns the set of positions
+     * @return false if this expression may access other fields, which cannot
+     * be tracked
+     */
+    public default boolean collectAccessedColumns(BitSet columns) {
+        return false;
+    }
 }
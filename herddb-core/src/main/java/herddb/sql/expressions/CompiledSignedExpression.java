@@ -21,6 +21,7 @@ package herddb.sql.expressions;
 
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import java.util.BitSet;
 
 public class CompiledSignedExpression implements CompiledSQLExpression {
 
@@ -69,4 +70,9 @@ public class CompiledSignedExpression implements CompiledSQLExpression {
         inner.validate(context);
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return inner.collectAccessedColumns(columns);
+    }
+
 }
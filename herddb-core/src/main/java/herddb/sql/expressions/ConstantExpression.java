@@ -22,6 +22,7 @@ package herddb.sql.expressions;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
+import java.util.BitSet;
 
 public class ConstantExpression implements CompiledSQLExpression {
 
@@ -31,6 +32,10 @@ public class ConstantExpression implements CompiledSQLExpression {
         this.value = value;
     }
 
+    public Object getValue() {
+        return value;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         return value;
@@ -59,4 +64,9 @@ public class ConstantExpression implements CompiledSQLExpression {
         return value == null;
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return true;
+    }
+
 }
@@ -0,0 +1,94 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.StatementExecutionException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Base class for expressions generated at runtime by
+ * {@link SQLExpressionJITCompiler}. Only evaluation is generated, every other
+ * operation is delegated to the original expression tree.
+ *
+ * @author enrico.olivelli
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public abstract class GeneratedSQLExpression implements CompiledSQLExpression {
+
+    protected final CompiledSQLExpression original;
+    /**
+     * Values of the constants of the original tree
+     */
+    protected final Object[] constants;
+    /**
+     * Nodes of the original tree not supported by the generator, they are
+     * evaluated using the interpreter
+     */
+    protected final CompiledSQLExpression[] fallbacks;
+
+    protected GeneratedSQLExpression(CompiledSQLExpression original, Object[] constants, CompiledSQLExpression[] fallbacks) {
+        this.original = original;
+        this.constants = constants;
+        this.fallbacks = fallbacks;
+    }
+
+    public CompiledSQLExpression getOriginal() {
+        return original;
+    }
+
+    @Override
+    public void validate(StatementEvaluationContext context) throws StatementExecutionException {
+        original.validate(context);
+    }
+
+    @Override
+    public List<CompiledSQLExpression> scanForConstraintedValueOnColumnWithOperator(String column, String operator, BindableTableScanColumnNameResolver columnNameResolver) {
+        return original.scanForConstraintedValueOnColumnWithOperator(column, operator, columnNameResolver);
+    }
+
+    @Override
+    public List<CompiledSQLExpression> scanForConstraintsOnColumn(String column, BindableTableScanColumnNameResolver columnNameResolver) {
+        return original.scanForConstraintsOnColumn(column, columnNameResolver);
+    }
+
+    @Override
+    public CompiledSQLExpression cast(int type) {
+        return original.cast(type);
+    }
+
+    @Override
+    public CompiledSQLExpression remapPositionalAccessToToPrimaryKeyAccessor(int[] projection) {
+        return original.remapPositionalAccessToToPrimaryKeyAccessor(projection);
+    }
+
+    @Override
+    public String toString() {
+        return "Generated{" + original + '}';
+    }
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return original.collectAccessedColumns(columns);
+    }
+
+}
@@ -22,6 +22,7 @@ package herddb.sql.expressions;
 import herddb.model.MissingJDBCParameterException;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import java.util.BitSet;
 
 public class JdbcParameterExpression implements CompiledSQLExpression {
 
@@ -31,6 +32,10 @@ public class JdbcParameterExpression implements CompiledSQLExpression {
         this.index = index;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         return context.getJdbcParameter(index);
@@ -56,4 +61,9 @@ public class JdbcParameterExpression implements CompiledSQLExpression {
         return this;
     }
 
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return true;
+    }
+
 }
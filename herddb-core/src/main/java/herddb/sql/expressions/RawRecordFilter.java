@@ -0,0 +1,572 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import herddb.codec.RecordSerializer;
+import herddb.model.ColumnTypes;
+import herddb.model.Record;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.StatementExecutionException;
+import herddb.model.Table;
+import herddb.sql.SQLRecordPredicate;
+import herddb.utils.Bytes;
+import herddb.utils.RawString;
+import herddb.utils.SystemProperties;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates simple conditions directly on the serialized form of a record.
+ * <p>
+ * Comparisons (=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=, BETWEEN, LIKE 'prefix%')
+ * between a LONG, INTEGER, TIMESTAMP or STRING column and a constant or a JDBC
+ * parameter are performed on the bytes of the record, combined with AND, OR
+ * and NOT (IN lists are planned as ORs). Other conditions are
+ * {@link #UNKNOWN}, and so is every condition on a null value, in that case
+ * the caller must fall back to the evaluation of the full expression. The
+ * result of the filter is the same as the one of the interpreter whenever it
+ * is not {@link #UNKNOWN}.
+ *
+ * @author enrico.olivelli
+ */
+public abstract class RawRecordFilter {
+
+    private static final boolean ENABLED = SystemProperties.
+            getBooleanSystemProperty("herddb.sql.expressions.rawfilter.enabled", true);
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+    public static final int UNKNOWN = 2;
+
+    /**
+     * Evaluates the filter on the given record
+     *
+     * @param record the record
+     * @param context the context, used for JDBC parameters
+     * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+     * @throws StatementExecutionException
+     */
+    public abstract int evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException;
+
+    /**
+     * Builds a filter for the given condition
+     *
+     * @param expression the condition, positional access refers to the
+     * columns of the table
+     * @param table the table
+     * @return the filter, or null if no part of the condition can be
+     * evaluated on serialized data
+     */
+    public static RawRecordFilter build(CompiledSQLExpression expression, Table table) {
+        if (!ENABLED || expression == null || table == null) {
+            return null;
+        }
+        RawRecordFilter res = compile(expression, table);
+        return res == UnknownFilter.INSTANCE ? null : res;
+    }
+
+    private static RawRecordFilter compile(CompiledSQLExpression exp, Table table) {
+        if (exp instanceof CompiledAndExpression) {
+            CompiledAndExpression and = (CompiledAndExpression) exp;
+            return not(and.isNot(), junction(true, table, and.getLeft(), and.getRight()));
+        } else if (exp instanceof CompiledOrExpression) {
+            CompiledOrExpression or = (CompiledOrExpression) exp;
+            return not(or.isNot(), junction(false, table, or.getLeft(), or.getRight()));
+        } else if (exp instanceof CompiledMultiAndExpression) {
+            return junction(true, table, ((CompiledMultiAndExpression) exp).getOperands());
+        } else if (exp instanceof CompiledMultiOrExpression) {
+            return junction(false, table, ((CompiledMultiOrExpression) exp).getOperands());
+        } else if (exp instanceof CompiledParenthesisExpression) {
+            CompiledParenthesisExpression parenthesis = (CompiledParenthesisExpression) exp;
+            return not(parenthesis.isNot(), compile(parenthesis.getInner(), table));
+        } else if (exp instanceof CompiledEqualsExpression) {
+            CompiledEqualsExpression eq = (CompiledEqualsExpression) exp;
+            return comparison(Operator.EQ, eq.isNot(), eq, table);
+        } else if (exp instanceof CompiledNotEqualsExpression) {
+            CompiledNotEqualsExpression neq = (CompiledNotEqualsExpression) exp;
+            return comparison(Operator.NE, neq.isNot(), neq, table);
+        } else if (exp instanceof CompiledGreaterThenExpression) {
+            CompiledGreaterThenExpression gt = (CompiledGreaterThenExpression) exp;
+            return comparison(Operator.GT, gt.isNot(), gt, table);
+        } else if (exp instanceof CompiledGreaterThenEqualsExpression) {
+            CompiledGreaterThenEqualsExpression ge = (CompiledGreaterThenEqualsExpression) exp;
+            return comparison(Operator.GE, ge.isNot(), ge, table);
+        } else if (exp instanceof CompiledMinorThenExpression) {
+            CompiledMinorThenExpression lt = (CompiledMinorThenExpression) exp;
+            return comparison(Operator.LT, lt.isNot(), lt, table);
+        } else if (exp instanceof CompiledMinorThenEqualsExpression) {
+            CompiledMinorThenEqualsExpression le = (CompiledMinorThenEqualsExpression) exp;
+            return comparison(Operator.LE, le.isNot(), le, table);
+        } else if (exp instanceof CompiledBetweenExpression) {
+            return between((CompiledBetweenExpression) exp, table);
+        } else if (exp instanceof CompiledLikeExpression) {
+            return likePrefix((CompiledLikeExpression) exp, table);
+        } else {
+            return UnknownFilter.INSTANCE;
+        }
+    }
+
+    private static RawRecordFilter not(boolean not, RawRecordFilter filter) {
+        if (!not || filter == UnknownFilter.INSTANCE) {
+            return filter;
+        }
+        return new NotFilter(filter);
+    }
+
+    private static RawRecordFilter junction(boolean and, Table table, CompiledSQLExpression... operands) {
+        List<RawRecordFilter> filters = new ArrayList<>(operands.length);
+        boolean allUnknown = true;
+        for (CompiledSQLExpression operand : operands) {
+            RawRecordFilter filter = compile(operand, table);
+            allUnknown = allUnknown && filter == UnknownFilter.INSTANCE;
+            filters.add(filter);
+        }
+        if (allUnknown) {
+            return UnknownFilter.INSTANCE;
+        }
+        return new JunctionFilter(and, filters.toArray(new RawRecordFilter[0]));
+    }
+
+    private static boolean isValue(CompiledSQLExpression exp) {
+        return exp instanceof ConstantExpression
+                || exp instanceof JdbcParameterExpression
+                || exp instanceof TypedJdbcParameterExpression;
+    }
+
+    private static ColumnAccess column(CompiledSQLExpression exp, Table table) {
+        if (!(exp instanceof AccessCurrentRowExpression)) {
+            return null;
+        }
+        int index = ((AccessCurrentRowExpression) exp).getIndex();
+        if (index < 0 || index >= table.columns.length) {
+            return null;
+        }
+        switch (table.columns[index].type) {
+            case ColumnTypes.LONG:
+            case ColumnTypes.INTEGER:
+            case ColumnTypes.TIMESTAMP:
+            case ColumnTypes.STRING:
+                return new ColumnAccess(index, table);
+            default:
+                return null;
+        }
+    }
+
+    private static RawRecordFilter comparison(Operator operator, boolean not, CompiledBinarySQLExpression exp, Table table) {
+        ColumnAccess column = column(exp.getLeft(), table);
+        if (column != null && isValue(exp.getRight())) {
+            return new ComparisonFilter(column, exp.getRight(), operator, true, not);
+        }
+        column = column(exp.getRight(), table);
+        if (column != null && isValue(exp.getLeft())) {
+            return new ComparisonFilter(column, exp.getLeft(), operator, false, not);
+        }
+        return UnknownFilter.INSTANCE;
+    }
+
+    private static RawRecordFilter between(CompiledBetweenExpression exp, Table table) {
+        ColumnAccess column = column(exp.getLeft(), table);
+        if (column == null || !isValue(exp.getStart()) || !isValue(exp.getEnd())) {
+            return UnknownFilter.INSTANCE;
+        }
+        // same logic as CompiledBetweenExpression
+        RawRecordFilter inRange = new JunctionFilter(false, new RawRecordFilter[]{
+            new ComparisonFilter(column, exp.getStart(), Operator.EQ, true, false),
+            new ComparisonFilter(column, exp.getEnd(), Operator.EQ, true, false),
+            new JunctionFilter(true, new RawRecordFilter[]{
+                new ComparisonFilter(column, exp.getStart(), Operator.GT, true, false),
+                new ComparisonFilter(column, exp.getEnd(), Operator.LT, true, false)
+            })
+        });
+        return not(exp.isNot(), new JunctionFilter(true, new RawRecordFilter[]{
+            new ValidRangeFilter(exp.getStart(), exp.getEnd()),
+            inRange
+        }));
+    }
+
+    private static RawRecordFilter likePrefix(CompiledLikeExpression exp, Table table) {
+        ColumnAccess column = column(exp.getLeft(), table);
+        if (column == null || column.type != ColumnTypes.STRING || !(exp.getRight() instanceof ConstantExpression)) {
+            return UnknownFilter.INSTANCE;
+        }
+        Object pattern = ((ConstantExpression) exp.getRight()).getValue();
+        if (pattern == null) {
+            return UnknownFilter.INSTANCE;
+        }
+        String like = pattern.toString();
+        if (!like.endsWith("%")) {
+            return UnknownFilter.INSTANCE;
+        }
+        String prefix = like.substring(0, like.length() - 1);
+        // LIKE is implemented with regular expressions, accept only characters which have no special meaning
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-') {
+                return UnknownFilter.INSTANCE;
+            }
+        }
+        return new LikePrefixFilter(column, Bytes.string_to_array(prefix), exp.isNot());
+    }
+
+    private enum Operator {
+        EQ, NE, GT, GE, LT, LE
+    }
+
+    private static final class ColumnAccess {
+
+        private final int index;
+        private final int type;
+        private final boolean primaryKey;
+        private final Table table;
+
+        ColumnAccess(int index, Table table) {
+            this.index = index;
+            this.type = table.columns[index].type;
+            this.primaryKey = table.isPrimaryKeyColumn(index);
+            this.table = table;
+        }
+
+        byte[] data(Record record) {
+            return primaryKey ? record.key.data : record.value.data;
+        }
+
+        long locate(byte[] data) {
+            long location = primaryKey
+                    ? RecordSerializer.locateRawValueInPrimaryKey(index, data, table)
+                    : RecordSerializer.locateRawValue(index, data, table);
+            if (location >= 0 && primaryKey && type == ColumnTypes.TIMESTAMP
+                    && Bytes.toLong(data, RecordSerializer.rawValueOffset(location)) < 0) {
+                // negative timestamps in the primary key are deserialized as null
+                return -1;
+            }
+            return location;
+        }
+
+        @Override
+        public String toString() {
+            return table.columns[index].name;
+        }
+    }
+
+    private static final class UnknownFilter extends RawRecordFilter {
+
+        private static final UnknownFilter INSTANCE = new UnknownFilter();
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) {
+            return UNKNOWN;
+        }
+
+        @Override
+        public String toString() {
+            return "?";
+        }
+    }
+
+    private static final class NotFilter extends RawRecordFilter {
+
+        private final RawRecordFilter filter;
+
+        NotFilter(RawRecordFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException {
+            int res = filter.evaluate(record, context);
+            return res == UNKNOWN ? UNKNOWN : TRUE - res;
+        }
+
+        @Override
+        public String toString() {
+            return "NOT(" + filter + ")";
+        }
+    }
+
+    private static final class JunctionFilter extends RawRecordFilter {
+
+        private final boolean and;
+        private final RawRecordFilter[] filters;
+
+        JunctionFilter(boolean and, RawRecordFilter[] filters) {
+            this.and = and;
+            this.filters = filters;
+        }
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException {
+            // AND stops at the first FALSE, OR stops at the first TRUE
+            final int decisive = and ? FALSE : TRUE;
+            int res = and ? TRUE : FALSE;
+            for (RawRecordFilter filter : filters) {
+                int value = filter.evaluate(record, context);
+                if (value == decisive) {
+                    return decisive;
+                }
+                if (value == UNKNOWN) {
+                    res = UNKNOWN;
+                }
+            }
+            return res;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder res = new StringBuilder("(");
+            for (int i = 0; i < filters.length; i++) {
+                if (i > 0) {
+                    res.append(and ? " AND " : " OR ");
+                }
+                res.append(filters[i]);
+            }
+            return res.append(")").toString();
+        }
+    }
+
+    /**
+     * Check on the bounds of BETWEEN, it does not access the record
+     */
+    private static final class ValidRangeFilter extends RawRecordFilter {
+
+        private final CompiledSQLExpression start;
+        private final CompiledSQLExpression end;
+
+        ValidRangeFilter(CompiledSQLExpression start, CompiledSQLExpression end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException {
+            Object startValue = start.evaluate(null, context);
+            Object endValue = end.evaluate(null, context);
+            if (startValue == null || endValue == null) {
+                return UNKNOWN;
+            }
+            boolean valid = SQLRecordPredicate.objectEquals(startValue, endValue)
+                    || SQLRecordPredicate.compare(startValue, endValue) < 0;
+            return valid ? TRUE : FALSE;
+        }
+
+        @Override
+        public String toString() {
+            return start + "<=" + end;
+        }
+    }
+
+    private static final class ComparisonFilter extends RawRecordFilter {
+
+        private final ColumnAccess column;
+        private final CompiledSQLExpression value;
+        private final Operator operator;
+        private final boolean columnOnLeft;
+        private final boolean not;
+
+        ComparisonFilter(ColumnAccess column, CompiledSQLExpression value, Operator operator, boolean columnOnLeft, boolean not) {
+            this.column = column;
+            this.value = value;
+            this.operator = operator;
+            this.columnOnLeft = columnOnLeft;
+            this.not = not;
+        }
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) throws StatementExecutionException {
+            Object constant = value.evaluate(null, context);
+            if (constant == null) {
+                return UNKNOWN;
+            }
+            byte[] data = column.data(record);
+            long location = column.locate(data);
+            if (location < 0) {
+                return UNKNOWN;
+            }
+            int offset = RecordSerializer.rawValueOffset(location);
+            boolean equality = operator == Operator.EQ || operator == Operator.NE;
+            // the following code follows SQLRecordPredicate.objectEquals and SQLRecordPredicate.compare
+            boolean equals = false;
+            int compare = 0;
+            switch (column.type) {
+                case ColumnTypes.LONG: {
+                    long a = Bytes.toLong(data, offset);
+                    if (constant instanceof Long) {
+                        long b = (Long) constant;
+                        equals = (double) a == (double) b;
+                        compare = Long.signum(columnOnLeft ? a - b : b - a);
+                    } else if (constant instanceof Integer) {
+                        int b = (Integer) constant;
+                        equals = (double) a == (double) b;
+                        compare = columnOnLeft ? Double.compare(a, b) : Double.compare(b, a);
+                    } else {
+                        return UNKNOWN;
+                    }
+                    break;
+                }
+                case ColumnTypes.INTEGER: {
+                    int a = Bytes.toInt(data, offset);
+                    if (constant instanceof Integer) {
+                        int b = (Integer) constant;
+                        equals = a == b;
+                        compare = columnOnLeft ? a - b : b - a;
+                    } else if (constant instanceof Long) {
+                        long b = (Long) constant;
+                        equals = (double) a == (double) b;
+                        compare = columnOnLeft ? Double.compare(a, b) : Double.compare(b, a);
+                    } else {
+                        return UNKNOWN;
+                    }
+                    break;
+                }
+                case ColumnTypes.TIMESTAMP: {
+                    if (!(constant instanceof java.util.Date)) {
+                        return UNKNOWN;
+                    }
+                    long a = Bytes.toLong(data, offset);
+                    long b = ((java.util.Date) constant).getTime();
+                    equals = a == b;
+                    compare = Long.signum(columnOnLeft ? a - b : b - a);
+                    break;
+                }
+                case ColumnTypes.STRING: {
+                    byte[] b;
+                    if (constant instanceof RawString) {
+                        b = ((RawString) constant).data;
+                    } else if (constant instanceof String) {
+                        b = Bytes.string_to_array((String) constant);
+                    } else {
+                        return UNKNOWN;
+                    }
+                    int length = RecordSerializer.rawValueLength(location);
+                    if (equality) {
+                        equals = equals(data, offset, length, b);
+                    } else {
+                        compare = compare(data, offset, length, b);
+                        if (!columnOnLeft) {
+                            compare = -compare;
+                        }
+                    }
+                    break;
+                }
+                default:
+                    return UNKNOWN;
+            }
+            boolean res;
+            switch (operator) {
+                case EQ:
+                    res = equals;
+                    break;
+                case NE:
+                    res = !equals;
+                    break;
+                case GT:
+                    res = compare > 0;
+                    break;
+                case GE:
+                    res = compare >= 0;
+                    break;
+                case LT:
+                    res = compare < 0;
+                    break;
+                case LE:
+                    res = compare <= 0;
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+            return res != not ? TRUE : FALSE;
+        }
+
+        private static boolean equals(byte[] data, int offset, int length, byte[] other) {
+            if (length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[offset + i] != other[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Same as RawString#compareTo
+         */
+        private static int compare(byte[] data, int offset, int length, byte[] other) {
+            for (int i = 0; i < length && i < other.length; i++) {
+                int a = data[offset + i] & 0xff;
+                int b = other[i] & 0xff;
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return length - other.length;
+        }
+
+        @Override
+        public String toString() {
+            String res = columnOnLeft ? column + " " + operator + " " + value : value + " " + operator + " " + column;
+            return not ? "NOT(" + res + ")" : res;
+        }
+    }
+
+    private static final class LikePrefixFilter extends RawRecordFilter {
+
+        private final ColumnAccess column;
+        private final byte[] prefix;
+        private final boolean not;
+
+        LikePrefixFilter(ColumnAccess column, byte[] prefix, boolean not) {
+            this.column = column;
+            this.prefix = prefix;
+            this.not = not;
+        }
+
+        @Override
+        public int evaluate(Record record, StatementEvaluationContext context) {
+            byte[] data = column.data(record);
+            long location = column.locate(data);
+            if (location < 0) {
+                return UNKNOWN;
+            }
+            int offset = RecordSerializer.rawValueOffset(location);
+            int length = RecordSerializer.rawValueLength(location);
+            boolean res = length >= prefix.length;
+            for (int i = 0; res && i < prefix.length; i++) {
+                res = data[offset + i] == prefix[i];
+            }
+            if (res) {
+                // '%' is translated to '.*' which does not match line terminators
+                for (int i = prefix.length; i < length; i++) {
+                    byte b = data[offset + i];
+                    if (b == '\n' || b == '\r' || b == (byte) 0xC2 || b == (byte) 0xE2) {
+                        return UNKNOWN;
+                    }
+                }
+            }
+            return res != not ? TRUE : FALSE;
+        }
+
+        @Override
+        public String toString() {
+            String res = column + " LIKE '" + new String(prefix, java.nio.charset.StandardCharsets.UTF_8) + "%'";
+            return not ? "NOT(" + res + ")" : res;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import herddb.model.Column;
+import herddb.model.ColumnTypes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassBodyEvaluator;
+
+/**
+ * Compiles a tree of {@link CompiledSQLExpression} to bytecode.
+ * <p>
+ * Java source is generated for the whole tree and compiled with Janino into a
+ * subclass of {@link GeneratedSQLExpression}. Boolean logic is evaluated
+ * without boxing intermediate results and comparisons on columns of known type
+ * use primitive comparisons, falling back to the generic functions of
+ * {@link herddb.sql.SQLRecordPredicate} when actual values do not match the
+ * expected types. Nodes which are not supported by the generator are
+ * evaluated using the interpreter.
+ *
+ * @author enrico.olivelli
+ */
+public final class SQLExpressionJITCompiler {
+
+    private static final Logger LOGGER = Logger.getLogger(SQLExpressionJITCompiler.class.getName());
+
+    private static final String PACKAGE = "herddb.sql.expressions.generated";
+    private static final AtomicLong CLASS_ID = new AtomicLong();
+
+    private static final String[] IMPORTS = {
+        "herddb.model.StatementEvaluationContext",
+        "herddb.model.StatementExecutionException",
+        "herddb.sql.SQLRecordPredicate",
+        "herddb.sql.expressions.CompiledSQLExpression",
+        "herddb.utils.DataAccessor",
+        "herddb.utils.RawString"
+    };
+
+    private static final String SIGNATURE = "(DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException";
+    private static final String ARGS = "(bean, context)";
+
+    private final Column[] schema;
+    private final List<Object> constants = new ArrayList<>();
+    private final List<CompiledSQLExpression> fallbacks = new ArrayList<>();
+    private final StringBuilder methods = new StringBuilder();
+    private int methodId;
+
+    private SQLExpressionJITCompiler(Column[] schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Compiles an expression
+     *
+     * @param expression the expression
+     * @param schema the schema of the tuples which will be evaluated, it is used in order to specialize comparisons, it
+     * can be null
+     * @return the compiled expression, null in case of failure
+     */
+    public static CompiledSQLExpression compile(CompiledSQLExpression expression, Column[] schema) {
+        SQLExpressionJITCompiler compiler = new SQLExpressionJITCompiler(schema);
+        String simpleClassName = "Expression" + CLASS_ID.incrementAndGet();
+        String source = compiler.generateClassBody(simpleClassName, expression);
+        try {
+            ClassBodyEvaluator evaluator = new ClassBodyEvaluator();
+            evaluator.setParentClassLoader(GeneratedSQLExpression.class.getClassLoader());
+            evaluator.setClassName(PACKAGE + "." + simpleClassName);
+            evaluator.setExtendedClass(GeneratedSQLExpression.class);
+            evaluator.setDefaultImports(IMPORTS);
+            evaluator.cook(source);
+            Class<?> clazz = evaluator.getClazz();
+            Object[] constantsArray = compiler.constants.toArray();
+            CompiledSQLExpression[] fallbacksArray = compiler.fallbacks.toArray(new CompiledSQLExpression[0]);
+            CompiledSQLExpression result = (CompiledSQLExpression) clazz
+                    .getConstructor(CompiledSQLExpression.class, Object[].class, CompiledSQLExpression[].class)
+                    .newInstance(expression, constantsArray, fallbacksArray);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST, "compiled {0} to\n{1}", new Object[]{expression, source});
+            }
+            return result;
+        } catch (CompileException | ReflectiveOperationException | RuntimeException err) {
+            LOGGER.log(Level.SEVERE, "cannot compile " + expression + ", source:\n" + source, err);
+            return null;
+        }
+    }
+
+    private String generateClassBody(String simpleClassName, CompiledSQLExpression expression) {
+        String root = value(expression);
+        StringBuilder source = new StringBuilder();
+        source.append("public ").append(simpleClassName)
+                .append("(CompiledSQLExpression original, Object[] constants, CompiledSQLExpression[] fallbacks) {\n")
+                .append("    super(original, constants, fallbacks);\n")
+                .append("}\n")
+                .append("public Object evaluate").append(SIGNATURE).append(" {\n")
+                .append("    return ").append(root).append(";\n")
+                .append("}\n")
+                .append(methods);
+        return source.toString();
+    }
+
+    private static boolean isBoolean(CompiledSQLExpression exp) {
+        return exp instanceof CompiledAndExpression
+                || exp instanceof CompiledOrExpression
+                || exp instanceof CompiledMultiAndExpression
+                || exp instanceof CompiledMultiOrExpression
+                || exp instanceof CompiledEqualsExpression
+                || exp instanceof CompiledNotEqualsExpression
+                || exp instanceof CompiledGreaterThenExpression
+                || exp instanceof CompiledGreaterThenEqualsExpression
+                || exp instanceof CompiledMinorThenExpression
+                || exp instanceof CompiledMinorThenEqualsExpression
+                || exp instanceof CompiledBetweenExpression
+                || exp instanceof CompiledIsNullExpression
+                || exp instanceof CompiledIsNotTrueExpression;
+    }
+
+    /**
+     * Generates a Java expression of type Object
+     */
+    private String value(CompiledSQLExpression exp) {
+        if (exp instanceof AccessCurrentRowExpression) {
+            return "bean.get(" + ((AccessCurrentRowExpression) exp).getIndex() + ")";
+        } else if (exp instanceof ConstantExpression) {
+            return constant(((ConstantExpression) exp).getValue());
+        } else if (exp instanceof JdbcParameterExpression) {
+            return "context.getJdbcParameter(" + ((JdbcParameterExpression) exp).getIndex() + ")";
+        } else if (exp instanceof TypedJdbcParameterExpression) {
+            TypedJdbcParameterExpression param = (TypedJdbcParameterExpression) exp;
+            return "SQLRecordPredicate.cast(context.getJdbcParameter(" + param.getIndex() + "), " + param.getType() + ")";
+        } else if (exp instanceof CastExpression) {
+            CastExpression cast = (CastExpression) exp;
+            return "SQLRecordPredicate.cast(" + value(cast.getWrapped()) + ", " + cast.getType() + ")";
+        } else if (exp instanceof CompiledAddExpression) {
+            return arithmetic("add", (CompiledBinarySQLExpression) exp);
+        } else if (exp instanceof CompiledSubtractExpression) {
+            return arithmetic("subtract", (CompiledBinarySQLExpression) exp);
+        } else if (exp instanceof CompiledMultiplyExpression) {
+            return arithmetic("multiply", (CompiledBinarySQLExpression) exp);
+        } else if (exp instanceof CompiledDivideExpression) {
+            return arithmetic("divide", (CompiledBinarySQLExpression) exp);
+        } else if (exp instanceof CompiledParenthesisExpression) {
+            CompiledParenthesisExpression parenthesis = (CompiledParenthesisExpression) exp;
+            if (!parenthesis.isNot()) {
+                return value(parenthesis.getInner());
+            }
+            return "Boolean.valueOf(!" + bool(parenthesis.getInner()) + ")";
+        } else if (isBoolean(exp)) {
+            return "Boolean.valueOf(" + bool(exp) + ")";
+        } else {
+            return fallback(exp);
+        }
+    }
+
+    /**
+     * Generates a Java expression of type boolean
+     */
+    private String bool(CompiledSQLExpression exp) {
+        if (exp instanceof CompiledAndExpression) {
+            CompiledAndExpression and = (CompiledAndExpression) exp;
+            String left = bool(and.getLeft());
+            String right = bool(and.getRight());
+            return "(" + left + " ? " + (and.isNot() ? "!" : "") + right + " : " + and.isNot() + ")";
+        } else if (exp instanceof CompiledOrExpression) {
+            CompiledOrExpression or = (CompiledOrExpression) exp;
+            String left = bool(or.getLeft());
+            String right = bool(or.getRight());
+            return "(" + left + " ? " + !or.isNot() + " : " + (or.isNot() ? "!" : "") + right + ")";
+        } else if (exp instanceof CompiledMultiAndExpression) {
+            return join(((CompiledMultiAndExpression) exp).getOperands(), " && ");
+        } else if (exp instanceof CompiledMultiOrExpression) {
+            return join(((CompiledMultiOrExpression) exp).getOperands(), " || ");
+        } else if (exp instanceof CompiledParenthesisExpression) {
+            CompiledParenthesisExpression parenthesis = (CompiledParenthesisExpression) exp;
+            return (parenthesis.isNot() ? "!" : "") + bool(parenthesis.getInner());
+        } else if (exp instanceof CompiledIsNullExpression) {
+            CompiledIsNullExpression isNull = (CompiledIsNullExpression) exp;
+            return "(" + value(isNull.getLeft()) + (isNull.isNot() ? " != " : " == ") + "null)";
+        } else if (exp instanceof CompiledIsNotTrueExpression) {
+            CompiledIsNotTrueExpression isNotTrue = (CompiledIsNotTrueExpression) exp;
+            return (isNotTrue.isNot() ? "" : "!") + "SQLRecordPredicate.toBoolean(" + value(isNotTrue.getLeft()) + ")";
+        } else if (exp instanceof CompiledEqualsExpression) {
+            CompiledEqualsExpression eq = (CompiledEqualsExpression) exp;
+            return comparison(eq, "==", eq.isNot());
+        } else if (exp instanceof CompiledNotEqualsExpression) {
+            CompiledNotEqualsExpression neq = (CompiledNotEqualsExpression) exp;
+            return comparison(neq, "!=", neq.isNot());
+        } else if (exp instanceof CompiledGreaterThenExpression) {
+            CompiledGreaterThenExpression gt = (CompiledGreaterThenExpression) exp;
+            return comparison(gt, ">", gt.isNot());
+        } else if (exp instanceof CompiledGreaterThenEqualsExpression) {
+            CompiledGreaterThenEqualsExpression ge = (CompiledGreaterThenEqualsExpression) exp;
+            return comparison(ge, ">=", ge.isNot());
+        } else if (exp instanceof CompiledMinorThenExpression) {
+            CompiledMinorThenExpression lt = (CompiledMinorThenExpression) exp;
+            return comparison(lt, "<", lt.isNot());
+        } else if (exp instanceof CompiledMinorThenEqualsExpression) {
+            CompiledMinorThenEqualsExpression le = (CompiledMinorThenEqualsExpression) exp;
+            return comparison(le, "<=", le.isNot());
+        } else if (exp instanceof CompiledBetweenExpression) {
+            return between((CompiledBetweenExpression) exp);
+        } else {
+            return "SQLRecordPredicate.toBoolean(" + value(exp) + ")";
+        }
+    }
+
+    private String join(CompiledSQLExpression[] operands, String operator) {
+        StringBuilder res = new StringBuilder("(");
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0) {
+                res.append(operator);
+            }
+            res.append(bool(operands[i]));
+        }
+        return res.append(")").toString();
+    }
+
+    private String arithmetic(String function, CompiledBinarySQLExpression exp) {
+        return "SQLRecordPredicate." + function + "(" + value(exp.getLeft()) + ", " + value(exp.getRight()) + ")";
+    }
+
+    private String constant(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        constants.add(value);
+        return "constants[" + (constants.size() - 1) + "]";
+    }
+
+    private String fallback(CompiledSQLExpression exp) {
+        fallbacks.add(exp);
+        return "fallbacks[" + (fallbacks.size() - 1) + "].evaluate" + ARGS;
+    }
+
+    /**
+     * Type of the column accessed by the expression, if known
+     */
+    private int columnType(CompiledSQLExpression exp) {
+        if (schema != null && exp instanceof AccessCurrentRowExpression) {
+            int index = ((AccessCurrentRowExpression) exp).getIndex();
+            if (index >= 0 && index < schema.length) {
+                return schema[index].type;
+            }
+        }
+        return ColumnTypes.ANYTYPE;
+    }
+
+    /**
+     * Generates a method which compares two values, the primitive fast path is
+     * chosen on the type of the column involved in the comparison
+     *
+     * @param operator the Java operator which performs the comparison
+     */
+    private String comparison(CompiledBinarySQLExpression exp, String operator, boolean not) {
+        int type = columnType(exp.getLeft());
+        if (type == ColumnTypes.ANYTYPE) {
+            type = columnType(exp.getRight());
+        }
+        String name = "compare" + (methodId++);
+        String left = value(exp.getLeft());
+        String right = value(exp.getRight());
+        String negate = not ? "!" : "";
+        boolean equality = operator.equals("==") || operator.equals("!=");
+        methods.append("private boolean ").append(name).append(SIGNATURE).append(" {\n")
+                .append("    Object l = ").append(left).append(";\n")
+                .append("    Object r = ").append(right).append(";\n");
+        String fastPath = primitiveFastPath(type, equality, new String[]{"l", "r"});
+        if (fastPath != null) {
+            methods.append(fastPath)
+                    .append("        return ").append(negate).append("(a ").append(operator).append(" b);\n")
+                    .append("    }\n");
+        }
+        String generic;
+        if (equality) {
+            generic = (operator.equals("!=") ? "!" : "") + "SQLRecordPredicate.objectEquals(l, r)";
+        } else {
+            generic = "SQLRecordPredicate.compare(l, r) " + operator + " 0";
+        }
+        methods.append("    return ").append(negate).append("(").append(generic).append(");\n")
+                .append("}\n");
+        return name + ARGS;
+    }
+
+    /**
+     * Generates a method for BETWEEN, semantics are the same as
+     * {@link CompiledBetweenExpression}
+     */
+    private String between(CompiledBetweenExpression exp) {
+        int type = columnType(exp.getLeft());
+        String name = "between" + (methodId++);
+        String left = value(exp.getLeft());
+        String start = value(exp.getStart());
+        String end = value(exp.getEnd());
+        String negate = exp.isNot() ? "!" : "";
+        methods.append("private boolean ").append(name).append(SIGNATURE).append(" {\n")
+                .append("    Object l = ").append(left).append(";\n")
+                .append("    Object s = ").append(start).append(";\n")
+                .append("    Object e = ").append(end).append(";\n");
+        String fastPath = primitiveFastPath(type, false, new String[]{"l", "s", "e"});
+        if (fastPath != null) {
+            methods.append(fastPath)
+                    .append("        return ").append(negate).append("(b <= c && a >= b && a <= c);\n")
+                    .append("    }\n");
+        }
+        methods.append("    return ").append(negate).append("((SQLRecordPredicate.objectEquals(s, e) || SQLRecordPredicate.compare(s, e) < 0)\n")
+                .append("        && (SQLRecordPredicate.objectEquals(l, s)\n")
+                .append("        || SQLRecordPredicate.objectEquals(l, e)\n")
+                .append("        || (SQLRecordPredicate.compare(l, s) > 0 && SQLRecordPredicate.compare(l, e) < 0)));\n")
+                .append("}\n");
+        return name + ARGS;
+    }
+
+    /**
+     * Generates the opening of an if block which checks the types of the
+     * given variables and unboxes them to variables named a, b, c...
+     *
+     * @return the code, or null if there is no fast path for the given type
+     */
+    private static String primitiveFastPath(int type, boolean equality, String[] variables) {
+        if (type == ColumnTypes.STRING) {
+            if (variables.length != 2) {
+                return null;
+            }
+            String l = variables[0];
+            String r = variables[1];
+            StringBuilder res = new StringBuilder("    if (" + l + " instanceof RawString && " + r + " instanceof RawString) {\n");
+            if (equality) {
+                res.append("        boolean a = ").append(l).append(".equals(").append(r).append(");\n")
+                        .append("        boolean b = true;\n");
+            } else {
+                res.append("        int a = ((RawString) ").append(l).append(").compareTo((RawString) ").append(r).append(");\n")
+                        .append("        int b = 0;\n");
+            }
+            return res.toString();
+        }
+        String boxed;
+        String primitive;
+        String unbox;
+        switch (type) {
+            case ColumnTypes.LONG:
+                boxed = "Long";
+                primitive = "long";
+                unbox = ".longValue()";
+                break;
+            case ColumnTypes.INTEGER:
+                boxed = "Integer";
+                primitive = "int";
+                unbox = ".intValue()";
+                break;
+            case ColumnTypes.TIMESTAMP:
+                boxed = "java.util.Date";
+                primitive = "long";
+                unbox = ".getTime()";
+                break;
+            default:
+                return null;
+        }
+        StringBuilder res = new StringBuilder("    if (");
+        for (int i = 0; i < variables.length; i++) {
+            if (i > 0) {
+                res.append(" && ");
+            }
+            res.append(variables[i]).append(" instanceof ").append(boxed);
+        }
+        res.append(") {\n");
+        char name = 'a';
+        for (String variable : variables) {
+            res.append("        ").append(primitive).append(" ").append(name++)
+                    .append(" = ((").append(boxed).append(") ").append(variable).append(")").append(unbox).append(";\n");
+        }
+        return res.toString();
+    }
+
+}
@@ -23,6 +23,7 @@ import herddb.model.MissingJDBCParameterException;
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
 import herddb.sql.SQLRecordPredicate;
+import java.util.BitSet;
 
 public class TypedJdbcParameterExpression implements CompiledSQLExpression {
 
@@ -34,6 +35,14 @@ public class TypedJdbcParameterExpression implements CompiledSQLExpression {
         this.type = type;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
+    public int getType() {
+        return type;
+    }
+
     @Override
     public Object evaluate(herddb.utils.DataAccessor bean, StatementEvaluationContext context) throws StatementExecutionException {
         return SQLRecordPredicate.cast(context.getJdbcParameter(index), type);
@@ -58,4 +67,9 @@ public class TypedJdbcParameterExpression implements CompiledSQLExpression {
     public CompiledSQLExpression remapPositionalAccessToToPrimaryKeyAccessor(int[] projection) {
         return this;
     }
+
+    @Override
+    public boolean collectAccessedColumns(BitSet columns) {
+        return true;
+    }
 }
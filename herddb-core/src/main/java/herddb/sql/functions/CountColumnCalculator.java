@@ -49,5 +49,15 @@ public class CountColumnCalculator implements AggregatedColumnCalculator {
     public Object getValue() {
         return count;
     }
+
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    @Override
+    public void merge(AggregatedColumnCalculator other) {
+        count += ((CountColumnCalculator) other).count;
+    }
     
 }
@@ -21,6 +21,7 @@ package herddb.sql.functions;
 
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import herddb.sql.AggregatedColumnCalculator;
 import herddb.sql.expressions.CompiledSQLExpression;
 
 /**
@@ -55,4 +56,19 @@ public class MaxColumnCalculator extends AbstractSingleExpressionArgumentColumnC
     public Object getValue() {
         return result;
     }
+
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    @Override
+    public void merge(AggregatedColumnCalculator other) {
+        Comparable value = ((MaxColumnCalculator) other).result;
+        if (value != null) {
+            if (result == null || result.compareTo(value) < 0) {
+                result = value;
+            }
+        }
+    }
 }
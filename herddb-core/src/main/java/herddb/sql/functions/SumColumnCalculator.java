@@ -21,6 +21,7 @@ package herddb.sql.functions;
 
 import herddb.model.StatementEvaluationContext;
 import herddb.model.StatementExecutionException;
+import herddb.sql.AggregatedColumnCalculator;
 import herddb.sql.expressions.CompiledSQLExpression;
 
 /**
@@ -53,4 +54,14 @@ public class SumColumnCalculator extends AbstractSingleExpressionArgumentColumnC
     public Object getValue() {
         return result;
     }
+
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    @Override
+    public void merge(AggregatedColumnCalculator other) {
+        result += ((SumColumnCalculator) other).result;
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.client;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests about the client side connection
+ *
+ * @author enrico.olivelli
+ */
+public class HDBConnectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDiscoverTablespaceCache() throws Exception {
+        ClientConfiguration configuration = new ClientConfiguration(folder.newFolder().toPath());
+        configuration.set(ClientConfiguration.PROPERTY_STATEMENT_CACHE_SIZE, 2);
+        try (HDBClient client = new HDBClient(configuration);
+                HDBConnection connection = client.openConnection()) {
+            assertEquals("tblspace1", connection.discoverTablespace("default", "SELECT * FROM tblspace1.mytable"));
+            assertEquals("default", connection.discoverTablespace("default", "SELECT * FROM mytable"));
+            // the cached result does not depend on the default tablespace
+            assertEquals("other", connection.discoverTablespace("other", "SELECT * FROM mytable"));
+            assertEquals("tblspace1", connection.discoverTablespace("other", "SELECT * FROM tblspace1.mytable"));
+            assertEquals(2, connection.getCachedQueriesCount());
+
+            // least recently used queries are evicted
+            assertEquals("tblspace2", connection.discoverTablespace("default", "UPDATE tblspace2.mytable SET a=1"));
+            assertEquals(2, connection.getCachedQueriesCount());
+            assertEquals("default", connection.discoverTablespace("default", "SELECT * FROM mytable"));
+            assertEquals(2, connection.getCachedQueriesCount());
+        }
+
+        configuration.set(ClientConfiguration.PROPERTY_STATEMENT_CACHE_SIZE, 0);
+        try (HDBClient client = new HDBClient(configuration);
+                HDBConnection connection = client.openConnection()) {
+            assertEquals("tblspace1", connection.discoverTablespace("default", "SELECT * FROM tblspace1.mytable"));
+            assertEquals(0, connection.getCachedQueriesCount());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.cluster;
+
+import herddb.log.CommitLog;
+import herddb.log.CommitLogResult;
+import herddb.log.LogEntry;
+import herddb.log.LogEntryFactory;
+import herddb.log.LogNotAvailableException;
+import herddb.log.LogSequenceNumber;
+import herddb.server.ServerConfiguration;
+import herddb.utils.ZKTestEnv;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests about reading the log written by the leader
+ *
+ * @author enrico.olivelli
+ */
+public class BookkeeperCommitLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ZKTestEnv testEnv;
+
+    @Before
+    public void beforeSetup() throws Exception {
+        testEnv = new ZKTestEnv(folder.newFolder().toPath());
+        testEnv.startBookie();
+    }
+
+    @After
+    public void afterTeardown() throws Exception {
+        if (testEnv != null) {
+            testEnv.close();
+        }
+    }
+
+    @Test
+    public void testFollowTheLeaderReadAhead() throws Exception {
+        final String tableSpaceUUID = UUID.randomUUID().toString();
+        try (ZookeeperMetadataStorageManager man = new ZookeeperMetadataStorageManager(testEnv.getAddress(),
+            testEnv.getTimeout(), testEnv.getPath());
+            BookkeeperCommitLogManager logManager = new BookkeeperCommitLogManager(man, new ServerConfiguration())) {
+            man.start();
+            // small batches, in order to have many pending reads
+            logManager.setFollowerReadBatchSize(7);
+            logManager.setFollowerMaxPendingReads(3);
+            logManager.setFollowerMaxIdleWait(100);
+            logManager.start();
+
+            try (CommitLog writer = logManager.createCommitLog(tableSpaceUUID);
+                CommitLog follower = logManager.createCommitLog(tableSpaceUUID)) {
+                writer.startWriting();
+                int count = 200;
+                for (int i = 0; i < count; i++) {
+                    writer.log(LogEntryFactory.beginTransaction(i + 1), true);
+                }
+                long lastWriteTimestamp = System.currentTimeMillis();
+
+                List<LogSequenceNumber> positions = new ArrayList<>();
+                List<LogEntry> entries = new ArrayList<>();
+                long start = System.currentTimeMillis();
+                // the writer publishes the last confirmed entry,
+                // even if there are no more writes
+                while (entries.size() < count) {
+                    LogSequenceNumber skipPast = positions.isEmpty()
+                        ? LogSequenceNumber.START_OF_TIME : positions.get(positions.size() - 1);
+                    follower.followTheLeader(skipPast, (num, entry) -> {
+                        positions.add(num);
+                        entries.add(entry);
+                    });
+                    assertTrue(System.currentTimeMillis() - start < 30000);
+                }
+                for (int i = 0; i < entries.size(); i++) {
+                    assertEquals(i + 1, entries.get(i).transactionId);
+                    assertEquals(i, positions.get(i).offset);
+                }
+                assertEquals(0, follower.getFollowerLagEntries());
+                assertTrue(follower.getFollowerUpToDateTimestamp() > 0);
+
+                // without new writes the follower knows that its data is
+                // up to date, at most explicitLacInterval ms later
+                Thread.sleep(logManager.getExplicitLacInterval() * 2);
+                follower.followTheLeader(positions.get(positions.size() - 1), (num, entry) -> {
+                    positions.add(num);
+                    entries.add(entry);
+                });
+                assertEquals(count, entries.size());
+                assertEquals(0, follower.getFollowerLagEntries());
+                assertTrue(follower.getFollowerUpToDateTimestamp() >= lastWriteTimestamp);
+
+                // the ledger is still open, a new write is noticed
+                // while the follower is waiting for new entries
+                Thread delayedWrite = new Thread(() -> {
+                    try {
+                        Thread.sleep(20);
+                        writer.log(LogEntryFactory.beginTransaction(count + 1), true);
+                    } catch (Exception err) {
+                        throw new RuntimeException(err);
+                    }
+                });
+                delayedWrite.start();
+                while (entries.size() < count + 1) {
+                    follower.followTheLeader(positions.get(positions.size() - 1), (num, entry) -> {
+                        positions.add(num);
+                        entries.add(entry);
+                    });
+                    assertTrue(System.currentTimeMillis() - start < 30000);
+                }
+                delayedWrite.join();
+                assertEquals(count + 1, entries.size());
+                assertEquals(count + 1, entries.get(count).transactionId);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesAreGrouped() throws Exception {
+        final String tableSpaceUUID = UUID.randomUUID().toString();
+        try (ZookeeperMetadataStorageManager man = new ZookeeperMetadataStorageManager(testEnv.getAddress(),
+            testEnv.getTimeout(), testEnv.getPath());
+            BookkeeperCommitLogManager logManager = new BookkeeperCommitLogManager(man, new ServerConfiguration())) {
+            man.start();
+            logManager.setWriteBatchLingerTime(5);
+            logManager.start();
+
+            int threads = 8;
+            int entriesPerThread = 100;
+            Set<LogSequenceNumber> positions = ConcurrentHashMap.newKeySet();
+            try (CommitLog writer = logManager.createCommitLog(tableSpaceUUID)) {
+                writer.startWriting();
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < entriesPerThread; i++) {
+                            long transactionId = thread * entriesPerThread + i + 1;
+                            positions.add(writer.log(LogEntryFactory.beginTransaction(transactionId), true).getLogSequenceNumber());
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+                executor.shutdown();
+
+                // a group of entries logged together
+                List<LogEntry> group = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    group.add(LogEntryFactory.beginTransaction(threads * entriesPerThread + i + 1));
+                }
+                for (CommitLogResult result : writer.log(group, true)) {
+                    positions.add(result.getLogSequenceNumber());
+                }
+            }
+            int total = threads * entriesPerThread + 50;
+            assertTrue("written " + total + " entries to " + positions.size() + " bookkeeper entries", positions.size() < total);
+
+            // recovery and followers read every entry, in order
+            List<LogEntry> recovered = new ArrayList<>();
+            try (CommitLog reader = logManager.createCommitLog(tableSpaceUUID)) {
+                reader.recovery(LogSequenceNumber.START_OF_TIME, (num, entry) -> {
+                    assertTrue(positions.contains(num));
+                    recovered.add(entry);
+                }, false);
+            }
+            List<LogEntry> followed = new ArrayList<>();
+            try (CommitLog follower = logManager.createCommitLog(tableSpaceUUID)) {
+                follower.followTheLeader(LogSequenceNumber.START_OF_TIME, (num, entry) -> {
+                    followed.add(entry);
+                });
+            }
+            for (List<LogEntry> read : Arrays.asList(recovered, followed)) {
+                assertEquals(total, read.size());
+                long[] lastForThread = new long[threads + 1];
+                Set<Long> transactions = new HashSet<>();
+                for (LogEntry entry : read) {
+                    assertTrue(transactions.add(entry.transactionId));
+                    int thread = (int) Math.min(threads, (entry.transactionId - 1) / entriesPerThread);
+                    assertTrue(entry.transactionId > lastForThread[thread]);
+                    lastForThread[thread] = entry.transactionId;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWritesFailWhenWriterThreadDies() throws Exception {
+        final String tableSpaceUUID = UUID.randomUUID().toString();
+        try (ZookeeperMetadataStorageManager man = new ZookeeperMetadataStorageManager(testEnv.getAddress(),
+            testEnv.getTimeout(), testEnv.getPath());
+            BookkeeperCommitLogManager logManager = new BookkeeperCommitLogManager(man, new ServerConfiguration())) {
+            man.start();
+            logManager.start();
+
+            try (CommitLog writer = logManager.createCommitLog(tableSpaceUUID)) {
+                writer.startWriting();
+                writer.log(LogEntryFactory.beginTransaction(1), true);
+
+                Thread spool = Thread.getAllStackTraces().keySet().stream()
+                    .filter(t -> t.getName().startsWith("bookkeeper-writer-" + tableSpaceUUID))
+                    .findAny()
+                    .get();
+                spool.interrupt();
+                spool.join(10000);
+                assertFalse(spool.isAlive());
+
+                // writes fail instead of waiting for a thread which is not there anymore
+                try {
+                    writer.log(LogEntryFactory.beginTransaction(2), true);
+                    fail();
+                } catch (LogNotAvailableException expected) {
+                }
+            }
+        }
+    }
+}
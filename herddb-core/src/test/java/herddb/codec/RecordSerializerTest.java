@@ -23,6 +23,8 @@ import herddb.model.ColumnTypes;
 import herddb.model.Record;
 import herddb.model.StatementExecutionException;
 import herddb.model.Table;
+import herddb.utils.DataAccessor;
+import herddb.utils.RawString;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
@@ -31,7 +33,9 @@ import java.time.ZonedDateTime;
 import java.util.Map;
 import java.time.format.DateTimeFormatter;
 import java.util.TimeZone;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import org.junit.Test;
 
 /**
@@ -60,6 +64,30 @@ public class RecordSerializerTest {
         Map<String, Object> toBean = RecordSerializer.toBean(record, table);
     }
 
+    @Test
+    public void testPartialDataAccessor() {
+        Table table = Table.builder()
+            .name("t1")
+            .column("pk", ColumnTypes.STRING)
+            .column("a", ColumnTypes.STRING)
+            .column("b", ColumnTypes.LONG)
+            .column("c", ColumnTypes.INTEGER)
+            .primaryKey("pk")
+            .build();
+        Record record = RecordSerializer.makeRecord(table, "pk", "a",
+            "a", "test", "b", 1L, "c", 2);
+        DataAccessor partial = RecordSerializer.buildPartialDataAccessor(record, table, new int[]{0, 2});
+        assertArrayEquals(table.columnNames, partial.getFieldNames());
+        assertEquals(RawString.of("a"), partial.get("pk"));
+        assertNull(partial.get("a"));
+        assertEquals(1L, partial.get("b"));
+        assertNull(partial.get(3));
+
+        partial = RecordSerializer.buildPartialDataAccessor(record, table, new int[]{3});
+        assertNull(partial.get(0));
+        assertEquals(2, partial.get("c"));
+    }
+
     @Test
     public void testConvert() {
         testTimestamp("2015-03-29 01:00:00", "UTC", 1427590800000L);
@@ -0,0 +1,203 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.core;
+
+import static herddb.core.TestUtils.execute;
+import static herddb.core.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.file.FileCommitLogManager;
+import herddb.file.FileDataStorageManager;
+import herddb.file.FileMetadataStorageManager;
+import herddb.mem.MemoryCommitLogManager;
+import herddb.mem.MemoryDataStorageManager;
+import herddb.mem.MemoryMetadataStorageManager;
+import herddb.model.DMLStatementExecutionResult;
+import herddb.model.DuplicatePrimaryKeyException;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.StatementExecutionException;
+import herddb.model.TransactionContext;
+import herddb.model.Tuple;
+import herddb.model.commands.BulkInsertStatement;
+import herddb.model.commands.CreateTableSpaceStatement;
+import herddb.model.commands.RollbackTransactionStatement;
+import herddb.utils.DataAccessor;
+
+/**
+ * Tests about {@link BulkInsertStatement}
+ *
+ * @author enrico.olivelli
+ */
+public class BulkInsertTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BulkInsertStatement bulkInsert(String table, String[] columns, Object[]... rows) {
+        List<DataAccessor> records = new ArrayList<>();
+        for (Object[] row : rows) {
+            records.add(new Tuple(columns, row));
+        }
+        return new BulkInsertStatement("tblspace1", table, columns, records);
+    }
+
+    private static int count(DBManager manager, String table) throws Exception {
+        return scan(manager, "SELECT * FROM tblspace1." + table, Collections.emptyList()).consume().size();
+    }
+
+    @Test
+    public void testBulkInsertAndRecovery() throws Exception {
+        Path dataPath = folder.newFolder("data").toPath();
+        Path logsPath = folder.newFolder("logs").toPath();
+        Path metadataPath = folder.newFolder("metadata").toPath();
+        Path tmoDir = folder.newFolder("tmoDir").toPath();
+        String nodeId = "localhost";
+        String[] columns = {"id", "n1", "t1", "s1"};
+        try (DBManager manager = new DBManager(nodeId,
+            new FileMetadataStorageManager(metadataPath),
+            new FileDataStorageManager(dataPath),
+            new FileCommitLogManager(logsPath, 64 * 1024 * 1024),
+            tmoDir, null)) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            assertTrue(manager.waitForTablespace("tblspace1", 10000));
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (id string primary key, n1 int, t1 timestamp, s1 string)", Collections.emptyList());
+
+            // typed values and values as strings, like the ones read from a CSV file
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                if (i % 2 == 0) {
+                    rows.add(new Object[]{"k" + i, i, new Timestamp(1000L * i), "v" + i});
+                } else {
+                    rows.add(new Object[]{"k" + i, i + "", null, "v" + i});
+                }
+            }
+            DMLStatementExecutionResult result = (DMLStatementExecutionResult) manager.executeStatement(
+                bulkInsert("tsql", columns, rows.toArray(new Object[0][])),
+                StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            assertEquals(100, result.getUpdateCount());
+            assertEquals(100, count(manager, "tsql"));
+
+            List<DataAccessor> records = scan(manager, "SELECT * FROM tblspace1.tsql WHERE id=?", Arrays.asList("k3")).consume();
+            assertEquals(1, records.size());
+            assertEquals(Integer.valueOf(3), records.get(0).get("n1"));
+            assertNull(records.get(0).get("t1"));
+            assertEquals("v3", records.get(0).get("s1").toString());
+            records = scan(manager, "SELECT * FROM tblspace1.tsql WHERE id=?", Arrays.asList("k4")).consume();
+            assertEquals(new Timestamp(4000), records.get(0).get("t1"));
+
+            // duplicate key inside the chunk, nothing is inserted
+            try {
+                manager.executeStatement(bulkInsert("tsql", columns,
+                    new Object[]{"k1000", 1, null, null},
+                    new Object[]{"k1000", 2, null, null}),
+                    StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                fail();
+            } catch (DuplicatePrimaryKeyException ok) {
+            }
+            // duplicate key with an existing record, nothing is inserted
+            try {
+                manager.executeStatement(bulkInsert("tsql", columns,
+                    new Object[]{"k1001", 1, null, null},
+                    new Object[]{"k1", 2, null, null}),
+                    StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                fail();
+            } catch (DuplicatePrimaryKeyException ok) {
+            }
+            // unknown column
+            try {
+                manager.executeStatement(bulkInsert("tsql", new String[]{"id", "foo"},
+                    new Object[]{"k1002", 1}),
+                    StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                fail();
+            } catch (StatementExecutionException ok) {
+            }
+            assertEquals(100, count(manager, "tsql"));
+        }
+
+        try (DBManager manager = new DBManager(nodeId,
+            new FileMetadataStorageManager(metadataPath),
+            new FileDataStorageManager(dataPath),
+            new FileCommitLogManager(logsPath, 64 * 1024 * 1024),
+            tmoDir, null)) {
+            manager.start();
+            assertTrue(manager.waitForBootOfLocalTablespaces(10000));
+            assertEquals(100, count(manager, "tsql"));
+            List<DataAccessor> records = scan(manager, "SELECT * FROM tblspace1.tsql WHERE id=?", Arrays.asList("k99")).consume();
+            assertEquals(Integer.valueOf(99), records.get(0).get("n1"));
+        }
+    }
+
+    @Test
+    public void testAutoIncrementMultiColumnKeyAndTransaction() throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager(nodeId, new MemoryMetadataStorageManager(), new MemoryDataStorageManager(), new MemoryCommitLogManager(), null, null);) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            assertTrue(manager.waitForTablespace("tblspace1", 10000));
+
+            execute(manager, "CREATE TABLE tblspace1.tauto (n1 int primary key auto_increment, s1 string)", Collections.emptyList());
+            execute(manager, "CREATE TABLE tblspace1.tmulti (k1 string, k2 long, s1 string, primary key (k1, k2))", Collections.emptyList());
+
+            manager.executeStatement(bulkInsert("tauto", new String[]{"s1"}, new Object[]{"a"}, new Object[]{"b"}, new Object[]{"c"}),
+                StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            List<DataAccessor> records = scan(manager, "SELECT n1 FROM tblspace1.tauto ORDER BY n1", Collections.emptyList()).consume();
+            assertEquals(3, records.size());
+            assertEquals(Integer.valueOf(1), records.get(0).get("n1"));
+            assertEquals(Integer.valueOf(3), records.get(2).get("n1"));
+
+            manager.executeStatement(bulkInsert("tmulti", new String[]{"k1", "k2", "s1"},
+                new Object[]{"a", 1L, "x"}, new Object[]{"a", 2L, "y"}, new Object[]{"b", 1L, "z"}),
+                StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            records = scan(manager, "SELECT s1 FROM tblspace1.tmulti WHERE k1=? and k2=?", Arrays.asList("a", 2L)).consume();
+            assertEquals(1, records.size());
+            assertEquals("y", records.get(0).get("s1").toString());
+
+            // records inserted inside a transaction are discarded on rollback
+            DMLStatementExecutionResult result = (DMLStatementExecutionResult) manager.executeStatement(
+                bulkInsert("tmulti", new String[]{"k1", "k2"}, new Object[]{"c", 1L}, new Object[]{"c", 2L}),
+                StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.AUTOTRANSACTION_TRANSACTION);
+            assertEquals(2, result.getUpdateCount());
+            long tx = result.transactionId;
+            assertTrue(tx > 0);
+            assertEquals(5, scan(manager, "SELECT * FROM tblspace1.tmulti", Collections.emptyList(), new TransactionContext(tx)).consume().size());
+            manager.executeStatement(new RollbackTransactionStatement("tblspace1", tx), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            assertEquals(3, count(manager, "tmulti"));
+        }
+    }
+
+}
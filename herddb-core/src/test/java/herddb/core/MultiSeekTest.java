@@ -0,0 +1,205 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.core;
+
+import static herddb.core.TestUtils.execute;
+import static herddb.core.TestUtils.executeUpdate;
+import static herddb.core.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import herddb.file.FileCommitLogManager;
+import herddb.file.FileDataStorageManager;
+import herddb.file.FileMetadataStorageManager;
+import herddb.index.KeyToPageIndex;
+import herddb.index.PrimaryIndexMultiSeek;
+import herddb.index.SecondaryIndexMultiSeek;
+import herddb.mem.MemoryCommitLogManager;
+import herddb.mem.MemoryDataStorageManager;
+import herddb.mem.MemoryMetadataStorageManager;
+import herddb.model.DataScanner;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.TableSpace;
+import herddb.model.TransactionContext;
+import herddb.model.commands.CreateTableSpaceStatement;
+import herddb.model.commands.ScanStatement;
+import herddb.sql.TranslatedQuery;
+import herddb.utils.Bytes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests about lookups of many keys, like IN-lists
+ *
+ * @author enrico.olivelli
+ */
+public class MultiSeekTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void primaryKeyInList() throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager("localhost", new MemoryMetadataStorageManager(), new MemoryDataStorageManager(), new MemoryCommitLogManager(), null, null);) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            manager.waitForTablespace("tblspace1", 10000);
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string primary key, n1 int)", Collections.emptyList());
+            for (int i = 0; i < 20; i++) {
+                executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1) values(?,?)", Arrays.asList("a" + i, i));
+            }
+
+            assertIndexOperation(manager, "SELECT * FROM tblspace1.tsql WHERE k1 IN ('a1','a5','a3','a5','b')", PrimaryIndexMultiSeek.class);
+            assertEquals(Arrays.asList("a1", "a3", "a5"),
+                    scanKeys(manager, "SELECT k1 FROM tblspace1.tsql WHERE k1 IN ('a1','a5','a3','a5','b') ORDER BY k1", Collections.emptyList()));
+            assertEquals(Arrays.asList("a1", "a3", "a5"),
+                    scanKeys(manager, "SELECT k1 FROM tblspace1.tsql WHERE k1=? OR k1=? OR k1=? ORDER BY k1", Arrays.asList("a5", "a3", "a1")));
+
+            // other conditions are still applied
+            assertIndexOperation(manager, "SELECT * FROM tblspace1.tsql WHERE k1 IN ('a1','a5','a3') AND n1>=3", PrimaryIndexMultiSeek.class);
+            assertEquals(Arrays.asList("a3", "a5"),
+                    scanKeys(manager, "SELECT k1 FROM tblspace1.tsql WHERE k1 IN ('a1','a5','a3') AND n1>=3 ORDER BY k1", Collections.emptyList()));
+
+            // inside a transaction
+            long tx = TestUtils.beginTransaction(manager, "tblspace1");
+            executeUpdate(manager, "DELETE FROM tblspace1.tsql WHERE k1='a3'", Collections.emptyList(), new TransactionContext(tx));
+            executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1) values('b',100)", Collections.emptyList(), new TransactionContext(tx));
+            try (DataScanner scan = scan(manager, "SELECT k1 FROM tblspace1.tsql WHERE k1 IN ('a1','a5','a3','b') ORDER BY k1", Collections.emptyList(), new TransactionContext(tx))) {
+                assertEquals(Arrays.asList("a1", "a5", "b"), scan.consume().stream().map(d -> d.get("k1").toString()).collect(Collectors.toList()));
+            }
+            TestUtils.commitTransaction(manager, "tblspace1", tx);
+
+            // updates and deletes
+            executeUpdate(manager, "UPDATE tblspace1.tsql SET n1=-1 WHERE k1 IN ('a1','a2')", Collections.emptyList());
+            assertEquals(Arrays.asList("a1", "a2"),
+                    scanKeys(manager, "SELECT k1 FROM tblspace1.tsql WHERE n1=-1 ORDER BY k1", Collections.emptyList()));
+            assertEquals(2, executeUpdate(manager, "DELETE FROM tblspace1.tsql WHERE k1 IN ('a1','a2','a3')", Collections.emptyList()).getUpdateCount());
+        }
+    }
+
+    @Test
+    public void primaryKeyInListReadsPagesInOrder() throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager("localhost",
+                new FileMetadataStorageManager(folder.newFolder("metadata").toPath()),
+                new FileDataStorageManager(folder.newFolder("data").toPath()),
+                new FileCommitLogManager(folder.newFolder("logs").toPath(), 64 * 1024 * 1024),
+                folder.newFolder("tmp").toPath(), null)) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            assertTrue(manager.waitForTablespace("tblspace1", 10000));
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string primary key, n1 int)", Collections.emptyList());
+            // greater keys are written first, so they are stored in older pages
+            for (int i = 9; i >= 0; i--) {
+                executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1) values(?,?)", Arrays.asList("a" + i, i));
+                manager.checkpoint();
+            }
+            KeyToPageIndex keyToPage = manager.getTableSpaceManager("tblspace1").getTableManager("tsql").getKeyToPageIndex();
+            assertTrue(keyToPage.isSortedAscending());
+
+            String query = "SELECT k1 FROM tblspace1.tsql WHERE k1 IN ('a1','a8','a5','a3')";
+            assertIndexOperation(manager, query, PrimaryIndexMultiSeek.class);
+            List<String> keys = scanKeys(manager, query, Collections.emptyList());
+            assertEquals(4, keys.size());
+            List<Long> pages = keys.stream()
+                    .map(k -> keyToPage.get(Bytes.from_string(k)))
+                    .collect(Collectors.toList());
+            List<Long> sortedPages = new ArrayList<>(pages);
+            Collections.sort(sortedPages);
+            assertEquals(sortedPages, pages);
+
+            // the order of the index is kept when results are sorted by the primary key
+            assertEquals(Arrays.asList("a1", "a3", "a5", "a8"),
+                    scanKeys(manager, query + " ORDER BY k1", Collections.emptyList()));
+        }
+    }
+
+    @Test
+    public void multiColumnPrimaryKey() throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager("localhost", new MemoryMetadataStorageManager(), new MemoryDataStorageManager(), new MemoryCommitLogManager(), null, null);) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            manager.waitForTablespace("tblspace1", 10000);
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string, n1 int, s1 string, primary key (k1, n1))", Collections.emptyList());
+            for (int i = 0; i < 20; i++) {
+                executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1,s1) values(?,?,?)", Arrays.asList("a" + (i % 2), i, "s" + i));
+            }
+
+            String query = "SELECT s1 FROM tblspace1.tsql WHERE (k1='a0' AND n1=2) OR (k1='a1' AND n1=3) OR (k1='a1' AND n1=4)";
+            assertIndexOperation(manager, query, PrimaryIndexMultiSeek.class);
+            try (DataScanner scan = scan(manager, query + " ORDER BY s1", Collections.emptyList())) {
+                assertEquals(Arrays.asList("s2", "s3"), scan.consume().stream().map(d -> d.get("s1").toString()).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void secondaryIndexInList() throws Exception {
+        secondaryIndexInList("hash");
+        secondaryIndexInList("brin");
+    }
+
+    private void secondaryIndexInList(String indexType) throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager("localhost", new MemoryMetadataStorageManager(), new MemoryDataStorageManager(), new MemoryCommitLogManager(), null, null);) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            manager.waitForTablespace("tblspace1", 10000);
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string primary key, n1 int)", Collections.emptyList());
+            execute(manager, "CREATE " + indexType + " INDEX test_n1 ON tblspace1.tsql(n1)", Collections.emptyList());
+            for (int i = 0; i < 20; i++) {
+                executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1) values(?,?)", Arrays.asList("a" + i, i % 5));
+            }
+
+            String query = "SELECT k1 FROM tblspace1.tsql WHERE n1 IN (1, 3, 1, 7)";
+            assertIndexOperation(manager, query, SecondaryIndexMultiSeek.class);
+            assertEquals(Arrays.asList("a1", "a11", "a13", "a16", "a18", "a3", "a6", "a8"),
+                    scanKeys(manager, query + " ORDER BY k1", Collections.emptyList()));
+        }
+    }
+
+    private static void assertIndexOperation(DBManager manager, String query, Class<?> expected) throws Exception {
+        TranslatedQuery translated = manager.getPlanner().translate(TableSpace.DEFAULT, query, Collections.emptyList(), true, true, false, -1);
+        ScanStatement scan = translated.plan.mainStatement.unwrap(ScanStatement.class);
+        assertTrue(scan.getPredicate().getIndexOperation() + "", expected.isInstance(scan.getPredicate().getIndexOperation()));
+    }
+
+    private static List<String> scanKeys(DBManager manager, String query, List<Object> parameters) throws Exception {
+        try (DataScanner scan = scan(manager, query, parameters)) {
+            return scan.consume().stream().map(d -> d.get("k1").toString()).collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.core;
+
+import static herddb.core.TestUtils.execute;
+import static herddb.core.TestUtils.executeUpdate;
+import static herddb.core.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import herddb.mem.MemoryCommitLogManager;
+import herddb.mem.MemoryDataStorageManager;
+import herddb.mem.MemoryMetadataStorageManager;
+import herddb.model.DataScanner;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.TransactionContext;
+import herddb.model.commands.CreateTableSpaceStatement;
+import herddb.server.ServerConfiguration;
+import herddb.utils.DataAccessor;
+
+/**
+ * Aggregations computed using parallel scans
+ *
+ * @author enrico.olivelli
+ */
+public class ParallelAggregationTest {
+
+    private static final int ROWS = 10000;
+
+    @Test
+    public void parallelAggregations() throws Exception {
+        testAggregations(4);
+    }
+
+    @Test
+    public void singleThreadAggregations() throws Exception {
+        testAggregations(1);
+    }
+
+    private void testAggregations(int threads) throws Exception {
+        String nodeId = "localhost";
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.set(ServerConfiguration.PROPERTY_PARALLEL_SCAN_THREADS, threads);
+        try (DBManager manager = new DBManager("localhost", new MemoryMetadataStorageManager(), new MemoryDataStorageManager(),
+                new MemoryCommitLogManager(), null, null, configuration);) {
+            manager.start();
+            if (threads > 1) {
+                assertNotNull(manager.getParallelScanPool());
+            } else {
+                assertNull(manager.getParallelScanPool());
+            }
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            manager.waitForTablespace("tblspace1", 10000);
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string primary key,n1 int,s1 string)", Collections.emptyList());
+
+            long sum = 0;
+            Map<String, Long> countByGroup = new HashMap<>();
+            Map<String, Long> sumByGroup = new HashMap<>();
+            for (int i = 0; i < ROWS; i++) {
+                String group = "g" + (i % 7);
+                assertEquals(1, executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1,s1) values(?,?,?)",
+                        Arrays.asList("mykey" + i, Integer.valueOf(i), group)).getUpdateCount());
+                sum += i;
+                countByGroup.merge(group, 1L, Long::sum);
+                sumByGroup.merge(group, (long) i, Long::sum);
+            }
+
+            long parallelScans = manager.getParallelScansCount();
+            try (DataScanner scan1 = scan(manager, "SELECT COUNT(*) as cc FROM tblspace1.tsql WHERE n1 >= ?", Arrays.asList(Integer.valueOf(ROWS - 10)));) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(Long.valueOf(10), result.get(0).get("cc"));
+            }
+            assertParallelScan(manager, threads, parallelScans);
+
+            parallelScans = manager.getParallelScansCount();
+            try (DataScanner scan1 = scan(manager, "SELECT COUNT(*) as cc FROM tblspace1.tsql WHERE n1 < ?", Arrays.asList(Integer.valueOf(-1)));) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(Long.valueOf(0), result.get(0).get("cc"));
+            }
+            assertParallelScan(manager, threads, parallelScans);
+
+            // a row with nulls
+            assertEquals(1, executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1) values(?)",
+                    Arrays.asList("nullrow")).getUpdateCount());
+
+            parallelScans = manager.getParallelScansCount();
+            try (DataScanner scan1 = scan(manager, "SELECT COUNT(*) as cc, SUM(n1) as ss, MIN(n1) as mi, MAX(n1) as ma FROM tblspace1.tsql", Collections.emptyList());) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(Long.valueOf(ROWS + 1), result.get(0).get("cc"));
+                assertEquals(Long.valueOf(sum), result.get(0).get("ss"));
+                assertEquals(0, ((Number) result.get(0).get("mi")).intValue());
+                assertEquals(ROWS - 1, ((Number) result.get(0).get("ma")).intValue());
+            }
+            assertParallelScan(manager, threads, parallelScans);
+
+            parallelScans = manager.getParallelScansCount();
+            try (DataScanner scan1 = scan(manager, "SELECT s1, COUNT(*) as cc, SUM(n1) as ss FROM tblspace1.tsql WHERE s1 is not null GROUP BY s1", Collections.emptyList());) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(countByGroup.size(), result.size());
+                for (DataAccessor row : result) {
+                    String group = row.get("s1").toString();
+                    assertEquals(countByGroup.get(group), row.get("cc"));
+                    assertEquals(sumByGroup.get(group), row.get("ss"));
+                }
+            }
+            assertParallelScan(manager, threads, parallelScans);
+
+            // inside a transaction data has to be read using the transaction, no parallel scan
+            long tx = TestUtils.beginTransaction(manager, "tblspace1");
+            parallelScans = manager.getParallelScansCount();
+            assertEquals(1, executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1,s1) values(?,?,?)",
+                    Arrays.asList("newkey", Integer.valueOf(-5), "g0"), new TransactionContext(tx)).getUpdateCount());
+            try (DataScanner scan1 = scan(manager, "SELECT COUNT(*) as cc, MIN(n1) as mi FROM tblspace1.tsql", Collections.emptyList(), new TransactionContext(tx));) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(Long.valueOf(ROWS + 2), result.get(0).get("cc"));
+                assertEquals(-5, ((Number) result.get(0).get("mi")).intValue());
+            }
+            assertEquals(parallelScans, manager.getParallelScansCount());
+            TestUtils.commitTransaction(manager, "tblspace1", tx);
+
+            try (DataScanner scan1 = scan(manager, "SELECT COUNT(*) as cc, MIN(n1) as mi FROM tblspace1.tsql", Collections.emptyList());) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(Long.valueOf(ROWS + 2), result.get(0).get("cc"));
+                assertEquals(-5, ((Number) result.get(0).get("mi")).intValue());
+            }
+        }
+    }
+
+    private static void assertParallelScan(DBManager manager, int threads, long parallelScansBefore) {
+        if (threads > 1) {
+            assertEquals(parallelScansBefore + 1, manager.getParallelScansCount());
+        } else {
+            assertEquals(0, manager.getParallelScansCount());
+        }
+    }
+
+}
@@ -25,12 +25,19 @@ import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import herddb.codec.RecordSerializer;
+import herddb.file.FileCommitLog;
 import herddb.file.FileCommitLogManager;
 import herddb.file.FileDataStorageManager;
 import herddb.file.FileMetadataStorageManager;
@@ -56,6 +63,7 @@ import herddb.model.commands.InsertStatement;
 import herddb.model.commands.ScanStatement;
 import herddb.model.commands.TruncateTableStatement;
 import herddb.model.commands.UpdateStatement;
+import herddb.server.ServerConfiguration;
 import herddb.sql.TranslatedQuery;
 import herddb.utils.Bytes;
 import static org.junit.Assert.fail;
@@ -715,4 +723,90 @@ public class RestartTest {
 
     }
 
+    @Test
+    public void bootTableSpacesConcurrently() throws Exception {
+
+        Path dataPath = folder.newFolder("data").toPath();
+        Path logsPath = folder.newFolder("logs").toPath();
+        Path metadataPath = folder.newFolder("metadata").toPath();
+        Path tmoDir = folder.newFolder("tmoDir").toPath();
+        String nodeId = "localhost";
+        int numTableSpaces = 6;
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.set(ServerConfiguration.PROPERTY_TABLESPACES_BOOT_PARALLELISM, 3);
+        try (DBManager manager = new DBManager("localhost",
+            new FileMetadataStorageManager(metadataPath),
+            new FileDataStorageManager(dataPath),
+            new FileCommitLogManager(logsPath, 64 * 1024 * 1024),
+            tmoDir, null, configuration)) {
+            manager.start();
+
+            for (int i = 0; i < numTableSpaces; i++) {
+                String tableSpace = "tblspace" + i;
+                CreateTableSpaceStatement st1 = new CreateTableSpaceStatement(tableSpace, Collections.singleton(nodeId), nodeId, 1, 0, 0);
+                manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                assertTrue(manager.waitForTablespace(tableSpace, 10000));
+
+                Table table = Table
+                    .builder()
+                    .tablespace(tableSpace)
+                    .name("t1")
+                    .column("id", ColumnTypes.STRING)
+                    .column("name", ColumnTypes.STRING)
+                    .primaryKey("id")
+                    .build();
+                manager.executeStatement(new CreateTableStatement(table), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                for (int j = 0; j < 100; j++) {
+                    Bytes key = Bytes.from_string("k" + j);
+                    manager.executeStatement(new InsertStatement(tableSpace, table.name, new Record(key, key)), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                }
+                if (i % 2 == 0) {
+                    // half of the tablespaces recover from a checkpoint, the others only from the log
+                    manager.getTableSpaceManager(tableSpace).checkpoint(false, false);
+                }
+            }
+        }
+
+        // the first two tablespaces which boot wait for each other, this can
+        // only happen if they are booting at the same time
+        CyclicBarrier firstBoots = new CyclicBarrier(2);
+        AtomicInteger bootsStarted = new AtomicInteger();
+        AtomicBoolean overlappingBoots = new AtomicBoolean();
+        FileCommitLogManager commitLogManager = new FileCommitLogManager(logsPath, 64 * 1024 * 1024) {
+            @Override
+            public FileCommitLog createCommitLog(String tableSpace) {
+                if (bootsStarted.getAndIncrement() < 2) {
+                    try {
+                        firstBoots.await(10, TimeUnit.SECONDS);
+                        overlappingBoots.set(true);
+                    } catch (InterruptedException | BrokenBarrierException | TimeoutException notOverlapping) {
+                    }
+                }
+                return super.createCommitLog(tableSpace);
+            }
+        };
+        try (DBManager manager = new DBManager("localhost",
+            new FileMetadataStorageManager(metadataPath),
+            new FileDataStorageManager(dataPath),
+            commitLogManager,
+            tmoDir, null, configuration)) {
+            manager.start();
+
+            assertTrue(manager.waitForBootOfLocalTablespaces(10000));
+            // the first two boots met while both of them were still opening their log
+            assertTrue(overlappingBoots.get());
+
+            for (int i = 0; i < numTableSpaces; i++) {
+                String tableSpace = "tblspace" + i;
+                TableSpaceManager tableSpaceManager = manager.getTableSpaceManager(tableSpace);
+                assertTrue(tableSpaceManager.isLeader());
+                for (int j = 0; j < 100; j++) {
+                    Bytes key = Bytes.from_string("k" + j);
+                    GetResult result = manager.get(new GetStatement(tableSpace, "t1", key, null, false), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                    assertTrue(result.found());
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,116 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.core;
+
+import static herddb.core.TestUtils.beginTransaction;
+import static herddb.core.TestUtils.execute;
+import static herddb.core.TestUtils.executeUpdate;
+import static herddb.core.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import herddb.mem.MemoryCommitLogManager;
+import herddb.mem.MemoryDataStorageManager;
+import herddb.mem.MemoryMetadataStorageManager;
+import herddb.model.DataScanner;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.TransactionContext;
+import herddb.model.commands.CreateTableSpaceStatement;
+import herddb.utils.DataAccessor;
+import herddb.utils.RawString;
+
+/**
+ * Sorted scans deserialize only the columns needed by the projection and by
+ * the sort
+ *
+ * @author enrico.olivelli
+ */
+public class SortedScanProjectionTest {
+
+    private static final int ROWS = 100;
+
+    @Test
+    public void test() throws Exception {
+        String nodeId = "localhost";
+        try (DBManager manager = new DBManager("localhost", new MemoryMetadataStorageManager(), new MemoryDataStorageManager(),
+                new MemoryCommitLogManager(), null, null);) {
+            manager.start();
+            CreateTableSpaceStatement st1 = new CreateTableSpaceStatement("tblspace1", Collections.singleton(nodeId), nodeId, 1, 0, 0);
+            manager.executeStatement(st1, StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            manager.waitForTablespace("tblspace1", 10000);
+
+            execute(manager, "CREATE TABLE tblspace1.tsql (k1 string primary key,n1 int,s1 string,wide string)", Collections.emptyList());
+            char[] wide = new char[1000];
+            Arrays.fill(wide, 'x');
+            for (int i = 0; i < ROWS; i++) {
+                assertEquals(1, executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1,s1,wide) values(?,?,?,?)",
+                        Arrays.asList("mykey" + i, Integer.valueOf(i), "g" + (i % 7), new String(wide))).getUpdateCount());
+            }
+
+            try (DataScanner scan1 = scan(manager, "SELECT n1, k1 FROM tblspace1.tsql ORDER BY n1 DESC", Collections.emptyList());) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(ROWS, result.size());
+                for (int i = 0; i < ROWS; i++) {
+                    int n1 = ROWS - 1 - i;
+                    assertEquals(Arrays.asList("n1", "k1"), Arrays.asList(result.get(i).getFieldNames()));
+                    assertEquals(Integer.valueOf(n1), result.get(i).get("n1"));
+                    assertEquals(RawString.of("mykey" + n1), result.get(i).get("k1"));
+                }
+            }
+
+            try (DataScanner scan1 = scan(manager, "SELECT k1, n1 + 1 as n FROM tblspace1.tsql WHERE n1 < ? ORDER BY s1 DESC, n1 LIMIT 3",
+                    Arrays.asList(Integer.valueOf(50)));) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(3, result.size());
+                assertEquals(RawString.of("mykey6"), result.get(0).get("k1"));
+                assertEquals(7, ((Number) result.get(0).get("n")).intValue());
+                assertEquals(RawString.of("mykey13"), result.get(1).get("k1"));
+                assertEquals(RawString.of("mykey20"), result.get(2).get("k1"));
+            }
+
+            try (DataScanner scan1 = scan(manager, "SELECT * FROM tblspace1.tsql ORDER BY n1 LIMIT 1", Collections.emptyList());) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(1, result.size());
+                assertEquals(RawString.of("mykey0"), result.get(0).get("k1"));
+                assertEquals(RawString.of(new String(wide)), result.get(0).get("wide"));
+            }
+
+            // data from the transaction buffer
+            long tx = beginTransaction(manager, "tblspace1");
+            assertEquals(1, executeUpdate(manager, "INSERT INTO tblspace1.tsql(k1,n1) values(?,?)",
+                    Arrays.asList("txkey", Integer.valueOf(-1)), new TransactionContext(tx)).getUpdateCount());
+            try (DataScanner scan1 = scan(manager, "SELECT s1, k1 FROM tblspace1.tsql ORDER BY n1 LIMIT 2", Collections.emptyList(),
+                    new TransactionContext(tx));) {
+                List<DataAccessor> result = scan1.consume();
+                assertEquals(2, result.size());
+                assertEquals(RawString.of("txkey"), result.get(0).get("k1"));
+                assertNull(result.get(0).get("s1"));
+                assertEquals(RawString.of("mykey0"), result.get(1).get("k1"));
+                assertEquals(RawString.of("g0"), result.get(1).get("s1"));
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.DMLResult;
+import herddb.client.GetResult;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.HDBException;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about the asynchronous client API
+ *
+ * @author enrico.olivelli
+ */
+public class AsyncClientApiTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+
+                List<CompletableFuture<DMLResult>> inserts = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    inserts.add(connection.executeUpdateAsync(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?,?)", 0, false, i % 2 == 0, Arrays.asList("k" + i, i)));
+                }
+                for (CompletableFuture<DMLResult> insert : inserts) {
+                    assertEquals(1, insert.get().updateCount);
+                }
+
+                List<CompletableFuture<GetResult>> gets = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    gets.add(connection.executeGetAsync(TableSpace.DEFAULT,
+                            "SELECT * FROM mytable WHERE id=?", 0, true, Arrays.asList("k" + i)));
+                }
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(Long.valueOf(i), gets.get(i).get().data.get("n1"));
+                }
+                assertNull(connection.executeGetAsync(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable WHERE id=?", 0, true, Arrays.asList("nope")).get().data);
+
+                List<GetResult> batch = connection.executeGetsAsync(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable WHERE id=?", 0, true,
+                        Arrays.asList(Arrays.asList("k1"), Arrays.asList("nope"))).get();
+                assertEquals(Long.valueOf(1), batch.get(0).data.get("n1"));
+                assertNull(batch.get(1).data);
+
+                List<DMLResult> updates = connection.executeUpdatesAsync(TableSpace.DEFAULT,
+                        "UPDATE mytable set n1=? WHERE id=?", 0, false, true,
+                        Arrays.asList(Arrays.asList(-1, "k1"), Arrays.asList(-2, "k2"))).get();
+                assertEquals(2, updates.size());
+                assertEquals(1, updates.get(0).updateCount);
+                assertEquals(1, updates.get(1).updateCount);
+
+                try {
+                    connection.executeUpdateAsync(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList("k1", 1)).get();
+                    fail();
+                } catch (ExecutionException err) {
+                    assertTrue(err.getCause() instanceof HDBException);
+                }
+            }
+        }
+    }
+}
@@ -26,9 +26,11 @@ import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -157,4 +159,69 @@ public class DownloadTableSpaceTest {
         }
     }
 
+    @Test
+    public void downloadTablespaceParallelTest() throws Exception {
+        ServerConfiguration serverconfig_1 = new ServerConfiguration(folder.newFolder().toPath());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_NODEID, "server1");
+        serverconfig_1.set(ServerConfiguration.PROPERTY_PORT, 7867);
+        serverconfig_1.set(ServerConfiguration.PROPERTY_MODE, ServerConfiguration.PROPERTY_MODE_CLUSTER);
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_ADDRESS, testEnv.getAddress());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_PATH, testEnv.getPath());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_SESSIONTIMEOUT, testEnv.getTimeout());
+
+        try (Server server_1 = new Server(serverconfig_1)) {
+            server_1.start();
+            server_1.waitForStandaloneBoot();
+            for (int t = 0; t < 4; t++) {
+                Table table = Table.builder()
+                    .name("t" + t)
+                    .column("c", ColumnTypes.INTEGER)
+                    .primaryKey("c")
+                    .build();
+                server_1.getManager().executeStatement(new CreateTableStatement(table), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                for (int i = 0; i < 1000 * (t + 1); i++) {
+                    server_1.getManager().executeUpdate(new InsertStatement(TableSpace.DEFAULT, "t" + t, RecordSerializer.makeRecord(table, "c", i)), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                }
+            }
+
+            Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+            Map<String, Boolean> ended = new ConcurrentHashMap<>();
+
+            try (HDBClient client = new HDBClient(new ClientConfiguration(folder.newFolder().toPath()));
+                HDBConnection con = client.openConnection()) {
+                client.setClientSideMetadataProvider(new ZookeeperClientSideMetadataProvider(testEnv.getAddress(), testEnv.getTimeout(), testEnv.getPath()));
+                CountDownLatch count = new CountDownLatch(1);
+                con.dumpTableSpace(TableSpace.DEFAULT, new TableSpaceDumpReceiver() {
+
+                    @Override
+                    public void finish(LogSequenceNumber logSequenceNumber) {
+                        count.countDown();
+                    }
+
+                    @Override
+                    public void beginTable(DumpedTableMetadata table, Map<String, Object> stats) {
+                        counts.put(table.table.name, new AtomicInteger());
+                    }
+
+                    @Override
+                    public void receiveTableDataChunk(String table, List<Record> records) {
+                        counts.get(table).addAndGet(records.size());
+                    }
+
+                    @Override
+                    public void endTable(String table) {
+                        ended.put(table, true);
+                    }
+
+                }, 89, false, 3
+                );
+                assertTrue(count.await(20, TimeUnit.SECONDS));
+                assertEquals(4, ended.size());
+                for (int t = 0; t < 4; t++) {
+                    assertEquals(1000 * (t + 1), counts.get("t" + t).get());
+                }
+            }
+        }
+    }
+
 }
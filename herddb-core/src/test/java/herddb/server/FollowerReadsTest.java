@@ -0,0 +1,198 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.codec.RecordSerializer;
+import herddb.core.stats.TableSpaceManagerStats;
+import herddb.model.ColumnTypes;
+import herddb.model.DataScanner;
+import herddb.model.NotLeaderException;
+import herddb.model.ScanResult;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.Table;
+import herddb.model.TableSpace;
+import herddb.model.TransactionContext;
+import herddb.model.commands.AlterTableSpaceStatement;
+import herddb.model.commands.CreateTableStatement;
+import herddb.model.commands.DeleteStatement;
+import herddb.model.commands.InsertStatement;
+import herddb.sql.TranslatedQuery;
+import herddb.utils.Bytes;
+import herddb.utils.ZKTestEnv;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reads served by followers, within the staleness accepted by the client
+ *
+ * @author enrico.olivelli
+ */
+public class FollowerReadsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ZKTestEnv testEnv;
+
+    @Before
+    public void beforeSetup() throws Exception {
+        testEnv = new ZKTestEnv(folder.newFolder("zkdata").toPath());
+        testEnv.startBookie();
+    }
+
+    @After
+    public void afterTeardown() throws Exception {
+        if (testEnv != null) {
+            testEnv.close();
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        ServerConfiguration serverconfig_1 = new ServerConfiguration(folder.newFolder("server1").toPath());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_NODEID, "server1");
+        serverconfig_1.set(ServerConfiguration.PROPERTY_PORT, 7867);
+        serverconfig_1.set(ServerConfiguration.PROPERTY_MODE, ServerConfiguration.PROPERTY_MODE_CLUSTER);
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_ADDRESS, testEnv.getAddress());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_PATH, testEnv.getPath());
+        serverconfig_1.set(ServerConfiguration.PROPERTY_ZOOKEEPER_SESSIONTIMEOUT, testEnv.getTimeout());
+
+        ServerConfiguration serverconfig_2 = serverconfig_1
+                .copy()
+                .set(ServerConfiguration.PROPERTY_NODEID, "server2")
+                .set(ServerConfiguration.PROPERTY_BASEDIR, folder.newFolder("server2").toPath().toAbsolutePath())
+                .set(ServerConfiguration.PROPERTY_PORT, 7868);
+
+        try (Server server_1 = new Server(serverconfig_1)) {
+            server_1.start();
+            server_1.waitForStandaloneBoot();
+            Table table = Table.builder()
+                    .name("t1")
+                    .column("c", ColumnTypes.INTEGER)
+                    .primaryKey("c")
+                    .build();
+            server_1.getManager().executeStatement(new CreateTableStatement(table), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            server_1.getManager().executeUpdate(new InsertStatement(TableSpace.DEFAULT, "t1", RecordSerializer.makeRecord(table, "c", 1)), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+            server_1.getManager().executeUpdate(new InsertStatement(TableSpace.DEFAULT, "t1", RecordSerializer.makeRecord(table, "c", 2)), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+
+            try (Server server_2 = new Server(serverconfig_2)) {
+                server_2.start();
+
+                server_1.getManager().executeStatement(new AlterTableSpaceStatement(TableSpace.DEFAULT,
+                        new HashSet<>(Arrays.asList("server1", "server2")), "server1", 2, 0), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+
+                assertTrue(server_2.getManager().waitForTablespace(TableSpace.DEFAULT, 60000, false));
+
+                // wait for data to arrive on server_2
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        if (countOnFollower(server_2, 60000) == 1) {
+                            break;
+                        }
+                    } catch (NotLeaderException stillBooting) {
+                    }
+                    Thread.sleep(100);
+                }
+                assertEquals(1, countOnFollower(server_2, 60000));
+
+                // the follower knows how far it is behind, as reported by JMX,
+                // writes of the leader are visible within the explicit LAC interval
+                long written = System.currentTimeMillis();
+                server_1.getManager().executeUpdate(new InsertStatement(TableSpace.DEFAULT, "t1", RecordSerializer.makeRecord(table, "c", 3)), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+                TableSpaceManagerStats followerStats = server_2.getManager().getTableSpaceManager(TableSpace.DEFAULT).getStats();
+                for (int i = 0; i < 100; i++) {
+                    if (followerStats.getFollowerLagEntries() == 0
+                            && followerStats.getFollowerLagMillis() >= 0
+                            && followerStats.getFollowerLagMillis() <= System.currentTimeMillis() - written) {
+                        break;
+                    }
+                    Thread.sleep(100);
+                }
+                assertEquals(0, followerStats.getFollowerLagEntries());
+                long lagMillis = followerStats.getFollowerLagMillis();
+                assertTrue("lag " + lagMillis, lagMillis >= 0 && lagMillis <= System.currentTimeMillis() - written);
+                server_1.getManager().executeUpdate(new DeleteStatement(TableSpace.DEFAULT, "t1", Bytes.from_int(3), null), StatementEvaluationContext.DEFAULT_EVALUATION_CONTEXT(), TransactionContext.NO_TRANSACTION);
+
+                // a follower never answers to clients which do not accept stale data
+                try {
+                    countOnFollower(server_2, -1);
+                    fail();
+                } catch (NotLeaderException expected) {
+                }
+
+                ClientConfiguration client_configuration = new ClientConfiguration(folder.newFolder().toPath());
+                client_configuration.set(ClientConfiguration.PROPERTY_MODE, ServerConfiguration.PROPERTY_MODE_CLUSTER);
+                client_configuration.set(ClientConfiguration.PROPERTY_ZOOKEEPER_ADDRESS, testEnv.getAddress());
+                client_configuration.set(ClientConfiguration.PROPERTY_ZOOKEEPER_PATH, testEnv.getPath());
+                client_configuration.set(ClientConfiguration.PROPERTY_ZOOKEEPER_SESSIONTIMEOUT, testEnv.getTimeout());
+                client_configuration.set(ClientConfiguration.PROPERTY_FOLLOWER_READS_MAX_LAG, 60000);
+
+                try (HDBClient client = new HDBClient(client_configuration);
+                        HDBConnection connection = client.openConnection()) {
+                    assertEquals(60000, connection.getMaxFollowerLag());
+                    for (int i = 0; i < 10; i++) {
+                        try (ScanResultSet scan = connection.executeScan(TableSpace.DEFAULT, "SELECT * FROM t1 WHERE c=1", Collections.emptyList(), 0, 0, 10)) {
+                            assertEquals(1, scan.consume().size());
+                        }
+                    }
+                    // reads have been spread among the replicas
+                    assertTrue(connection.getChannelStats().stream().anyMatch(s -> s.getNodeId().equals("server2")));
+                    assertTrue(connection.getChannelStats().stream().anyMatch(s -> s.getNodeId().equals("server1")));
+
+                    // a follower which is too far behind is skipped
+                    try (ScanResultSet scan = connection.executeScan(TableSpace.DEFAULT, "SELECT * FROM t1", false, Collections.emptyList(), 0, 0, 10, 0)) {
+                        assertEquals(2, scan.consume().size());
+                    }
+
+                    // a follower which is not reachable is skipped
+                    server_2.close();
+                    for (int i = 0; i < 10; i++) {
+                        try (ScanResultSet scan = connection.executeScan(TableSpace.DEFAULT, "SELECT * FROM t1 WHERE c=1", Collections.emptyList(), 0, 0, 10)) {
+                            assertEquals(1, scan.consume().size());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int countOnFollower(Server server, long maxFollowerLag) throws Exception {
+        TranslatedQuery translated = server.getManager().getPlanner().translate(TableSpace.DEFAULT,
+                "SELECT * FROM t1 WHERE c=1", Collections.emptyList(), true, true, false, -1);
+        translated.context.setMaxFollowerLag(maxFollowerLag);
+        try (DataScanner scan = ((ScanResult) server.getManager().executePlan(translated.plan, translated.context, TransactionContext.NO_TRANSACTION)).dataScanner) {
+            return scan.consume().size();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ChannelStats;
+import herddb.client.ClientConfiguration;
+import herddb.client.DMLResult;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about connections which use more than one channel to the server
+ *
+ * @author enrico.olivelli
+ */
+public class MultipleChannelsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSpreadRequests() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_NETWORK_CHANNELS_PER_SERVER, 3);
+            clientConfiguration.set(ClientConfiguration.PROPERTY_NETWORK_BULK_CHANNEL, true);
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+
+                List<CompletableFuture<DMLResult>> inserts = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    inserts.add(connection.executeUpdateAsync(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList("k" + i, i)));
+                }
+                for (CompletableFuture<DMLResult> insert : inserts) {
+                    assertEquals(1, insert.get().updateCount);
+                }
+
+                // a transaction must stay on the same channel
+                long tx = connection.beginTransaction(TableSpace.DEFAULT);
+                for (int i = 100; i < 110; i++) {
+                    connection.executeUpdate(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?,?)", tx, false, true, Arrays.asList("k" + i, i));
+                }
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable", true, Collections.emptyList(), tx, 0, 10)) {
+                    assertEquals(110, scanner.consume().size());
+                }
+                connection.commitTransaction(TableSpace.DEFAULT, tx);
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(110, scanner.consume().size());
+                }
+
+                List<ChannelStats> stats = connection.getChannelStats();
+                assertEquals(stats.toString(), 4, stats.size());
+                for (ChannelStats channel : stats) {
+                    assertTrue(channel.toString(), channel.isConnected());
+                    assertEquals(0, channel.getInFlightRequests());
+                }
+            }
+        }
+    }
+}
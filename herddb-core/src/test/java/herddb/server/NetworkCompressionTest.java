@@ -0,0 +1,119 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ChannelStats;
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about the compression of large messages
+ *
+ * @author enrico.olivelli
+ */
+public class NetworkCompressionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String VALUE = "a value which is very easy to compress, a value which is very easy to compress";
+
+    @Test
+    public void testCompressLargeMessages() throws Exception {
+        List<ChannelStats> stats = runWorkload(true, 1024);
+        assertEquals(1, stats.size());
+        ChannelStats channel = stats.get(0);
+        assertTrue(channel.toString(), channel.getCompressedBytesSent() > 0);
+        assertTrue(channel.toString(), channel.getCompressedBytesSent() < channel.getUncompressedBytesSent());
+        assertTrue(channel.toString(), channel.getCompressedBytesReceived() > 0);
+        assertTrue(channel.toString(), channel.getCompressedBytesReceived() < channel.getUncompressedBytesReceived());
+    }
+
+    @Test
+    public void testCompressionDisabledOnClient() throws Exception {
+        List<ChannelStats> stats = runWorkload(true, 0);
+        assertNoCompression(stats.get(0));
+    }
+
+    @Test
+    public void testCompressionDisabledOnServer() throws Exception {
+        List<ChannelStats> stats = runWorkload(false, 1024);
+        assertNoCompression(stats.get(0));
+    }
+
+    private static void assertNoCompression(ChannelStats channel) {
+        assertEquals(channel.toString(), 0, channel.getCompressedBytesSent());
+        assertEquals(channel.toString(), 0, channel.getUncompressedBytesSent());
+        assertEquals(channel.toString(), 0, channel.getCompressedBytesReceived());
+        assertEquals(channel.toString(), 0, channel.getUncompressedBytesReceived());
+    }
+
+    private List<ChannelStats> runWorkload(boolean serverCompression, int clientThreshold) throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        ServerConfiguration serverConfiguration = new ServerConfiguration(baseDir);
+        // messages must be encoded even if the client runs in the same JVM
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE, false);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_COMPRESSION_ENABLED, serverCompression);
+        try (Server server = new Server(serverConfiguration)) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_NETWORK_COMPRESSION_THRESHOLD, clientThreshold);
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, s1 string)", 0, false, true, Collections.emptyList());
+                StringBuilder large = new StringBuilder();
+                for (int i = 0; i < 100; i++) {
+                    large.append(VALUE);
+                }
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "INSERT INTO mytable (id,s1) values(?,?)", 0, false, true, Arrays.asList("large", large.toString()));
+                for (int i = 0; i < 500; i++) {
+                    connection.executeUpdate(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,s1) values(?,?)", 0, false, true, Arrays.asList("k" + i, VALUE));
+                }
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable", true, Collections.emptyList(), 0, 0, 1000)) {
+                    assertEquals(501, scanner.consume().size());
+                }
+                return connection.getChannelStats();
+            }
+        }
+    }
+}
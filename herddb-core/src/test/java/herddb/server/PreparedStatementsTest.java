@@ -0,0 +1,242 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.GetResult;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about statements prepared on the server and referred by id
+ *
+ * @author enrico.olivelli
+ */
+public class PreparedStatementsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReuseAndInvalidateOnDDL() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+
+                String insert = "INSERT INTO mytable (id,n1) values(?,?)";
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(1, connection.executeUpdate(TableSpace.DEFAULT,
+                            insert, 0, false, true, Arrays.asList("k" + i, i)).updateCount);
+                }
+                assertEquals(2, connection.executeUpdates(TableSpace.DEFAULT,
+                        insert, 0, false, true, Arrays.asList(
+                                Arrays.asList("k10", 10),
+                                Arrays.asList("k11", 11))).size());
+
+                String get = "SELECT * FROM mytable WHERE id=?";
+                GetResult res = connection.executeGet(TableSpace.DEFAULT, get, 0, true, Arrays.asList("k3"));
+                assertEquals(Long.valueOf(3), res.data.get("n1"));
+                res = connection.executeGet(TableSpace.DEFAULT, get, 0, true, Arrays.asList("k4"));
+                assertEquals(Long.valueOf(4), res.data.get("n1"));
+                res = connection.executeGet(TableSpace.DEFAULT, get, 0, true, Arrays.asList("nope"));
+                assertNull(res.data);
+
+                String scan = "SELECT * FROM mytable WHERE n1>=?";
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT, scan, true, Arrays.asList(5), 0, 0, 10)) {
+                    assertEquals(7, scanner.consume().size());
+                }
+
+                // the table changes, the prepared statements must be planned again
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "ALTER TABLE mytable ADD COLUMN s1 string", 0, false, true, Collections.emptyList());
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "UPDATE mytable set s1=? WHERE id=?", 0, false, true, Arrays.asList("foo", "k6"));
+
+                res = connection.executeGet(TableSpace.DEFAULT, get, 0, true, Arrays.asList("k6"));
+                assertEquals("foo", res.data.get("s1"));
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT, scan, true, Arrays.asList(11), 0, 0, 10)) {
+                    List<Map<String, Object>> records = scanner.consume();
+                    assertEquals(1, records.size());
+                    assertTrue(records.get(0).containsKey("s1"));
+                }
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "DROP TABLE mytable", 0, false, true, Collections.emptyList());
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (n1 long primary key, id string)", 0, false, true, Collections.emptyList());
+                assertEquals(1, connection.executeUpdate(TableSpace.DEFAULT,
+                        insert, 0, false, true, Arrays.asList("a", 1)).updateCount);
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT, scan, true, Arrays.asList(0), 0, 0, 10)) {
+                    List<Map<String, Object>> records = scanner.consume();
+                    assertEquals(1, records.size());
+                    assertEquals(Arrays.asList("n1", "id"), Arrays.asList(scanner.getMetadata().getColumnNames()));
+                }
+            }
+        }
+    }
+
+    private static void waitForPreparedStatementsCount(Server server, int max) throws InterruptedException {
+        // statements are released with one way messages
+        for (int i = 0; i < 100; i++) {
+            if (server.getPreparedStatementsCount() <= max) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertFalse("too many prepared statements on the server: " + server.getPreparedStatementsCount(),
+                server.getPreparedStatementsCount() > max);
+    }
+
+    @Test
+    public void testClientReleasesLeastRecentlyUsedStatements() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_PREPARED_STATEMENTS_CACHE_SIZE, 5);
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList("k1", 0));
+
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(1, connection.executeUpdate(TableSpace.DEFAULT,
+                            "UPDATE mytable set n1=" + i + " WHERE id=?", 0, false, true, Arrays.asList("k1")).updateCount);
+                }
+                waitForPreparedStatementsCount(server, 5);
+
+                // a released statement is prepared again
+                assertEquals(1, connection.executeUpdate(TableSpace.DEFAULT,
+                        "UPDATE mytable set n1=0 WHERE id=?", 0, false, true, Arrays.asList("k1")).updateCount);
+                GetResult res = connection.executeGet(TableSpace.DEFAULT, "SELECT n1 FROM mytable WHERE id=?", 0, true, Arrays.asList("k1"));
+                assertEquals(Long.valueOf(0), res.data.get("n1"));
+                waitForPreparedStatementsCount(server, 5);
+            }
+        }
+    }
+
+    @Test
+    public void testServerBoundsPreparedStatements() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        ServerConfiguration serverConfiguration = new ServerConfiguration(baseDir);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_MAX_PREPARED_STATEMENTS_PER_CONNECTION, 3);
+        try (Server server = new Server(serverConfiguration)) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+                for (int i = 0; i < 10; i++) {
+                    connection.executeUpdate(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?," + i + ")", 0, false, true, Arrays.asList("k" + i));
+                }
+                assertTrue(server.getPreparedStatementsCount() <= 3);
+
+                // the client still holds handles the server has forgotten, it falls back to the text of the query
+                for (int i = 0; i < 10; i++) {
+                    GetResult res = connection.executeGet(TableSpace.DEFAULT, "SELECT n1 FROM mytable WHERE id='k" + i + "'", 0, true, Collections.emptyList());
+                    assertEquals(Long.valueOf(i), res.data.get("n1"));
+                    res = connection.executeGet(TableSpace.DEFAULT, "SELECT n1 FROM mytable WHERE id='k0'", 0, true, Collections.emptyList());
+                    assertEquals(Long.valueOf(0), res.data.get("n1"));
+                }
+                assertTrue(server.getPreparedStatementsCount() <= 3);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentPrepareOfTheSameStatement() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, false, Collections.emptyList());
+                int before = server.getPreparedStatementsCount();
+
+                int numThreads = 16;
+                ExecutorService threadPool = Executors.newFixedThreadPool(numThreads);
+                try {
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < numThreads; i++) {
+                        String key = "k" + i;
+                        futures.add(threadPool.submit(() -> {
+                            start.await();
+                            return connection.executeUpdate(TableSpace.DEFAULT,
+                                    "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList(key, 1));
+                        }));
+                    }
+                    start.countDown();
+                    for (Future<?> f : futures) {
+                        f.get();
+                    }
+                } finally {
+                    threadPool.shutdown();
+                }
+                assertEquals(before + 1, server.getPreparedStatementsCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+import herddb.network.Message;
+
+/**
+ * Clients using different versions of the network protocol
+ *
+ * @author enrico.olivelli
+ */
+public class ProtocolVersionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMixedVersions() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+
+            ClientConfiguration clientConfigurationV1 = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfigurationV1.set(ClientConfiguration.PROPERTY_NETWORK_PROTOCOL_VERSION, Message.PROTOCOL_VERSION_1);
+            ClientConfiguration clientConfigurationV2 = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient clientV1 = new HDBClient(clientConfigurationV1);
+                    HDBConnection connectionV1 = clientV1.openConnection();
+                    HDBClient clientV2 = new HDBClient(clientConfigurationV2);
+                    HDBConnection connectionV2 = clientV2.openConnection()) {
+                clientV1.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                clientV2.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connectionV1.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, Collections.emptyList());
+                connectionV1.executeUpdate(TableSpace.DEFAULT,
+                        "INSERT INTO mytable (id,n1) values(?,?)", 0, false, Arrays.asList("a", 1));
+                connectionV2.executeUpdate(TableSpace.DEFAULT,
+                        "INSERT INTO mytable (id,n1) values(?,?)", 0, false, Arrays.asList("b", 2));
+
+                for (HDBConnection connection : Arrays.asList(connectionV1, connectionV2)) {
+                    assertEquals(Long.valueOf(2), connection.executeGet(TableSpace.DEFAULT,
+                            "SELECT n1 FROM mytable WHERE id=?", 0, Arrays.asList("b")).data.get("n1"));
+                    try (ScanResultSet scan = connection.executeScan(TableSpace.DEFAULT,
+                            "SELECT * FROM mytable ORDER BY id", Collections.emptyList(), 0, 0, 1)) {
+                        List<Map<String, Object>> records = scan.consume();
+                        assertEquals(2, records.size());
+                        assertEquals("a", records.get(0).get("id"));
+                        assertEquals("b", records.get(1).get("id"));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.DMLResult;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+import herddb.network.Channel;
+import herddb.network.ChannelEventListener;
+import herddb.network.Message;
+import herddb.network.netty.NettyChannel;
+import herddb.network.netty.RequestQueueStats;
+import herddb.network.netty.RequestScheduler;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Tests about the execution of requests on the server
+ *
+ * @author enrico.olivelli
+ */
+public class RequestSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBoundedQueues() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        ServerConfiguration serverConfiguration = new ServerConfiguration(baseDir);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_POINT_REQUEST_THREADS, 2);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_CONNECTION, 4);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_MAX_PENDING_REQUESTS_PER_TABLESPACE, 8);
+        try (Server server = new Server(serverConfiguration)) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection();
+                    HDBConnection connection2 = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+
+                // the server stops reading while its queues are full, but every request is executed
+                List<CompletableFuture<DMLResult>> inserts = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    HDBConnection con = i % 2 == 0 ? connection : connection2;
+                    inserts.add(con.executeUpdateAsync(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList("k" + i, i)));
+                }
+                for (CompletableFuture<DMLResult> insert : inserts) {
+                    assertEquals(1, insert.get().updateCount);
+                }
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT * FROM mytable", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(200, scanner.consume().size());
+                }
+
+                Map<String, Map<String, Object>> queues = new HashMap<>();
+                try (ScanResultSet scanner = connection.executeScan(server.getManager().getVirtualTableSpaceId(),
+                        "SELECT * FROM sysrequestqueues", true, Collections.emptyList(), 0, 0, 10)) {
+                    for (Map<String, Object> queue : scanner.consume()) {
+                        queues.put((String) queue.get("name"), queue);
+                    }
+                }
+                assertTrue(queues.toString(), ((Number) queues.get("point").get("completed")).longValue() >= 200);
+                assertEquals(queues.toString(), 0, ((Number) queues.get("point").get("pending")).intValue());
+                assertEquals(queues.toString(), 1L, ((Number) queues.get("admin").get("completed")).longValue());
+                assertTrue(queues.toString(), ((Number) queues.get("scan").get("completed")).longValue() >= 1);
+                assertTrue(queues.toString(), ((Number) queues.get("tablespace:" + TableSpace.DEFAULT).get("completed")).longValue() >= 202);
+            }
+        }
+    }
+
+    @Test
+    public void testCommitWhenPointRequestsWaitForLocks() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        ServerConfiguration serverConfiguration = new ServerConfiguration(baseDir);
+        serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_POINT_REQUEST_THREADS, 2);
+        try (Server server = new Server(serverConfiguration)) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection();
+                    HDBConnection connection2 = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id string primary key, n1 long)", 0, false, true, Collections.emptyList());
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "INSERT INTO mytable (id,n1) values(?,?)", 0, false, true, Arrays.asList("k1", 0));
+
+                long tx = connection.beginTransaction(TableSpace.DEFAULT);
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "UPDATE mytable set n1=1 WHERE id=?", tx, false, true, Arrays.asList("k1"));
+
+                // every thread of the point pool waits for the lock held by the transaction
+                List<CompletableFuture<DMLResult>> updates = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    updates.add(connection2.executeUpdateAsync(TableSpace.DEFAULT,
+                            "UPDATE mytable set n1=n1+1 WHERE id=?", 0, false, false, Arrays.asList("k1")));
+                }
+                waitFor(() -> {
+                    RequestQueueStats queue = pointQueue(server);
+                    return queue.getPendingRequests() == 3
+                            && queue.getStartedRequests() - queue.getCompletedRequests() == 2;
+                }, "point requests not waiting");
+                assertTrue(updates.stream().noneMatch(CompletableFuture::isDone));
+
+                connection.commitTransaction(TableSpace.DEFAULT, tx);
+                for (CompletableFuture<DMLResult> update : updates) {
+                    assertEquals(1, update.get(10, TimeUnit.SECONDS).updateCount);
+                }
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT n1 FROM mytable WHERE id='k1'", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(4L, ((Number) scanner.consume().get(0).get("n1")).longValue());
+                }
+            }
+        }
+    }
+
+    private static RequestQueueStats pointQueue(Server server) {
+        return server.getRequestQueues().stream()
+                .filter(queue -> queue.getName().equals("point"))
+                .findAny()
+                .get();
+    }
+
+    private static void waitFor(BooleanSupplier condition, String message) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertTrue(message, condition.getAsBoolean());
+    }
+
+    /**
+     * Receives requests and blocks until the latch is released
+     */
+    private static ChannelEventListener blockingReceiver(CountDownLatch latch) {
+        return new ChannelEventListener() {
+            @Override
+            public void messageReceived(Message message, Channel channel) {
+                try {
+                    latch.await();
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static Message pointRequest() {
+        return Message.EXECUTE_STATEMENT("client", TableSpace.DEFAULT, "SELECT * FROM mytable WHERE id=?", 0, false, Arrays.asList("k1"));
+    }
+
+    @Test
+    public void testConnectionStopsReadingWhenQueuesAreFull() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try (RequestScheduler scheduler = new RequestScheduler(new int[]{1, 1, 1}, 4, 100)) {
+            EmbeddedChannel socket = new EmbeddedChannel();
+            NettyChannel channel = new NettyChannel("test", socket, callbacks, scheduler);
+            CountDownLatch latch = new CountDownLatch(1);
+            channel.setMessagesReceiver(blockingReceiver(latch));
+
+            for (int i = 0; i < 3; i++) {
+                channel.messageReceived(pointRequest());
+            }
+            assertTrue(socket.config().isAutoRead());
+            channel.messageReceived(pointRequest());
+            assertEquals(4, channel.getPendingRequests());
+            assertFalse("the connection has reached its limit", socket.config().isAutoRead());
+
+            latch.countDown();
+            waitFor(() -> socket.config().isAutoRead(), "the connection did not resume reading");
+            waitFor(() -> channel.getPendingRequests() == 0, "requests not completed");
+            socket.finishAndReleaseAll();
+        } finally {
+            callbacks.shutdown();
+        }
+    }
+
+    @Test
+    public void testTableSpaceQueueStopsReadingFromConnections() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try (RequestScheduler scheduler = new RequestScheduler(new int[]{1, 1, 1}, 100, 6)) {
+            CountDownLatch latch = new CountDownLatch(1);
+            EmbeddedChannel socket1 = new EmbeddedChannel();
+            NettyChannel channel1 = new NettyChannel("test1", socket1, callbacks, scheduler);
+            channel1.setMessagesReceiver(blockingReceiver(latch));
+            EmbeddedChannel socket2 = new EmbeddedChannel();
+            NettyChannel channel2 = new NettyChannel("test2", socket2, callbacks, scheduler);
+            channel2.setMessagesReceiver(blockingReceiver(latch));
+
+            for (int i = 0; i < 4; i++) {
+                channel1.messageReceived(pointRequest());
+            }
+            for (int i = 0; i < 2; i++) {
+                channel2.messageReceived(pointRequest());
+            }
+            assertTrue(socket1.config().isAutoRead());
+            assertTrue(socket2.config().isAutoRead());
+
+            // the connection which fills the queue of the tablespace stops reading
+            channel2.messageReceived(pointRequest());
+            assertTrue(socket1.config().isAutoRead());
+            assertFalse("the tablespace has reached its limit", socket2.config().isAutoRead());
+
+            latch.countDown();
+            waitFor(() -> socket2.config().isAutoRead(), "the connection did not resume reading");
+            assertTrue(socket1.config().isAutoRead());
+            waitFor(() -> channel1.getPendingRequests() + channel2.getPendingRequests() == 0, "requests not completed");
+            socket1.finishAndReleaseAll();
+            socket2.finishAndReleaseAll();
+        } finally {
+            callbacks.shutdown();
+        }
+    }
+}
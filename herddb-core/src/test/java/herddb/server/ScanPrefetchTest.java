@@ -0,0 +1,131 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about prefetching the chunks of a scanner
+ *
+ * @author enrico.olivelli
+ */
+public class ScanPrefetchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPrefetch() throws Exception {
+        testScan(50, ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES_DEFAULT, true);
+    }
+
+    @Test
+    public void testPrefetchOnLastRecord() throws Exception {
+        testScan(100, ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES_DEFAULT, true);
+    }
+
+    @Test
+    public void testPrefetchDisabled() throws Exception {
+        testScan(0, ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES_DEFAULT, false);
+    }
+
+    @Test
+    public void testChunksTooLargeToPrefetch() throws Exception {
+        testScan(50, 1, false);
+    }
+
+    private void testScan(int watermark, long maxBytes, boolean prefetch) throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_SCAN_PREFETCH_WATERMARK, watermark);
+            clientConfiguration.set(ClientConfiguration.PROPERTY_SCAN_PREFETCH_MAX_BYTES, maxBytes);
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (id int primary key, s1 string)", 0, false, true, Collections.emptyList());
+                for (int i = 0; i < 1000; i++) {
+                    connection.executeUpdate(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (id,s1) values(?,?)", 0, false, true, Arrays.asList(i, "value" + i));
+                }
+
+                for (int fetchSize : new int[]{1, 3, 10, 999, 1000, 2000}) {
+                    long prefetchedBefore = connection.getPrefetchedScanChunks();
+                    try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                            "SELECT * FROM mytable ORDER BY id", true, Collections.emptyList(), 0, 0, fetchSize)) {
+                        int count = 0;
+                        while (scanner.hasNext()) {
+                            Map<String, Object> record = scanner.next();
+                            assertEquals(count, record.get("id"));
+                            assertEquals("value" + count, record.get("s1"));
+                            count++;
+                        }
+                        assertEquals(1000, count);
+                    }
+                    long prefetched = connection.getPrefetchedScanChunks() - prefetchedBefore;
+                    int chunks = (1000 + fetchSize - 1) / fetchSize;
+                    if (prefetch) {
+                        // every chunk but the last one asks for the next one in advance
+                        assertTrue("fetchSize " + fetchSize + " prefetched " + prefetched,
+                                prefetched >= chunks - 1 && prefetched <= chunks);
+                    } else {
+                        assertEquals(0, prefetched);
+                    }
+                }
+
+                // close the scanner while the next chunk may be on its way
+                for (int i = 0; i < 10; i++) {
+                    try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                            "SELECT * FROM mytable ORDER BY id", true, Collections.emptyList(), 0, 0, 10)) {
+                        for (int j = 0; j < 15; j++) {
+                            assertTrue(scanner.hasNext());
+                            assertEquals(j, scanner.next().get("id"));
+                        }
+                    }
+                }
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT COUNT(*) FROM mytable", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(1000L, ((Number) scanner.consume().get(0).values().iterator().next()).longValue());
+                }
+            }
+        }
+    }
+}
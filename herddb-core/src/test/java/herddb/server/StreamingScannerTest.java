@@ -0,0 +1,102 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.client.HDBConnection;
+import herddb.client.ScanResultSet;
+import herddb.model.TableSpace;
+
+/**
+ * Tests about scanners which receive data pushed by the server
+ *
+ * @author enrico.olivelli
+ */
+public class StreamingScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPushChunks() throws Exception {
+        Path baseDir = folder.newFolder().toPath();
+        try (Server server = new Server(new ServerConfiguration(baseDir))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_SCAN_STREAMING_CREDITS, 2);
+            try (HDBClient client = new HDBClient(clientConfiguration);
+                    HDBConnection connection = client.openConnection()) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+
+                connection.executeUpdate(TableSpace.DEFAULT,
+                        "CREATE TABLE mytable (n1 int primary key, s1 string)", 0, false, true, Collections.emptyList());
+                for (int i = 0; i < 1000; i++) {
+                    connection.executeUpdate(TableSpace.DEFAULT,
+                            "INSERT INTO mytable (n1,s1) values(?,?)", 0, false, true, Arrays.asList(i, "s" + i));
+                }
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT n1, s1 FROM mytable ORDER BY n1", true, Collections.emptyList(), 0, 0, 10)) {
+                    List<Map<String, Object>> records = scanner.consume();
+                    assertEquals(1000, records.size());
+                    for (int i = 0; i < 1000; i++) {
+                        assertEquals(i, ((Number) records.get(i).get("n1")).intValue());
+                        assertEquals("s" + i, records.get(i).get("s1").toString());
+                    }
+                }
+
+                // result set which fits the first chunk
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT n1 FROM mytable WHERE n1<5", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(5, scanner.consume().size());
+                }
+
+                // close the scanner while the server is pushing data
+                for (int i = 0; i < 10; i++) {
+                    try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                            "SELECT n1 FROM mytable", true, Collections.emptyList(), 0, 0, 10)) {
+                        for (int j = 0; j < 25; j++) {
+                            scanner.next();
+                        }
+                    }
+                }
+
+                try (ScanResultSet scanner = connection.executeScan(TableSpace.DEFAULT,
+                        "SELECT COUNT(*) as cc FROM mytable", true, Collections.emptyList(), 0, 0, 10)) {
+                    assertEquals(1000, ((Number) scanner.consume().get(0).get("cc")).intValue());
+                }
+            }
+        }
+    }
+}
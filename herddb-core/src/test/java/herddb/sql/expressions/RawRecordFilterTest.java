@@ -0,0 +1,182 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import herddb.codec.RecordSerializer;
+import herddb.model.ColumnTypes;
+import herddb.model.Record;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.Table;
+import herddb.sql.SQLRecordPredicate;
+import herddb.sql.SQLStatementEvaluationContext;
+import herddb.utils.RawString;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Compares evaluation on serialized records with the interpreter
+ *
+ * @author enrico.olivelli
+ */
+public class RawRecordFilterTest {
+
+    private static Table table(String... primaryKey) {
+        Table.Builder builder = Table.builder()
+                .name("t1")
+                .column("id", ColumnTypes.LONG)
+                .column("i", ColumnTypes.INTEGER)
+                .column("s", ColumnTypes.STRING)
+                .column("t", ColumnTypes.TIMESTAMP)
+                .column("n", ColumnTypes.LONG)
+                .column("d", ColumnTypes.DOUBLE);
+        for (String pk : primaryKey) {
+            builder.primaryKey(pk);
+        }
+        return builder.build();
+    }
+
+    private static List<Record> records(Table table) {
+        List<Record> res = new ArrayList<>();
+        for (int k = 0; k < 30; k++) {
+            List<Object> values = new ArrayList<>(Arrays.asList(
+                    "id", (long) k,
+                    "i", k % 7,
+                    "s", (k % 4 == 0 ? "abc" : "ab") + (k % 5),
+                    "t", new Timestamp(1000L * k),
+                    "d", k * 1.5d));
+            if (k % 3 != 0) {
+                values.add("n");
+                values.add((long) (k * 2));
+            }
+            if (k % 10 == 9) {
+                values.set(5, "ab\nc");
+            }
+            res.add(RecordSerializer.makeRecord(table, values.toArray()));
+        }
+        return res;
+    }
+
+    private static CompiledSQLExpression col(int index) {
+        return new AccessCurrentRowExpression(index);
+    }
+
+    private static CompiledSQLExpression value(Object value) {
+        return new ConstantExpression(value);
+    }
+
+    private static List<CompiledSQLExpression> expressions() {
+        List<CompiledSQLExpression> res = new ArrayList<>();
+        for (boolean not : new boolean[]{false, true}) {
+            res.add(new CompiledEqualsExpression(not, col(0), value(5L)));
+            res.add(new CompiledEqualsExpression(not, value(5), col(0)));
+            res.add(new CompiledNotEqualsExpression(not, col(1), value(3)));
+            res.add(new CompiledGreaterThenExpression(not, col(0), new JdbcParameterExpression(0)));
+            res.add(new CompiledGreaterThenEqualsExpression(not, col(4), value(10L)));
+            res.add(new CompiledMinorThenExpression(not, col(3), value(new Timestamp(7000))));
+            res.add(new CompiledMinorThenExpression(not, value(new Timestamp(7000)), col(3)));
+            res.add(new CompiledMinorThenEqualsExpression(not, col(2), value(RawString.of("ab2"))));
+            res.add(new CompiledGreaterThenExpression(not, value(RawString.of("abc")), col(2)));
+            res.add(new CompiledEqualsExpression(not, col(2), value("ab3")));
+            res.add(new CompiledEqualsExpression(not, col(2), new JdbcParameterExpression(1)));
+            res.add(new CompiledGreaterThenExpression(not, col(2), new TypedJdbcParameterExpression(1, ColumnTypes.STRING)));
+            res.add(new CompiledMinorThenExpression(not, col(1), value(4L)));
+            res.add(new CompiledEqualsExpression(not, col(5), value(3d)));
+            res.add(new CompiledBetweenExpression(not, col(0), value(3L), value(12L)));
+            res.add(new CompiledBetweenExpression(not, col(3), value(new Timestamp(2000)), value(new Timestamp(9000))));
+            res.add(new CompiledBetweenExpression(not, col(1), value(5), value(2)));
+            res.add(new CompiledBetweenExpression(not, col(4), value(4L), value(20L)));
+            res.add(new CompiledLikeExpression(not, col(2), value("abc%")));
+            res.add(new CompiledLikeExpression(not, col(2), value("ab%")));
+            res.add(new CompiledLikeExpression(not, col(2), value("%c")));
+            res.add(new CompiledAndExpression(not,
+                    new CompiledGreaterThenExpression(false, col(0), value(2L)),
+                    new CompiledMinorThenExpression(false, col(1), value(4))));
+            res.add(new CompiledOrExpression(not,
+                    new CompiledIsNullExpression(false, col(4)),
+                    new CompiledParenthesisExpression(true, new CompiledEqualsExpression(false, col(2), value("ab1")))));
+            res.add(new CompiledOrExpression(not,
+                    new CompiledEqualsExpression(false, col(0), value(1L)),
+                    new CompiledEqualsExpression(false, col(4), value(8L))));
+        }
+        // IN lists are planned as OR
+        res.add(new CompiledMultiOrExpression(new CompiledSQLExpression[]{
+            new CompiledEqualsExpression(false, col(0), value(1L)),
+            new CompiledEqualsExpression(false, col(0), new JdbcParameterExpression(0)),
+            new CompiledEqualsExpression(false, col(0), value(22L))
+        }));
+        res.add(new CompiledMultiAndExpression(new CompiledSQLExpression[]{
+            new CompiledGreaterThenEqualsExpression(false, col(0), value(1L)),
+            new CompiledNotEqualsExpression(false, col(2), value("ab4")),
+            new CompiledIsNullExpression(true, col(4))
+        }));
+        return res;
+    }
+
+    private static void checkTable(Table table) throws Exception {
+        StatementEvaluationContext context = new SQLStatementEvaluationContext("", new ArrayList<>(Arrays.asList(7L, "abc0")));
+        int decided = 0;
+        for (CompiledSQLExpression exp : expressions()) {
+            RawRecordFilter filter = RawRecordFilter.build(exp, table);
+            for (Record record : records(table)) {
+                boolean expected = SQLRecordPredicate.toBoolean(exp.evaluate(record.getDataAccessor(table), context));
+                int actual = filter == null ? RawRecordFilter.UNKNOWN : filter.evaluate(record, context);
+                if (actual != RawRecordFilter.UNKNOWN) {
+                    decided++;
+                    assertEquals(exp + " on " + record.toBean(table) + " with " + filter,
+                            expected, actual == RawRecordFilter.TRUE);
+                }
+                SQLRecordPredicate predicate = new SQLRecordPredicate(table, null, exp);
+                assertEquals(expected, predicate.evaluate(record, context));
+            }
+        }
+        assertTrue(decided > 0);
+    }
+
+    @Test
+    public void testSingleColumnPrimaryKey() throws Exception {
+        checkTable(table("id"));
+    }
+
+    @Test
+    public void testStringPrimaryKey() throws Exception {
+        checkTable(table("s"));
+    }
+
+    @Test
+    public void testMultiColumnPrimaryKey() throws Exception {
+        checkTable(table("s", "id"));
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        Table table = table("id");
+        assertNull(RawRecordFilter.build(new CompiledIsNullExpression(false, col(4)), table));
+        assertNull(RawRecordFilter.build(new CompiledEqualsExpression(false, col(5), value(1d)), table));
+        assertNull(RawRecordFilter.build(new CompiledEqualsExpression(false, col(0), col(4)), table));
+        assertNotNull(RawRecordFilter.build(new CompiledEqualsExpression(false, col(0), value(1L)), table));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.sql.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import herddb.model.Column;
+import herddb.model.ColumnTypes;
+import herddb.model.StatementEvaluationContext;
+import herddb.model.Tuple;
+import herddb.sql.SQLStatementEvaluationContext;
+import herddb.utils.RawString;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Compares generated code with the interpreter
+ *
+ * @author enrico.olivelli
+ */
+public class SQLExpressionJITCompilerTest {
+
+    private static final String[] FIELDS = {"id", "i", "s", "t", "n"};
+
+    private static final Column[] SCHEMA = {
+        Column.column("id", ColumnTypes.LONG),
+        Column.column("i", ColumnTypes.INTEGER),
+        Column.column("s", ColumnTypes.STRING),
+        Column.column("t", ColumnTypes.TIMESTAMP),
+        Column.column("n", ColumnTypes.LONG)
+    };
+
+    private static CompiledSQLExpression col(int index) {
+        return new AccessCurrentRowExpression(index);
+    }
+
+    private static CompiledSQLExpression value(Object value) {
+        return new ConstantExpression(value);
+    }
+
+    private static List<Tuple> tuples() {
+        List<Tuple> res = new ArrayList<>();
+        for (int k = 0; k < 20; k++) {
+            res.add(new Tuple(FIELDS, new Object[]{
+                (long) k,
+                k % 7,
+                RawString.of("s" + (k % 5)),
+                new Timestamp(1000L * k),
+                k % 3 == 0 ? null : (long) (k * 2)
+            }));
+        }
+        // values with unexpected types must use the generic code path
+        res.add(new Tuple(FIELDS, new Object[]{5, 5L, "s3", 5000L, 3.5d}));
+        res.add(new Tuple(FIELDS, new Object[]{null, null, null, null, null}));
+        return res;
+    }
+
+    private static List<CompiledSQLExpression> expressions() {
+        List<CompiledSQLExpression> res = new ArrayList<>();
+        for (boolean not : new boolean[]{false, true}) {
+            res.add(new CompiledEqualsExpression(not, col(0), value(5L)));
+            res.add(new CompiledEqualsExpression(not, value(5), col(0)));
+            res.add(new CompiledNotEqualsExpression(not, col(1), value(3)));
+            res.add(new CompiledGreaterThenExpression(not, col(0), new JdbcParameterExpression(0)));
+            res.add(new CompiledGreaterThenEqualsExpression(not, col(4), value(10L)));
+            res.add(new CompiledMinorThenExpression(not, col(3), value(new Timestamp(7000))));
+            res.add(new CompiledMinorThenEqualsExpression(not, col(2), value(RawString.of("s2"))));
+            res.add(new CompiledEqualsExpression(not, col(2), value("s3")));
+            res.add(new CompiledGreaterThenExpression(not, col(2), new TypedJdbcParameterExpression(1, ColumnTypes.STRING)));
+            res.add(new CompiledBetweenExpression(not, col(0), value(3L), value(12L)));
+            res.add(new CompiledBetweenExpression(not, col(3), value(new Timestamp(2000)), value(new Timestamp(9000))));
+            res.add(new CompiledBetweenExpression(not, col(1), value(5), value(2)));
+            res.add(new CompiledIsNullExpression(not, col(4)));
+            res.add(new CompiledIsNotTrueExpression(not, new CompiledEqualsExpression(false, col(1), value(1))));
+            res.add(new CompiledAndExpression(not,
+                    new CompiledGreaterThenExpression(false, col(0), value(2L)),
+                    new CompiledMinorThenExpression(false, col(1), value(4))));
+            res.add(new CompiledOrExpression(not,
+                    new CompiledIsNullExpression(false, col(4)),
+                    new CompiledParenthesisExpression(true, new CompiledEqualsExpression(false, col(2), value("s1")))));
+            res.add(new CompiledParenthesisExpression(not, new CompiledLikeExpression(false, col(2), value("s%"))));
+            res.add(new CompiledEqualsExpression(not,
+                    new CompiledAddExpression(false, col(0), value(1L)),
+                    new CompiledMultiplyExpression(false, col(1), value(2L))));
+        }
+        res.add(new CompiledMultiAndExpression(new CompiledSQLExpression[]{
+            new CompiledGreaterThenEqualsExpression(false, col(0), value(1L)),
+            new CompiledNotEqualsExpression(false, col(2), value("s4")),
+            new CompiledIsNullExpression(true, col(4))
+        }));
+        res.add(new CompiledMultiOrExpression(new CompiledSQLExpression[]{
+            new CompiledEqualsExpression(false, col(0), value(1L)),
+            new CompiledEqualsExpression(false, col(0), new JdbcParameterExpression(0)),
+            new CompiledEqualsExpression(false, col(3), value(new Timestamp(4000)))
+        }));
+        res.add(new CastExpression(col(1), ColumnTypes.LONG));
+        res.add(new CompiledSubtractExpression(false, col(0), new CompiledDivideExpression(false, col(4), value(2L))));
+        res.add(new CompiledEqualsExpression(false, col(4), value(null)));
+        return res;
+    }
+
+    @Test
+    public void testCompareWithInterpreter() throws Exception {
+        StatementEvaluationContext context = new SQLStatementEvaluationContext("", Arrays.asList(7L, "s2"));
+        for (CompiledSQLExpression exp : expressions()) {
+            CompiledSQLExpression compiled = SQLExpressionJITCompiler.compile(exp, SCHEMA);
+            assertNotNull("cannot compile " + exp, compiled);
+            for (Tuple tuple : tuples()) {
+                Object expected;
+                try {
+                    expected = exp.evaluate(tuple, context);
+                } catch (RuntimeException err) {
+                    // the generated code must fail as well
+                    expected = err.getClass();
+                }
+                Object actual;
+                try {
+                    actual = compiled.evaluate(tuple, context);
+                } catch (RuntimeException err) {
+                    actual = err.getClass();
+                }
+                assertEquals(exp + " on " + tuple, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testCompileWithoutSchema() throws Exception {
+        StatementEvaluationContext context = new SQLStatementEvaluationContext("", Arrays.asList(7L, "s2"));
+        for (CompiledSQLExpression exp : expressions()) {
+            CompiledSQLExpression compiled = SQLExpressionJITCompiler.compile(exp, null);
+            assertNotNull("cannot compile " + exp, compiled);
+            Tuple tuple = tuples().get(7);
+            assertEquals(exp.toString(), exp.evaluate(tuple, context), compiled.evaluate(tuple, context));
+        }
+    }
+
+    @Test
+    public void testAdaptive() throws Exception {
+        StatementEvaluationContext context = new SQLStatementEvaluationContext("", Arrays.asList(7L, "s2"));
+        CompiledSQLExpression exp = new CompiledAndExpression(false,
+                new CompiledGreaterThenExpression(false, col(0), value(2L)),
+                new CompiledEqualsExpression(false, col(2), new TypedJdbcParameterExpression(1, ColumnTypes.STRING)));
+        AdaptiveSQLExpression adaptive = (AdaptiveSQLExpression) AdaptiveSQLExpression.wrap(exp, SCHEMA);
+        assertFalse(adaptive.isCompiled());
+        Tuple match = new Tuple(FIELDS, new Object[]{3L, 1, RawString.of("s2"), null, null});
+        Tuple noMatch = new Tuple(FIELDS, new Object[]{1L, 1, RawString.of("s2"), null, null});
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(Boolean.TRUE, adaptive.evaluate(match, context));
+            assertEquals(Boolean.FALSE, adaptive.evaluate(noMatch, context));
+        }
+        assertTrue(adaptive.isCompiled());
+
+        // leaves are never wrapped
+        assertTrue(AdaptiveSQLExpression.wrap(col(0), SCHEMA) instanceof AccessCurrentRowExpression);
+    }
+}
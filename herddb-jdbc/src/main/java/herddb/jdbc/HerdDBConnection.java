@@ -19,14 +19,15 @@
  */
 package herddb.jdbc;
 
+import herddb.client.ClientConfiguration;
 import herddb.client.ClientSideMetadataProviderException;
+import herddb.client.DMLResult;
 import herddb.client.HDBConnection;
 import herddb.client.HDBException;
 import herddb.jdbc.utils.SQLExceptionUtils;
 import herddb.model.TransactionContext;
 import static herddb.model.TransactionContext.AUTOTRANSACTION_ID;
 import static herddb.model.TransactionContext.NOTRANSACTION_ID;
-import herddb.utils.QueryUtils;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -43,6 +44,9 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
@@ -63,6 +67,7 @@ public class HerdDBConnection implements java.sql.Connection {
     private String tableSpace;
     private final BasicHerdDBDataSource datasource;
     private boolean closed;
+    private long maxFollowerLag;
 
     HerdDBConnection(BasicHerdDBDataSource datasource, HDBConnection connection, String defaultTablespace) throws SQLException {
         if (connection == null) {
@@ -71,6 +76,7 @@ public class HerdDBConnection implements java.sql.Connection {
         this.tableSpace = defaultTablespace;
         this.connection = connection;
         this.datasource = datasource;
+        this.maxFollowerLag = connection.getMaxFollowerLag();
     }
 
     long ensureTransaction() throws SQLException {
@@ -89,6 +95,23 @@ public class HerdDBConnection implements java.sql.Connection {
         return connection;
     }
 
+    public long getMaxFollowerLag() {
+        return maxFollowerLag;
+    }
+
+    /**
+     * Default staleness accepted by queries of the statements created after
+     * this call, queries executed in autocommit mode may be served by
+     * follower replicas which are not more than this number of milliseconds
+     * behind the leader. A negative value sends every query to the leader
+     *
+     * @param maxFollowerLag maximum staleness, in milliseconds
+     * @see HerdDBStatement#setMaxFollowerLag(long)
+     */
+    public void setMaxFollowerLag(long maxFollowerLag) {
+        this.maxFollowerLag = maxFollowerLag;
+    }
+
     @Override
     public Statement createStatement() throws SQLException {
         return new HerdDBStatement(this);
@@ -411,7 +434,55 @@ public class HerdDBConnection implements java.sql.Connection {
 
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        return false;
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Loads records into a table without going through SQL parsing and
+     * planning, records are sent to the server in chunks.
+     * <p>
+     * This is an HerdDB extension, use {@link #unwrap(java.lang.Class)} in
+     * order to access it. The table may be qualified with the name of the
+     * tablespace, like "tblspace.table", this does not change the schema of
+     * the connection. The usual rules about autocommit and transactions apply,
+     * a transaction can load data only into the tablespace of the connection.
+     * </p>
+     *
+     * @param table the name of the table
+     * @param columns the names of the columns, each row contains the values
+     * in the same order
+     * @param rows the records
+     * @return the number of inserted records
+     * @throws SQLException
+     */
+    public long bulkLoad(String table, String[] columns, Iterator<Object[]> rows) throws SQLException {
+        String targetTableSpace = tableSpace;
+        int dot = table.indexOf('.');
+        if (dot > 0) {
+            targetTableSpace = table.substring(0, dot);
+            table = table.substring(dot + 1);
+            if (!autocommit && !Objects.equals(targetTableSpace, tableSpace)) {
+                throw new SQLException("cannot load data into tableSpace " + targetTableSpace + " inside a transaction on tableSpace " + tableSpace);
+            }
+        }
+        int chunkSize = Math.max(1, connection.getClient().getConfiguration()
+                .getInt(ClientConfiguration.PROPERTY_BULKLOAD_CHUNK_SIZE, ClientConfiguration.PROPERTY_BULKLOAD_CHUNK_SIZE_DEFAULT));
+        long count = 0;
+        List<Object[]> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (rows.hasNext()) {
+                chunk.add(rows.next());
+                if (chunk.size() == chunkSize || !rows.hasNext()) {
+                    DMLResult result = connection.bulkLoad(targetTableSpace, table, ensureTransaction(), columns, chunk);
+                    statementFinished(result.transactionId);
+                    count += result.updateCount;
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            return count;
+        } catch (ClientSideMetadataProviderException | HDBException err) {
+            throw SQLExceptionUtils.wrapException(err);
+        }
     }
 
     @Override
@@ -420,7 +491,7 @@ public class HerdDBConnection implements java.sql.Connection {
     }
 
     void discoverTableSpace(String sql) throws SQLException {
-        setSchema(QueryUtils.discoverTablespace(tableSpace, sql));
+        setSchema(connection.discoverTablespace(tableSpace, sql));
     }
 
     void statementFinished(long transactionId) {
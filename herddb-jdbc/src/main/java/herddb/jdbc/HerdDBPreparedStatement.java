@@ -20,8 +20,10 @@
 package herddb.jdbc;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.client.ClientConfiguration;
 import herddb.client.ClientSideMetadataProviderException;
 import herddb.client.DMLResult;
+import herddb.client.GetResult;
 import herddb.client.HDBException;
 import herddb.client.ScanResultSet;
 import herddb.jdbc.utils.SQLExceptionUtils;
@@ -47,6 +49,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 
 /**
  * SQL Statement
@@ -70,7 +73,7 @@ public class HerdDBPreparedStatement extends HerdDBStatement implements Prepared
     public ResultSet executeQuery() throws SQLException {
         try {
             parent.discoverTableSpace(sql);
-            ScanResultSet scanResult = this.parent.getConnection().executeScan(parent.getTableSpace(), sql, parameters, parent.ensureTransaction(), maxRows, fetchSize);
+            ScanResultSet scanResult = this.parent.getConnection().executeScan(parent.getTableSpace(), sql, true, parameters, parent.ensureTransaction(), maxRows, fetchSize, maxFollowerLag);
             this.parent.statementFinished(scanResult.transactionId);
             return lastResultSet = new HerdDBResultSet(scanResult);
         } catch (ClientSideMetadataProviderException | HDBException | InterruptedException ex) {
@@ -216,23 +219,49 @@ public class HerdDBPreparedStatement extends HerdDBStatement implements Prepared
         batch.add(new ArrayList<>(parameters));
     }
 
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        throw new SQLException("addBatch(String) cannot be called on a PreparedStatement");
+    }
+
     @Override
     public int[] executeBatch() throws SQLException {
         try {
-            int[] results = new int[batch.size()];
-            int i = 0;
+            parent.discoverTableSpace(sql);
+            String tableSpace = parent.getTableSpace();
+            int chunkSize = Math.max(1, parent.getConnection().getClient().getConfiguration()
+                    .getInt(ClientConfiguration.PROPERTY_BATCH_CHUNK_SIZE, ClientConfiguration.PROPERTY_BATCH_CHUNK_SIZE_DEFAULT));
+            return executeBatchInChunks(batch.size(), chunkSize, (int from, int to, long tx, boolean pipelined) -> {
+                List<List<Object>> chunk = new ArrayList<>(batch.subList(from, to));
+                if (pipelined) {
+                    return parent.getConnection().executeUpdatesChunkAsync(tableSpace, sql, tx, false, true, chunk);
+                }
+                return parent.getConnection().executeUpdatesAsync(tableSpace, sql, tx, false, true, chunk);
+            });
+        } finally {
+            batch.clear();
+        }
+    }
 
-            lastUpdateCount = 0;
+    /**
+     * Executes a lookup by primary key for every batched set of parameters,
+     * using a single round trip to the server. This is an HerdDB specific
+     * extension, the statement must be a SELECT with a WHERE clause on the
+     * whole primary key.
+     *
+     * @return one record for each set of parameters, null if the record was
+     * not found
+     */
+    public List<Map<String, Object>> executeBatchGet() throws SQLException {
+        try {
             parent.discoverTableSpace(sql);
-            List<DMLResult> dmlresults = parent.getConnection().executeUpdates(
+            List<GetResult> getresults = parent.getConnection().executeGets(
                 parent.getTableSpace(), sql,
-                parent.ensureTransaction(), false, this.batch);
-
-            for (DMLResult dmlresult : dmlresults) {
-                results[i++] = (int) dmlresult.updateCount;
-                parent.statementFinished(dmlresult.transactionId);
-                lastUpdateCount += dmlresult.updateCount;                
-                lastKey = dmlresult.key;
+                parent.ensureTransaction(), true, this.batch);
+            List<Map<String, Object>> results = new ArrayList<>(getresults.size());
+            for (GetResult getresult : getresults) {
+                parent.statementFinished(getresult.transactionId);
+                results.add(getresult.data);
             }
             return results;
         } catch (ClientSideMetadataProviderException | HDBException err) {
@@ -479,7 +508,7 @@ public class HerdDBPreparedStatement extends HerdDBStatement implements Prepared
         try {
             parent.discoverTableSpace(sql);
             DMLResult result = parent.getConnection().executeUpdate(parent.getTableSpace(),
-                sql, parent.ensureTransaction(), returnValues, actualParameters);
+                sql, parent.ensureTransaction(), returnValues, true, actualParameters);
             parent.statementFinished(result.transactionId);
             lastUpdateCount = result.updateCount;
             lastKey = result.key;
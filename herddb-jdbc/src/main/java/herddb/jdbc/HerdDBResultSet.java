@@ -23,9 +23,12 @@ import herddb.client.HDBException;
 import herddb.client.ScanResultSet;
 import herddb.client.ScanResultSetMetadata;
 import herddb.jdbc.utils.SQLExceptionUtils;
+import herddb.utils.DataAccessor;
+import herddb.utils.PrimitiveDataAccessor;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.URL;
 import java.sql.Array;
 import java.sql.Blob;
@@ -45,6 +48,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -55,9 +59,17 @@ import java.util.Map;
 public class HerdDBResultSet implements ResultSet {
 
     private final ScanResultSet scanResult;
-    private Map<String, Object> actualValue;
+    private DataAccessor actualValue;
+    /**
+     * Same as actualValue, if numbers can be read without boxing
+     */
+    private PrimitiveDataAccessor actualPrimitiveValue;
     private Object lastValue;
     private ScanResultSetMetadata metadata;
+    /**
+     * Position of each column, by name and by lowercase name
+     */
+    private Map<String, Integer> columnIndexes;
 
     HerdDBResultSet(ScanResultSet scanResult) {
         this.scanResult = scanResult;
@@ -68,10 +80,12 @@ public class HerdDBResultSet implements ResultSet {
     public boolean next() throws SQLException {
         try {
             if (scanResult.hasNext()) {
-                actualValue = scanResult.next();
+                actualValue = scanResult.nextRecord();
+                actualPrimitiveValue = actualValue instanceof PrimitiveDataAccessor ? (PrimitiveDataAccessor) actualValue : null;
                 return true;
             } else {
                 actualValue = null;
+                actualPrimitiveValue = null;
                 lastValue = null;
                 return false;
             }
@@ -90,67 +104,84 @@ public class HerdDBResultSet implements ResultSet {
         return wasNull;
     }
 
-    private String resolveColumnNameByIndex(int columnIndex) throws SQLException {
-        try {
-            return metadata.getColumnNames()[columnIndex - 1];
-        } catch (ArrayIndexOutOfBoundsException err) {
-            throw new SQLException("invalid index " + columnIndex + ", min value is 1, max value is " + metadata.getColumnNames().length);
+    private int resolveColumnIndex(int columnIndex) throws SQLException {
+        int numColumns = metadata.getColumnNames().length;
+        if (columnIndex < 1 || columnIndex > numColumns) {
+            throw new SQLException("invalid index " + columnIndex + ", min value is 1, max value is " + numColumns);
         }
+        return columnIndex - 1;
     }
 
     @Override
     public String getString(int columnIndex) throws SQLException {
-        return getString(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsString();
     }
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        return getBoolean(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsBoolean();
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return getByte(resolveColumnNameByIndex(columnIndex));
+        return (byte) getInt(columnIndex);
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return getShort(resolveColumnNameByIndex(columnIndex));
+        return (short) getInt(columnIndex);
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        return getInt(resolveColumnNameByIndex(columnIndex));
+        if (isPrimitiveNumber(columnIndex)) {
+            return toInt(actualPrimitiveValue.getLong(columnIndex - 1));
+        }
+        fillLastValue(columnIndex);
+        return lastValueAsInt();
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        return getLong(resolveColumnNameByIndex(columnIndex));
+        if (isPrimitiveNumber(columnIndex)) {
+            return actualPrimitiveValue.getLong(columnIndex - 1);
+        }
+        fillLastValue(columnIndex);
+        return lastValueAsLong();
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return getFloat(resolveColumnNameByIndex(columnIndex));
+        return (float) getDouble(columnIndex);
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return getDouble(resolveColumnNameByIndex(columnIndex));
+        if (isPrimitiveNumber(columnIndex)) {
+            return actualPrimitiveValue.getDouble(columnIndex - 1);
+        }
+        fillLastValue(columnIndex);
+        return lastValueAsDouble();
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        return getBigDecimal(resolveColumnNameByIndex(columnIndex), scale);
+        fillLastValue(columnIndex);
+        return lastValueAsBigDecimal(scale);
     }
 
     @Override
     public byte[] getBytes(int columnIndex) throws SQLException {
-        return getBytes(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsBytes();
     }
 
     @Override
     public Date getDate(int columnIndex) throws SQLException {
-        return getDate(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsDate();
     }
 
     @Override
@@ -160,7 +191,8 @@ public class HerdDBResultSet implements ResultSet {
 
     @Override
     public Timestamp getTimestamp(int columnIndex) throws SQLException {
-        return getTimestamp(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsTimestamp();
     }
 
     @Override
@@ -180,19 +212,49 @@ public class HerdDBResultSet implements ResultSet {
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        ensureNextCalled();
         fillLastValue(columnLabel);
-        if (lastValue != null) {
-            return lastValue.toString();
-        } else {
-            return null;
+        return lastValueAsString();
+    }
+
+    /**
+     * Tells whether the value can be read as a primitive number, without
+     * boxing
+     */
+    private boolean isPrimitiveNumber(int columnIndex) throws SQLException {
+        ensureNextCalled();
+        int index = resolveColumnIndex(columnIndex);
+        if (actualPrimitiveValue != null && actualPrimitiveValue.isNumber(index)) {
+            wasNull = false;
+            return true;
         }
+        return false;
+    }
+
+    private void fillLastValue(int columnIndex) throws SQLException {
+        ensureNextCalled();
+        lastValue = actualValue.get(resolveColumnIndex(columnIndex));
     }
 
-    private void fillLastValue(String columnLabel) {
-        lastValue = actualValue.get(columnLabel);
-        if (lastValue == null) {
-            lastValue = actualValue.get(columnLabel.toLowerCase());
+    private void fillLastValue(String columnLabel) throws SQLException {
+        ensureNextCalled();
+        if (columnIndexes == null) {
+            String[] columnNames = metadata.getColumnNames();
+            columnIndexes = new HashMap<>();
+            for (int i = 0; i < columnNames.length; i++) {
+                columnIndexes.putIfAbsent(columnNames[i], i);
+            }
+            for (int i = 0; i < columnNames.length; i++) {
+                columnIndexes.putIfAbsent(columnNames[i].toLowerCase(), i);
+            }
+        }
+        Integer index = columnIndexes.get(columnLabel);
+        if (index == null) {
+            index = columnIndexes.get(columnLabel.toLowerCase());
+        }
+        if (index != null) {
+            lastValue = actualValue.get(index);
+        } else {
+            lastValue = actualValue.get(columnLabel);
         }
     }
 
@@ -204,35 +266,39 @@ public class HerdDBResultSet implements ResultSet {
 
     private boolean wasNull;
 
-    @Override
-    public boolean getBoolean(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private String lastValueAsString() {
         if (lastValue != null) {
             wasNull = false;
-            return Boolean.parseBoolean(lastValue.toString());
+            return lastValue.toString();
         } else {
             wasNull = true;
-            return false;
+            return null;
         }
     }
 
-    @Override
-    public byte getByte(String columnLabel) throws SQLException {
-        return (byte) getInt(columnLabel);
+    private boolean lastValueAsBoolean() {
+        if (lastValue != null) {
+            wasNull = false;
+            return Boolean.parseBoolean(lastValue.toString());
+        } else {
+            wasNull = true;
+            return false;
+        }
     }
 
-    @Override
-    public short getShort(String columnLabel) throws SQLException {
-        return (short) getInt(columnLabel);
+    private static int toInt(long value) throws SQLException {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new SQLException("value " + value + " is out of the range of an int");
+        }
+        return (int) value;
     }
 
-    @Override
-    public int getInt(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private int lastValueAsInt() throws SQLException {
         if (lastValue != null) {
             wasNull = false;
+            if (lastValue instanceof Number) {
+                return toInt(((Number) lastValue).longValue());
+            }
             return Integer.parseInt(lastValue.toString());
         } else {
             wasNull = true;
@@ -240,10 +306,7 @@ public class HerdDBResultSet implements ResultSet {
         }
     }
 
-    @Override
-    public long getLong(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private long lastValueAsLong() {
         if (lastValue != null) {
             wasNull = false;
             if (lastValue instanceof Long) {
@@ -259,15 +322,7 @@ public class HerdDBResultSet implements ResultSet {
         }
     }
 
-    @Override
-    public float getFloat(String columnLabel) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
-    @Override
-    public double getDouble(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private double lastValueAsDouble() {
         if (lastValue != null) {
             wasNull = false;
             if (lastValue instanceof Number) {
@@ -280,20 +335,44 @@ public class HerdDBResultSet implements ResultSet {
         }
     }
 
-    @Override
-    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    private BigDecimal lastValueAsBigDecimal() {
+        if (lastValue != null) {
+            wasNull = false;
+            if (lastValue instanceof BigDecimal) {
+                return (BigDecimal) lastValue;
+            }
+            if (lastValue instanceof Long || lastValue instanceof Integer) {
+                return BigDecimal.valueOf(((Number) lastValue).longValue());
+            }
+            if (lastValue instanceof Number) {
+                return BigDecimal.valueOf(((Number) lastValue).doubleValue());
+            }
+            return new BigDecimal(lastValue.toString());
+        } else {
+            wasNull = true;
+            return null;
+        }
     }
 
-    @Override
-    public byte[] getBytes(String columnLabel) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    private BigDecimal lastValueAsBigDecimal(int scale) {
+        BigDecimal value = lastValueAsBigDecimal();
+        return value != null ? value.setScale(scale, RoundingMode.HALF_UP) : null;
     }
 
-    @Override
-    public Date getDate(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private byte[] lastValueAsBytes() throws SQLException {
+        if (lastValue != null) {
+            wasNull = false;
+            if (lastValue instanceof byte[]) {
+                return (byte[]) lastValue;
+            }
+            throw new SQLException("value of type " + lastValue.getClass().getName() + " cannot be read as byte[]");
+        } else {
+            wasNull = true;
+            return null;
+        }
+    }
+
+    private Date lastValueAsDate() {
         if (lastValue != null) {
             wasNull = false;
             if (lastValue instanceof java.sql.Date) {
@@ -309,15 +388,7 @@ public class HerdDBResultSet implements ResultSet {
         }
     }
 
-    @Override
-    public Time getTime(String columnLabel) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
-    @Override
-    public Timestamp getTimestamp(String columnLabel) throws SQLException {
-        ensureNextCalled();
-        fillLastValue(columnLabel);
+    private Timestamp lastValueAsTimestamp() {
         if (lastValue != null) {
             wasNull = false;
             if (lastValue instanceof java.sql.Timestamp) {
@@ -333,6 +404,84 @@ public class HerdDBResultSet implements ResultSet {
         }
     }
 
+    private Object lastValueAsObject() {
+        if (lastValue != null) {
+            wasNull = false;
+            return lastValue;
+        } else {
+            wasNull = true;
+            return null;
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsBoolean();
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return (byte) getInt(columnLabel);
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return (short) getInt(columnLabel);
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsInt();
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsLong();
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return (float) getDouble(columnLabel);
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsDouble();
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsBigDecimal(scale);
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsBytes();
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsDate();
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        fillLastValue(columnLabel);
+        return lastValueAsTimestamp();
+    }
+
     @Override
     public InputStream getAsciiStream(String columnLabel) throws SQLException {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -495,20 +644,14 @@ public class HerdDBResultSet implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        return getObject(resolveColumnNameByIndex(columnIndex));
+        fillLastValue(columnIndex);
+        return lastValueAsObject();
     }
 
     @Override
     public Object getObject(String columnLabel) throws SQLException {
-        ensureNextCalled();
         fillLastValue(columnLabel);
-        if (lastValue != null) {
-            wasNull = false;
-            return lastValue;
-        } else {
-            wasNull = true;
-            return null;
-        }
+        return lastValueAsObject();
     }
 
     @Override
@@ -535,12 +678,14 @@ public class HerdDBResultSet implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        fillLastValue(columnIndex);
+        return lastValueAsBigDecimal();
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        fillLastValue(columnLabel);
+        return lastValueAsBigDecimal();
     }
 
     @Override
@@ -1250,7 +1395,7 @@ public class HerdDBResultSet implements ResultSet {
 
     @Override
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
-        return getObject(resolveColumnNameByIndex(columnIndex), type);
+        return (T) getObject(columnIndex);
     }
 
     @Override
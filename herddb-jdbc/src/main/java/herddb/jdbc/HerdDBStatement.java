@@ -20,20 +20,30 @@
 package herddb.jdbc;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import herddb.client.ClientConfiguration;
 import herddb.client.ClientSideMetadataProviderException;
 import herddb.client.DMLResult;
 import herddb.client.HDBException;
 import herddb.client.ScanResultSet;
 import herddb.client.impl.EmptyScanResultSet;
+import herddb.client.impl.MissingPreparedStatementException;
 import herddb.client.impl.SingletonScanResultSet;
 import herddb.jdbc.utils.SQLExceptionUtils;
 import herddb.model.TransactionContext;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * SQL Statement
@@ -48,16 +58,35 @@ public class HerdDBStatement implements java.sql.Statement {
     protected ResultSet lastResultSet;
     protected long lastUpdateCount = -1;
     protected Object lastKey;
+    protected long maxFollowerLag;
+    private final List<String> batchStatements = new ArrayList<>();
 
     public HerdDBStatement(HerdDBConnection parent) {
         this.parent = parent;
+        this.maxFollowerLag = parent.getMaxFollowerLag();
+    }
+
+    public long getMaxFollowerLag() {
+        return maxFollowerLag;
+    }
+
+    /**
+     * Allows the queries of this statement to be served by a follower
+     * replica if it is not more than the given number of milliseconds behind
+     * the leader. It applies only to queries executed in autocommit mode
+     *
+     * @param maxFollowerLag maximum staleness, in milliseconds, a negative
+     * value means that queries are always executed by the leader
+     */
+    public void setMaxFollowerLag(long maxFollowerLag) {
+        this.maxFollowerLag = maxFollowerLag;
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
         try {
             parent.discoverTableSpace(sql);
-            ScanResultSet scanResult = this.parent.getConnection().executeScan(parent.getTableSpace(), sql, Collections.emptyList(), parent.ensureTransaction(), maxRows, fetchSize);
+            ScanResultSet scanResult = this.parent.getConnection().executeScan(parent.getTableSpace(), sql, false, Collections.emptyList(), parent.ensureTransaction(), maxRows, fetchSize, maxFollowerLag);
             parent.statementFinished(scanResult.transactionId);
             return lastResultSet = new HerdDBResultSet(scanResult);
         } catch (ClientSideMetadataProviderException | HDBException | InterruptedException ex) {
@@ -194,17 +223,134 @@ public class HerdDBStatement implements java.sql.Statement {
 
     @Override
     public void addBatch(String sql) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        batchStatements.add(sql);
     }
 
     @Override
     public void clearBatch() throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        batchStatements.clear();
     }
 
     @Override
     public int[] executeBatch() throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        try {
+            // each statement is a chunk, statements are pipelined
+            return executeBatchInChunks(batchStatements.size(), 1, (int from, int to, long tx, boolean pipelined) -> {
+                String sql = batchStatements.get(from);
+                parent.discoverTableSpace(sql);
+                return parent.getConnection().executeUpdatesAsync(parent.getTableSpace(), sql, tx, false, false,
+                        Collections.singletonList(Collections.emptyList()));
+            });
+        } finally {
+            batchStatements.clear();
+        }
+    }
+
+    /**
+     * Sends a chunk of a batch to the server
+     */
+    @FunctionalInterface
+    protected interface BatchChunkSender {
+
+        /**
+         * @param from index of the first statement of the chunk
+         * @param to index after the last statement of the chunk
+         * @param tx the transaction
+         * @param pipelined true if previous chunks may still be in flight, in
+         * this case the chunk must fail if the server does not know its
+         * prepared statement anymore, see
+         * {@link herddb.client.HDBConnection#executeUpdatesChunkAsync}
+         */
+        CompletableFuture<List<DMLResult>> send(int from, int to, long tx, boolean pipelined) throws SQLException;
+    }
+
+    /**
+     * Executes a batch splitting it into chunks. Inside a transaction more
+     * chunks are sent while the server is executing the previous ones, the
+     * server executes the chunks in order. In autocommit mode each chunk is
+     * sent only after the previous one succeeded, because a chunk in flight
+     * would be committed even if a previous one failed.
+     *
+     * @param batchSize number of statements in the batch
+     * @param chunkSize maximum number of statements in each chunk
+     * @param sender sends a chunk
+     * @return the update count of each statement
+     * @throws BatchUpdateException if a chunk fails, the statements of the
+     * chunks which failed or were not sent are reported as
+     * {@link Statement#EXECUTE_FAILED}
+     */
+    protected int[] executeBatchInChunks(int batchSize, int chunkSize, BatchChunkSender sender) throws SQLException {
+        long tx = parent.ensureTransaction();
+        int maxInFlightChunks = tx == TransactionContext.NOTRANSACTION_ID ? 1 : Math.max(1, parent.getConnection().getClient().getConfiguration()
+                .getInt(ClientConfiguration.PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS, ClientConfiguration.PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS_DEFAULT));
+        int[] results = new int[batchSize];
+        Arrays.fill(results, Statement.EXECUTE_FAILED);
+        lastUpdateCount = 0;
+        Deque<int[]> inFlightRanges = new ArrayDeque<>();
+        Deque<CompletableFuture<List<DMLResult>>> inFlight = new ArrayDeque<>();
+        SQLException error = null;
+        int next = 0;
+        boolean firstChunkDone = false;
+        // first chunk to send again because the server lost the prepared statement
+        int resendFrom = -1;
+        while (true) {
+            // the first chunk starts the transaction and prepares the statement,
+            // the others are sent only after it, otherwise they could overtake it
+            while (error == null && resendFrom < 0 && next < batchSize && inFlight.size() < maxInFlightChunks
+                    && (firstChunkDone || inFlight.isEmpty())) {
+                int to = Math.min(batchSize, next + chunkSize);
+                try {
+                    inFlight.add(sender.send(next, to, tx, !inFlight.isEmpty()));
+                    inFlightRanges.add(new int[]{next, to});
+                } catch (SQLException err) {
+                    error = err;
+                }
+                next = to;
+            }
+            CompletableFuture<List<DMLResult>> chunk = inFlight.poll();
+            if (chunk == null) {
+                if (error == null && resendFrom >= 0) {
+                    // the chunks after the first failed one failed too, send them
+                    // again one at a time, so that each one finds the statement
+                    // prepared again or prepares it before the next one is sent
+                    next = resendFrom;
+                    resendFrom = -1;
+                    maxInFlightChunks = 1;
+                    continue;
+                }
+                break;
+            }
+            int from = inFlightRanges.poll()[0];
+            firstChunkDone = true;
+            try {
+                List<DMLResult> dmlresults = chunk.get();
+                for (DMLResult dmlresult : dmlresults) {
+                    results[from++] = (int) dmlresult.updateCount;
+                    tx = dmlresult.transactionId;
+                    parent.statementFinished(tx);
+                    lastUpdateCount += dmlresult.updateCount;
+                    lastKey = dmlresult.key;
+                }
+            } catch (ExecutionException err) {
+                // wait for the chunks already sent, they are executed anyway
+                Throwable cause = err.getCause();
+                if (cause instanceof MissingPreparedStatementException) {
+                    if (resendFrom < 0) {
+                        resendFrom = from;
+                    }
+                } else if (error == null) {
+                    error = SQLExceptionUtils.wrapException(cause instanceof Exception ? (Exception) cause : err);
+                }
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                error = SQLExceptionUtils.wrapException(err);
+                break;
+            }
+        }
+        if (error != null) {
+            throw new BatchUpdateException(error.getMessage(), error.getSQLState(), error.getErrorCode(), results, error);
+        }
+        return results;
     }
 
     @Override
@@ -327,12 +473,15 @@ public class HerdDBStatement implements java.sql.Statement {
 
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("cannot unwrap to " + iface);
     }
 
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return iface.isInstance(this);
     }
 
 }
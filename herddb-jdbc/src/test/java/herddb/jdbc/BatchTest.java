@@ -20,16 +20,30 @@
 package herddb.jdbc;
 
 import herddb.client.ClientConfiguration;
+import herddb.client.DMLResult;
 import herddb.client.HDBClient;
+import herddb.client.impl.MissingPreparedStatementException;
+import herddb.network.Message;
 import herddb.server.Server;
 import herddb.server.ServerConfiguration;
 import herddb.server.StaticClientSideMetadataProvider;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -121,4 +135,224 @@ public class BatchTest {
 
     }
 
+    @Test
+    public void testChunkedBatch() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BATCH_CHUNK_SIZE, 7);
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS, 3);
+            try (HDBClient client = new HDBClient(clientConfiguration);) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        Connection con = dataSource.getConnection();
+                        Statement create = con.createStatement();
+                        PreparedStatement statement = con.prepareStatement("INSERT INTO mytable (name) values(?)");) {
+                    create.execute("CREATE TABLE mytable (n1 int primary key auto_increment, name string)");
+
+                    for (boolean autocommit : new boolean[]{true, false}) {
+                        con.setAutoCommit(autocommit);
+                        for (int i = 0; i < 1000; i++) {
+                            statement.setString(1, "v" + i);
+                            statement.addBatch();
+                        }
+                        int[] results = statement.executeBatch();
+                        assertEquals(1000, results.length);
+                        for (int i = 0; i < 1000; i++) {
+                            assertEquals(1, results[i]);
+                        }
+                        if (!autocommit) {
+                            con.commit();
+                        }
+
+                        // chunks are executed in order
+                        try (ResultSet rs = statement.executeQuery("SELECT * FROM mytable ORDER BY n1")) {
+                            int count = 0;
+                            while (rs.next()) {
+                                assertEquals("v" + count, rs.getString("name"));
+                                count++;
+                            }
+                            assertEquals(1000, count);
+                        }
+                        statement.executeUpdate("DELETE FROM mytable");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedBatchFailure() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BATCH_CHUNK_SIZE, 10);
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS, 2);
+            try (HDBClient client = new HDBClient(clientConfiguration);) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        Connection con = dataSource.getConnection();
+                        Statement create = con.createStatement();
+                        PreparedStatement statement = con.prepareStatement("INSERT INTO mytable (n1, name) values(?, ?)");) {
+                    create.execute("CREATE TABLE mytable (n1 int primary key, name string)");
+
+                    for (int i = 0; i < 100; i++) {
+                        // duplicate key, the chunk from 50 to 59 fails
+                        statement.setInt(1, i == 50 ? 10 : i);
+                        statement.setString(2, "v" + i);
+                        statement.addBatch();
+                    }
+                    try {
+                        statement.executeBatch();
+                        fail();
+                    } catch (BatchUpdateException err) {
+                        int[] counts = err.getUpdateCounts();
+                        assertEquals(100, counts.length);
+                        for (int i = 0; i < 100; i++) {
+                            assertEquals(i < 50 ? 1 : Statement.EXECUTE_FAILED, counts[i]);
+                        }
+                    }
+                    // in autocommit mode no chunk is sent after the failed one
+                    try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM mytable")) {
+                        assertTrue(rs.next());
+                        assertEquals(50, rs.getInt(1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedBatchResentAfterMissingPreparedStatement() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BATCH_MAX_INFLIGHT_CHUNKS, 3);
+            try (HDBClient client = new HDBClient(clientConfiguration);) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        HerdDBConnection con = (HerdDBConnection) dataSource.getConnection();
+                        Statement create = con.createStatement();
+                        HerdDBPreparedStatement statement = (HerdDBPreparedStatement) con.prepareStatement("INSERT INTO mytable (name) values(?)");) {
+                    create.execute("CREATE TABLE mytable (n1 int primary key auto_increment, name string)");
+                    con.setAutoCommit(false);
+
+                    // the server loses the prepared statement when the chunk starting at 30 arrives,
+                    // the chunks in flight fail until a chunk is sent alone and prepares it again
+                    AtomicBoolean lost = new AtomicBoolean();
+                    AtomicInteger missing = new AtomicInteger();
+                    int[] results = statement.executeBatchInChunks(100, 10, (int from, int to, long tx, boolean pipelined) -> {
+                        if (!pipelined) {
+                            lost.set(false);
+                        } else if (from == 30 && missing.get() == 0) {
+                            lost.set(true);
+                        }
+                        if (lost.get()) {
+                            missing.incrementAndGet();
+                            CompletableFuture<List<DMLResult>> failed = new CompletableFuture<>();
+                            failed.completeExceptionally(new MissingPreparedStatementException(
+                                    Message.ERROR(null, new Exception("no such prepared statement"))));
+                            return failed;
+                        }
+                        List<List<Object>> chunk = new ArrayList<>();
+                        for (int i = from; i < to; i++) {
+                            chunk.add(Arrays.asList("v" + i));
+                        }
+                        return con.getConnection().executeUpdatesChunkAsync(con.getTableSpace(),
+                                "INSERT INTO mytable (name) values(?)", tx, false, true, chunk);
+                    });
+                    assertTrue(missing.get() > 0);
+                    assertEquals(100, results.length);
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals(1, results[i]);
+                    }
+                    con.commit();
+
+                    // chunks are executed in order
+                    try (ResultSet rs = statement.executeQuery("SELECT * FROM mytable ORDER BY n1")) {
+                        int count = 0;
+                        while (rs.next()) {
+                            assertEquals("v" + count, rs.getString("name"));
+                            count++;
+                        }
+                        assertEquals(100, count);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStatementBatch() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            try (HDBClient client = new HDBClient(new ClientConfiguration(folder.newFolder().toPath()));) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        Connection con = dataSource.getConnection();
+                        Statement statement = con.createStatement();) {
+                    statement.execute("CREATE TABLE mytable (n1 int primary key, name string)");
+
+                    statement.addBatch("INSERT INTO mytable (n1, name) values(1, 'a')");
+                    statement.addBatch("INSERT INTO mytable (n1, name) values(2, 'b')");
+                    statement.addBatch("UPDATE mytable set name='c' WHERE n1=1");
+                    statement.addBatch("DELETE FROM mytable WHERE n1=3");
+                    statement.addBatch("UPDATE mytable set name='d'");
+                    assertArrayEquals(new int[]{1, 1, 1, 0, 2}, statement.executeBatch());
+
+                    // the batch has been cleared
+                    assertEquals(0, statement.executeBatch().length);
+
+                    try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM mytable WHERE name='d'")) {
+                        assertTrue(rs.next());
+                        assertEquals(2, rs.getInt(1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchGet() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            try (HDBClient client = new HDBClient(new ClientConfiguration(folder.newFolder().toPath()));) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        Connection con = dataSource.getConnection();
+                        Statement create = con.createStatement();
+                        PreparedStatement insert = con.prepareStatement("INSERT INTO mytable (n1, name) values(?, ?)");
+                        PreparedStatement get = con.prepareStatement("SELECT * FROM mytable WHERE n1=?");) {
+                    create.execute("CREATE TABLE mytable (n1 int primary key, name string)");
+
+                    for (int i = 0; i < 10; i++) {
+                        insert.setInt(1, i);
+                        insert.setString(2, "v" + i);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+
+                    for (int i = 5; i < 15; i++) {
+                        get.setInt(1, i);
+                        get.addBatch();
+                    }
+                    List<Map<String, Object>> results = get.unwrap(HerdDBPreparedStatement.class).executeBatchGet();
+                    assertEquals(10, results.size());
+                    for (int i = 0; i < 10; i++) {
+                        Map<String, Object> record = results.get(i);
+                        if (i + 5 < 10) {
+                            assertEquals("v" + (i + 5), record.get("name").toString());
+                        } else {
+                            assertNull(record);
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.jdbc;
+
+import herddb.client.ClientConfiguration;
+import herddb.client.HDBClient;
+import herddb.model.TableSpace;
+import herddb.server.Server;
+import herddb.server.ServerConfiguration;
+import herddb.server.StaticClientSideMetadataProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests about the bulk load extension of the JDBC driver
+ *
+ * @author enrico.olivelli
+ */
+public class BulkLoadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int count(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void testBulkLoad() throws Exception {
+        try (Server server = new Server(new ServerConfiguration(folder.newFolder().toPath()))) {
+            server.start();
+            server.waitForStandaloneBoot();
+            ClientConfiguration clientConfiguration = new ClientConfiguration(folder.newFolder().toPath());
+            clientConfiguration.set(ClientConfiguration.PROPERTY_BULKLOAD_CHUNK_SIZE, 7);
+            try (HDBClient client = new HDBClient(clientConfiguration);) {
+                client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                        Connection con = dataSource.getConnection();
+                        Statement statement = con.createStatement();) {
+                    statement.execute("CREATE TABLE mytable (k1 string primary key, n1 int, l1 long, d1 double)");
+                    assertTrue(con.isWrapperFor(HerdDBConnection.class));
+                    HerdDBConnection hcon = con.unwrap(HerdDBConnection.class);
+                    String[] columns = {"k1", "n1", "l1", "d1"};
+
+                    List<Object[]> rows = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        rows.add(new Object[]{"k" + i, i, (long) i, i % 3 == 0 ? null : i / 2.0});
+                    }
+                    assertEquals(100, hcon.bulkLoad("mytable", columns, rows.iterator()));
+                    assertEquals(100, count(statement, "mytable"));
+                    try (ResultSet rs = statement.executeQuery("SELECT n1,l1,d1 FROM mytable WHERE k1='k5'")) {
+                        assertTrue(rs.next());
+                        assertEquals(5, rs.getInt(1));
+                        assertEquals(5L, rs.getLong(2));
+                        assertEquals(2.5, rs.getDouble(3), 0);
+                    }
+
+                    // values as strings, the table is qualified with the tablespace
+                    assertEquals(2, hcon.bulkLoad("herd.mytable", columns,
+                            Arrays.asList(new Object[]{"s1", "1", "2", "3.5"}, new Object[]{"s2", null, null, null}).iterator()));
+                    assertEquals(102, count(statement, "mytable"));
+
+                    // another tablespace, the schema of the connection does not change
+                    statement.execute("CREATE TABLESPACE 'ts1','wait:60000'");
+                    statement.execute("CREATE TABLE ts1.othertable (k1 string primary key, n1 int, l1 long, d1 double)");
+                    con.setSchema(TableSpace.DEFAULT);
+                    assertEquals(1, hcon.bulkLoad("ts1.othertable", columns,
+                            Arrays.<Object[]>asList(new Object[]{"o1", 1, 1L, 1.0}).iterator()));
+                    assertEquals(TableSpace.DEFAULT, con.getSchema());
+                    assertEquals(1, count(statement, "ts1.othertable"));
+                    con.setSchema(TableSpace.DEFAULT);
+
+                    try {
+                        hcon.bulkLoad("mytable", columns, Arrays.<Object[]>asList(new Object[]{"k1", 1, 1L, 1.0}).iterator());
+                        fail();
+                    } catch (SQLException ok) {
+                        assertTrue(ok.getMessage().contains("k1"));
+                    }
+
+                    // transactions
+                    con.setAutoCommit(false);
+                    rows.clear();
+                    for (int i = 0; i < 20; i++) {
+                        rows.add(new Object[]{"t" + i, i, null, null});
+                    }
+                    assertEquals(20, hcon.bulkLoad("mytable", columns, rows.iterator()));
+                    assertEquals(122, count(statement, "mytable"));
+                    con.rollback();
+                    assertEquals(102, count(statement, "mytable"));
+
+                    // a transaction cannot span tablespaces
+                    try {
+                        hcon.bulkLoad("ts1.othertable", columns, rows.iterator());
+                        fail();
+                    } catch (SQLException ok) {
+                        assertTrue(ok.getMessage().contains("ts1"));
+                    }
+                    assertEquals(TableSpace.DEFAULT, con.getSchema());
+
+                    assertEquals(20, hcon.bulkLoad("mytable", columns, rows.iterator()));
+                    con.commit();
+                    con.setAutoCommit(true);
+                    assertEquals(122, count(statement, "mytable"));
+                }
+            }
+        }
+    }
+
+}
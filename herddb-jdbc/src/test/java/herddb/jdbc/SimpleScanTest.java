@@ -19,13 +19,18 @@
  */
 package herddb.jdbc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 import org.junit.Assert;
@@ -137,4 +142,133 @@ public class SimpleScanTest {
             }
         }
     }
+
+    @Test
+    public void testGettersByIndex() throws Exception {
+        for (boolean passByReference : new boolean[]{true, false}) {
+            ServerConfiguration serverConfiguration = new ServerConfiguration(folder.newFolder().toPath());
+            // without pass by reference results are decoded from the network format
+            serverConfiguration.set(ServerConfiguration.PROPERTY_NETWORK_JVM_PASS_BY_REFERENCE, passByReference);
+            try (Server server = new Server(serverConfiguration)) {
+                server.start();
+                server.waitForStandaloneBoot();
+
+                try (HDBClient client = new HDBClient(new ClientConfiguration(folder.newFolder().toPath()));) {
+                    client.setClientSideMetadataProvider(new StaticClientSideMetadataProvider(server));
+                    try (BasicHerdDBDataSource dataSource = new BasicHerdDBDataSource(client);
+                            Connection con = dataSource.getConnection();
+                            Statement statement = con.createStatement();) {
+                        statement.execute("CREATE TABLE mytable (k1 string primary key, n1 int, l1 long, d1 double, t1 timestamp)");
+                        try (PreparedStatement insert = con.prepareStatement("INSERT INTO mytable(k1,n1,l1,d1,t1) values(?,?,?,?,?)")) {
+                            for (int n = 0; n < 100; n++) {
+                                insert.setString(1, "mykey_" + n);
+                                if (n % 10 == 0) {
+                                    insert.setNull(2, java.sql.Types.INTEGER);
+                                    insert.setNull(3, java.sql.Types.BIGINT);
+                                    insert.setNull(4, java.sql.Types.DOUBLE);
+                                    insert.setNull(5, java.sql.Types.TIMESTAMP);
+                                } else {
+                                    insert.setInt(2, n);
+                                    insert.setLong(3, n * 1000000000L);
+                                    insert.setDouble(4, n + 0.5);
+                                    insert.setTimestamp(5, new java.sql.Timestamp(n * 1000L));
+                                }
+                                insert.executeUpdate();
+                            }
+                        }
+
+                        try (ResultSet rs = statement.executeQuery("SELECT k1, n1, l1, d1, t1 FROM mytable ORDER BY k1")) {
+                            int count = 0;
+                            while (rs.next()) {
+                                String key = rs.getString(1);
+                                assertEquals(key, rs.getString("k1"));
+                                assertEquals(key, rs.getString("K1"));
+                                int n = Integer.parseInt(key.substring("mykey_".length()));
+                                if (n % 10 == 0) {
+                                    assertEquals(0, rs.getInt(2));
+                                    assertTrue(rs.wasNull());
+                                    assertEquals(0, rs.getLong(3));
+                                    assertTrue(rs.wasNull());
+                                    assertEquals(0, rs.getDouble(4), 0);
+                                    assertTrue(rs.wasNull());
+                                    assertNull(rs.getTimestamp(5));
+                                    assertTrue(rs.wasNull());
+                                    assertNull(rs.getObject(2));
+                                    assertEquals(0, rs.getFloat(4), 0);
+                                    assertTrue(rs.wasNull());
+                                    assertNull(rs.getBigDecimal(3));
+                                    assertTrue(rs.wasNull());
+                                } else {
+                                    assertEquals(n, rs.getInt(2));
+                                    assertFalse(rs.wasNull());
+                                    assertEquals(n, rs.getInt("n1"));
+                                    assertEquals(n, rs.getLong(2));
+                                    assertEquals(n * 1000000000L, rs.getLong(3));
+                                    assertEquals(n * 1000000000L, rs.getLong("l1"));
+                                    assertEquals(n + 0.5, rs.getDouble(4), 0);
+                                    assertEquals(n + 0.5, rs.getDouble("d1"), 0);
+                                    assertEquals(n, rs.getDouble(2), 0);
+                                    assertEquals(new java.sql.Timestamp(n * 1000L), rs.getTimestamp(5));
+                                    assertEquals(Integer.valueOf(n), rs.getObject(2));
+                                    assertEquals(String.valueOf(n), rs.getString(2));
+                                    assertEquals(n + 0.5f, rs.getFloat(4), 0);
+                                    assertEquals(n + 0.5f, rs.getFloat("d1"), 0);
+                                    assertEquals(BigDecimal.valueOf(n * 1000000000L), rs.getBigDecimal(3));
+                                    assertEquals(BigDecimal.valueOf(n + 0.5), rs.getBigDecimal("d1"));
+                                    assertEquals(new BigDecimal(n + ".50"), rs.getBigDecimal(4, 2));
+                                    if (n * 1000000000L > Integer.MAX_VALUE) {
+                                        // the long does not fit an int, both with columnar and with generic values
+                                        try {
+                                            rs.getInt(3);
+                                            Assert.fail();
+                                        } catch (SQLException ok) {
+                                            assertTrue(ok.getMessage().contains("out of the range of an int"));
+                                        }
+                                        try {
+                                            rs.getInt("l1");
+                                            Assert.fail();
+                                        } catch (SQLException ok) {
+                                            assertTrue(ok.getMessage().contains("out of the range of an int"));
+                                        }
+                                    } else {
+                                        assertEquals(n * 1000000000L, rs.getInt(3));
+                                        assertEquals(n * 1000000000L, rs.getInt("l1"));
+                                    }
+                                }
+                                count++;
+                            }
+                            assertEquals(100, count);
+                        }
+
+                        statement.execute("CREATE TABLE mytable2 (k1 string primary key, b1 blob)");
+                        try (PreparedStatement insert = con.prepareStatement("INSERT INTO mytable2(k1,b1) values(?,?)")) {
+                            insert.setString(1, "a");
+                            insert.setBytes(2, new byte[]{1, 2, 3});
+                            insert.executeUpdate();
+                        }
+                        try (ResultSet rs = statement.executeQuery("SELECT k1, b1 FROM mytable2")) {
+                            assertTrue(rs.next());
+                            assertArrayEquals(new byte[]{1, 2, 3}, rs.getBytes(2));
+                            assertArrayEquals(new byte[]{1, 2, 3}, rs.getBytes("b1"));
+                            try {
+                                rs.getBytes(1);
+                                Assert.fail();
+                            } catch (SQLException ok) {
+                            }
+                        }
+
+                        try (ResultSet rs = statement.executeQuery("SELECT k1, n1 FROM mytable")) {
+                            assertTrue(rs.next());
+                            try {
+                                rs.getInt(3);
+                                Assert.fail();
+                            } catch (SQLException ok) {
+                                assertTrue(ok.getMessage().contains("invalid index 3"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
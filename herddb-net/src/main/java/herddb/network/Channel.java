@@ -24,6 +24,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract for two-way async comunication channels
@@ -34,6 +35,12 @@ public abstract class Channel implements AutoCloseable {
 
     protected ChannelEventListener messagesReceiver;
     protected String name = "unnamed";
+    protected volatile int protocolVersion = Message.PROTOCOL_VERSION_1;
+    protected volatile int compressionThreshold;
+    private final AtomicLong uncompressedBytesSent = new AtomicLong();
+    private final AtomicLong compressedBytesSent = new AtomicLong();
+    private final AtomicLong uncompressedBytesReceived = new AtomicLong();
+    private final AtomicLong compressedBytesReceived = new AtomicLong();
 
     public Channel() {
     }
@@ -54,6 +61,12 @@ public abstract class Channel implements AutoCloseable {
 
     public abstract void channelIdle();
 
+    /**
+     * Number of requests sent on this channel which are still waiting for a
+     * reply
+     */
+    public abstract int getPendingReplyMessages();
+
     public abstract String getRemoteAddress();
 
     @Override
@@ -88,6 +101,69 @@ public abstract class Channel implements AutoCloseable {
 
     public abstract boolean isValid();
 
+    /**
+     * Version of the protocol used to encode outgoing messages. Incoming
+     * messages are always decoded according to the version they declare.
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public void setProtocolVersion(int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Outgoing messages whose encoded size is greater than this threshold are
+     * compressed, zero disables compression. It is agreed with the peer
+     * during the handshake, compressed frames can be always received.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public void compressedFrameSent(int uncompressedSize, int compressedSize) {
+        uncompressedBytesSent.addAndGet(uncompressedSize);
+        compressedBytesSent.addAndGet(compressedSize);
+    }
+
+    public void compressedFrameReceived(int compressedSize, int uncompressedSize) {
+        compressedBytesReceived.addAndGet(compressedSize);
+        uncompressedBytesReceived.addAndGet(uncompressedSize);
+    }
+
+    /**
+     * Size of the messages sent as compressed frames, before compression
+     */
+    public long getUncompressedBytesSent() {
+        return uncompressedBytesSent.get();
+    }
+
+    /**
+     * Size of the compressed frames sent
+     */
+    public long getCompressedBytesSent() {
+        return compressedBytesSent.get();
+    }
+
+    /**
+     * Size of the messages received as compressed frames, after decompression
+     */
+    public long getUncompressedBytesReceived() {
+        return uncompressedBytesReceived.get();
+    }
+
+    /**
+     * Size of the compressed frames received
+     */
+    public long getCompressedBytesReceived() {
+        return compressedBytesReceived.get();
+    }
+
     public String getName() {
         return name;
     }
@@ -39,4 +39,16 @@ public interface ChannelEventListener {
     public default void channelClosed(Channel channel) {
     }
 
+    /**
+     * Text of the statement executed by a request, used in order to schedule
+     * it before it is handled. Receivers which keep prepared statements
+     * resolve them.
+     *
+     * @param message
+     * @return the statement or null
+     */
+    public default String resolveQuery(Message message) {
+        return (String) message.parameters.get("query");
+    }
+
 }
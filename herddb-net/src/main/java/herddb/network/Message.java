@@ -60,9 +60,48 @@ public final class Message {
         return new Message(clientId, TYPE_CLIENT_SHUTDOWN, new HashMap<>());
     }
 
+    public static Message PREPARE_STATEMENT(String clientId, String tableSpace, String query) {
+        HashMap<String, Object> data = new HashMap<>();
+        String ts = System.currentTimeMillis() + "";
+        data.put("ts", ts);
+        data.put("tableSpace", tableSpace);
+        data.put("query", query);
+        return new Message(clientId, TYPE_PREPARE_STATEMENT, data);
+    }
+
+    public static Message PREPARE_STATEMENT_RESULT(long statementId) {
+        HashMap<String, Object> data = new HashMap<>();
+        String ts = System.currentTimeMillis() + "";
+        data.put("ts", ts);
+        data.put("statementId", statementId);
+        return new Message(null, TYPE_PREPARE_STATEMENT_RESULT, data);
+    }
+
+    /**
+     * Releases a statement prepared on the connection, the server does not
+     * answer
+     */
+    public static Message UNPREPARE_STATEMENT(String clientId, long statementId) {
+        HashMap<String, Object> data = new HashMap<>();
+        String ts = System.currentTimeMillis() + "";
+        data.put("ts", ts);
+        data.put("statementId", statementId);
+        return new Message(clientId, TYPE_UNPREPARE_STATEMENT, data);
+    }
+
     public static Message EXECUTE_STATEMENT(String clientId, String tableSpace, String query, long tx,
             boolean returnValues,
             List<Object> params) {
+        return EXECUTE_STATEMENT(clientId, tableSpace, query, 0, tx, returnValues, params);
+    }
+
+    /**
+     * Executes a statement, when statementId is not zero it refers to a
+     * statement prepared on this connection and the query is not sent.
+     */
+    public static Message EXECUTE_STATEMENT(String clientId, String tableSpace, String query, long statementId, long tx,
+            boolean returnValues,
+            List<Object> params) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
         data.put("ts", ts);
@@ -73,7 +112,7 @@ public final class Message {
         if (returnValues) {
             data.put("returnValues", Boolean.TRUE);
         }
-        data.put("query", query);
+        putQuery(data, query, statementId);
         if (params != null && !params.isEmpty()) {
             data.put("params", params);
         }
@@ -82,6 +121,11 @@ public final class Message {
 
     public static Message EXECUTE_STATEMENTS(String clientId, String tableSpace, String query,
             long tx, boolean returnValues, List<List<Object>> params) {
+        return EXECUTE_STATEMENTS(clientId, tableSpace, query, 0, tx, returnValues, params);
+    }
+
+    public static Message EXECUTE_STATEMENTS(String clientId, String tableSpace, String query, long statementId,
+            long tx, boolean returnValues, List<List<Object>> params) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
         data.put("ts", ts);
@@ -92,24 +136,40 @@ public final class Message {
         if (returnValues) {
             data.put("returnValues", Boolean.TRUE);
         }
-        data.put("query", query);
+        putQuery(data, query, statementId);
         data.put("params", params);
         return new Message(clientId, TYPE_EXECUTE_STATEMENTS, data);
     }
 
     public static Message OPEN_SCANNER(String clientId, String tableSpace, String query, String scannerId, long tx, List<Object> params, int fetchSize, int maxRows) {
+        return OPEN_SCANNER(clientId, tableSpace, query, 0, scannerId, tx, params, fetchSize, maxRows);
+    }
+
+    public static Message OPEN_SCANNER(String clientId, String tableSpace, String query, long statementId, String scannerId, long tx, List<Object> params, int fetchSize, int maxRows) {
+        return OPEN_SCANNER(clientId, tableSpace, query, statementId, scannerId, tx, params, fetchSize, maxRows, 0);
+    }
+
+    /**
+     * Opens a scanner. When credits is greater than zero the server will push
+     * up to credits chunks after the first one, without waiting for
+     * FETCH_SCANNER_DATA requests, see {@link #SCANNER_CREDITS}
+     */
+    public static Message OPEN_SCANNER(String clientId, String tableSpace, String query, long statementId, String scannerId, long tx, List<Object> params, int fetchSize, int maxRows, int credits) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
         data.put("ts", ts);
         data.put("tableSpace", tableSpace);
         data.put("scannerId", scannerId);
         data.put("tx", tx);
-        data.put("query", query);
+        putQuery(data, query, statementId);
         if (maxRows > 0) {
             data.put("maxRows", maxRows);
         }
         data.put("fetchSize", fetchSize);
         data.put("params", params);
+        if (credits > 0) {
+            data.put("credits", credits);
+        }
         return new Message(clientId, TYPE_OPENSCANNER, data);
     }
 
@@ -145,6 +205,26 @@ public final class Message {
         return new Message(clientId, TYPE_RESULTSET_CHUNK, data);
     }
 
+    /**
+     * A chunk pushed by the server to a streaming scanner, chunks are numbered
+     * starting from 1 as they may be processed out of order
+     */
+    public static Message RESULTSET_CHUNK(String clientId, String scannerId, TuplesList tuplesList, boolean last, long tx, long sequence) {
+        return RESULTSET_CHUNK(clientId, scannerId, tuplesList, last, tx).setParameter("sequence", sequence);
+    }
+
+    /**
+     * Allows the server to push more chunks to a streaming scanner
+     */
+    public static Message SCANNER_CREDITS(String clientId, String scannerId, int credits) {
+        HashMap<String, Object> data = new HashMap<>();
+        String ts = System.currentTimeMillis() + "";
+        data.put("ts", ts);
+        data.put("scannerId", scannerId);
+        data.put("credits", credits);
+        return new Message(clientId, TYPE_SCANNER_CREDITS, data);
+    }
+
     public static Message CLOSE_SCANNER(String clientId, String scannerId) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
@@ -185,19 +265,52 @@ public final class Message {
     }
 
     public static Message SASL_TOKEN_MESSAGE_REQUEST(String saslMech, byte[] firstToken) {
+        return SASL_TOKEN_MESSAGE_REQUEST(saslMech, firstToken, PROTOCOL_VERSION_1);
+    }
+
+    /**
+     * First message of the handshake, the client advertises the maximum
+     * protocol version it is able to speak
+     */
+    public static Message SASL_TOKEN_MESSAGE_REQUEST(String saslMech, byte[] firstToken, int maxProtocolVersion) {
+        return SASL_TOKEN_MESSAGE_REQUEST(saslMech, firstToken, maxProtocolVersion, 0);
+    }
+
+    /**
+     * First message of the handshake, the client may also ask to compress
+     * messages larger than the given threshold
+     */
+    public static Message SASL_TOKEN_MESSAGE_REQUEST(String saslMech, byte[] firstToken, int maxProtocolVersion, int compressionThreshold) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
         data.put("ts", ts);
         data.put("mech", saslMech);
         data.put("token", firstToken);
+        if (maxProtocolVersion > PROTOCOL_VERSION_1) {
+            data.put("protocolVersion", maxProtocolVersion);
+        }
+        if (compressionThreshold > 0) {
+            data.put("compressionThreshold", compressionThreshold);
+        }
         return new Message(null, TYPE_SASL_TOKEN_MESSAGE_REQUEST, data);
     }
 
     public static Message SASL_TOKEN_SERVER_RESPONSE(byte[] saslTokenChallenge) {
+        return SASL_TOKEN_SERVER_RESPONSE(saslTokenChallenge, PROTOCOL_VERSION_1);
+    }
+
+    /**
+     * Answer to the first message of the handshake, the server tells the
+     * protocol version which will be used on the channel
+     */
+    public static Message SASL_TOKEN_SERVER_RESPONSE(byte[] saslTokenChallenge, int protocolVersion) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
         data.put("ts", ts);
         data.put("token", saslTokenChallenge);
+        if (protocolVersion > PROTOCOL_VERSION_1) {
+            data.put("protocolVersion", protocolVersion);
+        }
         return new Message(null, TYPE_SASL_TOKEN_SERVER_RESPONSE, data);
     }
 
@@ -250,6 +363,23 @@ public final class Message {
         return new Message(clientId, TYPE_PUSH_TABLE_DATA, data);
     }
 
+    /**
+     * Inserts a chunk of records in a table, values are sent by position,
+     * following the column names of the TuplesList
+     */
+    public static Message BULK_LOAD(String clientId, String tableSpace, String table, long tx, TuplesList data) {
+        HashMap<String, Object> parameters = new HashMap<>();
+        String ts = System.currentTimeMillis() + "";
+        parameters.put("ts", ts);
+        parameters.put("tableSpace", tableSpace);
+        parameters.put("table", table);
+        if (tx != 0) {
+            parameters.put("tx", tx);
+        }
+        parameters.put("data", data);
+        return new Message(clientId, TYPE_BULK_LOAD, parameters);
+    }
+
     public static Message PUSH_TXLOGCHUNK(String clientId, String tableSpace, List<KeyValue> chunk) {
         HashMap<String, Object> data = new HashMap<>();
         String ts = System.currentTimeMillis() + "";
@@ -268,11 +398,19 @@ public final class Message {
         return new Message(clientId, TYPE_PUSH_TRANSACTIONSBLOCK, data);
     }
 
+    private static void putQuery(Map<String, Object> data, String query, long statementId) {
+        if (statementId != 0) {
+            data.put("statementId", statementId);
+        } else {
+            data.put("query", query);
+        }
+    }
+
     public final String clientId;
     public final int type;
     public final Map<String, Object> parameters;
-    public String messageId;
-    public String replyMessageId;
+    public long messageId;
+    public long replyMessageId;
 
     @Override
     public String toString() {
@@ -280,6 +418,17 @@ public final class Message {
 
     }
 
+    /**
+     * Original wire protocol, parameters are string-keyed maps
+     */
+    public static final int PROTOCOL_VERSION_1 = 1;
+    /**
+     * Numeric message ids, dictionary encoded parameter names and fixed
+     * layouts for the most frequent messages
+     */
+    public static final int PROTOCOL_VERSION_2 = 2;
+    public static final int PROTOCOL_VERSION_MAX = PROTOCOL_VERSION_2;
+
     public static final int TYPE_ACK = 1;
     public static final int TYPE_CLIENT_CONNECTION_REQUEST = 2;
     public static final int TYPE_CLIENT_SHUTDOWN = 3;
@@ -300,6 +449,11 @@ public final class Message {
     public static final int TYPE_TABLE_RESTORE_FINISHED = 19;
     public static final int TYPE_PUSH_TRANSACTIONSBLOCK = 20;
     public static final int TYPE_RESTORE_FINISHED = 23;
+    public static final int TYPE_PREPARE_STATEMENT = 24;
+    public static final int TYPE_PREPARE_STATEMENT_RESULT = 25;
+    public static final int TYPE_SCANNER_CREDITS = 26;
+    public static final int TYPE_BULK_LOAD = 27;
+    public static final int TYPE_UNPREPARE_STATEMENT = 28;
 
     public static final int TYPE_SASL_TOKEN_MESSAGE_REQUEST = 100;
     public static final int TYPE_SASL_TOKEN_SERVER_RESPONSE = 101;
@@ -323,6 +477,12 @@ public final class Message {
                 return "EXECUTE_STATEMENTS";
             case TYPE_EXECUTE_STATEMENTS_RESULT:
                 return "EXECUTE_STATEMENTS_RESULT";
+            case TYPE_PREPARE_STATEMENT:
+                return "PREPARE_STATEMENT";
+            case TYPE_PREPARE_STATEMENT_RESULT:
+                return "PREPARE_STATEMENT_RESULT";
+            case TYPE_UNPREPARE_STATEMENT:
+                return "UNPREPARE_STATEMENT";
             case TYPE_OPENSCANNER:
                 return "OPENSCANNER";
             case TYPE_RESULTSET_CHUNK:
@@ -331,6 +491,10 @@ public final class Message {
                 return "CLOSESCANNER";
             case TYPE_FETCHSCANNERDATA:
                 return "FETCHSCANNERDATA";
+            case TYPE_SCANNER_CREDITS:
+                return "SCANNER_CREDITS";
+            case TYPE_BULK_LOAD:
+                return "BULK_LOAD";
             case TYPE_REQUEST_TABLESPACE_DUMP:
                 return "REQUEST_TABLESPACE_DUMP";
             case TYPE_TABLESPACE_DUMP_DATA:
@@ -352,26 +516,32 @@ public final class Message {
         this.parameters = parameters;
     }
 
-    public String getMessageId() {
+    /**
+     * Id of the message, zero if not assigned yet
+     */
+    public long getMessageId() {
         return messageId;
     }
 
     private static final AtomicLong MESSAGE_ID_GENERATOR = new AtomicLong();
 
     public void assignMessageId() {
-        this.messageId = MESSAGE_ID_GENERATOR.incrementAndGet() + "";
+        this.messageId = MESSAGE_ID_GENERATOR.incrementAndGet();
     }
 
-    public Message setMessageId(String messageId) {
+    public Message setMessageId(long messageId) {
         this.messageId = messageId;
         return this;
     }
 
-    public String getReplyMessageId() {
+    /**
+     * Id of the message this one is a reply to, zero if this is not a reply
+     */
+    public long getReplyMessageId() {
         return replyMessageId;
     }
 
-    public Message setReplyMessageId(String replyMessageId) {
+    public Message setReplyMessageId(long replyMessageId) {
         this.replyMessageId = replyMessageId;
         return this;
     }
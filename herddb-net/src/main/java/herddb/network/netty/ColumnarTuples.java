@@ -0,0 +1,384 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.network.netty;
+
+import herddb.utils.AbstractDataAccessor;
+import herddb.utils.DataAccessor;
+import herddb.utils.PrimitiveDataAccessor;
+import herddb.utils.RawString;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Records decoded from a columnar chunk. Values are kept in primitive arrays
+ * and boxed only when accessed
+ *
+ * @author enrico.olivelli
+ */
+final class ColumnarTuples extends AbstractList<DataAccessor> {
+
+    private final String[] columnNames;
+    private final Column[] columns;
+    private final int size;
+
+    ColumnarTuples(String[] columnNames, Column[] columns, int size) {
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    @Override
+    public DataAccessor get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index + "");
+        }
+        return new Row(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private final class Row extends AbstractDataAccessor implements PrimitiveDataAccessor {
+
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public String[] getFieldNames() {
+            return columnNames;
+        }
+
+        @Override
+        public int getNumFields() {
+            return columnNames.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return columns[index].get(row);
+        }
+
+        @Override
+        public boolean isNumber(int index) {
+            return columns[index].isNumber(row);
+        }
+
+        @Override
+        public long getLong(int index) {
+            return columns[index].getLong(row);
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return columns[index].getDouble(row);
+        }
+
+        @Override
+        public Object get(String property) {
+            for (int i = 0; i < columnNames.length; i++) {
+                if (columnNames[i].equals(property)) {
+                    return columns[i].get(row);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<String, Object> consumer) {
+            for (int i = 0; i < columnNames.length; i++) {
+                Object value = columns[i].get(row);
+                if (value != null) {
+                    consumer.accept(columnNames[i], value);
+                }
+            }
+        }
+
+        @Override
+        public Object[] getValues() {
+            Object[] result = new Object[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                result[i] = columns[i].get(row);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>(columnNames.length * 4 / 3 + 1);
+            for (int i = 0; i < columnNames.length; i++) {
+                result.put(columnNames[i], columns[i].get(row));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Row{" + toMap() + '}';
+        }
+    }
+
+    abstract static class Column {
+
+        /**
+         * One bit for each row, set if the value is null. Null if there are no
+         * null values
+         */
+        private final byte[] nulls;
+
+        Column(byte[] nulls) {
+            this.nulls = nulls;
+        }
+
+        final boolean isNull(int row) {
+            return nulls != null && (nulls[row >> 3] & (1 << (row & 7))) != 0;
+        }
+
+        final Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return getNotNull(row);
+        }
+
+        abstract Object getNotNull(int row);
+
+        boolean isNumber(int row) {
+            return false;
+        }
+
+        long getLong(int row) {
+            return ((Number) get(row)).longValue();
+        }
+
+        double getDouble(int row) {
+            return ((Number) get(row)).doubleValue();
+        }
+    }
+
+    /**
+     * Columns of primitive numbers, they can be read without boxing
+     */
+    abstract static class NumericColumn extends Column {
+
+        NumericColumn(byte[] nulls) {
+            super(nulls);
+        }
+
+        @Override
+        final boolean isNumber(int row) {
+            return !isNull(row);
+        }
+
+        @Override
+        abstract long getLong(int row);
+
+        @Override
+        abstract double getDouble(int row);
+    }
+
+    static final Column NULLS = new Column(null) {
+        @Override
+        Object getNotNull(int row) {
+            return null;
+        }
+    };
+
+    static final class IntColumn extends NumericColumn {
+
+        private final int[] values;
+
+        IntColumn(byte[] nulls, int[] values) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    static final class LongColumn extends NumericColumn {
+
+        private final long[] values;
+
+        LongColumn(byte[] nulls, long[] values) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    static final class DoubleColumn extends NumericColumn {
+
+        private final double[] values;
+
+        DoubleColumn(byte[] nulls, double[] values) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+
+        private final byte[] values;
+
+        BooleanColumn(byte[] nulls, byte[] values) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return values[row] != 0;
+        }
+    }
+
+    static final class TimestampColumn extends Column {
+
+        private final long[] values;
+
+        TimestampColumn(byte[] nulls, long[] values) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return new java.sql.Timestamp(values[row]);
+        }
+    }
+
+    static final class StringColumn extends Column {
+
+        private final byte[] data;
+        /**
+         * Start of each value in data, the last entry is the end of data
+         */
+        private final int[] offsets;
+
+        StringColumn(byte[] nulls, byte[] data, int[] offsets) {
+            super(nulls);
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return new String(data, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Values shared with the sender in the same JVM, strings are decoded only
+     * when they are accessed
+     */
+    static final class SharedColumn extends Column {
+
+        private final Object[] values;
+
+        SharedColumn(Object[] values) {
+            super(null);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            Object value = values[row];
+            if (value instanceof RawString) {
+                return value.toString();
+            }
+            return value;
+        }
+
+        @Override
+        boolean isNumber(int row) {
+            return values[row] instanceof Number;
+        }
+    }
+
+    static final class ObjectColumn extends Column {
+
+        private final Object[] values;
+
+        ObjectColumn(Object[] values) {
+            super(null);
+            this.values = values;
+        }
+
+        @Override
+        Object getNotNull(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean isNumber(int row) {
+            return values[row] instanceof Number;
+        }
+    }
+
+}
@@ -19,6 +19,7 @@
  */
 package herddb.network.netty;
 
+import herddb.network.Channel;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -31,11 +32,31 @@ import io.netty.util.ReferenceCountUtil;
  */
 public class DataMessageDecoder extends ChannelInboundHandlerAdapter {
 
+    private final Channel channel;
+
+    /**
+     * @param channel the channel which accounts for compressed frames
+     */
+    public DataMessageDecoder(Channel channel) {
+        this.channel = channel;
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         ByteBuf in = (ByteBuf) msg;
         try {
-            ctx.fireChannelRead(MessageUtils.decodeMessage(in));
+            if (MessageUtils.isCompressedFrame(in)) {
+                int compressedSize = in.readableBytes();
+                ByteBuf decompressed = MessageUtils.decompressFrame(in, ctx.alloc());
+                try {
+                    channel.compressedFrameReceived(compressedSize, decompressed.readableBytes());
+                    ctx.fireChannelRead(MessageUtils.decodeMessage(decompressed));
+                } finally {
+                    decompressed.release();
+                }
+            } else {
+                ctx.fireChannelRead(MessageUtils.decodeMessage(in));
+            }
         } finally {
             ReferenceCountUtil.release(msg);
         }
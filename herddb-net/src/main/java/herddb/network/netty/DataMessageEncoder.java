@@ -19,6 +19,7 @@
  */
 package herddb.network.netty;
 
+import herddb.network.Channel;
 import herddb.network.Message;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -32,11 +33,31 @@ import io.netty.channel.ChannelPromise;
  */
 public class DataMessageEncoder extends ChannelOutboundHandlerAdapter {
 
+    private final Channel channel;
+
+    /**
+     * @param channel the channel which decides the protocol version and the
+     * compression of the frames
+     */
+    public DataMessageEncoder(Channel channel) {
+        this.channel = channel;
+    }
+
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
         Message m = (Message) msg;
         ByteBuf encoded = ctx.alloc().buffer();
-        MessageUtils.encodeMessage(encoded, m);
+        MessageUtils.encodeMessage(encoded, m, channel.getProtocolVersion());
+        int compressionThreshold = channel.getCompressionThreshold();
+        int size = encoded.readableBytes();
+        if (compressionThreshold > 0 && size > compressionThreshold) {
+            ByteBuf compressed = MessageUtils.compressFrame(encoded, ctx.alloc());
+            if (compressed != null) {
+                channel.compressedFrameSent(size, compressed.readableBytes());
+                encoded.release();
+                encoded = compressed;
+            }
+        }
         ctx.writeAndFlush(encoded, promise);
     }
 
@@ -0,0 +1,166 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.network.netty;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Parameters of a message decoded from a fixed layout. Values are stored by
+ * position, parameters which are not part of the layout go to a map which
+ * is created only when needed
+ *
+ * @author enrico.olivelli
+ */
+final class LayoutParameters extends AbstractMap<String, Object> {
+
+    private static final Object ABSENT = new Object();
+
+    private final String[] names;
+    private final Object[] values;
+    private int size;
+    private Map<String, Object> others;
+
+    LayoutParameters(String[] names) {
+        this.names = names;
+        this.values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ABSENT;
+        }
+    }
+
+    /**
+     * Sets the value at the given position, used only while decoding
+     */
+    void setValue(int index, Object value) {
+        if (values[index] == ABSENT) {
+            size++;
+        }
+        values[index] = value;
+    }
+
+    private int indexOf(Object key) {
+        // names are constants, callers usually pass the same instances
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+        return others != null ? others.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return values[index] != ABSENT;
+        }
+        return others != null && others.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object previous = values[index];
+            setValue(index, value);
+            return previous == ABSENT ? null : previous;
+        }
+        if (others == null) {
+            others = new HashMap<>();
+        }
+        return others.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object previous = values[index];
+            if (previous == ABSENT) {
+                return null;
+            }
+            values[index] = ABSENT;
+            size--;
+            return previous;
+        }
+        return others != null ? others.remove(key) : null;
+    }
+
+    @Override
+    public int size() {
+        return size + (others != null ? others.size() : 0);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] != ABSENT) {
+                action.accept(names[i], values[i]);
+            }
+        }
+        if (others != null) {
+            others.forEach(action);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                // rarely used, only for logging and copies
+                List<Map.Entry<String, Object>> entries = new ArrayList<>(LayoutParameters.this.size());
+                LayoutParameters.this.forEach((String k, Object v) -> {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(k, v));
+                });
+                return Collections.unmodifiableList(entries).iterator();
+            }
+
+            @Override
+            public int size() {
+                return LayoutParameters.this.size();
+            }
+        };
+    }
+}
@@ -19,8 +19,8 @@
  */
 package herddb.network.netty;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Registry for Local Servers, to bypass network
@@ -29,10 +29,13 @@ import java.util.concurrent.ConcurrentSkipListSet;
  */
 public class LocalServerRegistry {
 
-    private static Set<String> localServers = new ConcurrentSkipListSet<>();
+    /**
+     * Local servers, mapped to true if messages are passed by reference
+     */
+    private static Map<String, Boolean> localServers = new ConcurrentHashMap<>();
 
-    static void registerLocalServer(String host, int port, boolean ssl) {
-        localServers.add(composeServerKey(host, port, ssl));
+    static void registerLocalServer(String host, int port, boolean ssl, boolean passByReference) {
+        localServers.put(composeServerKey(host, port, ssl), passByReference);
     }
 
     private static String composeServerKey(String host, int port, boolean ssl) {
@@ -44,6 +47,10 @@ public class LocalServerRegistry {
     }
 
     static boolean isLocalServer(String host, int port, boolean ssl) {
-        return localServers.contains(composeServerKey(host, port, ssl));
+        return localServers.containsKey(composeServerKey(host, port, ssl));
+    }
+
+    static boolean isPassByReference(String host, int port, boolean ssl) {
+        return Boolean.TRUE.equals(localServers.get(composeServerKey(host, port, ssl)));
     }
 }
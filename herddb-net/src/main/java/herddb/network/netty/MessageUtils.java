@@ -37,6 +37,8 @@ import herddb.utils.MapDataAccessor;
 import herddb.utils.RawString;
 import herddb.utils.TuplesList;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.compression.Snappy;
 import java.util.function.BiConsumer;
 
 /**
@@ -47,6 +49,17 @@ import java.util.function.BiConsumer;
 public class MessageUtils {
 
     private static final byte VERSION = 'a';
+    private static final byte VERSION_2 = 'b';
+    /**
+     * First byte of a frame which carries an encoded message compressed with
+     * Snappy, it must not clash with the version bytes
+     */
+    private static final byte COMPRESSED_FRAME = 'z';
+    /**
+     * Snappy encoder keeps offsets in a table of shorts, so data is
+     * compressed in blocks no larger than this size
+     */
+    private static final int COMPRESSED_BLOCK_SIZE = Short.MAX_VALUE;
 
     private static final byte OPCODE_REPLYMESSAGEID = 1;
     private static final byte OPCODE_WORKERPROCESSID = 2;
@@ -72,6 +85,162 @@ public class MessageUtils {
     private static final byte OPCODE_MAP2_VALUE = 23;
     private static final byte OPCODE_MAP2_VALUE_END = 24;
     private static final byte OPCODE_TUPLELIST_VALUE = 25;
+    private static final byte OPCODE_COLUMNAR_TUPLELIST_VALUE = 26;
+
+    /**
+     * Types of the columns in a columnar TuplesList, derived from the values
+     * of each chunk
+     */
+    private static final byte COLUMN_NULLS = 0;
+    private static final byte COLUMN_INT = 1;
+    private static final byte COLUMN_LONG = 2;
+    private static final byte COLUMN_DOUBLE = 3;
+    private static final byte COLUMN_BOOLEAN = 4;
+    private static final byte COLUMN_TIMESTAMP = 5;
+    private static final byte COLUMN_STRING = 6;
+    private static final byte COLUMN_BYTEARRAY = 7;
+    /**
+     * Values of different types, each one is written with its opcode
+     */
+    private static final byte COLUMN_MIXED = 8;
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    private static final byte FLAG_REPLYMESSAGEID = 1;
+    private static final byte FLAG_WORKERPROCESSID = 2;
+
+    /**
+     * Well known parameter names, in protocol version 2 they are written as
+     * their position in this array (plus one). Zero means that the name
+     * follows as a string. New names must be appended at the end.
+     */
+    private static final String[] PARAMETER_NAMES = {
+        "tableSpace", "query", "tx", "params", "scannerId", "data", "last",
+        "updateCount", "returnValues", "fetchSize", "maxRows", "statementId",
+        "error", "stackTrace", "notLeader", "missingPreparedStatement", "token",
+        "mech", "table", "dumpId", "values", "includeTransactionLog",
+        "dumpLedgerId", "dumpOffset", "indexes", "challenge", "protocolVersion",
+        "credits", "sequence", "compressionThreshold", "maxFollowerLag",
+        "parallelism"
+    };
+    private static final Map<String, Integer> PARAMETER_CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < PARAMETER_NAMES.length; i++) {
+            PARAMETER_CODES.put(PARAMETER_NAMES[i], i + 1);
+        }
+    }
+
+    /**
+     * Kinds of the fields of a fixed layout. Strings and numbers are written
+     * without opcode, FIELD_VALUE fields carry any value with its opcode
+     */
+    private static final byte FIELD_STRING = 1;
+    private static final byte FIELD_LONG = 2;
+    private static final byte FIELD_INT = 3;
+    private static final byte FIELD_BOOLEAN = 4;
+    private static final byte FIELD_VALUE = 5;
+
+    /**
+     * Fixed layout of the parameters of a type of message
+     */
+    private static final class Layout {
+
+        private final String[] names;
+        private final byte[] kinds;
+
+        private Layout(Object... fields) {
+            names = new String[fields.length / 2];
+            kinds = new byte[fields.length / 2];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = (String) fields[i * 2];
+                kinds[i] = (Byte) fields[i * 2 + 1];
+            }
+        }
+    }
+
+    /**
+     * In protocol version 2 the most frequent messages are written with a
+     * fixed layout: a bitmap of the fields which are present followed by
+     * their values, by position. Parameters which do not fit the layout
+     * follow in the named form.
+     */
+    private static final Layout[] LAYOUTS = new Layout[Message.TYPE_SCANNER_CREDITS + 1];
+
+    static {
+        LAYOUTS[Message.TYPE_EXECUTE_STATEMENT] = new Layout(
+                "tableSpace", FIELD_STRING,
+                "query", FIELD_STRING,
+                "statementId", FIELD_LONG,
+                "tx", FIELD_LONG,
+                "returnValues", FIELD_BOOLEAN,
+                "params", FIELD_VALUE,
+                "maxFollowerLag", FIELD_LONG);
+        LAYOUTS[Message.TYPE_EXECUTE_STATEMENTS] = new Layout(
+                "tableSpace", FIELD_STRING,
+                "query", FIELD_STRING,
+                "statementId", FIELD_LONG,
+                "tx", FIELD_LONG,
+                "returnValues", FIELD_BOOLEAN,
+                "params", FIELD_VALUE);
+        LAYOUTS[Message.TYPE_EXECUTE_STATEMENT_RESULT] = new Layout(
+                "updateCount", FIELD_LONG,
+                "tx", FIELD_LONG,
+                "data", FIELD_VALUE);
+        LAYOUTS[Message.TYPE_EXECUTE_STATEMENTS_RESULT] = new Layout(
+                "updateCount", FIELD_VALUE,
+                "tx", FIELD_LONG,
+                "data", FIELD_VALUE);
+        LAYOUTS[Message.TYPE_OPENSCANNER] = new Layout(
+                "tableSpace", FIELD_STRING,
+                "scannerId", FIELD_STRING,
+                "query", FIELD_STRING,
+                "statementId", FIELD_LONG,
+                "tx", FIELD_LONG,
+                "fetchSize", FIELD_INT,
+                "maxRows", FIELD_INT,
+                "params", FIELD_VALUE,
+                "credits", FIELD_INT,
+                "maxFollowerLag", FIELD_LONG);
+        LAYOUTS[Message.TYPE_FETCHSCANNERDATA] = new Layout(
+                "scannerId", FIELD_STRING,
+                "fetchSize", FIELD_INT);
+        LAYOUTS[Message.TYPE_RESULTSET_CHUNK] = new Layout(
+                "scannerId", FIELD_STRING,
+                "data", FIELD_VALUE,
+                "last", FIELD_BOOLEAN,
+                "tx", FIELD_LONG,
+                "sequence", FIELD_LONG,
+                "credits", FIELD_INT);
+        LAYOUTS[Message.TYPE_SCANNER_CREDITS] = new Layout(
+                "scannerId", FIELD_STRING,
+                "credits", FIELD_INT);
+    }
+
+    private static Layout layout(int type) {
+        return type > 0 && type < LAYOUTS.length ? LAYOUTS[type] : null;
+    }
+
+    private static boolean fitsField(byte kind, Object value) {
+        switch (kind) {
+            case FIELD_STRING:
+                return value instanceof String;
+            case FIELD_LONG:
+                return value instanceof Long;
+            case FIELD_INT:
+                return value instanceof Integer;
+            case FIELD_BOOLEAN:
+                return value instanceof Boolean;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Parameter not used by the receiver, it is not sent with protocol
+     * version 2
+     */
+    private static final String PARAMETER_TIMESTAMP = "ts";
 
     /**
      * When writing int <b>greater than this</b> value are better written
@@ -99,14 +268,100 @@ public class MessageUtils {
      */
     private static final long WRITE_MIN_Z_LONG_LIMIT = -1L << 48;
 
+    /**
+     * Compresses a frame which contains an encoded message.
+     *
+     * @param encoded the encoded message, it is not released
+     * @param allocator
+     * @return the compressed frame or null if compression does not make the
+     * frame smaller
+     */
+    public static ByteBuf compressFrame(ByteBuf encoded, ByteBufAllocator allocator) {
+        int length = encoded.readableBytes();
+        ByteBuf compressed = allocator.buffer(length / 2 + 16);
+        boolean ok = false;
+        try {
+            compressed.writeByte(COMPRESSED_FRAME);
+            ByteBufUtils.writeVInt(compressed, length);
+            Snappy snappy = new Snappy();
+            int start = encoded.readerIndex();
+            for (int offset = 0; offset < length; offset += COMPRESSED_BLOCK_SIZE) {
+                int blockLength = Math.min(COMPRESSED_BLOCK_SIZE, length - offset);
+                int blockSizeIndex = compressed.writerIndex();
+                compressed.writeInt(0);
+                snappy.encode(encoded.slice(start + offset, blockLength), compressed, blockLength);
+                snappy.reset();
+                compressed.setInt(blockSizeIndex, compressed.writerIndex() - blockSizeIndex - 4);
+                if (compressed.readableBytes() >= length) {
+                    return null;
+                }
+            }
+            ok = true;
+            return compressed;
+        } finally {
+            if (!ok) {
+                compressed.release();
+            }
+        }
+    }
+
+    public static boolean isCompressedFrame(ByteBuf frame) {
+        return frame.isReadable() && frame.getByte(frame.readerIndex()) == COMPRESSED_FRAME;
+    }
+
+    /**
+     * Restores the encoded message from a compressed frame.
+     *
+     * @param frame the compressed frame, it is not released
+     * @param allocator
+     * @return a new buffer, the caller must release it
+     * @see #compressFrame(io.netty.buffer.ByteBuf,
+     * io.netty.buffer.ByteBufAllocator)
+     */
+    public static ByteBuf decompressFrame(ByteBuf frame, ByteBufAllocator allocator) {
+        byte marker = frame.readByte();
+        if (marker != COMPRESSED_FRAME) {
+            throw new RuntimeException("not a compressed frame " + marker);
+        }
+        int length = ByteBufUtils.readVInt(frame);
+        ByteBuf decompressed = allocator.buffer(length);
+        boolean ok = false;
+        try {
+            Snappy snappy = new Snappy();
+            while (frame.isReadable()) {
+                int blockSize = frame.readInt();
+                snappy.decode(frame.readSlice(blockSize), decompressed);
+                snappy.reset();
+            }
+            if (decompressed.readableBytes() != length) {
+                throw new RuntimeException("bad compressed frame, expected " + length
+                        + " bytes, found " + decompressed.readableBytes());
+            }
+            ok = true;
+            return decompressed;
+        } finally {
+            if (!ok) {
+                decompressed.release();
+            }
+        }
+    }
+
     public static void encodeMessage(ByteBuf buffer, Message m) {
+        encodeMessage(buffer, m, Message.PROTOCOL_VERSION_1);
+    }
+
+    public static void encodeMessage(ByteBuf buffer, Message m, int protocolVersion) {
+        if (protocolVersion >= Message.PROTOCOL_VERSION_2) {
+            encodeMessageV2(buffer, m);
+            return;
+        }
 
         buffer.writeByte(VERSION);
         ByteBufUtils.writeVInt(buffer, m.type);
-        writeUTF8String(buffer, m.messageId);
-        if (m.replyMessageId != null) {
+        writeUTF8String(buffer, Long.toString(m.messageId));
+        if (m.replyMessageId != 0) {
             buffer.writeByte(OPCODE_REPLYMESSAGEID);
-            writeUTF8String(buffer, m.replyMessageId);
+            writeUTF8String(buffer, Long.toString(m.replyMessageId));
         }
         if (m.clientId != null) {
             buffer.writeByte(OPCODE_WORKERPROCESSID);
@@ -122,22 +377,498 @@ public class MessageUtils {
         }
     }
 
+    private static void encodeMessageV2(ByteBuf buffer, Message m) {
+        buffer.writeByte(VERSION_2);
+        ByteBufUtils.writeVInt(buffer, m.type);
+        ByteBufUtils.writeVLong(buffer, m.messageId);
+        byte flags = 0;
+        if (m.replyMessageId != 0) {
+            flags |= FLAG_REPLYMESSAGEID;
+        }
+        if (m.clientId != null) {
+            flags |= FLAG_WORKERPROCESSID;
+        }
+        buffer.writeByte(flags);
+        if (m.replyMessageId != 0) {
+            ByteBufUtils.writeVLong(buffer, m.replyMessageId);
+        }
+        if (m.clientId != null) {
+            writeUTF8String(buffer, m.clientId);
+        }
+        Layout layout = layout(m.type);
+        if (m.parameters == null) {
+            if (layout != null) {
+                ByteBufUtils.writeVLong(buffer, 0);
+            }
+            ByteBufUtils.writeVInt(buffer, 0);
+            return;
+        }
+        int size = m.parameters.size();
+        if (m.parameters.containsKey(PARAMETER_TIMESTAMP)) {
+            size--;
+        }
+        long presentFields = 0;
+        if (layout != null) {
+            for (int i = 0; i < layout.names.length; i++) {
+                Object value = m.parameters.get(layout.names[i]);
+                if (value != null && fitsField(layout.kinds[i], value)) {
+                    presentFields |= 1L << i;
+                }
+            }
+            ByteBufUtils.writeVLong(buffer, presentFields);
+            for (int i = 0; i < layout.names.length; i++) {
+                if ((presentFields & (1L << i)) != 0) {
+                    writeField(buffer, layout.kinds[i], m.parameters.get(layout.names[i]));
+                }
+            }
+            size -= Long.bitCount(presentFields);
+        }
+        ByteBufUtils.writeVInt(buffer, size);
+        if (size == 0) {
+            return;
+        }
+        for (Map.Entry<String, Object> p : m.parameters.entrySet()) {
+            String name = p.getKey();
+            if (PARAMETER_TIMESTAMP.equals(name)) {
+                continue;
+            }
+            if (presentFields != 0 && isPresentField(layout, presentFields, name)) {
+                continue;
+            }
+            Integer code = PARAMETER_CODES.get(name);
+            if (code != null) {
+                ByteBufUtils.writeVInt(buffer, code);
+            } else {
+                ByteBufUtils.writeVInt(buffer, 0);
+                writeUTF8String(buffer, name);
+            }
+            writeValueV2(buffer, p.getValue());
+        }
+    }
+
+    private static boolean isPresentField(Layout layout, long presentFields, String name) {
+        for (int i = 0; i < layout.names.length; i++) {
+            if ((presentFields & (1L << i)) != 0 && layout.names[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeValueV2(ByteBuf buffer, Object value) {
+        if (value instanceof TuplesList) {
+            writeColumnarTuplesList(buffer, (TuplesList) value);
+        } else {
+            writeEncodedSimpleValue(buffer, value);
+        }
+    }
+
+    private static void writeField(ByteBuf buffer, byte kind, Object value) {
+        switch (kind) {
+            case FIELD_STRING:
+                writeUTF8String(buffer, (String) value);
+                break;
+            case FIELD_LONG:
+                ByteBufUtils.writeZLong(buffer, (Long) value);
+                break;
+            case FIELD_INT:
+                ByteBufUtils.writeZInt(buffer, (Integer) value);
+                break;
+            case FIELD_BOOLEAN:
+                buffer.writeByte((Boolean) value ? 1 : 0);
+                break;
+            default:
+                writeValueV2(buffer, value);
+        }
+    }
+
+    private static Object readField(ByteBuf encoded, byte kind) {
+        switch (kind) {
+            case FIELD_STRING:
+                return readUTF8String(encoded);
+            case FIELD_LONG:
+                return ByteBufUtils.readZLong(encoded);
+            case FIELD_INT:
+                return ByteBufUtils.readZInt(encoded);
+            case FIELD_BOOLEAN:
+                return encoded.readByte() == 1;
+            default:
+                return readEncodedSimpleValue(encoded);
+        }
+    }
+
+    /**
+     * Writes records column by column: the type of each column is written
+     * once, followed by a bitmap of null values and by the values, without
+     * any opcode
+     */
+    private static void writeColumnarTuplesList(ByteBuf output, TuplesList tuplesList) {
+        output.writeByte(OPCODE_COLUMNAR_TUPLELIST_VALUE);
+        String[] columnNames = tuplesList.columnNames;
+        int numColumns = columnNames.length;
+        ByteBufUtils.writeVInt(output, numColumns);
+        for (String columnName : columnNames) {
+            writeUTF8String(output, columnName);
+        }
+        int numRecords = tuplesList.tuples.size();
+        ByteBufUtils.writeVInt(output, numRecords);
+
+        ColumnsCollector collector = new ColumnsCollector(columnNames, numRecords);
+        for (DataAccessor da : tuplesList.tuples) {
+            da.forEach(collector);
+            collector.nextRow();
+        }
+        for (Object[] values : collector.columns) {
+            writeColumn(output, values);
+        }
+    }
+
+    /**
+     * Prepares a message to be delivered to a peer in the same JVM without
+     * encoding it. Containers are copied, as the sender may still modify
+     * them, and values are converted to the types the decoder would create,
+     * but records are not boxed again and strings are decoded lazily.
+     */
+    public static Message copyForLocalDelivery(Message message) {
+        Map<String, Object> parameters = new HashMap<>(message.parameters.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Object> entry : message.parameters.entrySet()) {
+            parameters.put(entry.getKey(), copyLocalValue(entry.getValue()));
+        }
+        Message copy = new Message(message.clientId, message.type, parameters);
+        copy.setMessageId(message.getMessageId());
+        copy.setReplyMessageId(message.getReplyMessageId());
+        return copy;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Object copyLocalValue(Object o) {
+        if (o instanceof RawString) {
+            return o.toString();
+        } else if (o instanceof java.sql.Timestamp) {
+            return new java.sql.Timestamp(((java.sql.Timestamp) o).getTime());
+        } else if (o instanceof byte[]) {
+            return ((byte[]) o).clone();
+        } else if (o instanceof Set) {
+            Set<Object> copy = new HashSet<>();
+            for (Object o2 : (Set) o) {
+                copy.add(copyLocalValue(o2));
+            }
+            return copy;
+        } else if (o instanceof List) {
+            List list = (List) o;
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object o2 : list) {
+                copy.add(copyLocalValue(o2));
+            }
+            return copy;
+        } else if (o instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            for (Map.Entry entry : (Iterable<Map.Entry>) ((Map) o).entrySet()) {
+                copy.put(copyLocalValue(entry.getKey()), copyLocalValue(entry.getValue()));
+            }
+            return copy;
+        } else if (o instanceof DataAccessor) {
+            Map<Object, Object> copy = new HashMap<>();
+            ((DataAccessor) o).forEach((key, value) -> {
+                copy.put(key, copyLocalValue(value));
+            });
+            return copy;
+        } else if (o instanceof TuplesList) {
+            TuplesList tuplesList = (TuplesList) o;
+            String[] columnNames = tuplesList.columnNames;
+            int numRecords = tuplesList.tuples.size();
+            ColumnsCollector collector = new ColumnsCollector(columnNames, numRecords);
+            for (DataAccessor da : tuplesList.tuples) {
+                da.forEach(collector);
+                collector.nextRow();
+            }
+            ColumnarTuples.Column[] columns = new ColumnarTuples.Column[columnNames.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ColumnarTuples.SharedColumn(collector.columns[i]);
+            }
+            return new TuplesList(columnNames, new ColumnarTuples(columnNames, columns, numRecords));
+        } else {
+            // immutable values
+            return o;
+        }
+    }
+
+    /**
+     * Spreads the values of each record into columns, the same instance is
+     * used for all of the records in order not to create garbage
+     */
+    private static final class ColumnsCollector implements BiConsumer<String, Object> {
+
+        private final String[] columnNames;
+        private final Object[][] columns;
+        private int row;
+        private int column;
+
+        ColumnsCollector(String[] columnNames, int numRecords) {
+            this.columnNames = columnNames;
+            this.columns = new Object[columnNames.length][numRecords];
+        }
+
+        @Override
+        public void accept(String key, Object value) {
+            // nulls are not returned for some special accessors, like DataAccessorForFullRecord
+            while (column < columnNames.length && !key.equals(columnNames[column])) {
+                column++;
+            }
+            if (column == columnNames.length) {
+                throw new RuntimeException("unexpected column " + key + " at row " + row);
+            }
+            columns[column++][row] = value;
+        }
+
+        void nextRow() {
+            row++;
+            column = 0;
+        }
+    }
+
+    private static byte columnType(Object value) {
+        if (value instanceof Integer) {
+            return COLUMN_INT;
+        } else if (value instanceof Long) {
+            return COLUMN_LONG;
+        } else if (value instanceof Double) {
+            return COLUMN_DOUBLE;
+        } else if (value instanceof Boolean) {
+            return COLUMN_BOOLEAN;
+        } else if (value instanceof java.sql.Timestamp) {
+            return COLUMN_TIMESTAMP;
+        } else if (value instanceof String || value instanceof RawString) {
+            return COLUMN_STRING;
+        } else if (value instanceof byte[]) {
+            return COLUMN_BYTEARRAY;
+        } else {
+            return COLUMN_MIXED;
+        }
+    }
+
+    private static void writeColumn(ByteBuf output, Object[] values) {
+        byte type = COLUMN_NULLS;
+        boolean hasNulls = false;
+        for (Object value : values) {
+            if (value == null) {
+                hasNulls = true;
+                continue;
+            }
+            byte valueType = columnType(value);
+            if (type == COLUMN_NULLS) {
+                type = valueType;
+            } else if (type != valueType) {
+                type = COLUMN_MIXED;
+                break;
+            }
+        }
+        output.writeByte(type);
+        switch (type) {
+            case COLUMN_NULLS:
+                return;
+            case COLUMN_MIXED:
+                for (Object value : values) {
+                    writeEncodedSimpleValue(output, value);
+                }
+                return;
+            default:
+                break;
+        }
+
+        if (hasNulls) {
+            output.writeByte(1);
+            byte[] nulls = new byte[(values.length + 7) >> 3];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    nulls[i >> 3] |= 1 << (i & 7);
+                }
+            }
+            output.writeBytes(nulls);
+        } else {
+            output.writeByte(0);
+        }
+
+        // null values are written as zeroes in order to have fixed size columns
+        switch (type) {
+            case COLUMN_INT:
+                for (Object value : values) {
+                    output.writeInt(value == null ? 0 : (Integer) value);
+                }
+                break;
+            case COLUMN_LONG:
+                for (Object value : values) {
+                    output.writeLong(value == null ? 0 : (Long) value);
+                }
+                break;
+            case COLUMN_DOUBLE:
+                for (Object value : values) {
+                    output.writeDouble(value == null ? 0 : (Double) value);
+                }
+                break;
+            case COLUMN_BOOLEAN:
+                for (Object value : values) {
+                    output.writeByte(value != null && (Boolean) value ? 1 : 0);
+                }
+                break;
+            case COLUMN_TIMESTAMP:
+                for (Object value : values) {
+                    output.writeLong(value == null ? 0 : ((java.sql.Timestamp) value).getTime());
+                }
+                break;
+            case COLUMN_STRING: {
+                // lengths first, then all of the data, the reader copies the data in one shot
+                byte[][] data = new byte[values.length][];
+                int totalLength = 0;
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value instanceof RawString) {
+                        data[i] = ((RawString) value).data;
+                    } else if (value != null) {
+                        data[i] = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    } else {
+                        data[i] = EMPTY_BYTE_ARRAY;
+                    }
+                    totalLength += data[i].length;
+                }
+                ByteBufUtils.writeVInt(output, totalLength);
+                for (byte[] value : data) {
+                    ByteBufUtils.writeVInt(output, value.length);
+                }
+                for (byte[] value : data) {
+                    output.writeBytes(value);
+                }
+                break;
+            }
+            case COLUMN_BYTEARRAY:
+                for (Object value : values) {
+                    ByteBufUtils.writeArray(output, value == null ? EMPTY_BYTE_ARRAY : (byte[]) value);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unexpected column type " + type);
+        }
+    }
+
+    private static TuplesList readColumnarTuplesList(ByteBuf encoded) {
+        int numColumns = ByteBufUtils.readVInt(encoded);
+        String[] columnNames = new String[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            columnNames[i] = readUTF8String(encoded);
+        }
+        int numRecords = ByteBufUtils.readVInt(encoded);
+        ColumnarTuples.Column[] columns = new ColumnarTuples.Column[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            columns[i] = readColumn(encoded, numRecords);
+        }
+        return new TuplesList(columnNames, new ColumnarTuples(columnNames, columns, numRecords));
+    }
+
+    private static ColumnarTuples.Column readColumn(ByteBuf encoded, int numRecords) {
+        byte type = encoded.readByte();
+        switch (type) {
+            case COLUMN_NULLS:
+                return ColumnarTuples.NULLS;
+            case COLUMN_MIXED: {
+                Object[] values = new Object[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = readEncodedSimpleValue(encoded);
+                }
+                return new ColumnarTuples.ObjectColumn(values);
+            }
+            default:
+                break;
+        }
+        byte[] nulls = null;
+        if (encoded.readByte() == 1) {
+            nulls = new byte[(numRecords + 7) >> 3];
+            encoded.readBytes(nulls);
+        }
+        switch (type) {
+            case COLUMN_INT: {
+                int[] values = new int[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = encoded.readInt();
+                }
+                return new ColumnarTuples.IntColumn(nulls, values);
+            }
+            case COLUMN_LONG: {
+                long[] values = new long[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = encoded.readLong();
+                }
+                return new ColumnarTuples.LongColumn(nulls, values);
+            }
+            case COLUMN_DOUBLE: {
+                double[] values = new double[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = encoded.readDouble();
+                }
+                return new ColumnarTuples.DoubleColumn(nulls, values);
+            }
+            case COLUMN_BOOLEAN: {
+                byte[] values = new byte[numRecords];
+                encoded.readBytes(values);
+                return new ColumnarTuples.BooleanColumn(nulls, values);
+            }
+            case COLUMN_TIMESTAMP: {
+                long[] values = new long[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = encoded.readLong();
+                }
+                return new ColumnarTuples.TimestampColumn(nulls, values);
+            }
+            case COLUMN_STRING: {
+                int totalLength = ByteBufUtils.readVInt(encoded);
+                int[] offsets = new int[numRecords + 1];
+                int offset = 0;
+                for (int i = 0; i < numRecords; i++) {
+                    offsets[i] = offset;
+                    offset += ByteBufUtils.readVInt(encoded);
+                }
+                offsets[numRecords] = offset;
+                byte[] data = new byte[totalLength];
+                encoded.readBytes(data);
+                return new ColumnarTuples.StringColumn(nulls, data, offsets);
+            }
+            case COLUMN_BYTEARRAY: {
+                Object[] values = new Object[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    values[i] = ByteBufUtils.readArray(encoded);
+                }
+                if (nulls != null) {
+                    for (int i = 0; i < numRecords; i++) {
+                        if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+                            values[i] = null;
+                        }
+                    }
+                }
+                return new ColumnarTuples.ObjectColumn(values);
+            }
+            default:
+                throw new RuntimeException("invalid column type: " + type);
+        }
+    }
+
     public static Message decodeMessage(ByteBuf encoded) {
         byte version = encoded.readByte();
+        if (version == VERSION_2) {
+            return decodeMessageV2(encoded);
+        }
         if (version != VERSION) {
             throw new RuntimeException("bad protocol version " + version);
         }
 
         int type = ByteBufUtils.readVInt(encoded);
-        String messageId = readUTF8String(encoded);
-        String replyMessageId = null;
+        long messageId = Long.parseLong(readUTF8String(encoded));
+        long replyMessageId = 0;
         String workerProcessId = null;
         Map<String, Object> params = new HashMap<>();
         while (encoded.isReadable()) {
             byte opcode = encoded.readByte();
             switch (opcode) {
                 case OPCODE_REPLYMESSAGEID:
-                    replyMessageId = readUTF8String(encoded);
+                    replyMessageId = Long.parseLong(readUTF8String(encoded));
                     break;
                 case OPCODE_WORKERPROCESSID:
                     workerProcessId = readUTF8String(encoded);
@@ -155,9 +886,56 @@ public class MessageUtils {
             }
         }
         Message m = new Message(workerProcessId, type, params);
-        if (replyMessageId != null) {
-            m.replyMessageId = replyMessageId;
+        m.replyMessageId = replyMessageId;
+        m.messageId = messageId;
+        return m;
+    }
+
+    private static Message decodeMessageV2(ByteBuf encoded) {
+        int type = ByteBufUtils.readVInt(encoded);
+        long messageId = ByteBufUtils.readVLong(encoded);
+        byte flags = encoded.readByte();
+        long replyMessageId = 0;
+        String workerProcessId = null;
+        if ((flags & FLAG_REPLYMESSAGEID) != 0) {
+            replyMessageId = ByteBufUtils.readVLong(encoded);
+        }
+        if ((flags & FLAG_WORKERPROCESSID) != 0) {
+            workerProcessId = readUTF8String(encoded);
+        }
+        Layout layout = layout(type);
+        Map<String, Object> params;
+        if (layout != null) {
+            LayoutParameters layoutParameters = new LayoutParameters(layout.names);
+            long presentFields = ByteBufUtils.readVLong(encoded);
+            for (int i = 0; i < layout.names.length; i++) {
+                if ((presentFields & (1L << i)) != 0) {
+                    layoutParameters.setValue(i, readField(encoded, layout.kinds[i]));
+                }
+            }
+            params = layoutParameters;
+        } else {
+            params = null;
         }
+        int size = ByteBufUtils.readVInt(encoded);
+        if (params == null) {
+            // avoid rehashing while filling the map
+            params = new HashMap<>(size * 4 / 3 + 1);
+        }
+        for (int i = 0; i < size; i++) {
+            int code = ByteBufUtils.readVInt(encoded);
+            String name;
+            if (code == 0) {
+                name = readUTF8String(encoded);
+            } else if (code <= PARAMETER_NAMES.length) {
+                name = PARAMETER_NAMES[code - 1];
+            } else {
+                throw new RuntimeException("invalid parameter code: " + code);
+            }
+            params.put(name, readEncodedSimpleValue(encoded));
+        }
+        Message m = new Message(workerProcessId, type, params);
+        m.replyMessageId = replyMessageId;
         m.messageId = messageId;
         return m;
     }
@@ -359,6 +1137,8 @@ public class MessageUtils {
                 }
                 return ret;
             }
+            case OPCODE_COLUMNAR_TUPLELIST_VALUE:
+                return readColumnarTuplesList(encoded);
             case OPCODE_TUPLELIST_VALUE: {
                 int numColumns = ByteBufUtils.readVInt(encoded);
                 String[] columns = new String[numColumns];
@@ -30,10 +30,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,10 +53,20 @@ public class NettyChannel extends Channel {
     private static final Logger LOGGER = Logger.getLogger(NettyChannel.class.getName());
     private static final AtomicLong idGenerator = new AtomicLong();
 
-    private final Map<String, ReplyCallback> pendingReplyMessages = new ConcurrentHashMap<>();
-    private final Map<String, Message> pendingReplyMessagesSource = new ConcurrentHashMap<>();
-    private final Map<String, Long> pendingReplyMessagesDeadline = new ConcurrentHashMap<>();
+    private final Map<Long, ReplyCallback> pendingReplyMessages = new ConcurrentHashMap<>();
+    private final Map<Long, Message> pendingReplyMessagesSource = new ConcurrentHashMap<>();
+    private final Map<Long, Long> pendingReplyMessagesDeadline = new ConcurrentHashMap<>();
     private final ExecutorService callbackexecutor;
+    private final RequestScheduler requestScheduler;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private boolean connectionQueueFull;
+    private int fullTableSpaceQueues;
+    /**
+     * Requests which must be executed one at a time, see
+     * {@link RequestScheduler}
+     */
+    final Queue<Runnable> orderedRequests = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean orderedRequestsRunning = new AtomicBoolean();
     private boolean ioErrors = false;
     private final long id = idGenerator.incrementAndGet();
     private final String remoteAddress;
@@ -63,9 +77,18 @@ public class NettyChannel extends Channel {
     }
 
     public NettyChannel(String name, io.netty.channel.Channel socket, ExecutorService callbackexecutor) {
+        this(name, socket, callbackexecutor, null);
+    }
+
+    /**
+     * @param requestScheduler executes the incoming requests, if null they are
+     * executed by the callbackexecutor
+     */
+    public NettyChannel(String name, io.netty.channel.Channel socket, ExecutorService callbackexecutor, RequestScheduler requestScheduler) {
         this.name = name;
         this.socket = socket;
         this.callbackexecutor = callbackexecutor;
+        this.requestScheduler = requestScheduler;
         if (socket instanceof SocketChannel) {
             this.remoteAddress = ((SocketChannel) socket).remoteAddress() + "";
         } else {
@@ -74,17 +97,75 @@ public class NettyChannel extends Channel {
     }
 
     public void messageReceived(Message message) {
-        if (message.getReplyMessageId() != null) {
+        if (message.getReplyMessageId() != 0) {
             handleReply(message);
         } else {
-            submitCallback(() -> {
+            Runnable handler = () -> {
                 try {
                     messagesReceiver.messageReceived(message, this);
                 } catch (Throwable t) {
                     LOGGER.log(Level.SEVERE, this + ": error " + t, t);
                     close();
                 }
-            });
+            };
+            if (requestScheduler != null) {
+                requestScheduler.submit(this, message, handler);
+            } else {
+                submitCallback(handler);
+            }
+        }
+    }
+
+    /**
+     * Requests received on this channel which are waiting for a thread or
+     * running
+     */
+    public int getPendingRequests() {
+        return pendingRequests.get();
+    }
+
+    void requestQueued(int maxPendingRequests) {
+        if (pendingRequests.incrementAndGet() >= maxPendingRequests) {
+            synchronized (this) {
+                if (!connectionQueueFull && pendingRequests.get() >= maxPendingRequests) {
+                    connectionQueueFull = true;
+                    updateAutoRead();
+                }
+            }
+        }
+    }
+
+    void requestCompleted(int resumeThreshold) {
+        if (pendingRequests.decrementAndGet() <= resumeThreshold) {
+            synchronized (this) {
+                if (connectionQueueFull && pendingRequests.get() <= resumeThreshold) {
+                    connectionQueueFull = false;
+                    updateAutoRead();
+                }
+            }
+        }
+    }
+
+    synchronized void tableSpaceQueueFull() {
+        fullTableSpaceQueues++;
+        updateAutoRead();
+    }
+
+    synchronized void tableSpaceQueueAvailable() {
+        fullTableSpaceQueues--;
+        updateAutoRead();
+    }
+
+    private void updateAutoRead() {
+        io.netty.channel.Channel _socket = socket;
+        if (_socket == null) {
+            return;
+        }
+        boolean autoRead = !connectionQueueFull && fullTableSpaceQueues == 0;
+        if (_socket.config().isAutoRead() != autoRead) {
+            LOGGER.log(Level.FINE, "{0} autoRead {1}, pending requests {2}",
+                    new Object[]{this, autoRead, pendingRequests.get()});
+            _socket.config().setAutoRead(autoRead);
         }
     }
 
@@ -102,7 +183,7 @@ public class NettyChannel extends Channel {
 
     @Override
     public void sendOneWayMessage(Message message, SendResultCallback callback) {
-        if (message.getMessageId() == null) {
+        if (message.getMessageId() == 0) {
             message.assignMessageId();
         }
         io.netty.channel.Channel _socket = this.socket;
@@ -128,7 +209,7 @@ public class NettyChannel extends Channel {
 
     @Override
     public void sendReplyMessage(Message inAnswerTo, Message message) {
-        if (message.getMessageId() == null) {
+        if (message.getMessageId() == 0) {
             message.assignMessageId();
         }
         if (this.socket == null) {
@@ -148,7 +229,7 @@ public class NettyChannel extends Channel {
     }
 
     private void processPendingReplyMessagesDeadline() {
-        List<String> messagesWithNoReply = new ArrayList<>();
+        List<Long> messagesWithNoReply = new ArrayList<>();
         long now = System.currentTimeMillis();
         pendingReplyMessagesDeadline.forEach((messageId, deadline) -> {
             if (deadline < now) {
@@ -160,7 +241,7 @@ public class NettyChannel extends Channel {
         }
         LOGGER.log(Level.SEVERE, this + " found " + messagesWithNoReply + " without reply, channel will be closed");
         ioErrors = true;
-        for (String messageId : messagesWithNoReply) {
+        for (Long messageId : messagesWithNoReply) {
             Message original = pendingReplyMessagesSource.remove(messageId);
             ReplyCallback callback = pendingReplyMessages.remove(messageId);
             pendingReplyMessagesDeadline.remove(messageId);
@@ -175,7 +256,7 @@ public class NettyChannel extends Channel {
 
     @Override
     public void sendMessageWithAsyncReply(Message message, long timeout, ReplyCallback callback) {
-        if (message.getMessageId() == null) {
+        if (message.getMessageId() == 0) {
             message.assignMessageId();
         }
         if (!isValid()) {
@@ -201,6 +282,11 @@ public class NettyChannel extends Channel {
         });
     }
 
+    @Override
+    public int getPendingReplyMessages() {
+        return pendingReplyMessages.size();
+    }
+
     @Override
     public boolean isValid() {
         io.netty.channel.Channel _socket = socket;
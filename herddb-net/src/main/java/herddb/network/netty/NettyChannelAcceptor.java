@@ -73,8 +73,15 @@ public class NettyChannelAcceptor implements AutoCloseable {
     private int workerThreads = 16;
     private int callbackThreads = 64;
     private ExecutorService callbackExecutor;
+    private int pointRequestThreads = 64;
+    private int scanRequestThreads = 16;
+    private int adminRequestThreads = 8;
+    private int maxPendingRequestsPerConnection = 256;
+    private int maxPendingRequestsPerTableSpace = 10000;
+    private RequestScheduler requestScheduler;
     private boolean enableRealNetwork = true;
     private boolean enableJVMNetwork = true;
+    private boolean jvmNetworkPassByReference = true;
 
     public boolean isEnableRealNetwork() {
         return enableRealNetwork;
@@ -92,6 +99,18 @@ public class NettyChannelAcceptor implements AutoCloseable {
         this.enableJVMNetwork = enableJVMNetwork;
     }
 
+    public boolean isJvmNetworkPassByReference() {
+        return jvmNetworkPassByReference;
+    }
+
+    /**
+     * Clients in the same JVM receive messages by reference, without encoding
+     * them
+     */
+    public void setJvmNetworkPassByReference(boolean jvmNetworkPassByReference) {
+        this.jvmNetworkPassByReference = jvmNetworkPassByReference;
+    }
+
     public int getCallbackThreads() {
         return callbackThreads;
     }
@@ -100,6 +119,61 @@ public class NettyChannelAcceptor implements AutoCloseable {
         this.callbackThreads = callbackThreads;
     }
 
+    public int getPointRequestThreads() {
+        return pointRequestThreads;
+    }
+
+    public void setPointRequestThreads(int pointRequestThreads) {
+        this.pointRequestThreads = pointRequestThreads;
+    }
+
+    public int getScanRequestThreads() {
+        return scanRequestThreads;
+    }
+
+    public void setScanRequestThreads(int scanRequestThreads) {
+        this.scanRequestThreads = scanRequestThreads;
+    }
+
+    public int getAdminRequestThreads() {
+        return adminRequestThreads;
+    }
+
+    public void setAdminRequestThreads(int adminRequestThreads) {
+        this.adminRequestThreads = adminRequestThreads;
+    }
+
+    public int getMaxPendingRequestsPerConnection() {
+        return maxPendingRequestsPerConnection;
+    }
+
+    /**
+     * When a connection has this number of pending requests the server stops
+     * reading from it
+     */
+    public void setMaxPendingRequestsPerConnection(int maxPendingRequestsPerConnection) {
+        this.maxPendingRequestsPerConnection = maxPendingRequestsPerConnection;
+    }
+
+    public int getMaxPendingRequestsPerTableSpace() {
+        return maxPendingRequestsPerTableSpace;
+    }
+
+    /**
+     * When a tablespace has this number of pending requests the server stops
+     * reading from the connections which send requests to it
+     */
+    public void setMaxPendingRequestsPerTableSpace(int maxPendingRequestsPerTableSpace) {
+        this.maxPendingRequestsPerTableSpace = maxPendingRequestsPerTableSpace;
+    }
+
+    /**
+     * Executor of the incoming requests, available after {@link #start()}
+     */
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
     public int getWorkerThreads() {
         return workerThreads;
     }
@@ -208,12 +282,16 @@ public class NettyChannelAcceptor implements AutoCloseable {
             });
         }
 
+        requestScheduler = new RequestScheduler(
+                new int[]{pointRequestThreads, scanRequestThreads, adminRequestThreads},
+                maxPendingRequestsPerConnection, maxPendingRequestsPerTableSpace);
+
         InetSocketAddress address = new InetSocketAddress(host, port);
         LOGGER.log(Level.SEVERE, "Starting HerdDB network server at {0}:{1}", new Object[]{host, port + ""});
         ChannelInitializer<io.netty.channel.Channel> channelInitialized = new ChannelInitializer<io.netty.channel.Channel>() {
             @Override
             public void initChannel(io.netty.channel.Channel ch) throws Exception {
-                NettyChannel session = new NettyChannel("unnamed", ch, callbackExecutor);
+                NettyChannel session = new NettyChannel("unnamed", ch, callbackExecutor, requestScheduler);
                 if (acceptor != null) {
                     acceptor.createConnection(session);
                 }
@@ -227,8 +305,8 @@ public class NettyChannelAcceptor implements AutoCloseable {
                 ch.pipeline().addLast("lengthprepender", new LengthFieldPrepender(4));
                 ch.pipeline().addLast("lengthbaseddecoder", new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4));
 //
-                ch.pipeline().addLast("messageencoder", new DataMessageEncoder());
-                ch.pipeline().addLast("messagedecoder", new DataMessageDecoder());
+                ch.pipeline().addLast("messageencoder", new DataMessageEncoder(session));
+                ch.pipeline().addLast("messagedecoder", new DataMessageDecoder(session));
                 ch.pipeline().addLast(new InboundMessageHandler(session));
             }
         };
@@ -254,15 +332,29 @@ public class NettyChannelAcceptor implements AutoCloseable {
         }
 
         if (enableJVMNetwork) {
+            ChannelInitializer<io.netty.channel.Channel> localChannelInitialized = channelInitialized;
+            if (jvmNetworkPassByReference) {
+                localChannelInitialized = new ChannelInitializer<io.netty.channel.Channel>() {
+                    @Override
+                    public void initChannel(io.netty.channel.Channel ch) throws Exception {
+                        NettyChannel session = new NettyChannel("unnamed", ch, callbackExecutor, requestScheduler);
+                        if (acceptor != null) {
+                            acceptor.createConnection(session);
+                        }
+                        ch.pipeline().addLast("messageencoder", new LocalMessageEncoder());
+                        ch.pipeline().addLast(new InboundMessageHandler(session));
+                    }
+                };
+            }
             localBossGroup = new DefaultEventLoopGroup(workerThreads);
             localWorkerGroup = new DefaultEventLoopGroup(workerThreads);
             ServerBootstrap b_local = new ServerBootstrap();
             b_local.group(localBossGroup, localWorkerGroup)
                 .channel(LocalServerChannel.class)
-                .childHandler(channelInitialized);
+                .childHandler(localChannelInitialized);
 
             String hostAddress = NetworkUtils.getAddress(address);
-            LocalServerRegistry.registerLocalServer(hostAddress, port, ssl);
+            LocalServerRegistry.registerLocalServer(hostAddress, port, ssl, jvmNetworkPassByReference);
 
             ChannelFuture local_f = b_local.bind(new LocalAddress(hostAddress + ":" + port + ":" + ssl)).sync();
             this.local_channel = local_f.channel();
@@ -288,6 +380,9 @@ public class NettyChannelAcceptor implements AutoCloseable {
         if (localBossGroup != null) {
             localBossGroup.shutdownGracefully();
         }
+        if (requestScheduler != null) {
+            requestScheduler.close();
+        }
         if (callbackExecutor != null) {
             callbackExecutor.shutdown();
         }
@@ -66,7 +66,9 @@ public class NettyConnector {
             String hostAddress = NetworkUtils.getAddress(inet);
 
             MultithreadEventLoopGroup group;
+            boolean passByReference = false;
             if (LocalServerRegistry.isLocalServer(hostAddress, port, ssl)) {
+                passByReference = LocalServerRegistry.isPassByReference(hostAddress, port, ssl);
                 channelType = LocalChannel.class;
                 address = new LocalAddress(hostAddress + ":" + port + ":" + ssl);
                 group = localEventsGroup;
@@ -77,6 +79,7 @@ public class NettyConnector {
             }
             Bootstrap b = new Bootstrap();
             AtomicReference<NettyChannel> result = new AtomicReference<>();
+            final boolean localPassByReference = passByReference;
 
             b.group(group)
                 .channel(channelType)
@@ -87,6 +90,12 @@ public class NettyConnector {
                         NettyChannel channel = new NettyChannel(host + ":" + port, ch, callbackExecutor);
                         result.set(channel);
                         channel.setMessagesReceiver(receiver);
+                        if (localPassByReference) {
+                            // the server lives in the same JVM, no need to encrypt and encode data
+                            ch.pipeline().addLast("messageencoder", new LocalMessageEncoder());
+                            ch.pipeline().addLast(new InboundMessageHandler(channel));
+                            return;
+                        }
                         if (ssl) {
                             ch.pipeline().addLast(sslCtx.newHandler(ch.alloc(), host, port));
                         }
@@ -96,8 +105,8 @@ public class NettyConnector {
                         ch.pipeline().addLast("lengthprepender", new LengthFieldPrepender(4));
                         ch.pipeline().addLast("lengthbaseddecoder", new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4));
 //
-                        ch.pipeline().addLast("messageencoder", new DataMessageEncoder());
-                        ch.pipeline().addLast("messagedecoder", new DataMessageDecoder());
+                        ch.pipeline().addLast("messageencoder", new DataMessageEncoder(channel));
+                        ch.pipeline().addLast("messagedecoder", new DataMessageDecoder(channel));
                         ch.pipeline().addLast(new InboundMessageHandler(channel));
                     }
                 }
@@ -0,0 +1,96 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.network.netty;
+
+/**
+ * Statistics about a queue of requests on the server
+ *
+ * @author enrico.olivelli
+ */
+public class RequestQueueStats {
+
+    private final String name;
+    private final int pendingRequests;
+    private final long completedRequests;
+    private final long startedRequests;
+    private final long totalQueueTime;
+    private final long maxQueueTime;
+
+    public RequestQueueStats(String name, int pendingRequests, long completedRequests,
+            long startedRequests, long totalQueueTime, long maxQueueTime) {
+        this.name = name;
+        this.pendingRequests = pendingRequests;
+        this.completedRequests = completedRequests;
+        this.startedRequests = startedRequests;
+        this.totalQueueTime = totalQueueTime;
+        this.maxQueueTime = maxQueueTime;
+    }
+
+    /**
+     * Class of requests (point, scan, admin) or tablespace:name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Requests waiting for a thread or running
+     */
+    public int getPendingRequests() {
+        return pendingRequests;
+    }
+
+    public long getCompletedRequests() {
+        return completedRequests;
+    }
+
+    public long getStartedRequests() {
+        return startedRequests;
+    }
+
+    /**
+     * Sum of the time spent by requests waiting for a thread, in nanoseconds
+     */
+    public long getTotalQueueTime() {
+        return totalQueueTime;
+    }
+
+    /**
+     * Maximum time spent by a request waiting for a thread, in nanoseconds
+     */
+    public long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    /**
+     * Average time spent by requests waiting for a thread, in nanoseconds
+     */
+    public long getAverageQueueTime() {
+        return startedRequests == 0 ? 0 : totalQueueTime / startedRequests;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestQueueStats{" + "name=" + name + ", pendingRequests=" + pendingRequests
+                + ", completedRequests=" + completedRequests + ", startedRequests=" + startedRequests
+                + ", totalQueueTime=" + totalQueueTime + ", maxQueueTime=" + maxQueueTime + '}';
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.network.netty;
+
+import herddb.network.ChannelEventListener;
+import herddb.network.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes the requests received by the server. Requests are divided into
+ * classes, each class is served by its own pool of threads, so that long
+ * scans or dumps do not delay point operations.<br>
+ * Statements which begin, commit or rollback transactions have a pool which
+ * grows as needed: other requests may wait for the locks of a transaction,
+ * and they must not prevent the commit which releases them.<br>
+ * The number of pending requests is bounded per connection and per
+ * tablespace: when a limit is reached the server stops reading from the
+ * connection (Netty autoRead), until enough requests complete.<br>
+ * Batches of statements received on a connection are executed one at a time,
+ * in the order they were received.
+ *
+ * @author enrico.olivelli
+ */
+public class RequestScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RequestScheduler.class.getName());
+
+    public enum RequestClass {
+        /**
+         * Point operations and other short requests
+         */
+        POINT,
+        /**
+         * Requests which open or fetch data from scanners
+         */
+        SCAN,
+        /**
+         * DDL statements, dumps, restores and replication
+         */
+        ADMIN,
+        /**
+         * BEGIN, COMMIT and ROLLBACK statements, served by a pool without a
+         * fixed size
+         */
+        TRANSACTION
+    }
+
+    private final ExecutorService[] pools;
+    private final QueueCounters[] classQueues;
+    private final Map<String, TableSpaceQueue> tableSpaceQueues = new ConcurrentHashMap<>();
+    private final int maxPendingRequestsPerConnection;
+    private final int maxPendingRequestsPerTableSpace;
+
+    /**
+     * @param threads number of threads for the POINT, SCAN and ADMIN classes of
+     * requests
+     * @param maxPendingRequestsPerConnection
+     * @param maxPendingRequestsPerTableSpace
+     */
+    public RequestScheduler(int[] threads, int maxPendingRequestsPerConnection, int maxPendingRequestsPerTableSpace) {
+        RequestClass[] requestClasses = RequestClass.values();
+        if (threads.length != RequestClass.TRANSACTION.ordinal()) {
+            throw new IllegalArgumentException("expected the number of threads for " + RequestClass.TRANSACTION.ordinal() + " classes of requests");
+        }
+        this.maxPendingRequestsPerConnection = Math.max(1, maxPendingRequestsPerConnection);
+        this.maxPendingRequestsPerTableSpace = Math.max(1, maxPendingRequestsPerTableSpace);
+        this.pools = new ExecutorService[requestClasses.length];
+        this.classQueues = new QueueCounters[requestClasses.length];
+        for (RequestClass requestClass : requestClasses) {
+            String prefix = "herddb-requests-" + requestClass.name().toLowerCase() + "-";
+            AtomicLong count = new AtomicLong();
+            ThreadFactory threadFactory = (Runnable r) -> new Thread(r, prefix + count.incrementAndGet());
+            if (requestClass == RequestClass.TRANSACTION) {
+                pools[requestClass.ordinal()] = Executors.newCachedThreadPool(threadFactory);
+            } else {
+                pools[requestClass.ordinal()] = Executors.newFixedThreadPool(Math.max(1, threads[requestClass.ordinal()]),
+                        threadFactory);
+            }
+            classQueues[requestClass.ordinal()] = new QueueCounters(requestClass.name().toLowerCase());
+        }
+    }
+
+    public int getMaxPendingRequestsPerConnection() {
+        return maxPendingRequestsPerConnection;
+    }
+
+    public int getMaxPendingRequestsPerTableSpace() {
+        return maxPendingRequestsPerTableSpace;
+    }
+
+    static RequestClass classify(Message message, ChannelEventListener receiver) {
+        switch (message.type) {
+            case Message.TYPE_OPENSCANNER:
+            case Message.TYPE_FETCHSCANNERDATA:
+                return RequestClass.SCAN;
+            case Message.TYPE_REQUEST_TABLESPACE_DUMP:
+            case Message.TYPE_REQUEST_TABLE_RESTORE:
+            case Message.TYPE_PUSH_TABLE_DATA:
+            case Message.TYPE_TABLE_RESTORE_FINISHED:
+            case Message.TYPE_RESTORE_FINISHED:
+            case Message.TYPE_PUSH_TXLOGCHUNK:
+            case Message.TYPE_PUSH_TRANSACTIONSBLOCK:
+            case Message.TYPE_BULK_LOAD:
+                return RequestClass.ADMIN;
+            case Message.TYPE_EXECUTE_STATEMENT: {
+                String query = receiver != null ? receiver.resolveQuery(message) : null;
+                if (query != null && startsWith(query, DDL_PREFIXES)) {
+                    return RequestClass.ADMIN;
+                }
+                if (query != null && startsWith(query, TRANSACTION_PREFIXES)) {
+                    return RequestClass.TRANSACTION;
+                }
+                return RequestClass.POINT;
+            }
+            default:
+                return RequestClass.POINT;
+        }
+    }
+
+    private static final String[] DDL_PREFIXES = {"CREATE", "DROP", "ALTER", "TRUNCATE"};
+    private static final String[] TRANSACTION_PREFIXES = {"BEGIN", "COMMIT", "ROLLBACK"};
+
+    private static boolean startsWith(String query, String[] prefixes) {
+        int start = 0;
+        while (start < query.length() && Character.isWhitespace(query.charAt(start))) {
+            start++;
+        }
+        for (String prefix : prefixes) {
+            if (query.regionMatches(true, start, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes a request, on the pool of its class.
+     *
+     * @param channel the channel which received the request
+     * @param message the request
+     * @param task the handler of the request
+     */
+    public void submit(NettyChannel channel, Message message, Runnable task) {
+        RequestClass requestClass = classify(message, channel.getMessagesReceiver());
+        QueueCounters classQueue = classQueues[requestClass.ordinal()];
+        Object tableSpace = message.parameters.get("tableSpace");
+        TableSpaceQueue tableSpaceQueue = tableSpace instanceof String
+                ? tableSpaceQueues.computeIfAbsent((String) tableSpace, TableSpaceQueue::new)
+                : null;
+        long submitTime = System.nanoTime();
+        classQueue.requestQueued();
+        channel.requestQueued(maxPendingRequestsPerConnection);
+        if (tableSpaceQueue != null && tableSpaceQueue.requestQueued() > maxPendingRequestsPerTableSpace) {
+            tableSpaceQueue.suspend(channel);
+        }
+        Runnable execution = () -> {
+            long queueTime = System.nanoTime() - submitTime;
+            classQueue.requestStarted(queueTime);
+            if (tableSpaceQueue != null) {
+                tableSpaceQueue.requestStarted(queueTime);
+            }
+            try {
+                task.run();
+            } finally {
+                requestCompleted(channel, classQueue, tableSpaceQueue);
+            }
+        };
+        ExecutorService pool = pools[requestClass.ordinal()];
+        if (message.type == Message.TYPE_EXECUTE_STATEMENTS) {
+            // chunks of a batch may be pipelined, they must be executed in the order they were sent
+            channel.orderedRequests.add(execution);
+            executeOrderedRequests(channel, pool);
+        } else {
+            execute(pool, channel, message, execution);
+        }
+    }
+
+    private void executeOrderedRequests(NettyChannel channel, ExecutorService pool) {
+        if (!channel.orderedRequestsRunning.compareAndSet(false, true)) {
+            return;
+        }
+        execute(pool, channel, "ordered requests", () -> {
+            try {
+                Runnable request;
+                while ((request = channel.orderedRequests.poll()) != null) {
+                    request.run();
+                }
+            } finally {
+                channel.orderedRequestsRunning.set(false);
+                if (!channel.orderedRequests.isEmpty()) {
+                    executeOrderedRequests(channel, pool);
+                }
+            }
+        });
+    }
+
+    private static void execute(ExecutorService pool, NettyChannel channel, Object request, Runnable execution) {
+        try {
+            pool.execute(execution);
+        } catch (RejectedExecutionException stopped) {
+            LOGGER.log(Level.SEVERE, channel + " rejected request " + request + ":" + stopped);
+            try {
+                execution.run();
+            } catch (Throwable error) {
+                LOGGER.log(Level.SEVERE, channel + " error on rejected request " + request + ":" + error);
+            }
+        }
+    }
+
+    private void requestCompleted(NettyChannel channel, QueueCounters classQueue, TableSpaceQueue tableSpaceQueue) {
+        classQueue.requestCompleted();
+        channel.requestCompleted(maxPendingRequestsPerConnection / 2);
+        if (tableSpaceQueue != null
+                && tableSpaceQueue.requestCompleted() <= maxPendingRequestsPerTableSpace / 2) {
+            tableSpaceQueue.resumeAll();
+        }
+    }
+
+    /**
+     * Statistics about the queues of each class of requests, followed by the
+     * queues of each tablespace
+     */
+    public List<RequestQueueStats> getStats() {
+        List<RequestQueueStats> result = new ArrayList<>();
+        for (QueueCounters queue : classQueues) {
+            result.add(queue.getStats());
+        }
+        for (TableSpaceQueue queue : tableSpaceQueues.values()) {
+            result.add(queue.getStats());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    private static class QueueCounters {
+
+        private final String name;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong totalQueueTime = new AtomicLong();
+        private final AtomicLong maxQueueTime = new AtomicLong();
+
+        QueueCounters(String name) {
+            this.name = name;
+        }
+
+        int requestQueued() {
+            return pending.incrementAndGet();
+        }
+
+        void requestStarted(long queueTime) {
+            started.incrementAndGet();
+            totalQueueTime.addAndGet(queueTime);
+            maxQueueTime.accumulateAndGet(queueTime, Math::max);
+        }
+
+        int requestCompleted() {
+            completed.incrementAndGet();
+            return pending.decrementAndGet();
+        }
+
+        RequestQueueStats getStats() {
+            return new RequestQueueStats(name, pending.get(), completed.get(),
+                    started.get(), totalQueueTime.get(), maxQueueTime.get());
+        }
+    }
+
+    private static class TableSpaceQueue extends QueueCounters {
+
+        /**
+         * Connections which stopped reading because this queue was full
+         */
+        private final Set<NettyChannel> suspended = ConcurrentHashMap.newKeySet();
+
+        TableSpaceQueue(String tableSpace) {
+            super("tablespace:" + tableSpace);
+        }
+
+        void suspend(NettyChannel channel) {
+            if (suspended.add(channel)) {
+                channel.tableSpaceQueueFull();
+            }
+        }
+
+        void resumeAll() {
+            for (NettyChannel channel : suspended) {
+                if (suspended.remove(channel)) {
+                    channel.tableSpaceQueueAvailable();
+                }
+            }
+        }
+    }
+}
@@ -18,9 +18,11 @@ package herddb.network.netty;
 import herddb.network.Message;
 import herddb.utils.DataAccessor;
 import herddb.utils.MapDataAccessor;
+import herddb.utils.PrimitiveDataAccessor;
 import herddb.utils.RawString;
 import herddb.utils.TuplesList;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -68,7 +70,7 @@ public class MessageUtilsTest {
 
         Message m = new Message(clientId, 1234, payload);
         m.assignMessageId();
-        m.setReplyMessageId("2343");
+        m.setReplyMessageId(2343);
         MessageUtils.encodeMessage(buffer, m);
 
         Message read = MessageUtils.decodeMessage(buffer);
@@ -88,4 +90,250 @@ public class MessageUtilsTest {
         assertArrayEquals(colNames, tl2.tuples.get(1).getFieldNames());
     }
 
+    @Test
+    public void testEncodeMessageV2() {
+        Message m = Message.EXECUTE_STATEMENT("client", "tblspace1", "SELECT * FROM t1 WHERE k=?", 0, 1234L, true,
+                Arrays.asList("a", 1));
+        m.setParameter("customParameter", "foo");
+        m.assignMessageId();
+        m.setReplyMessageId(2343);
+
+        ByteBuf bufferV1 = Unpooled.buffer();
+        MessageUtils.encodeMessage(bufferV1, m, Message.PROTOCOL_VERSION_1);
+        ByteBuf bufferV2 = Unpooled.buffer();
+        MessageUtils.encodeMessage(bufferV2, m, Message.PROTOCOL_VERSION_2);
+        assertTrue(bufferV2.readableBytes() < bufferV1.readableBytes());
+
+        Message read = MessageUtils.decodeMessage(bufferV2);
+        assertEquals(m.clientId, read.clientId);
+        assertEquals(m.messageId, read.messageId);
+        assertEquals(m.replyMessageId, read.replyMessageId);
+        assertEquals(m.type, read.type);
+        // timestamp is not sent anymore
+        assertNull(read.parameters.get("ts"));
+        assertEquals(m.parameters.size() - 1, read.parameters.size());
+        read.parameters.forEach((String k, Object v) -> {
+            assertEquals(m.parameters.get(k), v);
+        });
+
+        // no clientId, not a reply
+        Message m2 = Message.ACK(null);
+        m2.assignMessageId();
+        ByteBuf buffer = Unpooled.buffer();
+        MessageUtils.encodeMessage(buffer, m2, Message.PROTOCOL_VERSION_2);
+        Message read2 = MessageUtils.decodeMessage(buffer);
+        assertNull(read2.clientId);
+        assertEquals(0, read2.replyMessageId);
+        assertEquals(m2.messageId, read2.messageId);
+        assertEquals(Message.TYPE_ACK, read2.type);
+        assertTrue(read2.parameters.isEmpty());
+    }
+
+    private static Message roundTripV2(Message m) {
+        m.assignMessageId();
+        ByteBuf buffer = Unpooled.buffer();
+        MessageUtils.encodeMessage(buffer, m, Message.PROTOCOL_VERSION_2);
+        Message read = MessageUtils.decodeMessage(buffer);
+        assertEquals(0, buffer.readableBytes());
+        assertEquals(m.type, read.type);
+        assertEquals(m.messageId, read.messageId);
+        Map<String, Object> expected = new HashMap<>(m.parameters);
+        expected.remove("ts");
+        assertEquals(expected, new HashMap<>(read.parameters));
+        assertEquals(expected.size(), read.parameters.size());
+        for (String name : expected.keySet()) {
+            assertTrue(read.parameters.containsKey(name));
+        }
+        return read;
+    }
+
+    @Test
+    public void testFixedLayoutsV2() {
+        roundTripV2(Message.EXECUTE_STATEMENT("client", "tblspace1", null, 12, 1234L, true, Arrays.asList("a", 1, null))
+                .setParameter("maxFollowerLag", 1000L));
+        roundTripV2(Message.EXECUTE_STATEMENT("client", "tblspace1", "SELECT 1", 0, 0, false, null));
+        roundTripV2(Message.EXECUTE_STATEMENTS("client", "tblspace1", "INSERT INTO t1(k) values(?)", 0, 1L, false,
+                Arrays.asList(Arrays.asList("a"), Arrays.asList("b"))));
+        roundTripV2(Message.OPEN_SCANNER("client", "tblspace1", "SELECT * FROM t1", 0, "scanner1", 1L, Arrays.asList(1L), 10, 100, 4));
+        roundTripV2(Message.FETCH_SCANNER_DATA("client", "scanner1", 10));
+        roundTripV2(Message.SCANNER_CREDITS("client", "scanner1", 1));
+        Map<String, Object> returnValues = new HashMap<>();
+        returnValues.put("k", "v");
+        roundTripV2(Message.EXECUTE_STATEMENT_RESULT(-1, returnValues, 0));
+        roundTripV2(Message.EXECUTE_STATEMENT_RESULTS(Arrays.asList(1L, 2L), Arrays.asList(returnValues, returnValues), 3));
+
+        // values which do not fit the layout and unknown parameters are sent by name
+        Message read = roundTripV2(Message.FETCH_SCANNER_DATA("client", "scanner1", 10)
+                .setParameter("tx", 1)
+                .setParameter("customParameter", "foo")
+                .setParameter("nullParameter", null));
+        assertEquals(Integer.valueOf(1), read.parameters.get("tx"));
+        Message withLongFetchSize = Message.FETCH_SCANNER_DATA("client", "scanner1", 10);
+        withLongFetchSize.parameters.put("fetchSize", 10L);
+        read = roundTripV2(withLongFetchSize);
+        assertEquals(Long.valueOf(10), read.parameters.get("fetchSize"));
+
+        // decoded parameters can be modified
+        read.parameters.put("scannerId", "other");
+        read.parameters.remove("customParameter");
+        assertEquals("other", read.parameters.get("scannerId"));
+        assertFalse(read.parameters.containsKey("customParameter"));
+        read.parameters.remove("fetchSize");
+        assertEquals(1, read.parameters.size());
+    }
+
+    @Test
+    public void testEncodeColumnarTuplesList() {
+        String[] colNames = {"i", "l", "d", "b", "t", "s", "ba", "mixed", "nulls"};
+        List<DataAccessor> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> record = new HashMap<>();
+            if (i % 3 != 0) {
+                record.put("i", i);
+                record.put("l", i * 1000000000L);
+                record.put("d", i * 1.5d);
+                record.put("b", i % 2 == 0);
+                record.put("t", new java.sql.Timestamp(i * 1000L));
+                record.put("s", i % 2 == 0 ? "s" + i : RawString.of("r" + i));
+                record.put("ba", new byte[]{(byte) i});
+            }
+            record.put("mixed", i % 2 == 0 ? Integer.valueOf(i) : "m" + i);
+            records.add(new MapDataAccessor(record, colNames));
+        }
+        Message m = Message.RESULTSET_CHUNK(null, "scanner", new TuplesList(colNames, records), false, 1);
+        m.assignMessageId();
+        ByteBuf buffer = Unpooled.buffer();
+        MessageUtils.encodeMessage(buffer, m, Message.PROTOCOL_VERSION_2);
+
+        Message read = MessageUtils.decodeMessage(buffer);
+        TuplesList tl = (TuplesList) read.parameters.get("data");
+        assertArrayEquals(colNames, tl.columnNames);
+        assertEquals(20, tl.tuples.size());
+        for (int i = 0; i < 20; i++) {
+            DataAccessor da = tl.tuples.get(i);
+            Map<String, Object> map = da.toMap();
+            assertEquals(colNames.length, map.size());
+            if (i % 3 != 0) {
+                assertEquals(i, da.get("i"));
+                assertEquals(i * 1000000000L, da.get("l"));
+                assertEquals(i * 1.5d, da.get("d"));
+                assertEquals(i % 2 == 0, da.get("b"));
+                assertEquals(new java.sql.Timestamp(i * 1000L), da.get("t"));
+                assertEquals(i % 2 == 0 ? "s" + i : "r" + i, da.get("s"));
+                assertArrayEquals(new byte[]{(byte) i}, (byte[]) da.get("ba"));
+
+                // numbers are read without boxing
+                PrimitiveDataAccessor primitive = (PrimitiveDataAccessor) da;
+                assertTrue(primitive.isNumber(0));
+                assertEquals(i, primitive.getLong(0));
+                assertEquals(i * 1000000000L, primitive.getLong(1));
+                assertEquals(i * 1.5d, primitive.getDouble(2), 0);
+                assertFalse(primitive.isNumber(5));
+            } else {
+                for (int c = 0; c < 7; c++) {
+                    assertNull(da.get(c));
+                    assertNull(map.get(colNames[c]));
+                    assertFalse(((PrimitiveDataAccessor) da).isNumber(c));
+                }
+            }
+            assertEquals(i % 2 == 0 ? Integer.valueOf(i) : "m" + i, da.get(7));
+            assertNull(da.get("nulls"));
+        }
+    }
+
+    @Test
+    public void testCompressFrame() {
+        String[] colNames = {"k", "s"};
+        List<DataAccessor> records = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("k", i);
+            record.put("s", RawString.of("a value which repeats in every record " + (i % 10)));
+            records.add(new MapDataAccessor(record, colNames));
+        }
+        Message m = Message.RESULTSET_CHUNK(null, "scanner", new TuplesList(colNames, records), false, 1);
+        m.assignMessageId();
+        ByteBuf encoded = Unpooled.buffer();
+        MessageUtils.encodeMessage(encoded, m, Message.PROTOCOL_VERSION_2);
+        int size = encoded.readableBytes();
+        assertFalse(MessageUtils.isCompressedFrame(encoded));
+
+        ByteBuf compressed = MessageUtils.compressFrame(encoded, ByteBufAllocator.DEFAULT);
+        assertNotNull(compressed);
+        // the original frame is left untouched
+        assertEquals(size, encoded.readableBytes());
+        assertTrue(compressed.readableBytes() < size / 2);
+        assertTrue(MessageUtils.isCompressedFrame(compressed));
+
+        ByteBuf decompressed = MessageUtils.decompressFrame(compressed, ByteBufAllocator.DEFAULT);
+        try {
+            assertEquals(encoded, decompressed);
+            Message read = MessageUtils.decodeMessage(decompressed);
+            TuplesList tl = (TuplesList) read.parameters.get("data");
+            assertEquals(10000, tl.tuples.size());
+            assertEquals(9999, tl.tuples.get(9999).get("k"));
+            assertEquals("a value which repeats in every record 9", tl.tuples.get(9999).get("s").toString());
+        } finally {
+            compressed.release();
+            decompressed.release();
+        }
+
+        // random data does not get smaller
+        byte[] random = new byte[4096];
+        new java.util.Random(1234).nextBytes(random);
+        ByteBuf small = Unpooled.buffer();
+        MessageUtils.encodeMessage(small, Message.ACK(null).setParameter("data", random), Message.PROTOCOL_VERSION_2);
+        assertNull(MessageUtils.compressFrame(small, ByteBufAllocator.DEFAULT));
+    }
+
+    @Test
+    public void testCopyForLocalDelivery() {
+        String[] colNames = {"i", "s", "t"};
+        List<DataAccessor> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("i", i);
+            if (i % 2 == 0) {
+                record.put("s", RawString.of("r" + i));
+                record.put("t", new java.sql.Timestamp(i * 1000L));
+            }
+            records.add(new MapDataAccessor(record, colNames));
+        }
+        List<Object> params = new ArrayList<>(Arrays.asList("a", RawString.of("b"), 1L));
+        Map<String, Object> values = new HashMap<>();
+        values.put("s", RawString.of("c"));
+        Message m = Message.RESULTSET_CHUNK(null, "scanner", new TuplesList(colNames, records), false, 1)
+                .setParameter("params", params)
+                .setParameter("values", values);
+        m.assignMessageId();
+        m.setReplyMessageId(1234);
+
+        Message copy = MessageUtils.copyForLocalDelivery(m);
+        assertEquals(m.type, copy.type);
+        assertEquals(m.getMessageId(), copy.getMessageId());
+        assertEquals(1234, copy.getReplyMessageId());
+
+        // the sender may change its own containers
+        params.clear();
+        values.clear();
+        m.parameters.clear();
+        assertEquals(Arrays.asList("a", "b", 1L), copy.parameters.get("params"));
+        assertEquals("c", ((Map<String, Object>) copy.parameters.get("values")).get("s"));
+
+        TuplesList tl = (TuplesList) copy.parameters.get("data");
+        assertArrayEquals(colNames, tl.columnNames);
+        assertEquals(10, tl.tuples.size());
+        for (int i = 0; i < 10; i++) {
+            DataAccessor da = tl.tuples.get(i);
+            assertEquals(i, da.get("i"));
+            if (i % 2 == 0) {
+                assertEquals("r" + i, da.get("s"));
+                assertEquals(new java.sql.Timestamp(i * 1000L), da.get("t"));
+            } else {
+                assertNull(da.get("s"));
+                assertNull(da.get(2));
+            }
+        }
+    }
+
 }
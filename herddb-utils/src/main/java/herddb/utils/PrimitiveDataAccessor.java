@@ -0,0 +1,42 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package herddb.utils;
+
+/**
+ * A record which keeps numeric values as primitives, they can be read by
+ * position without boxing
+ *
+ * @author enrico.olivelli
+ */
+public interface PrimitiveDataAccessor extends DataAccessor {
+
+    /**
+     * Tells whether the value at the given position is a number which can be
+     * read using {@link #getLong(int)} or {@link #getDouble(int)}
+     *
+     * @param index position of the value
+     * @return false if the value is null or it is not a number
+     */
+    public boolean isNumber(int index);
+
+    public long getLong(int index);
+
+    public double getDouble(int index);
+}